@@ -0,0 +1,102 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.benchmarks.nacos;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.cloud.nacos.parser.NacosDataParserHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.core.env.PropertySource;
+
+/**
+ * Parsing of a nacos configuration with the same fifty keys in each supported format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NacosDataParserBenchmark {
+
+	private static final int KEY_COUNT = 50;
+
+	@Param({ "properties", "yaml", "json" })
+	private String extension;
+
+	private String configValue;
+
+	private String configName;
+
+	@Setup
+	public void setup() {
+		StringBuilder content = new StringBuilder();
+		switch (extension) {
+		case "yaml" -> {
+			content.append("benchmark:\n");
+			for (int i = 0; i < KEY_COUNT; i++) {
+				content.append("  key").append(i).append(": value-").append(i)
+						.append('\n');
+			}
+		}
+		case "json" -> {
+			content.append("{\"benchmark\":{");
+			for (int i = 0; i < KEY_COUNT; i++) {
+				content.append(i == 0 ? "" : ",").append("\"key").append(i)
+						.append("\":\"value-").append(i).append('"');
+			}
+			content.append("}}");
+		}
+		default -> {
+			for (int i = 0; i < KEY_COUNT; i++) {
+				content.append("benchmark.key").append(i).append("=value-").append(i)
+						.append('\n');
+			}
+		}
+		}
+		this.configValue = content.toString();
+		this.configName = "benchmark." + extension;
+		try {
+			if (parseNacosData().isEmpty()) {
+				throw new IllegalStateException("no parser for " + extension);
+			}
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Benchmark
+	public List<PropertySource<?>> parseNacosData() throws IOException {
+		return NacosDataParserHandler.getInstance().parseNacosData(configName,
+				configValue, extension);
+	}
+
+}
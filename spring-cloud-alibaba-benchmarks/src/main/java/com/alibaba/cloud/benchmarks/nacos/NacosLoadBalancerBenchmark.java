@@ -0,0 +1,133 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.benchmarks.nacos;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceInstance;
+import com.alibaba.cloud.nacos.balancer.NacosBalancer;
+import com.alibaba.cloud.nacos.loadbalancer.NacosLoadBalancer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+/**
+ * Weighted selection of {@link NacosBalancer} and a full {@link NacosLoadBalancer}
+ * choice over an in-memory instance list spread across two clusters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NacosLoadBalancerBenchmark {
+
+	private static final String SERVICE_ID = "benchmark-service";
+
+	@Param({ "8", "64", "512" })
+	private int instanceCount;
+
+	private List<ServiceInstance> instances;
+
+	private NacosLoadBalancer loadBalancer;
+
+	private Request<?> request;
+
+	@Setup
+	public void setup() {
+		this.instances = new ArrayList<>(instanceCount);
+		for (int i = 0; i < instanceCount; i++) {
+			Map<String, String> metadata = new HashMap<>();
+			metadata.put("nacos.weight", String.valueOf(1 + i % 5));
+			metadata.put("nacos.healthy", "true");
+			metadata.put("nacos.cluster", i % 2 == 0 ? "DEFAULT" : "OTHER");
+			metadata.put("nacos.instanceId", "10.0." + (i / 250) + "." + (i % 250)
+					+ "#8080#DEFAULT#DEFAULT_GROUP@@" + SERVICE_ID);
+			NacosServiceInstance instance = new NacosServiceInstance();
+			instance.setServiceId(SERVICE_ID);
+			instance.setInstanceId(metadata.get("nacos.instanceId"));
+			instance.setHost("10.0." + (i / 250) + "." + (i % 250));
+			instance.setPort(8080);
+			instance.setMetadata(metadata);
+			instances.add(instance);
+		}
+
+		NacosDiscoveryProperties properties = new NacosDiscoveryProperties();
+		properties.setClusterName("DEFAULT");
+		StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+		beanFactory.addBean("serviceInstanceListSupplier",
+				new InMemoryServiceInstanceListSupplier(instances));
+		this.loadBalancer = new NacosLoadBalancer(
+				beanFactory.getBeanProvider(ServiceInstanceListSupplier.class),
+				SERVICE_ID, properties);
+		this.request = new DefaultRequest<>();
+	}
+
+	@Benchmark
+	public ServiceInstance getHostByRandomWeight3() {
+		return NacosBalancer.getHostByRandomWeight3(instances);
+	}
+
+	@Benchmark
+	public Response<ServiceInstance> choose() {
+		return loadBalancer.choose(request).block();
+	}
+
+	private static final class InMemoryServiceInstanceListSupplier
+			implements ServiceInstanceListSupplier {
+
+		private final Flux<List<ServiceInstance>> instances;
+
+		private InMemoryServiceInstanceListSupplier(List<ServiceInstance> instances) {
+			this.instances = Flux.just(instances);
+		}
+
+		@Override
+		public String getServiceId() {
+			return SERVICE_ID;
+		}
+
+		@Override
+		public Flux<List<ServiceInstance>> get() {
+			return instances;
+		}
+
+	}
+
+}
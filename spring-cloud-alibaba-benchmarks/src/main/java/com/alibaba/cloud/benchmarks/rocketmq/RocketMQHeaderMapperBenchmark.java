@@ -0,0 +1,79 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.benchmarks.rocketmq;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.cloud.stream.binder.rocketmq.support.JacksonRocketMQHeaderMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * Header mapping of {@link JacksonRocketMQHeaderMapper} with string and json typed
+ * headers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RocketMQHeaderMapperBenchmark {
+
+	private JacksonRocketMQHeaderMapper headerMapper;
+
+	private MessageHeaders headers;
+
+	private Map<String, String> rocketMQHeaders;
+
+	@Setup
+	public void setup() {
+		this.headerMapper = new JacksonRocketMQHeaderMapper(new ObjectMapper());
+		this.headers = MessageBuilder.withPayload(new byte[0])
+				.setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON)
+				.setHeader("traceId", "0af7651916cd43dd8448eb211c80319c")
+				.setHeader("tenant", "benchmark").setHeader("retries", 3)
+				.setHeader("priority", 7L).setHeader("sampled", Boolean.TRUE).build()
+				.getHeaders();
+		this.rocketMQHeaders = headerMapper.fromHeaders(headers);
+	}
+
+	@Benchmark
+	public Map<String, String> fromHeaders() {
+		return headerMapper.fromHeaders(headers);
+	}
+
+	@Benchmark
+	public MessageHeaders toHeaders() {
+		return headerMapper.toHeaders(rocketMQHeaders);
+	}
+
+}
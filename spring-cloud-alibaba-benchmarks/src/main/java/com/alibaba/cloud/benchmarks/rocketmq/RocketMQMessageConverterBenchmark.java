@@ -0,0 +1,124 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.benchmarks.rocketmq;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.cloud.stream.binder.rocketmq.constant.RocketMQConst.Headers;
+import com.alibaba.cloud.stream.binder.rocketmq.support.RocketMQMessageConverterSupport;
+import org.apache.rocketmq.common.message.MessageAccessor;
+import org.apache.rocketmq.common.message.MessageConst;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * Conversions between Spring and RocketMQ messages in both directions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RocketMQMessageConverterBenchmark {
+
+	private static final String TOPIC = "benchmark-topic";
+
+	private Message<byte[]> bytesMessage;
+
+	private Message<String> textMessage;
+
+	private MessageExt messageExt;
+
+	@Setup
+	public void setup() {
+		byte[] payload = new byte[256];
+		this.bytesMessage = MessageBuilder.withPayload(payload)
+				.setHeader(Headers.TAGS, "tagA").setHeader(Headers.KEYS, "key-1")
+				.setHeader("traceId", "0af7651916cd43dd8448eb211c80319c")
+				.setHeader("tenant", "benchmark").build();
+		this.textMessage = MessageBuilder.withPayload("{\"orderId\":1,\"amount\":42}")
+				.setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.TEXT_PLAIN)
+				.setHeader(Headers.TAGS, "tagA").setHeader(Headers.KEYS, "key-1")
+				.setHeader("traceId", "0af7651916cd43dd8448eb211c80319c").build();
+
+		this.messageExt = new MessageExt();
+		messageExt.setTopic(TOPIC);
+		messageExt.setBrokerName("broker-a");
+		messageExt.setQueueId(3);
+		messageExt.setQueueOffset(1024L);
+		messageExt.setMsgId("7F0000010001");
+		messageExt.setBornTimestamp(System.currentTimeMillis());
+		messageExt.setStoreTimestamp(System.currentTimeMillis());
+		messageExt.setBody("{\"orderId\":1,\"amount\":42}"
+				.getBytes(StandardCharsets.UTF_8));
+		messageExt.setTags("tagA");
+		messageExt.setKeys("key-1");
+		messageExt.putUserProperty("traceId", "0af7651916cd43dd8448eb211c80319c");
+		messageExt.putUserProperty("tenant", "benchmark");
+		MessageAccessor.putProperty(messageExt,
+				MessageConst.PROPERTY_CONSUME_START_TIMESTAMP,
+				String.valueOf(System.currentTimeMillis()));
+	}
+
+	@Benchmark
+	public org.apache.rocketmq.common.message.Message bytesToRocketMQ() {
+		return RocketMQMessageConverterSupport.convertMessage2MQ(TOPIC, bytesMessage);
+	}
+
+	@Benchmark
+	public org.apache.rocketmq.common.message.Message textToRocketMQ() {
+		return RocketMQMessageConverterSupport.convertMessage2MQ(TOPIC, textMessage);
+	}
+
+	@Benchmark
+	public Message<?> rocketMQToSpring() {
+		return RocketMQMessageConverterSupport.convertMessage2Spring(messageExt);
+	}
+
+	@Benchmark
+	public void rocketMQToSpringReadHeaders(Blackhole blackhole) {
+		MessageHeaders headers = RocketMQMessageConverterSupport
+				.convertMessage2Spring(messageExt).getHeaders();
+		blackhole.consume(headers.get("traceId"));
+		blackhole.consume(headers.get(RocketMQMessageConverterSupport
+				.toRocketHeaderKey(Headers.TAGS)));
+	}
+
+	@Benchmark
+	public int rocketMQToSpringAllHeaders() {
+		return RocketMQMessageConverterSupport.convertMessage2Spring(messageExt)
+				.getHeaders().size();
+	}
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.benchmarks.sentinel;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.cloud.sentinel.datasource.converter.JsonConverter;
+import com.alibaba.csp.sentinel.slots.block.flow.FlowRule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Conversion of a json array of flow rules, as pushed by a rule datasource.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SentinelConverterBenchmark {
+
+	@Param({ "10", "100" })
+	private int ruleCount;
+
+	private JsonConverter<FlowRule> converter;
+
+	private String rules;
+
+	@Setup
+	public void setup() {
+		this.converter = new JsonConverter<>(new ObjectMapper(), FlowRule.class);
+		StringBuilder content = new StringBuilder("[");
+		for (int i = 0; i < ruleCount; i++) {
+			content.append(i == 0 ? "" : ",").append("{\"resource\":\"/resource/")
+					.append(i).append("\",\"controlBehavior\":0,\"count\":")
+					.append(10 + i).append(",\"grade\":1,\"limitApp\":\"default\","
+							+ "\"strategy\":0}");
+		}
+		this.rules = content.append(']').toString();
+	}
+
+	@Benchmark
+	public Collection<Object> convert() {
+		return converter.convert(rules);
+	}
+
+}
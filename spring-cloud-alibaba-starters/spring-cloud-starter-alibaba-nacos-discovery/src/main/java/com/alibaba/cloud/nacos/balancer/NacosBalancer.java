@@ -16,12 +16,8 @@
 
 package com.alibaba.cloud.nacos.balancer;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
-
 
 import com.alibaba.cloud.commons.lang.StringUtils;
 import com.alibaba.cloud.nacos.NacosServiceInstance;
@@ -57,41 +53,56 @@ public class NacosBalancer extends Balancer {
 	 */
 	public static ServiceInstance getHostByRandomWeight3(
 			List<ServiceInstance> serviceInstances) {
-		Map<Instance, ServiceInstance> instanceMap = new HashMap<>();
-		List<Instance> nacosInstance = serviceInstances.stream().map(serviceInstance -> {
-			Map<String, String> metadata = serviceInstance.getMetadata();
+		return getHostByRandomWeight3(serviceInstances, null);
+	}
 
-			// see
-			// com.alibaba.cloud.nacos.discovery.NacosServiceDiscovery.hostToServiceInstance()
-			Instance instance = new Instance();
-			instance.setIp(serviceInstance.getHost());
-			instance.setPort(serviceInstance.getPort());
-			instance.setWeight(Double.parseDouble(metadata.get("nacos.weight")));
-			instance.setHealthy(Boolean.parseBoolean(metadata.get("nacos.healthy")));
-			instanceMap.put(instance, serviceInstance);
-			return instance;
-		}).collect(Collectors.toList());
+	/**
+	 * Spring Cloud LoadBalancer Choose instance by weight, ramping up the weight of new
+	 * instances. The selection table is built for this call only, balancers choosing
+	 * repeatedly from the same list should keep a {@link WeightedInstanceSelector}.
+	 * @param serviceInstances Instance List
+	 * @param warmUp warm up of new instances, may be null
+	 * @return the chosen instance
+	 */
+	public static ServiceInstance getHostByRandomWeight3(
+			List<ServiceInstance> serviceInstances, WarmUp warmUp) {
+		return preferIPv6(WeightedInstanceSelector.of(serviceInstances, warmUp).choose());
+	}
 
-		Instance instance = getHostByRandomWeight2(nacosInstance);
-		NacosServiceInstance nacosServiceInstance = (NacosServiceInstance) instanceMap.get(instance);
-		// When local support IPv6 address stack, referred to use IPv6 address.
-		if (StringUtils.isNotEmpty(NacosLoadBalancer.ipv6)) {
-			convertIPv4ToIPv6(nacosServiceInstance);
+	/**
+	 * When local support IPv6 address stack, referred to use IPv6 address. The chosen
+	 * instance is shared with the caches of the instances, so a copy holding the IPv6
+	 * address is returned instead of changing it.
+	 * @param serviceInstance chosen instance, may be null
+	 * @return the instance, or a copy of it with the IPv6 address
+	 */
+	public static ServiceInstance preferIPv6(ServiceInstance serviceInstance) {
+		if (serviceInstance instanceof NacosServiceInstance nacosServiceInstance
+				&& StringUtils.isNotEmpty(NacosLoadBalancer.ipv6)) {
+			return convertIPv4ToIPv6(nacosServiceInstance);
 		}
-		return nacosServiceInstance;
+		return serviceInstance;
 	}
 
 	/**
 	 * There is two type Ip,using IPv6 should use IPv6 in metadata to replace IPv4 in IP
 	 * field.
 	 */
-	private static void convertIPv4ToIPv6(NacosServiceInstance instance) {
+	private static NacosServiceInstance convertIPv4ToIPv6(NacosServiceInstance instance) {
 		if (Pattern.matches(IPV4_REGEX, instance.getHost())) {
 			String ip = instance.getMetadata().get(IPV6_KEY);
 			if (StringUtils.isNotEmpty(ip)) {
-				instance.setHost(ip);
+				NacosServiceInstance copy = new NacosServiceInstance();
+				copy.setServiceId(instance.getServiceId());
+				copy.setInstanceId(instance.getInstanceId());
+				copy.setHost(ip);
+				copy.setPort(instance.getPort());
+				copy.setSecure(instance.isSecure());
+				copy.setMetadata(instance.getMetadata());
+				return copy;
 			}
 		}
+		return instance;
 	}
 
 }
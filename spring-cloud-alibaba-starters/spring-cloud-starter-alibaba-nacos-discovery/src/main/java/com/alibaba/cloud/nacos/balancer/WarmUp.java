@@ -0,0 +1,115 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.balancer;
+
+import java.time.Duration;
+import java.util.Map;
+
+import com.alibaba.cloud.nacos.registry.NacosRegistration;
+
+/**
+ * Slow start of newly registered instances: the weight of an instance ramps up from a
+ * minimum to its Nacos weight during a window starting at its registration, read from
+ * the {@link NacosRegistration#REGISTER_TIMESTAMP} metadata.
+ */
+public final class WarmUp {
+
+	private final long windowMillis;
+
+	private final Curve curve;
+
+	private final double minFactor;
+
+	private WarmUp(long windowMillis, Curve curve, double minFactor) {
+		this.windowMillis = windowMillis;
+		this.curve = curve;
+		this.minFactor = minFactor;
+	}
+
+	/**
+	 * Create a warm up.
+	 * @param window duration of the ramp
+	 * @param curve shape of the ramp
+	 * @param minWeightPercent percentage of the weight given at registration
+	 * @return the warm up
+	 */
+	public static WarmUp of(Duration window, Curve curve, int minWeightPercent) {
+		return new WarmUp(Math.max(1, window.toMillis()), curve,
+				Math.min(100, Math.max(0, minWeightPercent)) / 100.0D);
+	}
+
+	/**
+	 * Registration time of an instance.
+	 * @param metadata metadata of the instance
+	 * @return registration time in milliseconds since the epoch, 0 if unknown
+	 */
+	long startTime(Map<String, String> metadata) {
+		String timestamp = metadata.get(NacosRegistration.REGISTER_TIMESTAMP);
+		if (timestamp == null) {
+			return 0;
+		}
+		try {
+			return Long.parseLong(timestamp);
+		}
+		catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * End of the window of an instance.
+	 * @param startTime registration time, see {@link #startTime(Map)}
+	 * @return end of the window in milliseconds since the epoch, 0 if unknown
+	 */
+	long endTime(long startTime) {
+		return startTime == 0 ? 0 : startTime + windowMillis;
+	}
+
+	/**
+	 * Factor applied to the weight of an instance.
+	 * @param startTime registration time, see {@link #startTime(Map)}
+	 * @param now current time in milliseconds since the epoch
+	 * @return factor between the minimum and 1
+	 */
+	double factor(long startTime, long now) {
+		if (startTime == 0 || now - startTime >= windowMillis) {
+			return 1.0D;
+		}
+		double elapsed = Math.max(0, now - startTime) / (double) windowMillis;
+		double factor = curve == Curve.AGGRESSIVE ? Math.sqrt(elapsed) : elapsed;
+		return Math.max(minFactor, factor);
+	}
+
+	/**
+	 * Shape of the ramp.
+	 */
+	public enum Curve {
+
+		/**
+		 * The weight grows in proportion to the time since registration.
+		 */
+		LINEAR,
+
+		/**
+		 * The weight grows with the square root of the time since registration, fast at
+		 * first and slower towards the end of the window.
+		 */
+		AGGRESSIVE
+
+	}
+
+}
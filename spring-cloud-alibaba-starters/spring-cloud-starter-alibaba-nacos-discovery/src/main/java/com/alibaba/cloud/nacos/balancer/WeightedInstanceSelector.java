@@ -0,0 +1,254 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.balancer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+/**
+ * Weighted random selection over a fixed instance list, following the rules of the
+ * Nacos {@code Chooser}: unhealthy instances and instances without a positive weight
+ * are skipped, an infinite weight counts as 10000 and NaN as 1. The cumulative weights
+ * are computed once, so a selection is a binary search without allocation. While an
+ * instance is warming up, see {@link WarmUp}, the effective weights are computed on the
+ * fly instead, still without allocation.
+ */
+public final class WeightedInstanceSelector {
+
+	private static final double INFINITE_WEIGHT = 10000.0D;
+
+	private static final WeightedInstanceSelector EMPTY = new WeightedInstanceSelector(
+			List.of(), new ServiceInstance[0], new double[0], null, null, 0);
+
+	private final List<ServiceInstance> source;
+
+	private final ServiceInstance[] instances;
+
+	private final double[] cumulativeWeights;
+
+	private final WarmUp warmUp;
+
+	private final long[] startTimes;
+
+	/**
+	 * Time after which no instance is warming up any more.
+	 */
+	private final long warmUpEndTime;
+
+	private WeightedInstanceSelector(List<ServiceInstance> source,
+			ServiceInstance[] instances, double[] cumulativeWeights, WarmUp warmUp,
+			long[] startTimes, long warmUpEndTime) {
+		this.source = source;
+		this.instances = instances;
+		this.cumulativeWeights = cumulativeWeights;
+		this.warmUp = warmUp;
+		this.startTimes = startTimes;
+		this.warmUpEndTime = warmUpEndTime;
+	}
+
+	/**
+	 * Build the selection table of an instance list, reading the weight and the health
+	 * from the {@code nacos.weight} and {@code nacos.healthy} metadata.
+	 * @param serviceInstances instances
+	 * @return the selector
+	 */
+	public static WeightedInstanceSelector of(List<ServiceInstance> serviceInstances) {
+		return of(serviceInstances, null);
+	}
+
+	/**
+	 * Build the selection table of an instance list, ramping up the weight of the
+	 * instances that are warming up.
+	 * @param serviceInstances instances
+	 * @param warmUp warm up of new instances, may be null
+	 * @return the selector
+	 */
+	public static WeightedInstanceSelector of(List<ServiceInstance> serviceInstances,
+			WarmUp warmUp) {
+		if (serviceInstances == null || serviceInstances.isEmpty()) {
+			return EMPTY;
+		}
+		ServiceInstance[] instances = new ServiceInstance[serviceInstances.size()];
+		double[] cumulativeWeights = new double[serviceInstances.size()];
+		int count = 0;
+		double sum = 0;
+		for (ServiceInstance serviceInstance : serviceInstances) {
+			Map<String, String> metadata = serviceInstance.getMetadata();
+			if (!Boolean.parseBoolean(metadata.get("nacos.healthy"))) {
+				continue;
+			}
+			double weight = Double.parseDouble(metadata.get("nacos.weight"));
+			if (weight <= 0) {
+				continue;
+			}
+			if (Double.isInfinite(weight)) {
+				weight = INFINITE_WEIGHT;
+			}
+			else if (Double.isNaN(weight)) {
+				weight = 1.0D;
+			}
+			sum += weight;
+			instances[count] = serviceInstance;
+			cumulativeWeights[count] = sum;
+			count++;
+		}
+		if (count < instances.length) {
+			ServiceInstance[] selected = new ServiceInstance[count];
+			double[] weights = new double[count];
+			System.arraycopy(instances, 0, selected, 0, count);
+			System.arraycopy(cumulativeWeights, 0, weights, 0, count);
+			instances = selected;
+			cumulativeWeights = weights;
+		}
+		if (warmUp == null) {
+			return new WeightedInstanceSelector(serviceInstances, instances,
+					cumulativeWeights, null, null, 0);
+		}
+		long[] startTimes = new long[count];
+		long warmUpEndTime = 0;
+		for (int i = 0; i < count; i++) {
+			startTimes[i] = warmUp.startTime(instances[i].getMetadata());
+			warmUpEndTime = Math.max(warmUpEndTime, warmUp.endTime(startTimes[i]));
+		}
+		return new WeightedInstanceSelector(serviceInstances, instances,
+				cumulativeWeights, warmUp, startTimes, warmUpEndTime);
+	}
+
+	/**
+	 * Whether this selector was built from exactly this list instance.
+	 * @param serviceInstances instances
+	 * @return true if built from the same list
+	 */
+	public boolean isBuiltFrom(List<ServiceInstance> serviceInstances) {
+		return source == serviceInstances;
+	}
+
+	/**
+	 * Choose an instance with a probability proportional to its weight.
+	 * @return the chosen instance, null if the source list was empty
+	 * @throws IllegalStateException if no instance is healthy with a positive weight
+	 */
+	public ServiceInstance choose() {
+		if (source.isEmpty()) {
+			return null;
+		}
+		int length = cumulativeWeights.length;
+		if (length == 0) {
+			throw new IllegalStateException(
+					"Cumulative Weight wrong , the array length is equal to 0.");
+		}
+		return instances[chooseIndex()];
+	}
+
+	/**
+	 * Choose the index of an instance with a probability proportional to its weight.
+	 * The selector must hold at least one instance.
+	 * @return index of the chosen instance, see {@link #get(int)}
+	 */
+	public int chooseIndex() {
+		if (isWarmingUp()) {
+			return chooseWarmingUp(System.currentTimeMillis(), -1);
+		}
+		return search(ThreadLocalRandom.current().nextDouble(0,
+				cumulativeWeights[cumulativeWeights.length - 1]));
+	}
+
+	/**
+	 * Choose the index of another instance than the excluded one, with a probability
+	 * proportional to its weight. The selector must hold at least two instances.
+	 * @param excluded index of the instance not to choose
+	 * @return index of the chosen instance, see {@link #get(int)}
+	 */
+	public int chooseIndexExcept(int excluded) {
+		if (isWarmingUp()) {
+			return chooseWarmingUp(System.currentTimeMillis(), excluded);
+		}
+		double start = excluded == 0 ? 0 : cumulativeWeights[excluded - 1];
+		double excludedWeight = cumulativeWeights[excluded] - start;
+		double random = ThreadLocalRandom.current().nextDouble(0,
+				cumulativeWeights[cumulativeWeights.length - 1] - excludedWeight);
+		// skip over the range of the excluded instance.
+		if (random >= start) {
+			random += excludedWeight;
+		}
+		int index = search(random);
+		return index == excluded ? (excluded + 1) % instances.length : index;
+	}
+
+	public ServiceInstance get(int index) {
+		return instances[index];
+	}
+
+	private boolean isWarmingUp() {
+		return warmUpEndTime != 0 && System.currentTimeMillis() < warmUpEndTime;
+	}
+
+	private int chooseWarmingUp(long now, int excluded) {
+		double total = 0;
+		for (int i = 0; i < instances.length; i++) {
+			if (i != excluded) {
+				total += effectiveWeight(i, now);
+			}
+		}
+		if (total <= 0) {
+			// every instance just started with no minimum weight.
+			return excluded == 0 ? 1 % instances.length : 0;
+		}
+		double random = ThreadLocalRandom.current().nextDouble(0, total);
+		int last = -1;
+		for (int i = 0; i < instances.length; i++) {
+			if (i == excluded) {
+				continue;
+			}
+			last = i;
+			random -= effectiveWeight(i, now);
+			if (random < 0) {
+				return i;
+			}
+		}
+		return last;
+	}
+
+	private double effectiveWeight(int index, long now) {
+		double weight = index == 0 ? cumulativeWeights[0]
+				: cumulativeWeights[index] - cumulativeWeights[index - 1];
+		return weight * warmUp.factor(startTimes[index], now);
+	}
+
+	private int search(double random) {
+		int low = 0;
+		int high = cumulativeWeights.length - 1;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (cumulativeWeights[mid] > random) {
+				high = mid;
+			}
+			else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+
+	public int size() {
+		return instances.length;
+	}
+
+}
@@ -16,14 +16,24 @@
 
 package com.alibaba.cloud.nacos.discovery;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 import com.alibaba.cloud.nacos.ConditionalOnNacosDiscoveryEnabled;
 import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
 import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.cloud.nacos.endpoint.NacosServiceCacheEndpoint;
 
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.client.ConditionalOnDiscoveryEnabled;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
 /**
  * @author <a href="mailto:echooy.mxq@gmail.com">echooymxq</a>
@@ -31,6 +41,8 @@ import org.springframework.context.annotation.Configuration;
 @Configuration(proxyBeanMethods = false)
 @ConditionalOnDiscoveryEnabled
 @ConditionalOnNacosDiscoveryEnabled
+@EnableConfigurationProperties({ NacosServiceCacheProperties.class,
+		NacosDiscoverySnapshotProperties.class, NacosServicePrefetchProperties.class })
 public class NacosDiscoveryAutoConfiguration {
 
 	@Bean
@@ -47,4 +59,60 @@ public class NacosDiscoveryAutoConfiguration {
 		return new NacosServiceDiscovery(discoveryProperties, nacosServiceManager);
 	}
 
+	@Bean
+	@ConditionalOnMissingBean
+	public NacosServiceCache nacosServiceCache(
+			NacosServiceCacheProperties nacosServiceCacheProperties) {
+		return new NacosServiceCache(nacosServiceCacheProperties.getMaxSize(),
+				nacosServiceCacheProperties.getTtl());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(value = NacosDiscoverySnapshotProperties.PREFIX
+			+ ".enabled", havingValue = "true")
+	public NacosDiscoverySnapshot nacosDiscoverySnapshot(
+			NacosServiceCache nacosServiceCache,
+			NacosDiscoveryProperties discoveryProperties,
+			NacosDiscoverySnapshotProperties snapshotProperties,
+			Environment environment) {
+		Path file = snapshotProperties.getPath();
+		if (file == null) {
+			file = Paths.get(System.getProperty("user.home"), "nacos", "snapshot",
+					environment.getProperty("spring.application.name", "application")
+							+ ".snapshot");
+		}
+		return new NacosDiscoverySnapshot(nacosServiceCache, file,
+				snapshotProperties.getFlushInterval(),
+				discoveryProperties.getNamespace(), discoveryProperties.getGroup(),
+				snapshotProperties.getMaxAge());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(value = NacosServicePrefetchProperties.PREFIX
+			+ ".enabled", havingValue = "true")
+	public NacosServicePrefetcher nacosServicePrefetcher(
+			NacosServiceDiscovery nacosServiceDiscovery,
+			NacosServiceCache nacosServiceCache,
+			NacosServicePrefetchProperties prefetchProperties) {
+		return new NacosServicePrefetcher(nacosServiceDiscovery, nacosServiceCache,
+				prefetchProperties.getServices(), prefetchProperties.isDetect(),
+				prefetchProperties.getTimeout(), prefetchProperties.getParallelism());
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnClass(Endpoint.class)
+	protected static class NacosServiceCacheEndpointConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		@ConditionalOnAvailableEndpoint
+		public NacosServiceCacheEndpoint nacosServiceCacheEndpoint(
+				NacosServiceCache nacosServiceCache) {
+			return new NacosServiceCacheEndpoint(nacosServiceCache);
+		}
+
+	}
+
 }
@@ -47,8 +47,16 @@ public class NacosDiscoveryClient implements DiscoveryClient {
 	@Value("${spring.cloud.nacos.discovery.failure-tolerance-enabled:false}")
 	private boolean failureToleranceEnabled;
 
+	private NacosServiceCache serviceCache;
+
 	public NacosDiscoveryClient(NacosServiceDiscovery nacosServiceDiscovery) {
+		this(nacosServiceDiscovery, null);
+	}
+
+	public NacosDiscoveryClient(NacosServiceDiscovery nacosServiceDiscovery,
+			NacosServiceCache serviceCache) {
 		this.serviceDiscovery = nacosServiceDiscovery;
+		this.serviceCache = serviceCache;
 	}
 
 	@Override
@@ -61,13 +69,13 @@ public class NacosDiscoveryClient implements DiscoveryClient {
 		try {
 			return Optional.of(serviceDiscovery.getInstances(serviceId))
 					.map(instances -> {
-						ServiceCache.setInstances(serviceId, instances);
+						serviceCache().setInstances(serviceId, instances);
 						return instances;
 					}).get();
 		}
 		catch (Exception e) {
 			if (failureToleranceEnabled) {
-				return ServiceCache.getInstances(serviceId);
+				return serviceCache().getInstances(serviceId);
 			}
 			throw new RuntimeException(
 					"Can not get hosts from nacos server. serviceId: " + serviceId, e);
@@ -78,15 +86,19 @@ public class NacosDiscoveryClient implements DiscoveryClient {
 	public List<String> getServices() {
 		try {
 			return Optional.of(serviceDiscovery.getServices()).map(services -> {
-				ServiceCache.setServiceIds(services);
+				serviceCache().setServiceIds(services);
 				return services;
 			}).get();
 		}
 		catch (Exception e) {
 			log.error("get service name from nacos server failed.", e);
-			return failureToleranceEnabled ? ServiceCache.getServiceIds()
+			return failureToleranceEnabled ? serviceCache().getServiceIds()
 					: Collections.emptyList();
 		}
 	}
 
+	private NacosServiceCache serviceCache() {
+		return serviceCache != null ? serviceCache : ServiceCache.getCache();
+	}
+
 }
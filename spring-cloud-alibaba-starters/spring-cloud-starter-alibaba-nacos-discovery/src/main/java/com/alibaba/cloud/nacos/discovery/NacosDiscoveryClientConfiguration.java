@@ -20,6 +20,7 @@ import com.alibaba.cloud.nacos.ConditionalOnNacosDiscoveryEnabled;
 import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
 import com.alibaba.cloud.nacos.NacosServiceManager;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
@@ -48,8 +49,10 @@ public class NacosDiscoveryClientConfiguration {
 
 	@Bean
 	public DiscoveryClient nacosDiscoveryClient(
-			NacosServiceDiscovery nacosServiceDiscovery) {
-		return new NacosDiscoveryClient(nacosServiceDiscovery);
+			NacosServiceDiscovery nacosServiceDiscovery,
+			ObjectProvider<NacosServiceCache> nacosServiceCache) {
+		return new NacosDiscoveryClient(nacosServiceDiscovery,
+				nacosServiceCache.getIfAvailable());
 	}
 
 	/**
@@ -64,4 +67,14 @@ public class NacosDiscoveryClientConfiguration {
 		return new NacosWatch(nacosServiceManager, nacosDiscoveryProperties);
 	}
 
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(value = "spring.cloud.nacos.discovery.watch.services.enabled", havingValue = "true")
+	public NacosServicesWatch nacosServicesWatch(NacosServiceManager nacosServiceManager,
+			NacosDiscoveryProperties nacosDiscoveryProperties,
+			NacosServiceCache nacosServiceCache) {
+		return new NacosServicesWatch(nacosServiceManager, nacosDiscoveryProperties,
+				nacosServiceCache);
+	}
+
 }
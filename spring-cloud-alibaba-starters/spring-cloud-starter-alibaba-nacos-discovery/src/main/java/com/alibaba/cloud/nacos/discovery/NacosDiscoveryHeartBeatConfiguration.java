@@ -49,10 +49,13 @@ public class NacosDiscoveryHeartBeatConfiguration {
 	 * publish an event every 30 seconds
 	 * see https://github.com/alibaba/spring-cloud-alibaba/issues/2868
 	 * see https://github.com/alibaba/spring-cloud-alibaba/issues/3258
+	 * Not needed when {@link NacosServicesWatch} publishes heartbeats on instance and
+	 * service changes.
 	 */
 	@Bean
 	@ConditionalOnMissingBean
 	@Conditional(NacosDiscoveryHeartBeatCondition.class)
+	@ConditionalOnProperty(value = "spring.cloud.nacos.discovery.watch.services.enabled", havingValue = "false", matchIfMissing = true)
 	public NacosDiscoveryHeartBeatPublisher nacosDiscoveryHeartBeatPublisher(NacosDiscoveryProperties nacosDiscoveryProperties) {
 		return new NacosDiscoveryHeartBeatPublisher(nacosDiscoveryProperties);
 	}
@@ -0,0 +1,329 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.discovery;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.alibaba.cloud.nacos.NacosServiceInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cloud.client.ServiceInstance;
+
+/**
+ * Persists the instances of the services held by the {@link NacosServiceCache} to a
+ * local file, and loads them back into the cache on startup. The discovery clients and
+ * the load balancers can so serve the services used by the previous run before Nacos
+ * answers, or while it is unreachable.
+ * <p>
+ * The file is a compact binary encoding, rewritten atomically at a fixed interval when
+ * the cache has changed, and on shutdown. It records the namespace and the group of the
+ * services and the time it was written; a snapshot of another namespace or group, older
+ * than the maximum age or not well formed is ignored.
+ */
+public class NacosDiscoverySnapshot implements InitializingBean, DisposableBean {
+
+	private static final Logger log = LoggerFactory
+			.getLogger(NacosDiscoverySnapshot.class);
+
+	private static final int MAGIC = 0x4E445332;
+
+	/**
+	 * Initial capacity of the lists read, whatever the counts in the file claim.
+	 */
+	private static final int MAX_INITIAL_CAPACITY = 64;
+
+	private final NacosServiceCache serviceCache;
+
+	private final Path file;
+
+	private final Duration flushInterval;
+
+	private final String namespace;
+
+	private final String group;
+
+	private final Duration maxAge;
+
+	private final AtomicBoolean dirty = new AtomicBoolean();
+
+	private final NacosServiceCache.Listener listener = (serviceId, previous,
+			current) -> dirty.set(true);
+
+	private ScheduledExecutorService executor;
+
+	public NacosDiscoverySnapshot(NacosServiceCache serviceCache, Path file,
+			Duration flushInterval) {
+		this(serviceCache, file, flushInterval, null, null, Duration.ZERO);
+	}
+
+	/**
+	 * @param serviceCache cache to load and persist
+	 * @param file snapshot file
+	 * @param flushInterval interval at which the file is rewritten when the cache has
+	 * changed
+	 * @param namespace namespace of the cached services
+	 * @param group group of the cached services
+	 * @param maxAge maximum age of a snapshot to load, zero or negative for no limit
+	 */
+	public NacosDiscoverySnapshot(NacosServiceCache serviceCache, Path file,
+			Duration flushInterval, String namespace, String group, Duration maxAge) {
+		this.serviceCache = serviceCache;
+		this.file = file;
+		this.flushInterval = flushInterval;
+		this.namespace = namespace;
+		this.group = group;
+		this.maxAge = maxAge == null ? Duration.ZERO : maxAge;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		load();
+		serviceCache.addListener(listener);
+		long interval = Math.max(1000, flushInterval.toMillis());
+		executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "NacosDiscoverySnapshot");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.scheduleWithFixedDelay(this::flushIfDirty, interval, interval,
+				TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void destroy() {
+		serviceCache.removeListener(listener);
+		if (executor != null) {
+			executor.shutdown();
+			executor = null;
+		}
+		flushIfDirty();
+	}
+
+	/**
+	 * Load the snapshot file into the cache, if it exists.
+	 * @return number of services loaded
+	 */
+	public int load() {
+		if (!Files.isRegularFile(file)) {
+			return 0;
+		}
+		Map<String, List<ServiceInstance>> services;
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(file)))) {
+			Header header = readHeader(in);
+			if (!Objects.equals(header.namespace(), namespace)
+					|| !Objects.equals(header.group(), group)) {
+				log.warn(
+						"ignore nacos discovery snapshot {} of namespace {}, group {}, expected namespace {}, group {}",
+						file, header.namespace(), header.group(), namespace, group);
+				return 0;
+			}
+			long age = System.currentTimeMillis() - header.writtenAt();
+			if (maxAge.toMillis() > 0 && age > maxAge.toMillis()) {
+				log.info("ignore nacos discovery snapshot {} written {} ms ago", file,
+						age);
+				return 0;
+			}
+			services = read(in, Files.size(file));
+		}
+		catch (IOException | RuntimeException e) {
+			log.warn("read nacos discovery snapshot failed, file: {}", file, e);
+			return 0;
+		}
+		services.forEach(serviceCache::setInstances);
+		log.info("loaded {} services from nacos discovery snapshot {}", services.size(),
+				file);
+		return services.size();
+	}
+
+	/**
+	 * Write the snapshot file if the cache has changed since the last write.
+	 */
+	public void flushIfDirty() {
+		if (!dirty.getAndSet(false)) {
+			return;
+		}
+		try {
+			write();
+		}
+		catch (IOException | RuntimeException e) {
+			dirty.set(true);
+			log.warn("write nacos discovery snapshot failed, file: {}", file, e);
+		}
+	}
+
+	private void write() throws IOException {
+		Map<String, List<ServiceInstance>> services = new LinkedHashMap<>();
+		serviceCache.getEntries().forEach(
+				(serviceId, entry) -> services.put(serviceId, entry.getInstances()));
+		Path parent = file.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				write(out, new Header(namespace, group, System.currentTimeMillis()),
+						services);
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	static void write(DataOutputStream out, Header header,
+			Map<String, List<ServiceInstance>> services) throws IOException {
+		out.writeInt(MAGIC);
+		writeString(out, header.namespace());
+		writeString(out, header.group());
+		out.writeLong(header.writtenAt());
+		out.writeInt(services.size());
+		for (Map.Entry<String, List<ServiceInstance>> service : services.entrySet()) {
+			writeString(out, service.getKey());
+			out.writeInt(service.getValue().size());
+			for (ServiceInstance instance : service.getValue()) {
+				writeString(out, instance.getInstanceId());
+				writeString(out, instance.getHost());
+				out.writeInt(instance.getPort());
+				out.writeBoolean(instance.isSecure());
+				Map<String, String> metadata = instance.getMetadata();
+				out.writeInt(metadata == null ? 0 : metadata.size());
+				if (metadata != null) {
+					for (Map.Entry<String, String> entry : metadata.entrySet()) {
+						writeString(out, entry.getKey());
+						writeString(out, entry.getValue());
+					}
+				}
+			}
+		}
+	}
+
+	static Header readHeader(DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("not a nacos discovery snapshot");
+		}
+		return new Header(readString(in, 1024), readString(in, 1024), in.readLong());
+	}
+
+	/**
+	 * Read the services following the header. Counts and lengths are checked against
+	 * the size of the file, as every item takes at least one byte.
+	 * @param in input positioned after the header
+	 * @param maxLength size of the file
+	 * @return the instances by service id
+	 * @throws IOException if the snapshot cannot be read or is not well formed
+	 */
+	static Map<String, List<ServiceInstance>> read(DataInputStream in, long maxLength)
+			throws IOException {
+		int serviceCount = readCount(in, maxLength);
+		Map<String, List<ServiceInstance>> services = new LinkedHashMap<>();
+		for (int i = 0; i < serviceCount; i++) {
+			String serviceId = readString(in, maxLength);
+			int instanceCount = readCount(in, maxLength);
+			List<ServiceInstance> instances = new ArrayList<>(
+					Math.min(instanceCount, MAX_INITIAL_CAPACITY));
+			for (int j = 0; j < instanceCount; j++) {
+				NacosServiceInstance instance = new NacosServiceInstance();
+				instance.setServiceId(serviceId);
+				instance.setInstanceId(readString(in, maxLength));
+				instance.setHost(readString(in, maxLength));
+				instance.setPort(in.readInt());
+				instance.setSecure(in.readBoolean());
+				int metadataSize = readCount(in, maxLength);
+				Map<String, String> metadata = new HashMap<>();
+				for (int k = 0; k < metadataSize; k++) {
+					metadata.put(readString(in, maxLength), readString(in, maxLength));
+				}
+				instance.setMetadata(Collections.unmodifiableMap(metadata));
+				instances.add(instance);
+			}
+			services.put(serviceId, instances);
+		}
+		return services;
+	}
+
+	private static void writeString(DataOutputStream out, String value)
+			throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static int readCount(DataInputStream in, long maxLength)
+			throws IOException {
+		int count = in.readInt();
+		if (count < 0 || count > maxLength) {
+			throw new IOException("invalid count " + count);
+		}
+		return count;
+	}
+
+	private static String readString(DataInputStream in, long maxLength)
+			throws IOException {
+		int length = in.readInt();
+		if (length == -1) {
+			return null;
+		}
+		if (length < 0 || length > maxLength) {
+			throw new IOException("invalid string length " + length);
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Header of a snapshot file.
+	 * @param namespace namespace of the services
+	 * @param group group of the services
+	 * @param writtenAt time the snapshot was written, in milliseconds
+	 */
+	record Header(String namespace, String group, long writtenAt) {
+	}
+
+}
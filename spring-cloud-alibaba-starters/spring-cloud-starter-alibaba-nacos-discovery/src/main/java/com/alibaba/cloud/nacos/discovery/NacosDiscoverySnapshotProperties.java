@@ -0,0 +1,98 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.discovery;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Properties of the {@link NacosDiscoverySnapshot}.
+ */
+@ConfigurationProperties(NacosDiscoverySnapshotProperties.PREFIX)
+public class NacosDiscoverySnapshotProperties {
+
+	/**
+	 * Prefix of {@link NacosDiscoverySnapshotProperties}.
+	 */
+	public static final String PREFIX = "spring.cloud.nacos.discovery.snapshot";
+
+	/**
+	 * persist the cached service instances to a local file and load them on startup or
+	 * not.
+	 */
+	private boolean enabled = false;
+
+	/**
+	 * file of the discovery snapshot, default to
+	 * ${user.home}/nacos/snapshot/${spring.application.name}.snapshot.
+	 */
+	private Path path;
+
+	/**
+	 * interval at which the discovery snapshot is rewritten when the service cache has
+	 * changed.
+	 */
+	private Duration flushInterval = Duration.ofSeconds(30);
+
+	/**
+	 * maximum age of a discovery snapshot loaded on startup, zero or negative for no
+	 * limit.
+	 */
+	private Duration maxAge = Duration.ofDays(1);
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	public void setPath(Path path) {
+		this.path = path;
+	}
+
+	public Duration getFlushInterval() {
+		return flushInterval;
+	}
+
+	public void setFlushInterval(Duration flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+	public Duration getMaxAge() {
+		return maxAge;
+	}
+
+	public void setMaxAge(Duration maxAge) {
+		this.maxAge = maxAge;
+	}
+
+	@Override
+	public String toString() {
+		return "NacosDiscoverySnapshotProperties{" + "enabled=" + enabled + ", path="
+				+ path + ", flushInterval=" + flushInterval + ", maxAge=" + maxAge
+				+ '}';
+	}
+
+}
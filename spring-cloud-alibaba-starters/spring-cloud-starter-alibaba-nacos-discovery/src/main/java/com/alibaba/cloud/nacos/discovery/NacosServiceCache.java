@@ -0,0 +1,330 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.discovery;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cloud.client.ServiceInstance;
+
+/**
+ * Cache of the service ids and the instances of the services looked up through Nacos.
+ * <p>
+ * Every entry carries a version, incremented when its instances change, and the time of
+ * the last change. Storing instances equal to the cached ones is a no-op, so listeners
+ * are only called on real changes. Services which have not been looked up for the
+ * time-to-live are evicted, and the least recently looked up services are evicted once
+ * the cache holds more than the maximum number of services.
+ * <p>
+ * While the bean is alive, the static {@link ServiceCache} delegates to it.
+ */
+public class NacosServiceCache implements InitializingBean, DisposableBean {
+
+	private static final Logger log = LoggerFactory.getLogger(NacosServiceCache.class);
+
+	/**
+	 * Minimum time between two scans for expired entries.
+	 */
+	private static final long EVICTION_INTERVAL_MILLIS = 1000;
+
+	private final int maxSize;
+
+	private final long ttlMillis;
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+	private final AtomicLong lastEvictionTime = new AtomicLong();
+
+	private volatile List<String> serviceIds = Collections.emptyList();
+
+	/**
+	 * Create a cache without size bound and without expiration.
+	 */
+	public NacosServiceCache() {
+		this(Integer.MAX_VALUE, Duration.ZERO);
+	}
+
+	/**
+	 * @param maxSize maximum number of cached services
+	 * @param ttl time after which a service which is not looked up is evicted, zero or
+	 * negative to never evict
+	 */
+	public NacosServiceCache(int maxSize, Duration ttl) {
+		this.maxSize = Math.max(1, maxSize);
+		this.ttlMillis = ttl == null ? 0 : ttl.toMillis();
+	}
+
+	/**
+	 * Store the instances of a service if they differ from the cached ones, counting as
+	 * a look up of the service.
+	 * @param serviceId service id
+	 * @param instances service instances
+	 * @return true if the cached instances changed
+	 */
+	public boolean setInstances(String serviceId, List<ServiceInstance> instances) {
+		return put(serviceId, instances, true);
+	}
+
+	/**
+	 * Update the instances of a cached service if they differ from the cached ones,
+	 * without counting as a look up of the service, for example on a push.
+	 * @param serviceId service id
+	 * @param instances service instances
+	 * @return true if the cached instances changed
+	 */
+	public boolean updateInstances(String serviceId, List<ServiceInstance> instances) {
+		return put(serviceId, instances, false);
+	}
+
+	private boolean put(String serviceId, List<ServiceInstance> instances,
+			boolean lookup) {
+		long now = System.currentTimeMillis();
+		if (!lookup && !entries.containsKey(serviceId)) {
+			return false;
+		}
+		Entry[] replaced = new Entry[1];
+		boolean[] changed = new boolean[1];
+		Entry current = entries.compute(serviceId, (key, existing) -> {
+			if (existing == null && !lookup) {
+				return null;
+			}
+			// compared under the lock of the entry, so that concurrent equal puts
+			// change the version and notify the listeners once.
+			if (existing != null && existing.instances.equals(instances)) {
+				if (lookup) {
+					existing.lastAccessTime = now;
+				}
+				return existing;
+			}
+			replaced[0] = existing;
+			changed[0] = true;
+			Entry entry = new Entry(key,
+					Collections.unmodifiableList(new ArrayList<>(instances)),
+					existing == null ? 1 : existing.version + 1, now);
+			if (!lookup) {
+				entry.lastAccessTime = existing.lastAccessTime;
+			}
+			return entry;
+		});
+		if (!changed[0]) {
+			return false;
+		}
+		notifyListeners(serviceId, replaced[0], current);
+		evictIfNeeded(now);
+		return true;
+	}
+
+	/**
+	 * Get the cached instances of a service.
+	 * @param serviceId service id
+	 * @return service instances, empty if the service is not cached
+	 */
+	public List<ServiceInstance> getInstances(String serviceId) {
+		Entry entry = getEntry(serviceId);
+		return entry != null ? entry.instances : Collections.emptyList();
+	}
+
+	/**
+	 * Get the cache entry of a service, counting as a look up of the service. Expired
+	 * services are evicted on the way, so that the cache shrinks without writes.
+	 * @param serviceId service id
+	 * @return the entry, null if the service is not cached
+	 */
+	public Entry getEntry(String serviceId) {
+		long now = System.currentTimeMillis();
+		evictIfNeeded(now);
+		Entry entry = entries.get(serviceId);
+		if (entry == null) {
+			return null;
+		}
+		if (ttlMillis > 0 && now - entry.lastAccessTime > ttlMillis) {
+			// expired since the last scan.
+			evictEntry(entry);
+			return null;
+		}
+		entry.lastAccessTime = now;
+		return entry;
+	}
+
+	/**
+	 * @return all cache entries by service id, without counting as a look up
+	 */
+	public Map<String, Entry> getEntries() {
+		evictIfNeeded(System.currentTimeMillis());
+		return Collections.unmodifiableMap(entries);
+	}
+
+	/**
+	 * Store the service ids if they differ from the cached ones.
+	 * @param serviceIds all services
+	 * @return true if the cached service ids changed
+	 */
+	public boolean setServiceIds(List<String> serviceIds) {
+		if (this.serviceIds.equals(serviceIds)) {
+			return false;
+		}
+		this.serviceIds = Collections.unmodifiableList(new ArrayList<>(serviceIds));
+		return true;
+	}
+
+	public List<String> getServiceIds() {
+		return serviceIds;
+	}
+
+	/**
+	 * Remove a service from the cache.
+	 * @param serviceId service id
+	 */
+	public void evict(String serviceId) {
+		Entry removed = entries.remove(serviceId);
+		if (removed != null) {
+			notifyListeners(serviceId, removed, null);
+		}
+	}
+
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	private void evictIfNeeded(long now) {
+		long last = lastEvictionTime.get();
+		if (entries.size() <= maxSize && (ttlMillis <= 0
+				|| now - last < Math.min(EVICTION_INTERVAL_MILLIS, ttlMillis))) {
+			return;
+		}
+		if (!lastEvictionTime.compareAndSet(last, now)) {
+			return;
+		}
+		if (ttlMillis > 0) {
+			for (Entry entry : entries.values()) {
+				if (now - entry.lastAccessTime > ttlMillis) {
+					evictEntry(entry);
+				}
+			}
+		}
+		int excess = entries.size() - maxSize;
+		if (excess > 0) {
+			entries.values().stream()
+					.sorted(Comparator.comparingLong(entry -> entry.lastAccessTime))
+					.limit(excess).forEach(this::evictEntry);
+		}
+	}
+
+	private void evictEntry(Entry entry) {
+		if (entries.remove(entry.serviceId, entry)) {
+			notifyListeners(entry.serviceId, entry, null);
+		}
+	}
+
+	private void notifyListeners(String serviceId, Entry previous, Entry current) {
+		for (Listener listener : listeners) {
+			try {
+				listener.onChange(serviceId, previous, current);
+			}
+			catch (Exception e) {
+				log.warn("service cache listener failed, serviceId: {}", serviceId, e);
+			}
+		}
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		ServiceCache.bind(this);
+	}
+
+	@Override
+	public void destroy() {
+		ServiceCache.unbind(this);
+	}
+
+	/**
+	 * Listener of the changes of the cached instances.
+	 */
+	@FunctionalInterface
+	public interface Listener {
+
+		/**
+		 * Called after the instances of a service changed or the service was evicted.
+		 * @param serviceId service id
+		 * @param previous previous entry, null if the service was not cached
+		 * @param current current entry, null if the service was evicted
+		 */
+		void onChange(String serviceId, Entry previous, Entry current);
+
+	}
+
+	/**
+	 * Cached instances of a service.
+	 */
+	public static final class Entry {
+
+		private final String serviceId;
+
+		private final List<ServiceInstance> instances;
+
+		private final long version;
+
+		private final long lastUpdateTime;
+
+		private volatile long lastAccessTime;
+
+		private Entry(String serviceId, List<ServiceInstance> instances, long version,
+				long lastUpdateTime) {
+			this.serviceId = serviceId;
+			this.instances = instances;
+			this.version = version;
+			this.lastUpdateTime = lastUpdateTime;
+			this.lastAccessTime = lastUpdateTime;
+		}
+
+		public List<ServiceInstance> getInstances() {
+			return instances;
+		}
+
+		public long getVersion() {
+			return version;
+		}
+
+		public long getLastUpdateTime() {
+			return lastUpdateTime;
+		}
+
+		public long getLastAccessTime() {
+			return lastAccessTime;
+		}
+
+	}
+
+}
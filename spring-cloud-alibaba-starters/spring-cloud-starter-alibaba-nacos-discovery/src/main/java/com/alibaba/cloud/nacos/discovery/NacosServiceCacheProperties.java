@@ -0,0 +1,68 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.discovery;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Properties of the {@link NacosServiceCache}.
+ */
+@ConfigurationProperties(NacosServiceCacheProperties.PREFIX)
+public class NacosServiceCacheProperties {
+
+	/**
+	 * Prefix of {@link NacosServiceCacheProperties}.
+	 */
+	public static final String PREFIX = "spring.cloud.nacos.discovery.cache";
+
+	/**
+	 * maximum number of services kept in the service cache, the least recently looked
+	 * up are evicted first.
+	 */
+	private int maxSize = 10000;
+
+	/**
+	 * time after which a service which is not looked up any more is evicted from the
+	 * service cache.
+	 */
+	private Duration ttl = Duration.ofMinutes(30);
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public Duration getTtl() {
+		return ttl;
+	}
+
+	public void setTtl(Duration ttl) {
+		this.ttl = ttl;
+	}
+
+	@Override
+	public String toString() {
+		return "NacosServiceCacheProperties{" + "maxSize=" + maxSize + ", ttl=" + ttl
+				+ '}';
+	}
+
+}
@@ -17,12 +17,10 @@
 package com.alibaba.cloud.nacos.discovery;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
-import com.alibaba.cloud.nacos.NacosServiceInstance;
 import com.alibaba.cloud.nacos.NacosServiceManager;
 import com.alibaba.nacos.api.exception.NacosException;
 import com.alibaba.nacos.api.naming.NamingService;
@@ -37,6 +35,12 @@ import org.springframework.cloud.client.ServiceInstance;
  **/
 public class NacosServiceDiscovery {
 
+	/**
+	 * Reuses the instances converted last time, see
+	 * {@link NacosServiceInstanceConverter}.
+	 */
+	private static final NacosServiceInstanceConverter CONVERTER = new NacosServiceInstanceConverter();
+
 	private NacosDiscoveryProperties discoveryProperties;
 
 	private NacosServiceManager nacosServiceManager;
@@ -74,43 +78,42 @@ public class NacosServiceDiscovery {
 
 	public static List<ServiceInstance> hostToServiceInstanceList(
 			List<Instance> instances, String serviceId) {
-		List<ServiceInstance> result = new ArrayList<>(instances.size());
-		for (Instance instance : instances) {
-			ServiceInstance serviceInstance = hostToServiceInstance(instance, serviceId);
-			if (serviceInstance != null) {
-				result.add(serviceInstance);
-			}
-		}
-		return result;
+		return CONVERTER.convert(instances, serviceId);
 	}
 
 	public static ServiceInstance hostToServiceInstance(Instance instance,
 			String serviceId) {
-		if (instance == null || !instance.isEnabled() || !instance.isHealthy()) {
-			return null;
-		}
-		NacosServiceInstance nacosServiceInstance = new NacosServiceInstance();
-		nacosServiceInstance.setHost(instance.getIp());
-		nacosServiceInstance.setPort(instance.getPort());
-		nacosServiceInstance.setServiceId(serviceId);
-		nacosServiceInstance.setInstanceId(instance.getInstanceId());
-
-		Map<String, String> metadata = new HashMap<>();
-		metadata.put("nacos.instanceId", instance.getInstanceId());
-		metadata.put("nacos.weight", instance.getWeight() + "");
-		metadata.put("nacos.healthy", instance.isHealthy() + "");
-		metadata.put("nacos.cluster", instance.getClusterName() + "");
-		if (instance.getMetadata() != null) {
-			metadata.putAll(instance.getMetadata());
-		}
-		metadata.put("nacos.ephemeral", String.valueOf(instance.isEphemeral()));
-		nacosServiceInstance.setMetadata(metadata);
+		return CONVERTER.convert(instance, serviceId);
+	}
 
-		if (metadata.containsKey("secure")) {
-			boolean secure = Boolean.parseBoolean(metadata.get("secure"));
-			nacosServiceInstance.setSecure(secure);
+	/**
+	 * Convert the instances pushed by a subscription, keeping only the instances with a
+	 * positive weight, the same selection as {@link NamingService#selectInstances}.
+	 * @param instances instances pushed by Nacos
+	 * @param serviceId id of service
+	 * @return immutable list of instances
+	 */
+	public static List<ServiceInstance> pushedToServiceInstanceList(
+			List<Instance> instances, String serviceId) {
+		List<Instance> available = new ArrayList<>(instances.size());
+		for (Instance instance : instances) {
+			if (instance.getWeight() > 0) {
+				available.add(instance);
+			}
 		}
-		return nacosServiceInstance;
+		return Collections
+				.unmodifiableList(hostToServiceInstanceList(available, serviceId));
+	}
+
+	/**
+	 * Key identifying an instance of a service across instance lists.
+	 * @param instance instance
+	 * @return the instance id, or host and port if the instance has no id
+	 */
+	public static String instanceKey(ServiceInstance instance) {
+		String instanceId = instance.getInstanceId();
+		return instanceId != null ? instanceId
+				: instance.getHost() + ":" + instance.getPort();
 	}
 
 	private NamingService namingService() {
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.discovery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.alibaba.cloud.nacos.NacosServiceInstance;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+/**
+ * Converts Nacos {@link Instance}s to {@link ServiceInstance}s, reusing the instance
+ * converted last time when the Nacos instance has not changed. The previous conversions
+ * are kept per service, keyed by instance id and a hash of the content of the Nacos
+ * instance, and replaced by every conversion of a full instance list. The metadata of
+ * the converted instances is immutable, and the keys and the short values are interned.
+ */
+public final class NacosServiceInstanceConverter {
+
+	/**
+	 * Maximum number of interned strings, further strings are used as is.
+	 */
+	private static final int MAX_INTERNED = 10000;
+
+	/**
+	 * Values longer than this are unlikely to repeat and are not interned.
+	 */
+	private static final int MAX_INTERNED_LENGTH = 64;
+
+	private final Map<String, Map<String, Conversion>> conversions = new ConcurrentHashMap<>();
+
+	private final Map<String, String> interned = new ConcurrentHashMap<>();
+
+	/**
+	 * Convert the enabled and healthy instances of a service.
+	 * @param instances Nacos instances
+	 * @param serviceId service id
+	 * @return the converted instances
+	 */
+	public List<ServiceInstance> convert(List<Instance> instances, String serviceId) {
+		Map<String, Conversion> previous = conversions.getOrDefault(serviceId,
+				Collections.emptyMap());
+		Map<String, Conversion> current = new HashMap<>(
+				(int) (instances.size() / 0.75f) + 1);
+		List<ServiceInstance> result = new ArrayList<>(instances.size());
+		for (Instance instance : instances) {
+			if (!isAvailable(instance)) {
+				continue;
+			}
+			Conversion conversion = convert(instance, serviceId, previous);
+			current.put(conversion.key, conversion);
+			result.add(conversion.serviceInstance);
+		}
+		conversions.put(serviceId, current);
+		return result;
+	}
+
+	/**
+	 * Convert a single instance of a service.
+	 * @param instance Nacos instance
+	 * @param serviceId service id
+	 * @return the converted instance, null if the instance is disabled or unhealthy
+	 */
+	public ServiceInstance convert(Instance instance, String serviceId) {
+		if (!isAvailable(instance)) {
+			return null;
+		}
+		return convert(instance, serviceId,
+				conversions.getOrDefault(serviceId, Collections.emptyMap()))
+						.serviceInstance;
+	}
+
+	/**
+	 * Forget the conversions of a service.
+	 * @param serviceId service id
+	 */
+	public void clear(String serviceId) {
+		conversions.remove(serviceId);
+	}
+
+	private static boolean isAvailable(Instance instance) {
+		return instance != null && instance.isEnabled() && instance.isHealthy();
+	}
+
+	private Conversion convert(Instance instance, String serviceId,
+			Map<String, Conversion> previous) {
+		String key = instance.getInstanceId() != null ? instance.getInstanceId()
+				: instance.getIp() + "#" + instance.getPort();
+		int hash = contentHash(instance);
+		Conversion conversion = previous.get(key);
+		if (conversion != null && conversion.hash == hash
+				&& conversion.matches(instance)) {
+			return conversion;
+		}
+		return new Conversion(key, hash, instance, build(instance, serviceId));
+	}
+
+	private ServiceInstance build(Instance instance, String serviceId) {
+		NacosServiceInstance nacosServiceInstance = new NacosServiceInstance();
+		nacosServiceInstance.setHost(instance.getIp());
+		nacosServiceInstance.setPort(instance.getPort());
+		nacosServiceInstance.setServiceId(serviceId);
+		nacosServiceInstance.setInstanceId(instance.getInstanceId());
+
+		Map<String, String> metadata = new HashMap<>();
+		metadata.put("nacos.instanceId", instance.getInstanceId());
+		metadata.put("nacos.weight", intern(String.valueOf(instance.getWeight())));
+		metadata.put("nacos.healthy", String.valueOf(instance.isHealthy()));
+		metadata.put("nacos.cluster", intern(String.valueOf(instance.getClusterName())));
+		if (instance.getMetadata() != null) {
+			instance.getMetadata().forEach(
+					(name, value) -> metadata.put(intern(name), intern(value)));
+		}
+		metadata.put("nacos.ephemeral", String.valueOf(instance.isEphemeral()));
+		nacosServiceInstance.setMetadata(Collections.unmodifiableMap(metadata));
+
+		if (metadata.containsKey("secure")) {
+			boolean secure = Boolean.parseBoolean(metadata.get("secure"));
+			nacosServiceInstance.setSecure(secure);
+		}
+		return nacosServiceInstance;
+	}
+
+	private String intern(String value) {
+		if (value == null || value.length() > MAX_INTERNED_LENGTH) {
+			return value;
+		}
+		String existing = interned.get(value);
+		if (existing != null) {
+			return existing;
+		}
+		if (interned.size() >= MAX_INTERNED) {
+			return value;
+		}
+		existing = interned.putIfAbsent(value, value);
+		return existing != null ? existing : value;
+	}
+
+	private static int contentHash(Instance instance) {
+		return Objects.hash(instance.getInstanceId(), instance.getIp(),
+				instance.getPort(), instance.getWeight(), instance.getClusterName(),
+				instance.isEphemeral(), instance.getMetadata());
+	}
+
+	private static final class Conversion {
+
+		private final String key;
+
+		private final int hash;
+
+		private final String instanceId;
+
+		private final String ip;
+
+		private final int port;
+
+		private final double weight;
+
+		private final String clusterName;
+
+		private final boolean ephemeral;
+
+		private final Map<String, String> metadata;
+
+		private final ServiceInstance serviceInstance;
+
+		private Conversion(String key, int hash, Instance instance,
+				ServiceInstance serviceInstance) {
+			this.key = key;
+			this.hash = hash;
+			this.instanceId = instance.getInstanceId();
+			this.ip = instance.getIp();
+			this.port = instance.getPort();
+			this.weight = instance.getWeight();
+			this.clusterName = instance.getClusterName();
+			this.ephemeral = instance.isEphemeral();
+			this.metadata = instance.getMetadata() == null ? null
+					: new HashMap<>(instance.getMetadata());
+			this.serviceInstance = serviceInstance;
+		}
+
+		/**
+		 * Whether the instance has the content this conversion was built from, ruling
+		 * out hash collisions. Enabled and healthy are not compared, only available
+		 * instances are converted.
+		 */
+		private boolean matches(Instance instance) {
+			return port == instance.getPort()
+					&& Double.compare(weight, instance.getWeight()) == 0
+					&& ephemeral == instance.isEphemeral()
+					&& Objects.equals(instanceId, instance.getInstanceId())
+					&& Objects.equals(ip, instance.getIp())
+					&& Objects.equals(clusterName, instance.getClusterName())
+					&& Objects.equals(metadata, instance.getMetadata());
+		}
+
+	}
+
+}
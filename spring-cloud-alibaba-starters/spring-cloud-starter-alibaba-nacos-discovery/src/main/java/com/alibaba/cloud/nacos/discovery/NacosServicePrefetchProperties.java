@@ -0,0 +1,109 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.discovery;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Properties of the {@link NacosServicePrefetcher}.
+ */
+@ConfigurationProperties(NacosServicePrefetchProperties.PREFIX)
+public class NacosServicePrefetchProperties {
+
+	/**
+	 * Prefix of {@link NacosServicePrefetchProperties}.
+	 */
+	public static final String PREFIX = "spring.cloud.nacos.discovery.prefetch";
+
+	/**
+	 * look up the downstream services during startup or not.
+	 */
+	private boolean enabled = false;
+
+	/**
+	 * services to look up during startup.
+	 */
+	private List<String> services = new ArrayList<>();
+
+	/**
+	 * also look up the services named by @FeignClient and @LoadBalancerClient
+	 * annotations or not.
+	 */
+	private boolean detect = true;
+
+	/**
+	 * maximum time the startup waits for the prefetch.
+	 */
+	private Duration timeout = Duration.ofSeconds(10);
+
+	/**
+	 * maximum number of services looked up concurrently during startup.
+	 */
+	private int parallelism = 8;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public List<String> getServices() {
+		return services;
+	}
+
+	public void setServices(List<String> services) {
+		this.services = services;
+	}
+
+	public boolean isDetect() {
+		return detect;
+	}
+
+	public void setDetect(boolean detect) {
+		this.detect = detect;
+	}
+
+	public Duration getTimeout() {
+		return timeout;
+	}
+
+	public void setTimeout(Duration timeout) {
+		this.timeout = timeout;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	@Override
+	public String toString() {
+		return "NacosServicePrefetchProperties{" + "enabled=" + enabled + ", services="
+				+ services + ", detect=" + detect + ", timeout=" + timeout
+				+ ", parallelism=" + parallelism + '}';
+	}
+
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.discovery;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.alibaba.cloud.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.annotation.AnnotationAttributes;
+import org.springframework.core.annotation.MergedAnnotation;
+import org.springframework.core.annotation.MergedAnnotations;
+import org.springframework.core.env.Environment;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Looks up the downstream services of the application in parallel during startup, so
+ * the first requests find them subscribed and cached instead of waiting for Nacos. The
+ * services are the configured ones, plus the ones named by {@code @FeignClient} and
+ * {@code @LoadBalancerClient} annotations when detection is enabled.
+ * <p>
+ * The prefetch runs before the web server starts, so it delays the registration of the
+ * instance and the readiness of the application until it completes, at most for the
+ * timeout.
+ */
+public class NacosServicePrefetcher
+		implements SmartLifecycle, BeanFactoryAware, EnvironmentAware {
+
+	private static final Logger log = LoggerFactory
+			.getLogger(NacosServicePrefetcher.class);
+
+	private static final String FEIGN_CLIENT = "org.springframework.cloud.openfeign.FeignClient";
+
+	private static final String LOAD_BALANCER_CLIENT = "org.springframework.cloud.loadbalancer.annotation.LoadBalancerClient";
+
+	private static final String LOAD_BALANCER_CLIENTS = "org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients";
+
+	/**
+	 * Before the web server, whose {@code WebServerStartStopLifecycle} runs in
+	 * {@code DEFAULT_PHASE - 2048}: lifecycles of the same phase start in no given
+	 * order.
+	 */
+	private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 2049;
+
+	private final NacosServiceDiscovery serviceDiscovery;
+
+	private final NacosServiceCache serviceCache;
+
+	private final Collection<String> services;
+
+	private final boolean detect;
+
+	private final Duration timeout;
+
+	private final int parallelism;
+
+	private ConfigurableListableBeanFactory beanFactory;
+
+	private Environment environment;
+
+	private volatile boolean running;
+
+	private volatile Set<String> prefetchedServices = Set.of();
+
+	/**
+	 * @param serviceDiscovery service discovery
+	 * @param serviceCache cache of the prefetched instances
+	 * @param services services to prefetch
+	 * @param detect detect the services of the client annotations or not
+	 * @param timeout maximum time startup waits for the prefetch
+	 * @param parallelism maximum number of concurrent lookups
+	 */
+	public NacosServicePrefetcher(NacosServiceDiscovery serviceDiscovery,
+			NacosServiceCache serviceCache, Collection<String> services, boolean detect,
+			Duration timeout, int parallelism) {
+		this.serviceDiscovery = serviceDiscovery;
+		this.serviceCache = serviceCache;
+		this.services = services;
+		this.detect = detect;
+		this.timeout = timeout;
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	@Override
+	public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+		if (beanFactory instanceof ConfigurableListableBeanFactory listableBeanFactory) {
+			this.beanFactory = listableBeanFactory;
+		}
+	}
+
+	@Override
+	public void setEnvironment(Environment environment) {
+		this.environment = environment;
+	}
+
+	@Override
+	public void start() {
+		running = true;
+		Set<String> serviceIds = getServiceIds();
+		if (serviceIds.isEmpty()) {
+			return;
+		}
+		long startTime = System.currentTimeMillis();
+		AtomicInteger threadNumber = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(
+				Math.min(parallelism, serviceIds.size()), runnable -> {
+					Thread thread = new Thread(runnable,
+							"NacosServicePrefetcher-" + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		Set<String> prefetched = ConcurrentHashMap.newKeySet();
+		try {
+			List<CompletableFuture<Void>> futures = new ArrayList<>(serviceIds.size());
+			for (String serviceId : serviceIds) {
+				futures.add(CompletableFuture
+						.runAsync(() -> prefetch(serviceId, prefetched), executor));
+			}
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+					.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+		}
+		catch (TimeoutException e) {
+			log.warn("prefetch of services timed out after {}, prefetched {} of {}",
+					timeout, prefetched.size(), serviceIds);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (Exception e) {
+			log.warn("prefetch of services failed", e);
+		}
+		finally {
+			executor.shutdown();
+		}
+		prefetchedServices = Set.copyOf(prefetched);
+		log.info("prefetched {} of {} services in {} ms", prefetched.size(),
+				serviceIds.size(), System.currentTimeMillis() - startTime);
+	}
+
+	private void prefetch(String serviceId, Set<String> prefetched) {
+		try {
+			List<ServiceInstance> instances = serviceDiscovery.getInstances(serviceId);
+			if (serviceCache != null) {
+				serviceCache.setInstances(serviceId, instances);
+			}
+			prefetched.add(serviceId);
+		}
+		catch (Exception e) {
+			log.warn("prefetch of service {} failed", serviceId, e);
+		}
+	}
+
+	/**
+	 * @return the configured and detected services
+	 */
+	Set<String> getServiceIds() {
+		Set<String> serviceIds = new LinkedHashSet<>();
+		for (String service : services) {
+			if (StringUtils.isNotBlank(service)) {
+				serviceIds.add(service.trim());
+			}
+		}
+		if (detect && beanFactory != null) {
+			for (String beanName : beanFactory.getBeanDefinitionNames()) {
+				Class<?> type = getBeanType(beanName);
+				if (type != null) {
+					detect(type, serviceIds);
+				}
+			}
+		}
+		return serviceIds;
+	}
+
+	private Class<?> getBeanType(String beanName) {
+		BeanDefinition definition = beanFactory.getBeanDefinition(beanName);
+		Object objectType = definition.getAttribute(FactoryBean.OBJECT_TYPE_ATTRIBUTE);
+		if (objectType instanceof Class<?> type) {
+			return type;
+		}
+		try {
+			if (objectType instanceof String className) {
+				return ClassUtils.forName(className, beanFactory.getBeanClassLoader());
+			}
+			return beanFactory.getType(beanName, false);
+		}
+		catch (Throwable e) {
+			return null;
+		}
+	}
+
+	private void detect(Class<?> type, Set<String> serviceIds) {
+		MergedAnnotations annotations = MergedAnnotations.from(type,
+				MergedAnnotations.SearchStrategy.TYPE_HIERARCHY);
+		MergedAnnotation<?> feignClient = annotations.get(FEIGN_CLIENT);
+		if (feignClient.isPresent()
+				&& StringUtils.isEmpty(feignClient.getString("url"))) {
+			addName(feignClient.getString("name"), serviceIds);
+			addName(feignClient.getString("value"), serviceIds);
+		}
+		annotations.stream(LOAD_BALANCER_CLIENT).forEach(
+				client -> addName(client.getString("name"), serviceIds));
+		annotations.stream(LOAD_BALANCER_CLIENTS).forEach(clients -> {
+			for (AnnotationAttributes client : clients
+					.asAnnotationAttributes(MergedAnnotation.Adapt.ANNOTATION_TO_MAP)
+					.getAnnotationArray("value")) {
+				addName(client.getString("name"), serviceIds);
+			}
+		});
+	}
+
+	private void addName(String name, Set<String> serviceIds) {
+		if (StringUtils.isBlank(name)) {
+			return;
+		}
+		String resolved = environment != null ? environment.resolvePlaceholders(name)
+				: name;
+		if (StringUtils.isNotBlank(resolved) && !resolved.contains("${")) {
+			serviceIds.add(resolved.trim());
+		}
+	}
+
+	/**
+	 * @return the services prefetched successfully
+	 */
+	public Set<String> getPrefetchedServices() {
+		return prefetchedServices;
+	}
+
+	@Override
+	public void stop() {
+		running = false;
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	@Override
+	public int getPhase() {
+		return PHASE;
+	}
+
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.discovery;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.cloud.nacos.event.NacosInstancesChangedEvent;
+import com.alibaba.nacos.api.naming.listener.Event;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import com.alibaba.nacos.api.naming.pojo.ListView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.context.SmartLifecycle;
+
+/**
+ * Watches the services in use, that is the services held by the
+ * {@link NacosServiceCache}. Every service entering the cache is subscribed, and
+ * unsubscribed when it is evicted. The instances pushed by Nacos are compared with the
+ * known ones, and only when instances were added, removed or changed the cache is
+ * updated, a {@link NacosInstancesChangedEvent} is published, followed by a
+ * {@link HeartbeatEvent} for the consumers refreshing on heartbeats, like the gateway
+ * discovery locator.
+ * <p>
+ * Services which are not in use yet cannot be subscribed, so the service names of the
+ * group are polled every {@code watch-delay}, and a {@link HeartbeatEvent} is published
+ * when services appear or disappear, letting the gateway and Spring Boot Admin discover
+ * new services. Together, they replace the periodic heartbeat of
+ * {@link NacosDiscoveryHeartBeatPublisher}.
+ */
+public class NacosServicesWatch implements SmartLifecycle, ApplicationEventPublisherAware {
+
+	private static final Logger log = LoggerFactory.getLogger(NacosServicesWatch.class);
+
+	private final NacosServiceManager nacosServiceManager;
+
+	private final NacosDiscoveryProperties properties;
+
+	private final NacosServiceCache serviceCache;
+
+	private final Map<String, EventListener> listeners = new ConcurrentHashMap<>();
+
+	/**
+	 * Instances of the watched services by instance key, as of the last change.
+	 */
+	private final Map<String, Map<String, ServiceInstance>> knownInstances = new ConcurrentHashMap<>();
+
+	private final AtomicBoolean running = new AtomicBoolean(false);
+
+	private final AtomicLong heartBeatIndex = new AtomicLong();
+
+	/**
+	 * Service names of the group as of the last poll, null before the first one.
+	 */
+	private volatile Set<String> knownServices;
+
+	private final NacosServiceCache.Listener cacheListener = (serviceId, previous,
+			current) -> {
+		if (previous == null && current != null) {
+			execute(() -> subscribe(serviceId));
+		}
+		else if (current == null) {
+			execute(() -> unsubscribe(serviceId));
+		}
+	};
+
+	private ApplicationEventPublisher publisher;
+
+	private volatile ScheduledExecutorService executor;
+
+	public NacosServicesWatch(NacosServiceManager nacosServiceManager,
+			NacosDiscoveryProperties properties, NacosServiceCache serviceCache) {
+		this.nacosServiceManager = nacosServiceManager;
+		this.properties = properties;
+		this.serviceCache = serviceCache;
+	}
+
+	@Override
+	public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
+		this.publisher = publisher;
+	}
+
+	@Override
+	public void start() {
+		if (this.running.compareAndSet(false, true)) {
+			// subscriptions may call the server, keep them off the lookup threads.
+			executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "NacosServicesWatch");
+				thread.setDaemon(true);
+				return thread;
+			});
+			serviceCache.addListener(cacheListener);
+			for (String serviceId : serviceCache.getEntries().keySet()) {
+				execute(() -> subscribe(serviceId));
+			}
+			long delay = Math.max(1000, properties.getWatchDelay());
+			executor.scheduleWithFixedDelay(this::pollServices, 0, delay,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	public void stop() {
+		if (this.running.compareAndSet(true, false)) {
+			serviceCache.removeListener(cacheListener);
+			executor.shutdown();
+			for (String serviceId : new ArrayList<>(listeners.keySet())) {
+				unsubscribe(serviceId);
+			}
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running.get();
+	}
+
+	@Override
+	public int getPhase() {
+		return 0;
+	}
+
+	private void execute(Runnable task) {
+		ScheduledExecutorService current = executor;
+		if (running.get() && current != null && !current.isShutdown()) {
+			current.execute(task);
+		}
+	}
+
+	/**
+	 * Fetch the service names of the group, publishing a heartbeat when they changed
+	 * since the last poll.
+	 */
+	void pollServices() {
+		Set<String> services;
+		try {
+			ListView<String> view = nacosServiceManager.getNamingService()
+					.getServicesOfServer(1, Integer.MAX_VALUE, properties.getGroup());
+			if (view == null || view.getData() == null) {
+				return;
+			}
+			services = new HashSet<>(view.getData());
+		}
+		catch (Exception e) {
+			log.warn("namingService getServicesOfServer failed, group: {}",
+					properties.getGroup(), e);
+			return;
+		}
+		Set<String> previous = knownServices;
+		knownServices = services;
+		if (previous != null && !previous.equals(services) && publisher != null) {
+			publisher.publishEvent(
+					new HeartbeatEvent(this, heartBeatIndex.incrementAndGet()));
+		}
+	}
+
+	private void subscribe(String serviceId) {
+		if (listeners.containsKey(serviceId)) {
+			return;
+		}
+		EventListener listener = new EventListener() {
+			@Override
+			public void onEvent(Event event) {
+				if (event instanceof NamingEvent namingEvent) {
+					onInstancesChanged(serviceId, namingEvent.getInstances());
+				}
+			}
+		};
+		listeners.put(serviceId, listener);
+		try {
+			nacosServiceManager.getNamingService().subscribe(serviceId,
+					properties.getGroup(), listener);
+		}
+		catch (Exception e) {
+			listeners.remove(serviceId);
+			log.error("namingService subscribe failed, serviceId: {}", serviceId, e);
+		}
+	}
+
+	private void unsubscribe(String serviceId) {
+		EventListener listener = listeners.remove(serviceId);
+		knownInstances.remove(serviceId);
+		if (listener == null) {
+			return;
+		}
+		try {
+			nacosServiceManager.getNamingService().unsubscribe(serviceId,
+					properties.getGroup(), listener);
+		}
+		catch (Exception e) {
+			log.error("namingService unsubscribe failed, serviceId: {}", serviceId, e);
+		}
+	}
+
+	synchronized void onInstancesChanged(String serviceId, List<Instance> instances) {
+		if (!listeners.containsKey(serviceId)) {
+			return;
+		}
+		List<ServiceInstance> serviceInstances = NacosServiceDiscovery
+				.pushedToServiceInstanceList(instances, serviceId);
+		Map<String, ServiceInstance> current = new LinkedHashMap<>();
+		for (ServiceInstance instance : serviceInstances) {
+			current.put(NacosServiceDiscovery.instanceKey(instance), instance);
+		}
+		Map<String, ServiceInstance> known = knownInstances.get(serviceId);
+		if (known == null) {
+			// diff the first push against the instances looked up before.
+			known = new HashMap<>();
+			NacosServiceCache.Entry entry = serviceCache.getEntries().get(serviceId);
+			if (entry != null) {
+				for (ServiceInstance instance : entry.getInstances()) {
+					known.put(NacosServiceDiscovery.instanceKey(instance), instance);
+				}
+			}
+		}
+
+		List<ServiceInstance> added = new ArrayList<>();
+		List<ServiceInstance> changed = new ArrayList<>();
+		for (Map.Entry<String, ServiceInstance> entry : current.entrySet()) {
+			ServiceInstance previous = known.get(entry.getKey());
+			if (previous == null) {
+				added.add(entry.getValue());
+			}
+			else if (!previous.equals(entry.getValue())) {
+				changed.add(entry.getValue());
+			}
+		}
+		List<ServiceInstance> removed = new ArrayList<>();
+		for (Map.Entry<String, ServiceInstance> entry : known.entrySet()) {
+			if (!current.containsKey(entry.getKey())) {
+				removed.add(entry.getValue());
+			}
+		}
+		knownInstances.put(serviceId, current);
+		if (added.isEmpty() && removed.isEmpty() && changed.isEmpty()) {
+			return;
+		}
+		serviceCache.updateInstances(serviceId, serviceInstances);
+		if (publisher != null) {
+			publisher.publishEvent(new NacosInstancesChangedEvent(this, serviceId, added,
+					removed, changed));
+			publisher.publishEvent(
+					new HeartbeatEvent(this, heartBeatIndex.incrementAndGet()));
+		}
+	}
+
+}
@@ -16,11 +16,7 @@
 
 package com.alibaba.cloud.nacos.discovery;
 
-import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
 
 import com.alibaba.cloud.nacos.discovery.reactive.NacosReactiveDiscoveryClient;
 
@@ -34,6 +30,9 @@ import org.springframework.cloud.client.ServiceInstance;
  * It's very useful to query services and instances on runtime, but it's not real-time,
  * depends on {@link NacosDiscoveryClient} or {@link NacosReactiveDiscoveryClient}
  * {@code getServices(), getInstances(..)} invoke.
+ * <p>
+ * Delegates to the {@link NacosServiceCache} bean of the application context, or to a
+ * standalone cache without one. Prefer injecting the {@link NacosServiceCache} bean.
  *
  * @author freeman
  * @since 2021.0.1.0
@@ -43,9 +42,27 @@ public final class ServiceCache {
 	private ServiceCache() {
 	}
 
-	private static List<String> services = Collections.emptyList();
+	private static final NacosServiceCache STANDALONE = new NacosServiceCache();
+
+	private static volatile NacosServiceCache cache = STANDALONE;
 
-	private static Map<String, List<ServiceInstance>> instancesMap = new ConcurrentHashMap<>();
+	static void bind(NacosServiceCache serviceCache) {
+		cache = serviceCache;
+	}
+
+	static void unbind(NacosServiceCache serviceCache) {
+		if (cache == serviceCache) {
+			cache = STANDALONE;
+		}
+	}
+
+	/**
+	 * Get the cache the static methods delegate to.
+	 * @return the bound {@link NacosServiceCache}, or the standalone one
+	 */
+	public static NacosServiceCache getCache() {
+		return cache;
+	}
 
 	/**
 	 * Set instances for specific service.
@@ -53,7 +70,7 @@ public final class ServiceCache {
 	 * @param instances service instances
 	 */
 	public static void setInstances(String serviceId, List<ServiceInstance> instances) {
-		instancesMap.put(serviceId, Collections.unmodifiableList(instances));
+		cache.setInstances(serviceId, instances);
 	}
 
 	/**
@@ -62,8 +79,7 @@ public final class ServiceCache {
 	 * @return service instances
 	 */
 	public static List<ServiceInstance> getInstances(String serviceId) {
-		return Optional.ofNullable(instancesMap.get(serviceId))
-				.orElse(Collections.emptyList());
+		return cache.getInstances(serviceId);
 	}
 
 	/**
@@ -73,7 +89,7 @@ public final class ServiceCache {
 	 */
 	@Deprecated
 	public static void set(List<String> serviceIds) {
-		services = Collections.unmodifiableList(serviceIds);
+		cache.setServiceIds(serviceIds);
 	}
 
 	/**
@@ -82,7 +98,7 @@ public final class ServiceCache {
 	 * @since 2021.0.1.1
 	 */
 	public static void setServiceIds(List<String> serviceIds) {
-		services = Collections.unmodifiableList(serviceIds);
+		cache.setServiceIds(serviceIds);
 	}
 
 	/**
@@ -92,7 +108,7 @@ public final class ServiceCache {
 	 */
 	@Deprecated
 	public static List<String> get() {
-		return services;
+		return cache.getServiceIds();
 	}
 
 	/**
@@ -101,7 +117,7 @@ public final class ServiceCache {
 	 * @since 2021.0.1.1
 	 */
 	public static List<String> getServiceIds() {
-		return services;
+		return cache.getServiceIds();
 	}
 
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.discovery.actuate.health;
+
+import com.alibaba.cloud.nacos.registry.NacosServiceRegistry;
+
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+/**
+ * The {@link HealthIndicator} of the asynchronous registration of the instance, down
+ * while the registration fails, and unknown before the instance is registered. It is
+ * only registered with {@code spring.cloud.nacos.discovery.registration.async=true}.
+ *
+ * @see NacosServiceRegistry#getRegistrationState()
+ */
+public class NacosRegistrationHealthIndicator extends AbstractHealthIndicator {
+
+	private final NacosServiceRegistry nacosServiceRegistry;
+
+	public NacosRegistrationHealthIndicator(NacosServiceRegistry nacosServiceRegistry) {
+		this.nacosServiceRegistry = nacosServiceRegistry;
+	}
+
+	@Override
+	protected void doHealthCheck(Health.Builder builder) {
+		NacosServiceRegistry.RegistrationState state = nacosServiceRegistry
+				.getRegistrationState();
+		int failedAttempts = nacosServiceRegistry.getFailedAttempts();
+		switch (state) {
+		case REGISTERED -> builder.up();
+		case FAILED -> builder.down();
+		case REGISTERING -> {
+			if (failedAttempts > 0) {
+				builder.down();
+			}
+			else {
+				builder.unknown();
+			}
+		}
+		default -> builder.unknown();
+		}
+		builder.withDetail("state", state).withDetail("failedAttempts", failedAttempts);
+		Exception lastFailure = nacosServiceRegistry.getLastFailure();
+		if (lastFailure != null) {
+			builder.withDetail("lastFailure", String.valueOf(lastFailure.getMessage()));
+		}
+	}
+
+}
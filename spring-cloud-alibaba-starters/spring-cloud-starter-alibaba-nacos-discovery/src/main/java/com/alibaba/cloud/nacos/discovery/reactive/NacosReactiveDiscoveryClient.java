@@ -16,11 +16,23 @@
 
 package com.alibaba.cloud.nacos.discovery.reactive;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.cloud.nacos.discovery.NacosServiceCache;
 import com.alibaba.cloud.nacos.discovery.NacosServiceDiscovery;
 import com.alibaba.cloud.nacos.discovery.ServiceCache;
 import com.alibaba.nacos.api.exception.NacosException;
+import com.alibaba.nacos.api.naming.listener.Event;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
 import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,26 +40,75 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
 
 /**
+ * Reactive discovery client. With a {@link NacosServiceManager} and a
+ * {@link NacosServiceCache}, the instances of a service are fetched once on the bounded
+ * elastic scheduler, then kept up to date by a Nacos subscription and served from the
+ * service cache without a thread hop. The subscription ends when the service is evicted
+ * from the cache, so the subscribed services are bounded by its size and time-to-live.
+ * The service names are served from memory as well and refreshed in the background once
+ * stale.
+ *
  * @author <a href="mailto:echooy.mxq@gmail.com">echooymxq</a>
  * @author freeman
  **/
-public class NacosReactiveDiscoveryClient implements ReactiveDiscoveryClient {
+public class NacosReactiveDiscoveryClient implements ReactiveDiscoveryClient, DisposableBean {
 
 	private static final Logger log = LoggerFactory
 			.getLogger(NacosReactiveDiscoveryClient.class);
 
 	private NacosServiceDiscovery serviceDiscovery;
 
+	private final NacosServiceManager nacosServiceManager;
+
+	private final NacosDiscoveryProperties discoveryProperties;
+
+	private final NacosServiceCache serviceCache;
+
+	/**
+	 * Subscriptions of the services held by the service cache.
+	 */
+	private final Map<String, EventListener> listeners = new ConcurrentHashMap<>();
+
+	private final NacosServiceCache.Listener cacheListener = (serviceId, previous,
+			current) -> {
+		if (current == null) {
+			unsubscribe(serviceId);
+		}
+	};
+
+	private final AtomicBoolean refreshingServices = new AtomicBoolean();
+
+	private volatile List<String> servicesCache;
+
+	private volatile long servicesFetchTime;
+
 	@Value("${spring.cloud.nacos.discovery.failure-tolerance-enabled:false}")
 	private boolean failureToleranceEnabled;
 
+	@Value("${spring.cloud.nacos.discovery.services-refresh-interval:30000}")
+	private long servicesRefreshInterval = 30000;
+
 	public NacosReactiveDiscoveryClient(NacosServiceDiscovery nacosServiceDiscovery) {
+		this(nacosServiceDiscovery, null, null, null);
+	}
+
+	public NacosReactiveDiscoveryClient(NacosServiceDiscovery nacosServiceDiscovery,
+			NacosServiceManager nacosServiceManager,
+			NacosDiscoveryProperties discoveryProperties,
+			NacosServiceCache serviceCache) {
 		this.serviceDiscovery = nacosServiceDiscovery;
+		this.nacosServiceManager = nacosServiceManager;
+		this.discoveryProperties = discoveryProperties;
+		this.serviceCache = serviceCache;
+		if (nacosServiceManager != null && serviceCache != null) {
+			serviceCache.addListener(cacheListener);
+		}
 	}
 
 	@Override
@@ -57,7 +118,12 @@ public class NacosReactiveDiscoveryClient implements ReactiveDiscoveryClient {
 
 	@Override
 	public Flux<ServiceInstance> getInstances(String serviceId) {
-
+		if (serviceId != null && listeners.containsKey(serviceId)) {
+			NacosServiceCache.Entry entry = serviceCache.getEntry(serviceId);
+			if (entry != null) {
+				return Flux.fromIterable(entry.getInstances());
+			}
+		}
 		return Mono.justOrEmpty(serviceId).flatMapMany(loadInstancesFromNacos())
 				.subscribeOn(Schedulers.boundedElastic());
 	}
@@ -67,36 +133,118 @@ public class NacosReactiveDiscoveryClient implements ReactiveDiscoveryClient {
 			try {
 				return Mono.justOrEmpty(serviceDiscovery.getInstances(serviceId))
 						.flatMapMany(instances -> {
-							ServiceCache.setInstances(serviceId, instances);
+							serviceCache().setInstances(serviceId, instances);
+							// Nacos pushes the current instances on subscription.
+							subscribe(serviceId);
 							return Flux.fromIterable(instances);
 						});
 			}
 			catch (NacosException e) {
 				log.error("get service instance[{}] from nacos error!", serviceId, e);
 				return failureToleranceEnabled
-						? Flux.fromIterable(ServiceCache.getInstances(serviceId))
+						? Flux.fromIterable(serviceCache().getInstances(serviceId))
 						: Flux.empty();
 			}
 		};
 	}
 
+	private void subscribe(String serviceId) {
+		if (nacosServiceManager == null || serviceCache == null
+				|| listeners.containsKey(serviceId)) {
+			return;
+		}
+		EventListener listener = new EventListener() {
+			@Override
+			public void onEvent(Event event) {
+				if (event instanceof NamingEvent namingEvent) {
+					onInstancesChanged(serviceId, namingEvent.getInstances());
+				}
+			}
+		};
+		if (listeners.putIfAbsent(serviceId, listener) != null) {
+			return;
+		}
+		try {
+			nacosServiceManager.getNamingService().subscribe(serviceId,
+					discoveryProperties.getGroup(), listener);
+		}
+		catch (Exception e) {
+			listeners.remove(serviceId, listener);
+			log.warn("namingService subscribe failed, serviceId: {}", serviceId, e);
+			return;
+		}
+		if (!serviceCache.getEntries().containsKey(serviceId)) {
+			// evicted meanwhile, the cache listener may have missed the subscription.
+			unsubscribe(serviceId);
+		}
+	}
+
+	private void unsubscribe(String serviceId) {
+		EventListener listener = listeners.remove(serviceId);
+		if (listener == null) {
+			return;
+		}
+		try {
+			nacosServiceManager.getNamingService().unsubscribe(serviceId,
+					discoveryProperties.getGroup(), listener);
+		}
+		catch (Exception e) {
+			log.warn("namingService unsubscribe failed, serviceId: {}", serviceId, e);
+		}
+	}
+
+	private void onInstancesChanged(String serviceId, List<Instance> instances) {
+		// a push is not a look up, the service may still expire from the cache.
+		serviceCache.updateInstances(serviceId, NacosServiceDiscovery
+				.pushedToServiceInstanceList(instances, serviceId));
+	}
+
 	@Override
 	public Flux<String> getServices() {
+		List<String> services = servicesCache;
+		if (services != null) {
+			if (System.currentTimeMillis() - servicesFetchTime > servicesRefreshInterval
+					&& refreshingServices.compareAndSet(false, true)) {
+				loadServicesFromNacos().doFinally(signal -> refreshingServices.set(false))
+						.subscribeOn(Schedulers.boundedElastic()).subscribe();
+			}
+			return Flux.fromIterable(services);
+		}
+		return loadServicesFromNacos().subscribeOn(Schedulers.boundedElastic());
+	}
+
+	private Flux<String> loadServicesFromNacos() {
 		return Flux.defer(() -> {
 			try {
 				return Mono.justOrEmpty(serviceDiscovery.getServices())
 						.flatMapMany(services -> {
-							ServiceCache.setServiceIds(services);
+							serviceCache().setServiceIds(services);
+							if (nacosServiceManager != null) {
+								servicesFetchTime = System.currentTimeMillis();
+								servicesCache = Collections.unmodifiableList(services);
+							}
 							return Flux.fromIterable(services);
 						});
 			}
 			catch (Exception e) {
 				log.error("get services from nacos server fail,", e);
 				return failureToleranceEnabled
-						? Flux.fromIterable(ServiceCache.getServiceIds())
+						? Flux.fromIterable(serviceCache().getServiceIds())
 						: Flux.empty();
 			}
-		}).subscribeOn(Schedulers.boundedElastic());
+		});
+	}
+
+	private NacosServiceCache serviceCache() {
+		return serviceCache != null ? serviceCache : ServiceCache.getCache();
+	}
+
+	@Override
+	public void destroy() {
+		if (serviceCache != null) {
+			serviceCache.removeListener(cacheListener);
+		}
+		listeners.keySet().forEach(this::unsubscribe);
 	}
 
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.endpoint;
+
+import java.util.List;
+import java.util.Map;
+
+import com.alibaba.cloud.nacos.loadbalancer.NacosOutlierDetector;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * Endpoint for the passive outlier detection of Nacos load-balanced clients, lists the
+ * currently ejected instances by service.
+ */
+@Endpoint(id = "nacosoutliers")
+public class NacosOutlierEndpoint {
+
+	private final NacosOutlierDetector outlierDetector;
+
+	public NacosOutlierEndpoint(NacosOutlierDetector outlierDetector) {
+		this.outlierDetector = outlierDetector;
+	}
+
+	/**
+	 * @return ejected instances by service
+	 */
+	@ReadOperation
+	public Map<String, List<Map<String, Object>>> ejectedInstances() {
+		return outlierDetector.getEjectedInstances();
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.endpoint;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.alibaba.cloud.nacos.discovery.NacosServiceCache;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+/**
+ * Endpoint for the {@link NacosServiceCache}, lists the cached services with their
+ * version and update time, and the instances of a single service.
+ */
+@Endpoint(id = "nacosservicecache")
+public class NacosServiceCacheEndpoint {
+
+	private final NacosServiceCache serviceCache;
+
+	public NacosServiceCacheEndpoint(NacosServiceCache serviceCache) {
+		this.serviceCache = serviceCache;
+	}
+
+	/**
+	 * @return cached services and their entries
+	 */
+	@ReadOperation
+	public Map<String, Object> services() {
+		Map<String, Object> services = new TreeMap<>();
+		serviceCache.getEntries().forEach(
+				(serviceId, entry) -> services.put(serviceId, describe(entry, false)));
+		Map<String, Object> result = new HashMap<>();
+		result.put("serviceIds", serviceCache.getServiceIds());
+		result.put("services", services);
+		return result;
+	}
+
+	/**
+	 * @param serviceId service id
+	 * @return the entry of the service with its instances, null if not cached
+	 */
+	@ReadOperation
+	public Map<String, Object> service(@Selector String serviceId) {
+		NacosServiceCache.Entry entry = serviceCache.getEntries().get(serviceId);
+		return entry != null ? describe(entry, true) : null;
+	}
+
+	private static Map<String, Object> describe(NacosServiceCache.Entry entry,
+			boolean withInstances) {
+		Map<String, Object> result = new HashMap<>();
+		result.put("version", entry.getVersion());
+		result.put("lastUpdateTime", entry.getLastUpdateTime());
+		result.put("lastAccessTime", entry.getLastAccessTime());
+		result.put("size", entry.getInstances().size());
+		if (withInstances) {
+			result.put("instances", entry.getInstances());
+		}
+		return result;
+	}
+
+}
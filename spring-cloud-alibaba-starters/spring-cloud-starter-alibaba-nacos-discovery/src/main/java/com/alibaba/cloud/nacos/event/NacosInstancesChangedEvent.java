@@ -0,0 +1,80 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.event;
+
+import java.util.List;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published when the instances of a watched service have changed, holding the
+ * instances added, removed and changed since the previous event of the service.
+ */
+public class NacosInstancesChangedEvent extends ApplicationEvent {
+
+	private final String serviceId;
+
+	private final List<ServiceInstance> added;
+
+	private final List<ServiceInstance> removed;
+
+	private final List<ServiceInstance> changed;
+
+	public NacosInstancesChangedEvent(Object source, String serviceId,
+			List<ServiceInstance> added, List<ServiceInstance> removed,
+			List<ServiceInstance> changed) {
+		super(source);
+		this.serviceId = serviceId;
+		this.added = List.copyOf(added);
+		this.removed = List.copyOf(removed);
+		this.changed = List.copyOf(changed);
+	}
+
+	public String getServiceId() {
+		return serviceId;
+	}
+
+	/**
+	 * @return instances which were not known before
+	 */
+	public List<ServiceInstance> getAdded() {
+		return added;
+	}
+
+	/**
+	 * @return instances which are gone, as they were known before
+	 */
+	public List<ServiceInstance> getRemoved() {
+		return removed;
+	}
+
+	/**
+	 * @return instances whose address or metadata changed, as they are now
+	 */
+	public List<ServiceInstance> getChanged() {
+		return changed;
+	}
+
+	@Override
+	public String toString() {
+		return "NacosInstancesChangedEvent{" + "serviceId='" + serviceId + '\''
+				+ ", added=" + added.size() + ", removed=" + removed.size()
+				+ ", changed=" + changed.size() + '}';
+	}
+
+}
@@ -17,9 +17,17 @@
 package com.alibaba.cloud.nacos.loadbalancer;
 
 import com.alibaba.cloud.nacos.ConditionalOnNacosDiscoveryEnabled;
+import com.alibaba.cloud.nacos.endpoint.NacosOutlierEndpoint;
 
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 /**
@@ -27,10 +35,41 @@ import org.springframework.context.annotation.Configuration;
  * Auto-configuration} that sets up LoadBalancer for Nacos.
  */
 @Configuration(proxyBeanMethods = false)
-@EnableConfigurationProperties
+@EnableConfigurationProperties({ NacosWarmUpProperties.class,
+		NacosConsistentHashProperties.class, NacosLocalityProperties.class })
 @ConditionalOnLoadBalancerNacos
 @ConditionalOnNacosDiscoveryEnabled
 @LoadBalancerClients(defaultConfiguration = NacosLoadBalancerClientConfiguration.class)
 public class LoadBalancerNacosAutoConfiguration {
 
+	@Configuration(proxyBeanMethods = false)
+	@EnableConfigurationProperties(NacosOutlierDetectionProperties.class)
+	@ConditionalOnProperty(value = NacosOutlierDetectionProperties.PREFIX
+			+ ".enabled", havingValue = "true")
+	public static class OutlierDetectionConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public NacosOutlierDetector nacosOutlierDetector(
+				NacosOutlierDetectionProperties properties, BeanFactory beanFactory) {
+			return new NacosOutlierDetector(properties,
+					NacosOutlierMetrics.create(beanFactory));
+		}
+
+		@Configuration(proxyBeanMethods = false)
+		@ConditionalOnClass(Endpoint.class)
+		public static class OutlierEndpointConfiguration {
+
+			@Bean
+			@ConditionalOnMissingBean
+			@ConditionalOnAvailableEndpoint
+			public NacosOutlierEndpoint nacosOutlierEndpoint(
+					NacosOutlierDetector nacosOutlierDetector) {
+				return new NacosOutlierEndpoint(nacosOutlierDetector);
+			}
+
+		}
+
+	}
+
 }
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.util.function.IntSupplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.BeanFactory;
+
+/**
+ * Micrometer based {@link NacosOutlierMetrics}, publishing the ejected instances gauge
+ * {@value #EJECTED} and the ejection counter {@value #EJECTIONS} tagged by service.
+ */
+final class MicrometerNacosOutlierMetrics implements NacosOutlierMetrics {
+
+	static final String EJECTED = "spring.cloud.loadbalancer.nacos.outlier.ejected";
+
+	static final String EJECTIONS = "spring.cloud.loadbalancer.nacos.outlier.ejections";
+
+	private final MeterRegistry registry;
+
+	private MicrometerNacosOutlierMetrics(MeterRegistry registry) {
+		this.registry = registry;
+	}
+
+	static NacosOutlierMetrics create(BeanFactory beanFactory) {
+		MeterRegistry registry = beanFactory.getBeanProvider(MeterRegistry.class)
+				.getIfUnique();
+		return registry == null ? NONE : new MicrometerNacosOutlierMetrics(registry);
+	}
+
+	@Override
+	public void registerService(String serviceId, IntSupplier ejected) {
+		// the supplier is usually a method reference only held by the gauge.
+		Gauge.builder(EJECTED, ejected, IntSupplier::getAsInt).tag("service", serviceId)
+				.strongReference(true).register(registry);
+	}
+
+	@Override
+	public void recordEjection(String serviceId) {
+		Counter.builder(EJECTIONS).tag("service", serviceId).register(registry)
+				.increment();
+	}
+
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.alibaba.cloud.commons.lang.StringUtils;
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.balancer.NacosBalancer;
+import com.alibaba.cloud.nacos.balancer.WeightedInstanceSelector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.util.AntPathMatcher;
+
+/**
+ * Load balancer routing requests with the same hash key to the same instance, so the
+ * per-key caches of the instances stay warm. The key is read from a header, a cookie or
+ * a path variable of the {@link RequestDataContext}; requests without a key are routed
+ * by weight like {@link NacosLoadBalancer}.
+ * <p>
+ * Instances are placed on a hash ring with a number of points proportional to their
+ * Nacos weight. The ring is only rebuilt when the instance list changes. With bounded
+ * loads, a request skips along the ring past instances whose in-flight requests exceed
+ * {@code loadFactor} times the average, so a hot key cannot overload one instance.
+ */
+public class NacosConsistentHashLoadBalancer implements ReactorServiceInstanceLoadBalancer,
+		LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+
+	private static final Logger log = LoggerFactory
+			.getLogger(NacosConsistentHashLoadBalancer.class);
+
+	private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+	private final String serviceId;
+
+	private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+
+	private final NacosDiscoveryProperties nacosDiscoveryProperties;
+
+	private final NacosConsistentHashProperties properties;
+
+	private final Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+
+	private final AtomicInteger totalLoad = new AtomicInteger();
+
+	private volatile NacosInstanceCandidates candidates;
+
+	private volatile HashRing ring;
+
+	private NacosOutlierDetector outlierDetector;
+
+	public NacosConsistentHashLoadBalancer(
+			ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+			String serviceId, NacosDiscoveryProperties nacosDiscoveryProperties,
+			NacosConsistentHashProperties properties) {
+		this.serviceId = serviceId;
+		this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
+		this.nacosDiscoveryProperties = nacosDiscoveryProperties;
+		this.properties = properties;
+	}
+
+	/**
+	 * Set the detector removing ejected instances from the candidates.
+	 * @param outlierDetector outlier detector, may be null
+	 */
+	public void setOutlierDetector(NacosOutlierDetector outlierDetector) {
+		this.outlierDetector = outlierDetector;
+	}
+
+	@Override
+	public Mono<Response<ServiceInstance>> choose(Request request) {
+		ServiceInstanceListSupplier supplier = serviceInstanceListSupplierProvider
+				.getIfAvailable(NoopServiceInstanceListSupplier::new);
+		String hashKey = getHashKey(request);
+		return supplier.get(request).next()
+				.map(serviceInstances -> getInstanceResponse(serviceInstances, hashKey));
+	}
+
+	private Response<ServiceInstance> getInstanceResponse(
+			List<ServiceInstance> serviceInstances, String hashKey) {
+		if (serviceInstances.isEmpty()) {
+			log.warn("No servers available for service: " + this.serviceId);
+			return new EmptyResponse();
+		}
+		try {
+			HashRing currentRing = getRing(serviceInstances);
+			ServiceInstance instance = hashKey == null || currentRing.isEmpty()
+					? NacosBalancer.preferIPv6(currentRing.selector.choose())
+					: NacosBalancer.preferIPv6(currentRing.choose(hashKey,
+							properties.getLoadFactor(), totalLoad.get()));
+			return instance == null ? new EmptyResponse()
+					: new DefaultResponse(instance);
+		}
+		catch (Exception e) {
+			log.warn("NacosConsistentHashLoadBalancer error", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Read the hash key of a request.
+	 * @param request load balancer request
+	 * @return the hash key, null if the request has none
+	 */
+	String getHashKey(Request request) {
+		if (!(request.getContext() instanceof RequestDataContext context)
+				|| context.getClientRequest() == null) {
+			return null;
+		}
+		RequestData requestData = context.getClientRequest();
+		if (StringUtils.isNotEmpty(properties.getHeader())
+				&& requestData.getHeaders() != null) {
+			String value = requestData.getHeaders().getFirst(properties.getHeader());
+			if (StringUtils.isNotEmpty(value)) {
+				return value;
+			}
+		}
+		if (StringUtils.isNotEmpty(properties.getCookie())
+				&& requestData.getCookies() != null) {
+			String value = requestData.getCookies().getFirst(properties.getCookie());
+			if (StringUtils.isNotEmpty(value)) {
+				return value;
+			}
+		}
+		if (StringUtils.isNotEmpty(properties.getPathPattern())
+				&& StringUtils.isNotEmpty(properties.getPathVariable())
+				&& requestData.getUrl() != null) {
+			String path = requestData.getUrl().getPath();
+			if (path != null && PATH_MATCHER.match(properties.getPathPattern(), path)) {
+				return PATH_MATCHER
+						.extractUriTemplateVariables(properties.getPathPattern(), path)
+						.get(properties.getPathVariable());
+			}
+		}
+		return null;
+	}
+
+	private HashRing getRing(List<ServiceInstance> serviceInstances) {
+		NacosInstanceCandidates current = this.candidates;
+		if (current == null || !current.isBuiltFrom(serviceInstances, 0)) {
+			current = NacosInstanceCandidates.of(serviceInstances, 0,
+					nacosDiscoveryProperties.getClusterName(), NacosLoadBalancer.ipv6);
+			this.candidates = current;
+		}
+		List<ServiceInstance> instancesToChoose = current.getInstances();
+		if (outlierDetector != null) {
+			instancesToChoose = outlierDetector.filter(serviceId, instancesToChoose);
+		}
+		HashRing currentRing = this.ring;
+		if (currentRing == null || currentRing.source != instancesToChoose) {
+			currentRing = buildRing(instancesToChoose);
+			this.ring = currentRing;
+		}
+		return currentRing;
+	}
+
+	private HashRing buildRing(List<ServiceInstance> instances) {
+		double[] weights = new double[instances.size()];
+		double totalWeight = 0;
+		int count = 0;
+		for (int i = 0; i < weights.length && i <= HashRing.INDEX_MASK; i++) {
+			weights[i] = NacosInstanceCandidates.weight(instances.get(i));
+			if (weights[i] > 0) {
+				totalWeight += weights[i];
+				count++;
+			}
+		}
+		int virtualNodes = Math.max(1, properties.getVirtualNodes());
+		int[] replicas = new int[weights.length];
+		int points = 0;
+		for (int i = 0; i < weights.length; i++) {
+			if (weights[i] > 0) {
+				replicas[i] = (int) Math.max(1,
+						Math.round(virtualNodes * weights[i] * count / totalWeight));
+				points += replicas[i];
+			}
+		}
+		long[] entries = new long[points];
+		int index = 0;
+		for (int i = 0; i < weights.length; i++) {
+			String key = NacosInstanceCandidates.instanceKey(instances.get(i));
+			for (int replica = 0; replica < replicas[i]; replica++) {
+				// the upper bits hold the point, the lower bits the instance index.
+				long point = hash(key + "#" + replica) & ~HashRing.INDEX_MASK;
+				entries[index++] = point | i;
+			}
+		}
+		Arrays.sort(entries);
+
+		AtomicInteger[] instanceLoads = new AtomicInteger[instances.size()];
+		Set<String> keys = new HashSet<>(instances.size() * 2);
+		for (int i = 0; i < instanceLoads.length; i++) {
+			String key = NacosInstanceCandidates.instanceKey(instances.get(i));
+			keys.add(key);
+			instanceLoads[i] = loads.computeIfAbsent(key, k -> new AtomicInteger());
+		}
+		// keep the counters of instances with requests in flight, they complete later.
+		loads.entrySet().removeIf(
+				entry -> !keys.contains(entry.getKey()) && entry.getValue().get() == 0);
+		return new HashRing(instances, count, entries, instanceLoads,
+				WeightedInstanceSelector.of(instances));
+	}
+
+	/**
+	 * 64-bit FNV-1a with the murmur3 finalizer, spreading similar keys over the ring.
+	 */
+	static long hash(String key) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < key.length(); i++) {
+			char c = key.charAt(i);
+			hash ^= c & 0xFF;
+			hash *= 0x100000001b3L;
+			hash ^= c >>> 8;
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	@Override
+	public boolean supports(Class requestContextClass, Class responseClass,
+			Class serverTypeClass) {
+		return ServiceInstance.class.isAssignableFrom(serverTypeClass);
+	}
+
+	@Override
+	public void onStart(Request<Object> request) {
+	}
+
+	@Override
+	public void onStartRequest(Request<Object> request,
+			Response<ServiceInstance> lbResponse) {
+		if (lbResponse.hasServer()) {
+			loads.computeIfAbsent(
+					NacosInstanceCandidates.instanceKey(lbResponse.getServer()),
+					key -> new AtomicInteger()).incrementAndGet();
+			totalLoad.incrementAndGet();
+		}
+	}
+
+	@Override
+	public void onComplete(
+			CompletionContext<Object, ServiceInstance, Object> completionContext) {
+		Response<ServiceInstance> lbResponse = completionContext
+				.getLoadBalancerResponse();
+		if (completionContext.status() == CompletionContext.Status.DISCARD
+				|| lbResponse == null || !lbResponse.hasServer()) {
+			return;
+		}
+		AtomicInteger load = loads
+				.get(NacosInstanceCandidates.instanceKey(lbResponse.getServer()));
+		if (load != null && load.getAndUpdate(value -> value > 0 ? value - 1 : 0) > 0) {
+			totalLoad.decrementAndGet();
+		}
+	}
+
+	private static final class HashRing {
+
+		/**
+		 * Bits of a ring entry holding the instance index, rings hold up to 65536
+		 * instances.
+		 */
+		private static final long INDEX_MASK = 0xFFFFL;
+
+		private final List<ServiceInstance> source;
+
+		private final int members;
+
+		private final long[] entries;
+
+		private final AtomicInteger[] loads;
+
+		/**
+		 * Weighted selection of the requests without a hash key.
+		 */
+		private final WeightedInstanceSelector selector;
+
+		private HashRing(List<ServiceInstance> source, int members, long[] entries,
+				AtomicInteger[] loads, WeightedInstanceSelector selector) {
+			this.source = source;
+			this.members = members;
+			this.entries = entries;
+			this.loads = loads;
+			this.selector = selector;
+		}
+
+		private boolean isEmpty() {
+			return entries.length == 0;
+		}
+
+		/**
+		 * Choose the first instance at or after the hash of the key whose load stays
+		 * within the bound.
+		 */
+		private ServiceInstance choose(String hashKey, double loadFactor, int totalLoad) {
+			long point = hash(hashKey) & ~INDEX_MASK;
+			int start = Arrays.binarySearch(entries, point);
+			if (start < 0) {
+				start = -start - 1;
+			}
+			long capacity = (long) Math.ceil(loadFactor * (totalLoad + 1) / members);
+			for (int i = 0; i < entries.length; i++) {
+				long entry = entries[(start + i) % entries.length];
+				int index = (int) (entry & INDEX_MASK);
+				if (loads[index].get() < capacity) {
+					return source.get(index);
+				}
+			}
+			return source.get((int) (entries[start % entries.length] & INDEX_MASK));
+		}
+
+	}
+
+}
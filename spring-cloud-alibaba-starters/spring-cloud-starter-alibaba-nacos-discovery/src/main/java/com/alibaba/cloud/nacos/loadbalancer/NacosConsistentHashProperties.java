@@ -0,0 +1,136 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Properties of the consistent-hash load balancer, see
+ * {@link NacosConsistentHashLoadBalancer}. The hash key is read from the first of the
+ * configured header, cookie and path variable that is present in the request.
+ */
+@ConfigurationProperties(NacosConsistentHashProperties.PREFIX)
+public class NacosConsistentHashProperties {
+
+	/**
+	 * Prefix of {@link NacosConsistentHashProperties}.
+	 */
+	public static final String PREFIX = "spring.cloud.loadbalancer.nacos.consistent-hash";
+
+	/**
+	 * route requests with the same hash key to the same instance or not, takes
+	 * precedence over the least-request load balancer.
+	 */
+	private boolean enabled = false;
+
+	/**
+	 * name of the request header holding the hash key.
+	 */
+	private String header;
+
+	/**
+	 * name of the cookie holding the hash key.
+	 */
+	private String cookie;
+
+	/**
+	 * ant-style pattern of the request path declaring the path variable, for example
+	 * /users/{userId}/**.
+	 */
+	private String pathPattern;
+
+	/**
+	 * name of the path variable holding the hash key.
+	 */
+	private String pathVariable;
+
+	/**
+	 * points on the hash ring of an instance with the average weight.
+	 */
+	private int virtualNodes = 160;
+
+	/**
+	 * maximum in-flight requests of an instance relative to the average, requests move
+	 * to the next instance on the ring above it.
+	 */
+	private double loadFactor = 1.25;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public String getHeader() {
+		return header;
+	}
+
+	public void setHeader(String header) {
+		this.header = header;
+	}
+
+	public String getCookie() {
+		return cookie;
+	}
+
+	public void setCookie(String cookie) {
+		this.cookie = cookie;
+	}
+
+	public String getPathPattern() {
+		return pathPattern;
+	}
+
+	public void setPathPattern(String pathPattern) {
+		this.pathPattern = pathPattern;
+	}
+
+	public String getPathVariable() {
+		return pathVariable;
+	}
+
+	public void setPathVariable(String pathVariable) {
+		this.pathVariable = pathVariable;
+	}
+
+	public int getVirtualNodes() {
+		return virtualNodes;
+	}
+
+	public void setVirtualNodes(int virtualNodes) {
+		this.virtualNodes = virtualNodes;
+	}
+
+	public double getLoadFactor() {
+		return loadFactor;
+	}
+
+	public void setLoadFactor(double loadFactor) {
+		this.loadFactor = loadFactor;
+	}
+
+	@Override
+	public String toString() {
+		return "NacosConsistentHashProperties{" + "enabled=" + enabled + ", header='"
+				+ header + '\'' + ", cookie='" + cookie + '\'' + ", pathPattern='"
+				+ pathPattern + '\'' + ", pathVariable='" + pathVariable + '\''
+				+ ", virtualNodes=" + virtualNodes + ", loadFactor=" + loadFactor + '}';
+	}
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import com.alibaba.cloud.commons.lang.StringUtils;
+import com.alibaba.cloud.nacos.discovery.NacosServiceDiscovery;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+/**
+ * Instances of a service that {@link NacosLoadBalancer} chooses from, partitioned once
+ * per instance list by cluster and by IP type. The partitions are immutable and are
+ * reused across requests until the instance list changes.
+ */
+final class NacosInstanceCandidates {
+
+	static final Pattern IPV4_PATTERN = Pattern.compile(
+			"((2(5[0-5]|[0-4]\\d))|[0-1]?\\d{1,2})(.((2(5[0-5]|[0-4]\\d))|[0-1]?\\d{1,2})){3}");
+
+	static final String IPV6_KEY = "IPv6";
+
+	static final String CLUSTER_KEY = "nacos.cluster";
+
+	/**
+	 * Instance list the candidates were built from, replaced by an equal list passed
+	 * later so that the next requests with that list only compare identities.
+	 */
+	private volatile List<ServiceInstance> source;
+
+	private final long version;
+
+	private final List<ServiceInstance> instances;
+
+	/**
+	 * Instances of all clusters of the matching IP type.
+	 */
+	private final List<ServiceInstance> allInstances;
+
+	private final boolean crossCluster;
+
+	private NacosInstanceCandidates(List<ServiceInstance> source, long version,
+			List<ServiceInstance> instances, List<ServiceInstance> allInstances,
+			boolean crossCluster) {
+		this.source = source;
+		this.version = version;
+		this.instances = instances;
+		this.allInstances = allInstances;
+		this.crossCluster = crossCluster;
+	}
+
+	/**
+	 * Partition the instances.
+	 * @param source instances of the service
+	 * @param version version of the instance list, see {@link #isBuiltFrom}
+	 * @param clusterName cluster of the local instance, may be blank
+	 * @param ipv6 local IPv6 address, empty if the local machine only supports IPv4
+	 * @return the candidates
+	 */
+	static NacosInstanceCandidates of(List<ServiceInstance> source, long version,
+			String clusterName, String ipv6) {
+		List<ServiceInstance> instancesToChoose = source;
+		boolean crossCluster = true;
+		if (StringUtils.isNotBlank(clusterName)) {
+			List<ServiceInstance> sameClusterInstances = new ArrayList<>();
+			for (ServiceInstance instance : source) {
+				if (StringUtils.equals(instance.getMetadata().get(CLUSTER_KEY),
+						clusterName)) {
+					sameClusterInstances.add(instance);
+				}
+			}
+			if (!sameClusterInstances.isEmpty()) {
+				instancesToChoose = sameClusterInstances;
+				crossCluster = false;
+			}
+		}
+
+		List<ServiceInstance> instances = filterIpType(instancesToChoose, ipv6);
+		List<ServiceInstance> allInstances = crossCluster ? instances
+				: filterIpType(source, ipv6);
+		return new NacosInstanceCandidates(source, version, instances, allInstances,
+				crossCluster);
+	}
+
+	private static List<ServiceInstance> filterIpType(
+			List<ServiceInstance> instancesToChoose, String ipv6) {
+		List<ServiceInstance> ipv4Instances = new ArrayList<>(instancesToChoose.size());
+		List<ServiceInstance> ipv6Instances = new ArrayList<>();
+		for (ServiceInstance instance : instancesToChoose) {
+			if (isIPv4(instance.getHost())) {
+				ipv4Instances.add(instance);
+				Map<String, String> metadata = instance.getMetadata();
+				if (StringUtils.isNotEmpty(metadata.get(IPV6_KEY))) {
+					ipv6Instances.add(instance);
+				}
+			}
+			else {
+				ipv6Instances.add(instance);
+			}
+		}
+		// Provider has no IPv6, should use IPv4.
+		return Collections.unmodifiableList(StringUtils.isNotEmpty(ipv6)
+				&& !ipv6Instances.isEmpty() ? ipv6Instances : ipv4Instances);
+	}
+
+	/**
+	 * Key identifying an instance of a service across instance lists, see
+	 * {@link NacosServiceDiscovery#instanceKey}.
+	 * @param instance instance
+	 * @return the instance id, or host and port if the instance has no id
+	 */
+	static String instanceKey(ServiceInstance instance) {
+		return NacosServiceDiscovery.instanceKey(instance);
+	}
+
+	/**
+	 * Weight of an instance as used by the balancers: zero if the instance is marked
+	 * unhealthy, capped at 10000 and 1 if unknown.
+	 * @param instance instance
+	 * @return the weight
+	 */
+	static double weight(ServiceInstance instance) {
+		Map<String, String> metadata = instance.getMetadata();
+		String healthy = metadata.get("nacos.healthy");
+		if (healthy != null && !Boolean.parseBoolean(healthy)) {
+			return 0;
+		}
+		String weight = metadata.get("nacos.weight");
+		if (weight == null) {
+			return 1.0D;
+		}
+		double value = Double.parseDouble(weight);
+		return Double.isNaN(value) ? 1.0D : Math.min(value, 10000.0D);
+	}
+
+	static boolean isIPv4(String host) {
+		return IPV4_PATTERN.matcher(host).matches();
+	}
+
+	/**
+	 * Whether these candidates are still valid for the instance list. The list is the
+	 * same if no change has been published since the candidates were built and it is
+	 * the same list instance. Only a list instance not seen before is compared element
+	 * by element, and it is remembered once found equal.
+	 * @param serviceInstances instances of the service
+	 * @param currentVersion current version of the instance list
+	 * @return true if the candidates can be reused
+	 */
+	boolean isBuiltFrom(List<ServiceInstance> serviceInstances, long currentVersion) {
+		if (version != currentVersion) {
+			return false;
+		}
+		List<ServiceInstance> current = this.source;
+		if (current == serviceInstances) {
+			return true;
+		}
+		if (current.size() != serviceInstances.size()) {
+			return false;
+		}
+		for (int i = 0; i < current.size(); i++) {
+			ServiceInstance instance = current.get(i);
+			ServiceInstance other = serviceInstances.get(i);
+			if (instance != other && !instance.equals(other)) {
+				return false;
+			}
+		}
+		this.source = serviceInstances;
+		return true;
+	}
+
+	List<ServiceInstance> getInstances() {
+		return instances;
+	}
+
+	/**
+	 * @return instances of all clusters, ignoring the local cluster
+	 */
+	List<ServiceInstance> getAllInstances() {
+		return allInstances;
+	}
+
+	boolean isCrossCluster() {
+		return crossCluster;
+	}
+
+}
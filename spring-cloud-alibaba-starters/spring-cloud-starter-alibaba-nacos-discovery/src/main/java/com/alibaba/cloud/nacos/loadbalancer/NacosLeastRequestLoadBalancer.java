@@ -0,0 +1,330 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.balancer.NacosBalancer;
+import com.alibaba.cloud.nacos.balancer.WarmUp;
+import com.alibaba.cloud.nacos.balancer.WeightedInstanceSelector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+/**
+ * Load balancer picking the less loaded of two instances sampled by their Nacos weight
+ * (power of two choices). The load of an instance is its peak EWMA latency multiplied
+ * by its in-flight requests, so a degraded instance quickly receives less traffic while
+ * the weights still decide the share of instances that behave the same. A failed
+ * request or a 5xx response counts as a slow sample whatever its duration, so an
+ * instance failing fast does not look like the fastest one.
+ * <p>
+ * In-flight requests and latencies are recorded through the {@link LoadBalancerLifecycle}
+ * callbacks, the per-instance counters are lock-free.
+ */
+public class NacosLeastRequestLoadBalancer implements ReactorServiceInstanceLoadBalancer,
+		LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+
+	private static final Logger log = LoggerFactory
+			.getLogger(NacosLeastRequestLoadBalancer.class);
+
+	/**
+	 * Time for a latency sample to decay to about a third of its influence.
+	 */
+	private static final long DEFAULT_DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+	/**
+	 * Latency assumed for an instance with requests in flight but no sample yet.
+	 */
+	private static final double PENALTY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	/**
+	 * Factor applied to the current latency for a failed request, which never counts
+	 * for less than {@link #PENALTY_NANOS}.
+	 */
+	private static final double FAILURE_PENALTY_FACTOR = 2;
+
+	private final String serviceId;
+
+	private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+
+	private final NacosDiscoveryProperties nacosDiscoveryProperties;
+
+	private final long decayNanos;
+
+	private final Map<String, InstanceStats> stats = new ConcurrentHashMap<>();
+
+	private volatile Selection selection;
+
+	private NacosOutlierDetector outlierDetector;
+
+	private WarmUp warmUp;
+
+	public NacosLeastRequestLoadBalancer(
+			ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+			String serviceId, NacosDiscoveryProperties nacosDiscoveryProperties) {
+		this(serviceInstanceListSupplierProvider, serviceId, nacosDiscoveryProperties,
+				DEFAULT_DECAY_NANOS);
+	}
+
+	NacosLeastRequestLoadBalancer(
+			ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+			String serviceId, NacosDiscoveryProperties nacosDiscoveryProperties,
+			long decayNanos) {
+		this.serviceId = serviceId;
+		this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
+		this.nacosDiscoveryProperties = nacosDiscoveryProperties;
+		this.decayNanos = decayNanos;
+	}
+
+	/**
+	 * Set the detector removing ejected instances from the candidates.
+	 * @param outlierDetector outlier detector, may be null
+	 */
+	public void setOutlierDetector(NacosOutlierDetector outlierDetector) {
+		this.outlierDetector = outlierDetector;
+	}
+
+	/**
+	 * Set the warm up of newly registered instances.
+	 * @param warmUp warm up, may be null
+	 */
+	public void setWarmUp(WarmUp warmUp) {
+		this.warmUp = warmUp;
+	}
+
+	@Override
+	public Mono<Response<ServiceInstance>> choose(Request request) {
+		ServiceInstanceListSupplier supplier = serviceInstanceListSupplierProvider
+				.getIfAvailable(NoopServiceInstanceListSupplier::new);
+		return supplier.get(request).next().map(this::getInstanceResponse);
+	}
+
+	private Response<ServiceInstance> getInstanceResponse(
+			List<ServiceInstance> serviceInstances) {
+		if (serviceInstances.isEmpty()) {
+			log.warn("No servers available for service: " + this.serviceId);
+			return new EmptyResponse();
+		}
+		try {
+			ServiceInstance instance = NacosBalancer
+					.preferIPv6(choose(getSelector(serviceInstances)));
+			return instance == null ? new EmptyResponse()
+					: new DefaultResponse(instance);
+		}
+		catch (Exception e) {
+			log.warn("NacosLeastRequestLoadBalancer error", e);
+			return null;
+		}
+	}
+
+	private ServiceInstance choose(WeightedInstanceSelector selector) {
+		if (selector.size() < 2) {
+			return selector.choose();
+		}
+		int first = selector.chooseIndex();
+		ServiceInstance firstInstance = selector.get(first);
+		ServiceInstance secondInstance = selector.get(selector.chooseIndexExcept(first));
+		return cost(secondInstance) < cost(firstInstance) ? secondInstance
+				: firstInstance;
+	}
+
+	private double cost(ServiceInstance instance) {
+		InstanceStats instanceStats = stats
+				.get(NacosInstanceCandidates.instanceKey(instance));
+		return instanceStats == null ? 0 : instanceStats.cost(System.nanoTime());
+	}
+
+	private WeightedInstanceSelector getSelector(
+			List<ServiceInstance> serviceInstances) {
+		Selection current = this.selection;
+		NacosInstanceCandidates currentCandidates = current == null ? null
+				: current.candidates;
+		if (currentCandidates == null
+				|| !currentCandidates.isBuiltFrom(serviceInstances, 0)) {
+			currentCandidates = NacosInstanceCandidates.of(serviceInstances, 0,
+					nacosDiscoveryProperties.getClusterName(), NacosLoadBalancer.ipv6);
+			retainStats(serviceInstances);
+		}
+		List<ServiceInstance> instancesToChoose = currentCandidates.getInstances();
+		if (outlierDetector != null) {
+			instancesToChoose = outlierDetector.filter(serviceId, instancesToChoose);
+		}
+		if (current != null && current.candidates == currentCandidates
+				&& current.selector.isBuiltFrom(instancesToChoose)) {
+			return current.selector;
+		}
+		WeightedInstanceSelector selector = WeightedInstanceSelector
+				.of(instancesToChoose, warmUp);
+		this.selection = new Selection(currentCandidates, selector);
+		return selector;
+	}
+
+	private void retainStats(List<ServiceInstance> serviceInstances) {
+		Set<String> keys = new HashSet<>(serviceInstances.size() * 2);
+		for (ServiceInstance instance : serviceInstances) {
+			keys.add(NacosInstanceCandidates.instanceKey(instance));
+		}
+		// keep the stats of instances with requests in flight, they complete later.
+		stats.entrySet().removeIf(entry -> !keys.contains(entry.getKey())
+				&& entry.getValue().pending.get() == 0);
+	}
+
+	@Override
+	public boolean supports(Class requestContextClass, Class responseClass,
+			Class serverTypeClass) {
+		return ServiceInstance.class.isAssignableFrom(serverTypeClass);
+	}
+
+	@Override
+	public void onStart(Request<Object> request) {
+	}
+
+	@Override
+	public void onStartRequest(Request<Object> request,
+			Response<ServiceInstance> lbResponse) {
+		if (!lbResponse.hasServer()) {
+			return;
+		}
+		if (request.getContext() instanceof TimedRequestContext context
+				&& context.getRequestStartTime() == 0) {
+			context.setRequestStartTime(System.nanoTime());
+		}
+		stats.computeIfAbsent(
+				NacosInstanceCandidates.instanceKey(lbResponse.getServer()),
+				key -> new InstanceStats()).pending.incrementAndGet();
+	}
+
+	@Override
+	public void onComplete(
+			CompletionContext<Object, ServiceInstance, Object> completionContext) {
+		Response<ServiceInstance> lbResponse = completionContext
+				.getLoadBalancerResponse();
+		if (completionContext.status() == CompletionContext.Status.DISCARD
+				|| lbResponse == null || !lbResponse.hasServer()) {
+			return;
+		}
+		InstanceStats instanceStats = stats
+				.get(NacosInstanceCandidates.instanceKey(lbResponse.getServer()));
+		if (instanceStats == null) {
+			return;
+		}
+		instanceStats.pending.updateAndGet(pending -> pending > 0 ? pending - 1 : 0);
+		Request<Object> request = completionContext.getLoadBalancerRequest();
+		if (request != null && request.getContext() instanceof TimedRequestContext context
+				&& context.getRequestStartTime() > 0) {
+			long now = System.nanoTime();
+			if (NacosOutlierDetector.isFailure(completionContext)) {
+				instanceStats.observeFailure(now);
+			}
+			else {
+				instanceStats.observe(now, now - context.getRequestStartTime());
+			}
+		}
+	}
+
+	/**
+	 * Current load of an instance, for tests and diagnostics.
+	 * @param instance instance
+	 * @return load of the instance, 0 if nothing has been recorded
+	 */
+	double getLoad(ServiceInstance instance) {
+		return cost(instance);
+	}
+
+	/**
+	 * Candidates and the selection table built from them, published together.
+	 */
+	private record Selection(NacosInstanceCandidates candidates,
+			WeightedInstanceSelector selector) {
+	}
+
+	private final class InstanceStats {
+
+		private final AtomicInteger pending = new AtomicInteger();
+
+		/**
+		 * Bits of the peak EWMA latency in nanoseconds.
+		 */
+		private final AtomicLong latency = new AtomicLong(Double.doubleToLongBits(0));
+
+		private volatile long lastObserved = System.nanoTime();
+
+		private void observe(long now, long sample) {
+			update(now, sample);
+		}
+
+		private void observeFailure(long now) {
+			// penalize a failure with a slow sample rather than its real duration.
+			update(now, -1);
+		}
+
+		private void update(long now, double observed) {
+			long elapsed = Math.max(now - lastObserved, 0);
+			lastObserved = now;
+			double decay = Math.exp(-elapsed / (double) decayNanos);
+			long prev;
+			long next;
+			do {
+				prev = latency.get();
+				double ewma = Double.longBitsToDouble(prev);
+				double sample = observed >= 0 ? observed
+						: Math.max(PENALTY_NANOS, ewma * FAILURE_PENALTY_FACTOR);
+				// react to a slower sample immediately, recover with the decay.
+				double updated = sample > ewma ? sample
+						: ewma * decay + sample * (1 - decay);
+				next = Double.doubleToLongBits(updated);
+			}
+			while (!latency.compareAndSet(prev, next));
+		}
+
+		private double cost(long now) {
+			int inFlight = pending.get();
+			double ewma = Double.longBitsToDouble(latency.get());
+			if (ewma == 0) {
+				return inFlight == 0 ? 0 : PENALTY_NANOS + inFlight;
+			}
+			// without samples the latency decays towards zero over time.
+			double elapsed = Math.max(now - lastObserved, 0);
+			ewma *= Math.exp(-elapsed / decayNanos);
+			return ewma * (inFlight + 1);
+		}
+
+	}
+
+}
@@ -16,17 +16,21 @@
 
 package com.alibaba.cloud.nacos.loadbalancer;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.alibaba.cloud.commons.lang.StringUtils;
 import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceManager;
 import com.alibaba.cloud.nacos.balancer.NacosBalancer;
+import com.alibaba.cloud.nacos.balancer.WarmUp;
+import com.alibaba.cloud.nacos.balancer.WeightedInstanceSelector;
 import com.alibaba.cloud.nacos.util.InetIPv6Utils;
-import com.alibaba.nacos.client.naming.utils.CollectionUtils;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Mono;
@@ -59,9 +63,33 @@ public class NacosLoadBalancer implements ReactorServiceInstanceLoadBalancer {
 
 	private final NacosDiscoveryProperties nacosDiscoveryProperties;
 
-	private static final String IPV4_REGEX = "((2(5[0-5]|[0-4]\\d))|[0-1]?\\d{1,2})(.((2(5[0-5]|[0-4]\\d))|[0-1]?\\d{1,2})){3}";
+	private final NacosServiceManager nacosServiceManager;
+
+	/**
+	 * Version of the instance list, incremented on every change pushed by Nacos.
+	 */
+	private final AtomicLong instancesVersion = new AtomicLong();
+
+	private final EventListener instancesChangeListener = event -> {
+		if (event instanceof NamingEvent) {
+			instancesVersion.incrementAndGet();
+		}
+	};
+
+	private volatile NacosInstanceCandidates candidates;
+
+	private volatile WeightedInstanceSelector selector;
+
+	private volatile boolean subscribed;
+
+	private NacosOutlierDetector outlierDetector;
+
+	private WarmUp warmUp;
+
+	private NacosLocalityProperties locality;
+
+	private volatile NacosLocalityTiers localityTiers;
 
-	private static final String IPV6_KEY = "IPv6";
 	/**
 	 * Storage local valid IPv6 address, it's a flag whether local machine support IPv6 address stack.
 	 */
@@ -75,47 +103,56 @@ public class NacosLoadBalancer implements ReactorServiceInstanceLoadBalancer {
 	public void init() {
 		String ip = nacosDiscoveryProperties.getIp();
 		if (StringUtils.isNotEmpty(ip)) {
-			ipv6 = Pattern.matches(IPV4_REGEX, ip) ? nacosDiscoveryProperties.getMetadata().get(IPV6_KEY) : ip;
+			ipv6 = NacosInstanceCandidates.isIPv4(ip)
+					? nacosDiscoveryProperties.getMetadata()
+							.get(NacosInstanceCandidates.IPV6_KEY)
+					: ip;
 		}
 		else {
 			ipv6 = inetIPv6Utils.findIPv6Address();
 		}
+		subscribe();
 	}
 
-	private List<ServiceInstance> filterInstanceByIpType(List<ServiceInstance> instances) {
-		if (StringUtils.isNotEmpty(ipv6)) {
-			List<ServiceInstance> ipv6InstanceList = new ArrayList<>();
-			for (ServiceInstance instance : instances) {
-				if (Pattern.matches(IPV4_REGEX, instance.getHost())) {
-					if (StringUtils.isNotEmpty(instance.getMetadata().get(IPV6_KEY))) {
-						ipv6InstanceList.add(instance);
-					}
-				}
-				else {
-					ipv6InstanceList.add(instance);
-				}
-			}
-			// Provider has no IPv6, should use IPv4.
-			if (ipv6InstanceList.size() == 0) {
-				return instances.stream()
-						.filter(instance -> Pattern.matches(IPV4_REGEX, instance.getHost()))
-						.collect(Collectors.toList());
-			}
-			else {
-				return ipv6InstanceList;
-			}
-		}
-		return instances.stream()
-				.filter(instance -> Pattern.matches(IPV4_REGEX, instance.getHost()))
-				.collect(Collectors.toList());
+	public NacosLoadBalancer(
+			ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+			String serviceId, NacosDiscoveryProperties nacosDiscoveryProperties) {
+		this(serviceInstanceListSupplierProvider, serviceId, nacosDiscoveryProperties,
+				null);
 	}
 
 	public NacosLoadBalancer(
 			ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
-			String serviceId, NacosDiscoveryProperties nacosDiscoveryProperties) {
+			String serviceId, NacosDiscoveryProperties nacosDiscoveryProperties,
+			NacosServiceManager nacosServiceManager) {
 		this.serviceId = serviceId;
 		this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
 		this.nacosDiscoveryProperties = nacosDiscoveryProperties;
+		this.nacosServiceManager = nacosServiceManager;
+	}
+
+	/**
+	 * Set the detector removing ejected instances from the candidates.
+	 * @param outlierDetector outlier detector, may be null
+	 */
+	public void setOutlierDetector(NacosOutlierDetector outlierDetector) {
+		this.outlierDetector = outlierDetector;
+	}
+
+	/**
+	 * Set the warm up of newly registered instances.
+	 * @param warmUp warm up, may be null
+	 */
+	public void setWarmUp(WarmUp warmUp) {
+		this.warmUp = warmUp;
+	}
+
+	/**
+	 * Set the locality aware routing, replacing the same-cluster preference.
+	 * @param locality locality properties, may be null
+	 */
+	public void setLocality(NacosLocalityProperties locality) {
+		this.locality = locality;
 	}
 
 	@Override
@@ -133,29 +170,18 @@ public class NacosLoadBalancer implements ReactorServiceInstanceLoadBalancer {
 		}
 
 		try {
-			String clusterName = this.nacosDiscoveryProperties.getClusterName();
-
-			List<ServiceInstance> instancesToChoose = serviceInstances;
-			if (StringUtils.isNotBlank(clusterName)) {
-				List<ServiceInstance> sameClusterInstances = serviceInstances.stream()
-						.filter(serviceInstance -> {
-							String cluster = serviceInstance.getMetadata()
-									.get("nacos.cluster");
-							return StringUtils.equals(cluster, clusterName);
-						}).collect(Collectors.toList());
-				if (!CollectionUtils.isEmpty(sameClusterInstances)) {
-					instancesToChoose = sameClusterInstances;
-				}
+			if (locality != null) {
+				return new DefaultResponse(NacosBalancer
+						.preferIPv6(getLocalityTiers(serviceInstances).choose()));
 			}
-			else {
-				log.warn(
-						"A cross-cluster call occurs，name = {}, clusterName = {}, instance = {}",
-						serviceId, clusterName, serviceInstances);
+			List<ServiceInstance> instancesToChoose = getCandidates(serviceInstances)
+					.getInstances();
+			if (outlierDetector != null) {
+				instancesToChoose = outlierDetector.filter(serviceId, instancesToChoose);
 			}
-			instancesToChoose = this.filterInstanceByIpType(instancesToChoose);
 
 			ServiceInstance instance = NacosBalancer
-					.getHostByRandomWeight3(instancesToChoose);
+					.preferIPv6(getSelector(instancesToChoose).choose());
 
 			return new DefaultResponse(instance);
 		}
@@ -165,4 +191,103 @@ public class NacosLoadBalancer implements ReactorServiceInstanceLoadBalancer {
 		}
 	}
 
+	/**
+	 * Get the same-cluster and IP-type partitions of the instances, rebuilding them
+	 * only when the instance list has changed.
+	 * @param serviceInstances instances of the service
+	 * @return the candidates to choose from
+	 */
+	NacosInstanceCandidates getCandidates(List<ServiceInstance> serviceInstances) {
+		long version = instancesVersion.get();
+		NacosInstanceCandidates current = this.candidates;
+		if (current != null && current.isBuiltFrom(serviceInstances, version)) {
+			return current;
+		}
+		String clusterName = this.nacosDiscoveryProperties.getClusterName();
+		current = NacosInstanceCandidates.of(serviceInstances, version, clusterName,
+				ipv6);
+		if (current.isCrossCluster() && StringUtils.isBlank(clusterName)
+				&& locality == null) {
+			log.warn(
+					"A cross-cluster call occurs，name = {}, clusterName = {}, instance = {}",
+					serviceId, clusterName, serviceInstances);
+		}
+		this.candidates = current;
+		return current;
+	}
+
+	/**
+	 * Get the weighted selection table of the instances to choose from, rebuilding it
+	 * only when a different list is passed. The candidates and the outlier filter
+	 * return the same list until the instances change.
+	 * @param instancesToChoose instances to choose from
+	 * @return the selector
+	 */
+	private WeightedInstanceSelector getSelector(List<ServiceInstance> instancesToChoose) {
+		WeightedInstanceSelector current = this.selector;
+		if (current == null || !current.isBuiltFrom(instancesToChoose)) {
+			current = WeightedInstanceSelector.of(instancesToChoose, warmUp);
+			this.selector = current;
+		}
+		return current;
+	}
+
+	/**
+	 * Get the locality tiers of the instances, rebuilding them only when the instance
+	 * list or the ejected outliers have changed.
+	 * @param serviceInstances instances of the service
+	 * @return the locality tiers
+	 */
+	NacosLocalityTiers getLocalityTiers(List<ServiceInstance> serviceInstances) {
+		List<ServiceInstance> instances = getCandidates(serviceInstances)
+				.getAllInstances();
+		List<ServiceInstance> available = outlierDetector != null
+				? outlierDetector.filter(serviceId, instances)
+				: instances;
+		NacosLocalityTiers current = this.localityTiers;
+		if (current != null && current.isBuiltFrom(instances, available)) {
+			return current;
+		}
+		Map<String, String> metadata = nacosDiscoveryProperties.getMetadata();
+		String zone = StringUtils.isNotEmpty(locality.getZone()) ? locality.getZone()
+				: metadata.get(locality.getZoneKey());
+		String region = StringUtils.isNotEmpty(locality.getRegion())
+				? locality.getRegion()
+				: metadata.get(locality.getRegionKey());
+		current = NacosLocalityTiers.of(instances, available,
+				nacosDiscoveryProperties.getClusterName(), zone, region, locality,
+				warmUp);
+		this.localityTiers = current;
+		return current;
+	}
+
+	private void subscribe() {
+		if (nacosServiceManager == null || serviceId == null) {
+			return;
+		}
+		try {
+			nacosServiceManager.getNamingService().subscribe(serviceId,
+					nacosDiscoveryProperties.getGroup(), instancesChangeListener);
+			subscribed = true;
+		}
+		catch (Exception e) {
+			log.warn("namingService subscribe failed, serviceId: {}", serviceId, e);
+		}
+	}
+
+	@PreDestroy
+	public void destroy() {
+		if (!subscribed) {
+			return;
+		}
+		subscribed = false;
+		try {
+			nacosServiceManager.getNamingService().unsubscribe(serviceId,
+					nacosDiscoveryProperties.getGroup(), instancesChangeListener);
+		}
+		catch (Exception e) {
+			log.warn("namingService unsubscribe failed, serviceId: {}", serviceId, e);
+		}
+	}
+
 }
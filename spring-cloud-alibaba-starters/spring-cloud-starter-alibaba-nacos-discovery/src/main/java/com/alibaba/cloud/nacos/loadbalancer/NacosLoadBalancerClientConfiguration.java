@@ -17,7 +17,10 @@
 package com.alibaba.cloud.nacos.loadbalancer;
 
 import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.cloud.nacos.discovery.NacosServiceCache;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -41,7 +44,9 @@ import org.springframework.core.env.Environment;
  * <br>
  * 1. LoadBalancerCache causes information such as the weight of the service instance to
  * be changed without immediate effect.<br>
- * 2. Nacos itself supports caching.
+ * 2. Nacos itself supports caching.<br>
+ * 3. By default instances are pushed by Nacos subscriptions, see
+ * {@link NacosServiceInstanceListSupplier}.
  *
  * @author XuDaojie
  * @since 2021.1
@@ -52,16 +57,108 @@ public class NacosLoadBalancerClientConfiguration {
 
 	private static final int REACTIVE_SERVICE_INSTANCE_SUPPLIER_ORDER = 183827465;
 
+	@Bean
+	@ConditionalOnMissingBean(ReactorLoadBalancer.class)
+	@ConditionalOnProperty(value = NacosConsistentHashProperties.PREFIX
+			+ ".enabled", havingValue = "true")
+	public NacosConsistentHashLoadBalancer nacosConsistentHashLoadBalancer(
+			Environment environment, LoadBalancerClientFactory loadBalancerClientFactory,
+			NacosDiscoveryProperties nacosDiscoveryProperties,
+			NacosConsistentHashProperties consistentHashProperties,
+			ObjectProvider<NacosOutlierDetector> outlierDetector) {
+		String name = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+		NacosConsistentHashLoadBalancer loadBalancer = new NacosConsistentHashLoadBalancer(
+				loadBalancerClientFactory.getLazyProvider(name,
+						ServiceInstanceListSupplier.class),
+				name, nacosDiscoveryProperties, consistentHashProperties);
+		loadBalancer.setOutlierDetector(outlierDetector.getIfAvailable());
+		return loadBalancer;
+	}
+
+	@Bean
+	@ConditionalOnMissingBean(ReactorLoadBalancer.class)
+	@ConditionalOnProperty(value = "spring.cloud.loadbalancer.nacos.least-request.enabled", havingValue = "true")
+	public NacosLeastRequestLoadBalancer nacosLeastRequestLoadBalancer(
+			Environment environment, LoadBalancerClientFactory loadBalancerClientFactory,
+			NacosDiscoveryProperties nacosDiscoveryProperties,
+			ObjectProvider<NacosOutlierDetector> outlierDetector,
+			ObjectProvider<NacosWarmUpProperties> warmUpProperties) {
+		String name = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+		NacosLeastRequestLoadBalancer loadBalancer = new NacosLeastRequestLoadBalancer(
+				loadBalancerClientFactory.getLazyProvider(name,
+						ServiceInstanceListSupplier.class),
+				name, nacosDiscoveryProperties);
+		loadBalancer.setOutlierDetector(outlierDetector.getIfAvailable());
+		warmUpProperties.ifAvailable(
+				properties -> loadBalancer.setWarmUp(properties.toWarmUp()));
+		return loadBalancer;
+	}
+
 	@Bean
 	@ConditionalOnMissingBean
 	public ReactorLoadBalancer<ServiceInstance> nacosLoadBalancer(Environment environment,
 			LoadBalancerClientFactory loadBalancerClientFactory,
-			NacosDiscoveryProperties nacosDiscoveryProperties) {
+			NacosDiscoveryProperties nacosDiscoveryProperties,
+			ObjectProvider<NacosServiceManager> nacosServiceManager,
+			ObjectProvider<NacosOutlierDetector> outlierDetector,
+			ObjectProvider<NacosWarmUpProperties> warmUpProperties,
+			ObjectProvider<NacosLocalityProperties> localityProperties) {
 		String name = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
-		return new NacosLoadBalancer(
+		NacosLoadBalancer loadBalancer = new NacosLoadBalancer(
 				loadBalancerClientFactory.getLazyProvider(name,
 						ServiceInstanceListSupplier.class),
-				name, nacosDiscoveryProperties);
+				name, nacosDiscoveryProperties, nacosServiceManager.getIfAvailable());
+		loadBalancer.setOutlierDetector(outlierDetector.getIfAvailable());
+		warmUpProperties.ifAvailable(
+				properties -> loadBalancer.setWarmUp(properties.toWarmUp()));
+		localityProperties.ifAvailable(properties -> {
+			if (properties.isEnabled()) {
+				loadBalancer.setLocality(properties);
+			}
+		});
+		return loadBalancer;
+	}
+
+	/**
+	 * Instance list suppliers fed by Nacos subscriptions, preferred over the discovery
+	 * client based ones below.
+	 */
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnBean(NacosServiceManager.class)
+	@ConditionalOnProperty(value = "spring.cloud.loadbalancer.nacos.subscription.enabled", matchIfMissing = true)
+	@Order(REACTIVE_SERVICE_INSTANCE_SUPPLIER_ORDER - 1)
+	public static class SubscriptionSupportConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		@ConditionalOnProperty(value = "spring.cloud.loadbalancer.configurations", havingValue = "default", matchIfMissing = true)
+		public ServiceInstanceListSupplier nacosServiceInstanceListSupplier(
+				Environment environment, NacosServiceManager nacosServiceManager,
+				NacosDiscoveryProperties nacosDiscoveryProperties,
+				ObjectProvider<NacosServiceCache> nacosServiceCache) {
+			return new NacosServiceInstanceListSupplier(nacosServiceManager,
+					nacosDiscoveryProperties,
+					environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME),
+					nacosServiceCache.getIfAvailable());
+		}
+
+		@Bean
+		@ConditionalOnMissingBean
+		@ConditionalOnProperty(value = "spring.cloud.loadbalancer.configurations", havingValue = "zone-preference")
+		public ServiceInstanceListSupplier zonePreferenceNacosServiceInstanceListSupplier(
+				ConfigurableApplicationContext context,
+				NacosServiceManager nacosServiceManager,
+				NacosDiscoveryProperties nacosDiscoveryProperties,
+				ObjectProvider<NacosServiceCache> nacosServiceCache) {
+			String name = context.getEnvironment()
+					.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+			return ServiceInstanceListSupplier.builder()
+					.withBase(new NacosServiceInstanceListSupplier(nacosServiceManager,
+							nacosDiscoveryProperties, name,
+							nacosServiceCache.getIfAvailable()))
+					.withZonePreference().build(context);
+		}
+
 	}
 
 	@Configuration(proxyBeanMethods = false)
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Properties of the locality aware routing of {@link NacosLoadBalancer}, see
+ * {@link NacosLocalityTiers}.
+ */
+@ConfigurationProperties(NacosLocalityProperties.PREFIX)
+public class NacosLocalityProperties {
+
+	/**
+	 * Prefix of {@link NacosLocalityProperties}.
+	 */
+	public static final String PREFIX = "spring.cloud.loadbalancer.nacos.locality";
+
+	/**
+	 * prefer instances of the same cluster, zone and region, in that order, or not.
+	 */
+	private boolean enabled = false;
+
+	/**
+	 * metadata key holding the zone of an instance.
+	 */
+	private String zoneKey = "zone";
+
+	/**
+	 * metadata key holding the region of an instance.
+	 */
+	private String regionKey = "region";
+
+	/**
+	 * zone of the local instance, defaults to the zone of the discovery metadata.
+	 */
+	private String zone;
+
+	/**
+	 * region of the local instance, defaults to the region of the discovery metadata.
+	 */
+	private String region;
+
+	/**
+	 * fraction of the weight of a tier that must be healthy for the tier to receive all
+	 * requests, below it the missing share spills over to the next tier.
+	 */
+	private double spilloverThreshold = 0.7D;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public String getZoneKey() {
+		return zoneKey;
+	}
+
+	public void setZoneKey(String zoneKey) {
+		this.zoneKey = zoneKey;
+	}
+
+	public String getRegionKey() {
+		return regionKey;
+	}
+
+	public void setRegionKey(String regionKey) {
+		this.regionKey = regionKey;
+	}
+
+	public String getZone() {
+		return zone;
+	}
+
+	public void setZone(String zone) {
+		this.zone = zone;
+	}
+
+	public String getRegion() {
+		return region;
+	}
+
+	public void setRegion(String region) {
+		this.region = region;
+	}
+
+	public double getSpilloverThreshold() {
+		return spilloverThreshold;
+	}
+
+	public void setSpilloverThreshold(double spilloverThreshold) {
+		this.spilloverThreshold = spilloverThreshold;
+	}
+
+	@Override
+	public String toString() {
+		return "NacosLocalityProperties{" + "enabled=" + enabled + ", zoneKey='"
+				+ zoneKey + '\'' + ", regionKey='" + regionKey + '\'' + ", zone='" + zone
+				+ '\'' + ", region='" + region + '\'' + ", spilloverThreshold="
+				+ spilloverThreshold + '}';
+	}
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.alibaba.cloud.commons.lang.StringUtils;
+import com.alibaba.cloud.nacos.balancer.WarmUp;
+import com.alibaba.cloud.nacos.balancer.WeightedInstanceSelector;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+/**
+ * Locality tiers of the instances of a service, in order of preference: same cluster,
+ * same zone, same region and any instance. Each instance belongs to the first tier it
+ * matches only, so the same zone tier holds the instances of the zone outside the local
+ * cluster, and so on. A tier whose healthy weight is at least the
+ * spillover threshold of its total weight receives all remaining requests, otherwise it
+ * receives a share proportional to its health and the rest spills over to the next tier.
+ * Instances ejected as outliers do not count as healthy. The tiers and their shares are
+ * computed once per instance list, choosing is a lookup and a weighted random selection
+ * within the tier.
+ */
+final class NacosLocalityTiers {
+
+	private final List<ServiceInstance> source;
+
+	private final List<ServiceInstance> available;
+
+	private final List<List<ServiceInstance>> tiers;
+
+	private final WeightedInstanceSelector[] selectors;
+
+	private final double[] cumulativeShares;
+
+	private NacosLocalityTiers(List<ServiceInstance> source,
+			List<ServiceInstance> available, List<List<ServiceInstance>> tiers,
+			WeightedInstanceSelector[] selectors, double[] cumulativeShares) {
+		this.source = source;
+		this.available = available;
+		this.tiers = tiers;
+		this.selectors = selectors;
+		this.cumulativeShares = cumulativeShares;
+	}
+
+	/**
+	 * Partition the instances into locality tiers.
+	 * @param source instances of the service
+	 * @param available instances of the source not ejected as outliers
+	 * @param clusterName cluster of the local instance, may be blank
+	 * @param zone zone of the local instance, may be blank
+	 * @param region region of the local instance, may be blank
+	 * @param properties locality properties
+	 * @param warmUp warm up of new instances, may be null
+	 * @return the tiers
+	 */
+	static NacosLocalityTiers of(List<ServiceInstance> source,
+			List<ServiceInstance> available, String clusterName, String zone,
+			String region, NacosLocalityProperties properties, WarmUp warmUp) {
+		Set<ServiceInstance> availableSet = Collections
+				.newSetFromMap(new IdentityHashMap<>(available.size()));
+		availableSet.addAll(available);
+		Set<ServiceInstance> placed = Collections
+				.newSetFromMap(new IdentityHashMap<>(source.size()));
+		String[] keys = { NacosInstanceCandidates.CLUSTER_KEY, properties.getZoneKey(),
+				properties.getRegionKey(), null };
+		String[] values = { clusterName, zone, region, null };
+		double threshold = Math.min(1.0D,
+				Math.max(properties.getSpilloverThreshold(), Double.MIN_VALUE));
+
+		List<List<ServiceInstance>> tiers = new ArrayList<>(keys.length);
+		List<Double> shares = new ArrayList<>(keys.length);
+		double remaining = 1.0D;
+		for (int i = 0; i < keys.length && remaining > 0; i++) {
+			if (keys[i] != null && StringUtils.isBlank(values[i])) {
+				continue;
+			}
+			List<ServiceInstance> tier = new ArrayList<>();
+			double totalWeight = 0;
+			double healthyWeight = 0;
+			for (ServiceInstance instance : source) {
+				if (placed.contains(instance) || keys[i] != null && !StringUtils
+						.equals(instance.getMetadata().get(keys[i]), values[i])) {
+					continue;
+				}
+				placed.add(instance);
+				double weight = NacosInstanceCandidates.weight(instance);
+				totalWeight += Math.max(weight, 0);
+				if (weight > 0 && availableSet.contains(instance)) {
+					healthyWeight += weight;
+					tier.add(instance);
+				}
+			}
+			if (healthyWeight <= 0) {
+				continue;
+			}
+			double share = Math.min(remaining,
+					healthyWeight / totalWeight / threshold);
+			remaining -= share;
+			tiers.add(Collections.unmodifiableList(tier));
+			shares.add(share);
+		}
+
+		if (tiers.isEmpty()) {
+			// nothing is healthy, do not fail more than needed and use every instance.
+			tiers.add(source);
+			shares.add(1.0D);
+		}
+		WeightedInstanceSelector[] selectors = new WeightedInstanceSelector[tiers
+				.size()];
+		double[] cumulativeShares = new double[tiers.size()];
+		double sum = 0;
+		double total = 1.0D - Math.max(remaining, 0);
+		for (int i = 0; i < selectors.length; i++) {
+			selectors[i] = WeightedInstanceSelector.of(tiers.get(i), warmUp);
+			sum += shares.get(i);
+			// the healthy tiers share the load of the missing capacity.
+			cumulativeShares[i] = tiers.size() == 1 ? 1.0D : sum / total;
+		}
+		return new NacosLocalityTiers(source, available, tiers, selectors,
+				cumulativeShares);
+	}
+
+	/**
+	 * Whether these tiers were built from exactly these lists.
+	 * @param source instances of the service
+	 * @param available instances not ejected as outliers
+	 * @return true if built from the same lists
+	 */
+	boolean isBuiltFrom(List<ServiceInstance> source, List<ServiceInstance> available) {
+		return this.source == source && this.available == available;
+	}
+
+	/**
+	 * Choose a tier according to the shares, then an instance of the tier by weight.
+	 * @return the chosen instance
+	 */
+	ServiceInstance choose() {
+		int tier = 0;
+		if (selectors.length > 1) {
+			double random = ThreadLocalRandom.current().nextDouble();
+			while (tier < selectors.length - 1 && random >= cumulativeShares[tier]) {
+				tier++;
+			}
+		}
+		return selectors[tier].choose();
+	}
+
+	int size() {
+		return tiers.size();
+	}
+
+	List<ServiceInstance> getInstances(int tier) {
+		return tiers.get(tier);
+	}
+
+	double getShare(int tier) {
+		return tier == 0 ? cumulativeShares[0]
+				: cumulativeShares[tier] - cumulativeShares[tier - 1];
+	}
+
+}
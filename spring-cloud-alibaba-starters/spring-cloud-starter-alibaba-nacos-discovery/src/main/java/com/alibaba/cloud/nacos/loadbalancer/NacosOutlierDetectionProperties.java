@@ -0,0 +1,150 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Properties of the passive outlier detection of Nacos load-balanced clients, see
+ * {@link NacosOutlierDetector}.
+ */
+@ConfigurationProperties(NacosOutlierDetectionProperties.PREFIX)
+public class NacosOutlierDetectionProperties {
+
+	/**
+	 * Prefix of {@link NacosOutlierDetectionProperties}.
+	 */
+	public static final String PREFIX = "spring.cloud.loadbalancer.nacos.outlier-detection";
+
+	/**
+	 * enable passive outlier detection or not.
+	 */
+	private boolean enabled = false;
+
+	/**
+	 * consecutive failures after which an instance is ejected.
+	 */
+	private int consecutiveFailures = 5;
+
+	/**
+	 * failure rate in the window, between 0 and 1, after which an instance is ejected.
+	 */
+	private double failureRateThreshold = 0.5;
+
+	/**
+	 * minimum requests in the window before the failure rate is evaluated.
+	 */
+	private int minimumRequests = 20;
+
+	/**
+	 * length of the sliding window of the failure rate.
+	 */
+	private Duration window = Duration.ofSeconds(10);
+
+	/**
+	 * ejection time of the first ejection, doubled on every following ejection.
+	 */
+	private Duration baseEjectionTime = Duration.ofSeconds(30);
+
+	/**
+	 * upper bound of the ejection time.
+	 */
+	private Duration maxEjectionTime = Duration.ofMinutes(5);
+
+	/**
+	 * maximum percentage of the instances of a service that can be ejected at once, at
+	 * least one instance can be ejected when a service has more than one.
+	 */
+	private int maxEjectionPercent = 10;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public int getConsecutiveFailures() {
+		return consecutiveFailures;
+	}
+
+	public void setConsecutiveFailures(int consecutiveFailures) {
+		this.consecutiveFailures = consecutiveFailures;
+	}
+
+	public double getFailureRateThreshold() {
+		return failureRateThreshold;
+	}
+
+	public void setFailureRateThreshold(double failureRateThreshold) {
+		this.failureRateThreshold = failureRateThreshold;
+	}
+
+	public int getMinimumRequests() {
+		return minimumRequests;
+	}
+
+	public void setMinimumRequests(int minimumRequests) {
+		this.minimumRequests = minimumRequests;
+	}
+
+	public Duration getWindow() {
+		return window;
+	}
+
+	public void setWindow(Duration window) {
+		this.window = window;
+	}
+
+	public Duration getBaseEjectionTime() {
+		return baseEjectionTime;
+	}
+
+	public void setBaseEjectionTime(Duration baseEjectionTime) {
+		this.baseEjectionTime = baseEjectionTime;
+	}
+
+	public Duration getMaxEjectionTime() {
+		return maxEjectionTime;
+	}
+
+	public void setMaxEjectionTime(Duration maxEjectionTime) {
+		this.maxEjectionTime = maxEjectionTime;
+	}
+
+	public int getMaxEjectionPercent() {
+		return maxEjectionPercent;
+	}
+
+	public void setMaxEjectionPercent(int maxEjectionPercent) {
+		this.maxEjectionPercent = maxEjectionPercent;
+	}
+
+	@Override
+	public String toString() {
+		return "NacosOutlierDetectionProperties{" + "enabled=" + enabled
+				+ ", consecutiveFailures=" + consecutiveFailures
+				+ ", failureRateThreshold=" + failureRateThreshold
+				+ ", minimumRequests=" + minimumRequests + ", window=" + window
+				+ ", baseEjectionTime=" + baseEjectionTime + ", maxEjectionTime="
+				+ maxEjectionTime + ", maxEjectionPercent=" + maxEjectionPercent + '}';
+	}
+
+}
@@ -0,0 +1,438 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+
+/**
+ * Passive outlier detection for Nacos load-balanced clients. The result of every
+ * load-balanced request is recorded per instance through the
+ * {@link LoadBalancerLifecycle} callbacks; a failed request or a 5xx response counts as
+ * a failure. An instance is ejected when its consecutive failures or its failure rate in
+ * a sliding window exceed the configured thresholds, for a time doubling with every
+ * ejection. At most {@code maxEjectionPercent} of the instances of a service are ejected
+ * at once.
+ * <p>
+ * Ejected instances are removed from the candidates of the Nacos load balancers by
+ * {@link #filter(String, List)}.
+ */
+public class NacosOutlierDetector
+		implements LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+
+	private static final Logger log = LoggerFactory.getLogger(NacosOutlierDetector.class);
+
+	private static final int WINDOW_BUCKETS = 10;
+
+	private final NacosOutlierDetectionProperties properties;
+
+	private final NacosOutlierMetrics metrics;
+
+	private final long bucketNanos;
+
+	private final long baseEjectionNanos;
+
+	private final long maxEjectionNanos;
+
+	private final Map<String, ServiceOutliers> services = new ConcurrentHashMap<>();
+
+	public NacosOutlierDetector(NacosOutlierDetectionProperties properties,
+			NacosOutlierMetrics metrics) {
+		this.properties = properties;
+		this.metrics = metrics;
+		this.bucketNanos = Math.max(1, properties.getWindow().toNanos() / WINDOW_BUCKETS);
+		this.baseEjectionNanos = Math.max(1, properties.getBaseEjectionTime().toNanos());
+		this.maxEjectionNanos = Math.max(baseEjectionNanos,
+				properties.getMaxEjectionTime().toNanos());
+	}
+
+	/**
+	 * Remove the ejected instances from the candidates of a service. The same list is
+	 * returned while nothing is ejected, and the filtered list is reused until an
+	 * instance is ejected or returns, so callers can cache what they derive from it.
+	 * When all candidates are ejected, all of them are returned. Instances which are no
+	 * longer candidates are forgotten, releasing their ejection.
+	 * @param serviceId service id
+	 * @param instances candidates of the service
+	 * @return the candidates that are not ejected
+	 */
+	public List<ServiceInstance> filter(String serviceId,
+			List<ServiceInstance> instances) {
+		ServiceOutliers outliers = services.get(serviceId);
+		if (outliers == null) {
+			return instances;
+		}
+		outliers.fleetSize = instances.size();
+		outliers.retain(instances);
+		if (outliers.ejected.get() == 0) {
+			return instances;
+		}
+		return outliers.filter(instances, System.nanoTime());
+	}
+
+	/**
+	 * Currently ejected instances, by service.
+	 * @return the ejected instances
+	 */
+	public Map<String, List<Map<String, Object>>> getEjectedInstances() {
+		long now = System.nanoTime();
+		long currentTimeMillis = System.currentTimeMillis();
+		Map<String, List<Map<String, Object>>> result = new LinkedHashMap<>();
+		services.forEach((serviceId, outliers) -> {
+			List<Map<String, Object>> ejected = new ArrayList<>();
+			outliers.instances.values().forEach(health -> {
+				long until = health.ejectedUntil;
+				if (until != 0 && now - until < 0) {
+					Map<String, Object> instance = new LinkedHashMap<>();
+					instance.put("instanceId", health.instanceId);
+					instance.put("host", health.host);
+					instance.put("port", health.port);
+					instance.put("ejectionCount", health.ejectionCount);
+					instance.put("ejectedUntil",
+							currentTimeMillis + (until - now) / 1_000_000);
+					ejected.add(instance);
+				}
+			});
+			if (!ejected.isEmpty()) {
+				result.put(serviceId, ejected);
+			}
+		});
+		return result;
+	}
+
+	@Override
+	public boolean supports(Class requestContextClass, Class responseClass,
+			Class serverTypeClass) {
+		return ServiceInstance.class.isAssignableFrom(serverTypeClass);
+	}
+
+	@Override
+	public void onStart(Request<Object> request) {
+	}
+
+	@Override
+	public void onStartRequest(Request<Object> request,
+			Response<ServiceInstance> lbResponse) {
+	}
+
+	@Override
+	public void onComplete(
+			CompletionContext<Object, ServiceInstance, Object> completionContext) {
+		Response<ServiceInstance> lbResponse = completionContext
+				.getLoadBalancerResponse();
+		if (completionContext.status() == CompletionContext.Status.DISCARD
+				|| lbResponse == null || !lbResponse.hasServer()
+				|| lbResponse.getServer().getServiceId() == null) {
+			return;
+		}
+		ServiceInstance server = lbResponse.getServer();
+		services.computeIfAbsent(server.getServiceId(), ServiceOutliers::new)
+				.record(server, isFailure(completionContext), System.nanoTime());
+	}
+
+	static boolean isFailure(
+			CompletionContext<Object, ServiceInstance, Object> completionContext) {
+		if (completionContext.status() == CompletionContext.Status.FAILED) {
+			return true;
+		}
+		return completionContext.getClientResponse() instanceof ResponseData responseData
+				&& responseData.getHttpStatus() != null
+				&& responseData.getHttpStatus().is5xxServerError();
+	}
+
+	private final class ServiceOutliers {
+
+		private final String serviceId;
+
+		private final Map<String, InstanceHealth> instances = new ConcurrentHashMap<>();
+
+		private final AtomicInteger ejected = new AtomicInteger();
+
+		/**
+		 * Incremented whenever an instance is ejected or returns.
+		 */
+		private final AtomicLong version = new AtomicLong();
+
+		private volatile int fleetSize;
+
+		private volatile Filtered filtered;
+
+		/**
+		 * Candidates the instances were last retained to.
+		 */
+		private volatile List<ServiceInstance> retained;
+
+		private ServiceOutliers(String serviceId) {
+			this.serviceId = serviceId;
+			metrics.registerService(serviceId, ejected::get);
+		}
+
+		private void record(ServiceInstance server, boolean failure, long now) {
+			InstanceHealth health = instances.computeIfAbsent(
+					NacosInstanceCandidates.instanceKey(server),
+					key -> new InstanceHealth(server));
+			if (health.restoreIfExpired(now)) {
+				restored();
+			}
+			if (!health.record(failure, now)) {
+				return;
+			}
+			long duration = health.tryEject(now, this::tryAcquireEjection);
+			if (duration == 0) {
+				return;
+			}
+			version.incrementAndGet();
+			metrics.recordEjection(serviceId);
+			log.warn("Ejecting instance {}:{} of service {} for {} ms", health.host,
+					health.port, serviceId, duration / 1_000_000);
+		}
+
+		private boolean tryAcquireEjection() {
+			int fleet = fleetSize > 0 ? fleetSize : instances.size();
+			if (fleet <= 1) {
+				return false;
+			}
+			int max = Math.max(1, fleet * properties.getMaxEjectionPercent() / 100);
+			while (true) {
+				int current = ejected.get();
+				if (current >= max) {
+					return false;
+				}
+				if (ejected.compareAndSet(current, current + 1)) {
+					return true;
+				}
+			}
+		}
+
+		private void restored() {
+			ejected.decrementAndGet();
+			version.incrementAndGet();
+		}
+
+		/**
+		 * Drop the health of the instances which are not candidates anymore, so that
+		 * instances which left the service do not count against the ejection limit.
+		 * Only done when the candidate list changes.
+		 */
+		private void retain(List<ServiceInstance> source) {
+			if (retained == source) {
+				return;
+			}
+			retained = source;
+			Set<String> keys = new HashSet<>(source.size() * 4 / 3 + 1);
+			for (ServiceInstance instance : source) {
+				keys.add(NacosInstanceCandidates.instanceKey(instance));
+			}
+			instances.entrySet().removeIf(entry -> {
+				if (keys.contains(entry.getKey())) {
+					return false;
+				}
+				if (entry.getValue().release()) {
+					restored();
+				}
+				return true;
+			});
+		}
+
+		private List<ServiceInstance> filter(List<ServiceInstance> source, long now) {
+			Filtered current = this.filtered;
+			if (current != null && current.source == source
+					&& current.version == version.get() && now - current.expires < 0) {
+				return current.instances;
+			}
+			for (InstanceHealth health : instances.values()) {
+				if (health.restoreIfExpired(now)) {
+					restored();
+				}
+			}
+			long currentVersion = version.get();
+			long expires = now + maxEjectionNanos;
+			List<ServiceInstance> available = new ArrayList<>(source.size());
+			for (ServiceInstance instance : source) {
+				InstanceHealth health = instances
+						.get(NacosInstanceCandidates.instanceKey(instance));
+				long until = health == null ? 0 : health.ejectedUntil;
+				if (until != 0 && now - until < 0) {
+					expires = until - expires < 0 ? until : expires;
+					continue;
+				}
+				available.add(instance);
+			}
+			List<ServiceInstance> result = available.isEmpty() ? source
+					: Collections.unmodifiableList(available);
+			this.filtered = new Filtered(source, currentVersion, expires, result);
+			return result;
+		}
+
+	}
+
+	private record Filtered(List<ServiceInstance> source, long version, long expires,
+			List<ServiceInstance> instances) {
+	}
+
+	private final class InstanceHealth {
+
+		private final String instanceId;
+
+		private final String host;
+
+		private final int port;
+
+		private final long[] bucketIds = new long[WINDOW_BUCKETS];
+
+		private final int[] successes = new int[WINDOW_BUCKETS];
+
+		private final int[] failures = new int[WINDOW_BUCKETS];
+
+		private int consecutiveFailures;
+
+		private int ejectionCount;
+
+		private long lastReturned;
+
+		/**
+		 * End of the current ejection in nanoseconds, 0 if not ejected.
+		 */
+		private volatile long ejectedUntil;
+
+		private InstanceHealth(ServiceInstance instance) {
+			this.instanceId = instance.getInstanceId();
+			this.host = instance.getHost();
+			this.port = instance.getPort();
+			Arrays.fill(bucketIds, Long.MIN_VALUE);
+		}
+
+		/**
+		 * Record the result of a request.
+		 * @param failure whether the request failed
+		 * @param now current nano time
+		 * @return true if the instance should be ejected
+		 */
+		private synchronized boolean record(boolean failure, long now) {
+			if (ejectedUntil != 0) {
+				// requests sent before the ejection.
+				return false;
+			}
+			long bucketId = now / bucketNanos;
+			int index = (int) Math.floorMod(bucketId, WINDOW_BUCKETS);
+			if (bucketIds[index] != bucketId) {
+				bucketIds[index] = bucketId;
+				successes[index] = 0;
+				failures[index] = 0;
+			}
+			if (!failure) {
+				successes[index]++;
+				consecutiveFailures = 0;
+				return false;
+			}
+			failures[index]++;
+			if (++consecutiveFailures >= properties.getConsecutiveFailures()) {
+				return true;
+			}
+			int total = 0;
+			int failed = 0;
+			for (int i = 0; i < WINDOW_BUCKETS; i++) {
+				if (bucketIds[i] != Long.MIN_VALUE
+						&& bucketId - bucketIds[i] < WINDOW_BUCKETS) {
+					total += successes[i] + failures[i];
+					failed += failures[i];
+				}
+			}
+			return total >= properties.getMinimumRequests()
+					&& failed >= total * properties.getFailureRateThreshold();
+		}
+
+		/**
+		 * Eject the instance unless a concurrent failure already did, reserving an
+		 * ejection slot of the service under the lock of the instance so that every
+		 * ejection takes exactly one slot.
+		 * @param now current nano time
+		 * @param acquireEjection reserves an ejection slot of the service
+		 * @return ejection time in nanoseconds, 0 if the instance was not ejected
+		 */
+		private synchronized long tryEject(long now, BooleanSupplier acquireEjection) {
+			if (ejectedUntil != 0 || !acquireEjection.getAsBoolean()) {
+				return 0;
+			}
+			return eject(now);
+		}
+
+		private long eject(long now) {
+			if (lastReturned != 0 && now - lastReturned > maxEjectionNanos) {
+				// healthy for long enough, start again from the base ejection time.
+				ejectionCount = 0;
+			}
+			ejectionCount++;
+			long duration = baseEjectionNanos;
+			for (int i = 1; i < ejectionCount && duration < maxEjectionNanos; i++) {
+				duration *= 2;
+			}
+			duration = Math.min(duration, maxEjectionNanos);
+			long until = now + duration;
+			ejectedUntil = until == 0 ? 1 : until;
+			consecutiveFailures = 0;
+			// the instance returns with an empty window.
+			Arrays.fill(bucketIds, Long.MIN_VALUE);
+			Arrays.fill(successes, 0);
+			Arrays.fill(failures, 0);
+			return duration;
+		}
+
+		/**
+		 * End the ejection, if any, of an instance which left the service.
+		 * @return true if the instance was ejected
+		 */
+		private synchronized boolean release() {
+			if (ejectedUntil == 0) {
+				return false;
+			}
+			ejectedUntil = 0;
+			return true;
+		}
+
+		private synchronized boolean restoreIfExpired(long now) {
+			if (ejectedUntil == 0 || now - ejectedUntil < 0) {
+				return false;
+			}
+			ejectedUntil = 0;
+			lastReturned = now;
+			return true;
+		}
+
+	}
+
+}
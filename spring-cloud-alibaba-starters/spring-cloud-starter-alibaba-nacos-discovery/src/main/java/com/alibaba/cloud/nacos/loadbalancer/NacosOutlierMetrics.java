@@ -0,0 +1,60 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.util.function.IntSupplier;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Records outlier ejections. Meters are only published when Micrometer and a
+ * {@code MeterRegistry} bean are available, otherwise recording is a no-op.
+ */
+public interface NacosOutlierMetrics {
+
+	/**
+	 * Metrics that record nothing.
+	 */
+	NacosOutlierMetrics NONE = new NacosOutlierMetrics() {
+	};
+
+	/**
+	 * Register a service seen by the outlier detector.
+	 * @param serviceId service id
+	 * @param ejected number of currently ejected instances of the service
+	 */
+	default void registerService(String serviceId, IntSupplier ejected) {
+	}
+
+	/**
+	 * Record the ejection of an instance.
+	 * @param serviceId service id
+	 */
+	default void recordEjection(String serviceId) {
+	}
+
+	static NacosOutlierMetrics create(BeanFactory beanFactory) {
+		if (beanFactory == null || !ClassUtils.isPresent(
+				"io.micrometer.core.instrument.MeterRegistry",
+				NacosOutlierMetrics.class.getClassLoader())) {
+			return NONE;
+		}
+		return MicrometerNacosOutlierMetrics.create(beanFactory);
+	}
+
+}
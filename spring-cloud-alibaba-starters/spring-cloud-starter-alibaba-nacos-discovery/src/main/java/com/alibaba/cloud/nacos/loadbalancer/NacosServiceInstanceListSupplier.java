@@ -0,0 +1,228 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.cloud.nacos.discovery.NacosDiscoverySnapshot;
+import com.alibaba.cloud.nacos.discovery.NacosServiceCache;
+import com.alibaba.cloud.nacos.discovery.NacosServiceDiscovery;
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+/**
+ * {@link ServiceInstanceListSupplier} fed by a Nacos subscription. The service is
+ * subscribed once, on the first request, and the instances pushed by Nacos are converted
+ * into an immutable snapshot kept in memory. Requests are served from the latest
+ * snapshot, so the load-balancing path neither blocks nor converts instances. With a
+ * {@link NacosServiceCache}, the snapshots are stored in the cache, and instances already
+ * cached, for example loaded from a {@link NacosDiscoverySnapshot}, are served until
+ * Nacos answers. A failed subscription is retried by later requests, waiting for a
+ * backoff doubling from one second up to half a minute in between.
+ */
+public class NacosServiceInstanceListSupplier
+		implements ServiceInstanceListSupplier, DisposableBean {
+
+	private static final Logger log = LoggerFactory
+			.getLogger(NacosServiceInstanceListSupplier.class);
+
+	private static final long MIN_RETRY_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private static final long MAX_RETRY_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+	private static final Sinks.EmitFailureHandler EMIT_FAILURE_HANDLER = Sinks.EmitFailureHandler
+			.busyLooping(Duration.ofSeconds(1));
+
+	private final NacosServiceManager nacosServiceManager;
+
+	private final NacosDiscoveryProperties nacosDiscoveryProperties;
+
+	private final String serviceId;
+
+	private final Sinks.Many<List<ServiceInstance>> snapshots = Sinks.many().replay()
+			.latest();
+
+	private final EventListener listener = event -> {
+		if (event instanceof NamingEvent namingEvent) {
+			update(namingEvent.getInstances(), true);
+		}
+	};
+
+	private final NacosServiceCache serviceCache;
+
+	private final AtomicBoolean subscribing = new AtomicBoolean();
+
+	private volatile boolean subscribed;
+
+	/**
+	 * Number of failed subscriptions since the last successful one.
+	 */
+	private volatile int failures;
+
+	/**
+	 * Nano time before which a failed subscription is not retried.
+	 */
+	private volatile long retryAt;
+
+	/**
+	 * Whether a snapshot has been emitted, from Nacos or from the cache.
+	 */
+	private volatile boolean emitted;
+
+	/**
+	 * Whether a snapshot pushed by Nacos has been emitted.
+	 */
+	private boolean pushed;
+
+	public NacosServiceInstanceListSupplier(NacosServiceManager nacosServiceManager,
+			NacosDiscoveryProperties nacosDiscoveryProperties, String serviceId) {
+		this(nacosServiceManager, nacosDiscoveryProperties, serviceId, null);
+	}
+
+	public NacosServiceInstanceListSupplier(NacosServiceManager nacosServiceManager,
+			NacosDiscoveryProperties nacosDiscoveryProperties, String serviceId,
+			NacosServiceCache serviceCache) {
+		this.nacosServiceManager = nacosServiceManager;
+		this.nacosDiscoveryProperties = nacosDiscoveryProperties;
+		this.serviceId = serviceId;
+		this.serviceCache = serviceCache;
+	}
+
+	@Override
+	public String getServiceId() {
+		return serviceId;
+	}
+
+	@Override
+	public Flux<List<ServiceInstance>> get() {
+		if (subscribed || isBackingOff()) {
+			// after a failure, the cached or an empty snapshot has been emitted.
+			return snapshots.asFlux();
+		}
+		if (emitted || emitCached()) {
+			// serve the cached instances, Nacos answers in the background.
+			if (subscribing.compareAndSet(false, true)) {
+				Mono.fromRunnable(this::subscribe)
+						.subscribeOn(Schedulers.boundedElastic())
+						.doFinally(signal -> subscribing.set(false)).subscribe();
+			}
+			return snapshots.asFlux();
+		}
+		return Mono.fromRunnable(this::subscribe)
+				.subscribeOn(Schedulers.boundedElastic())
+				.thenMany(snapshots.asFlux());
+	}
+
+	private synchronized void subscribe() {
+		if (subscribed || isBackingOff()) {
+			return;
+		}
+		String group = nacosDiscoveryProperties.getGroup();
+		try {
+			NamingService namingService = nacosServiceManager.getNamingService();
+			namingService.subscribe(serviceId, group, listener);
+			// the first push is asynchronous, read the subscribed instances once so the
+			// first request has a snapshot to choose from.
+			update(namingService.selectInstances(serviceId, group, true, true), false);
+			subscribed = true;
+			failures = 0;
+		}
+		catch (Exception e) {
+			long backoff = MIN_RETRY_BACKOFF_NANOS << Math.min(failures, 5);
+			retryAt = System.nanoTime() + Math.min(backoff, MAX_RETRY_BACKOFF_NANOS);
+			failures++;
+			log.error("namingService subscribe failed, serviceId: {}, group: {}",
+					serviceId, group, e);
+			if (!emitted) {
+				snapshots.emitNext(Collections.emptyList(), EMIT_FAILURE_HANDLER);
+			}
+		}
+	}
+
+	private boolean isBackingOff() {
+		return failures > 0 && System.nanoTime() - retryAt < 0;
+	}
+
+	private synchronized boolean emitCached() {
+		if (emitted || serviceCache == null) {
+			return emitted;
+		}
+		List<ServiceInstance> cached = serviceCache.getInstances(serviceId);
+		if (cached.isEmpty()) {
+			return false;
+		}
+		snapshots.emitNext(cached, EMIT_FAILURE_HANDLER);
+		emitted = true;
+		return true;
+	}
+
+	private synchronized void update(List<Instance> instances, boolean push) {
+		if (!push && pushed) {
+			// a newer snapshot has already been pushed.
+			return;
+		}
+		pushed |= push;
+		List<ServiceInstance> snapshot = NacosServiceDiscovery
+				.pushedToServiceInstanceList(instances, serviceId);
+		snapshots.emitNext(snapshot, EMIT_FAILURE_HANDLER);
+		emitted = true;
+		if (serviceCache == null) {
+			return;
+		}
+		if (push) {
+			// a push is not a look up, the service may still expire from the cache.
+			serviceCache.updateInstances(serviceId, snapshot);
+		}
+		else {
+			serviceCache.setInstances(serviceId, snapshot);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		if (!subscribed) {
+			return;
+		}
+		subscribed = false;
+		try {
+			nacosServiceManager.getNamingService().unsubscribe(serviceId,
+					nacosDiscoveryProperties.getGroup(), listener);
+		}
+		catch (Exception e) {
+			log.warn("namingService unsubscribe failed, serviceId: {}", serviceId, e);
+		}
+	}
+
+}
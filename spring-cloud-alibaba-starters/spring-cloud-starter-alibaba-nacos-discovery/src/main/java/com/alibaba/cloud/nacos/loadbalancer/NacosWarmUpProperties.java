@@ -0,0 +1,101 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.time.Duration;
+
+import com.alibaba.cloud.nacos.balancer.WarmUp;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Properties of the slow start of newly registered instances, see {@link WarmUp}.
+ */
+@ConfigurationProperties(NacosWarmUpProperties.PREFIX)
+public class NacosWarmUpProperties {
+
+	/**
+	 * Prefix of {@link NacosWarmUpProperties}.
+	 */
+	public static final String PREFIX = "spring.cloud.loadbalancer.nacos.warm-up";
+
+	/**
+	 * ramp up the weight of newly registered instances or not.
+	 */
+	private boolean enabled = false;
+
+	/**
+	 * duration of the ramp, starting at the registration of an instance.
+	 */
+	private Duration window = Duration.ofMinutes(3);
+
+	/**
+	 * shape of the ramp, linear or aggressive.
+	 */
+	private WarmUp.Curve curve = WarmUp.Curve.LINEAR;
+
+	/**
+	 * percentage of its weight an instance receives right after registration.
+	 */
+	private int minWeightPercent = 10;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public Duration getWindow() {
+		return window;
+	}
+
+	public void setWindow(Duration window) {
+		this.window = window;
+	}
+
+	public WarmUp.Curve getCurve() {
+		return curve;
+	}
+
+	public void setCurve(WarmUp.Curve curve) {
+		this.curve = curve;
+	}
+
+	public int getMinWeightPercent() {
+		return minWeightPercent;
+	}
+
+	public void setMinWeightPercent(int minWeightPercent) {
+		this.minWeightPercent = minWeightPercent;
+	}
+
+	/**
+	 * @return the warm up, null if disabled
+	 */
+	public WarmUp toWarmUp() {
+		return enabled ? WarmUp.of(window, curve, minWeightPercent) : null;
+	}
+
+	@Override
+	public String toString() {
+		return "NacosWarmUpProperties{" + "enabled=" + enabled + ", window=" + window
+				+ ", curve=" + curve + ", minWeightPercent=" + minWeightPercent + '}';
+	}
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.registry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.BeanFactory;
+
+/**
+ * Micrometer based {@link NacosRegistrationMetrics}, publishing the gauges
+ * {@value #REGISTERED}, 1 while the instance is registered, and {@value #FAILURES},
+ * the consecutive failed attempts, and the attempt counter {@value #ATTEMPTS} tagged
+ * by result.
+ */
+final class MicrometerNacosRegistrationMetrics implements NacosRegistrationMetrics {
+
+	static final String REGISTERED = "spring.cloud.nacos.discovery.registration.registered";
+
+	static final String FAILURES = "spring.cloud.nacos.discovery.registration.failures";
+
+	static final String ATTEMPTS = "spring.cloud.nacos.discovery.registration.attempts";
+
+	private final MeterRegistry registry;
+
+	private MicrometerNacosRegistrationMetrics(MeterRegistry registry) {
+		this.registry = registry;
+	}
+
+	static NacosRegistrationMetrics create(BeanFactory beanFactory) {
+		MeterRegistry registry = beanFactory.getBeanProvider(MeterRegistry.class)
+				.getIfUnique();
+		return registry == null ? NONE : new MicrometerNacosRegistrationMetrics(registry);
+	}
+
+	@Override
+	public void bind(NacosServiceRegistry serviceRegistry) {
+		Gauge.builder(REGISTERED, serviceRegistry,
+				source -> source
+						.getRegistrationState() == NacosServiceRegistry.RegistrationState.REGISTERED
+								? 1 : 0)
+				.register(registry);
+		Gauge.builder(FAILURES, serviceRegistry, NacosServiceRegistry::getFailedAttempts)
+				.register(registry);
+	}
+
+	@Override
+	public void recordAttempt(boolean success) {
+		Counter.builder(ATTEMPTS).tag("result", success ? "success" : "failure")
+				.register(registry).increment();
+	}
+
+}
@@ -106,12 +106,24 @@ public class NacosAutoServiceRegistration
 
 	@EventListener
 	public void onNacosDiscoveryInfoChangedEvent(NacosDiscoveryInfoChangedEvent event) {
-		restart();
+		reregister();
 	}
 
-	private void restart() {
-		this.stop();
-		this.start();
+	/**
+	 * Register the changed information without deregistering the instance first,
+	 * repeated changes are coalesced by {@link NacosServiceRegistry#reregister}.
+	 */
+	private void reregister() {
+		if (!isRunning() || !isEnabled()) {
+			return;
+		}
+		if (getServiceRegistry() instanceof NacosServiceRegistry nacosServiceRegistry) {
+			nacosServiceRegistry.reregister(getRegistration());
+		}
+		else {
+			this.stop();
+			this.start();
+		}
 	}
 
 }
@@ -57,6 +57,12 @@ public class NacosRegistration implements Registration {
 	 */
 	public static final String MANAGEMENT_ENDPOINT_BASE_PATH = "management.endpoints.web.base-path";
 
+	/**
+	 * The metadata key of the time the instance was first registered, in milliseconds
+	 * since the epoch. Load balancers use it to warm up new instances.
+	 */
+	public static final String REGISTER_TIMESTAMP = "register.timestamp";
+
 	private List<NacosRegistrationCustomizer> registrationCustomizers;
 
 	private NacosDiscoveryProperties nacosDiscoveryProperties;
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.registry;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Records registration attempts of {@link NacosServiceRegistry}. Meters are only
+ * published when Micrometer and a {@code MeterRegistry} bean are available, otherwise
+ * recording is a no-op.
+ */
+public interface NacosRegistrationMetrics {
+
+	/**
+	 * Metrics that record nothing.
+	 */
+	NacosRegistrationMetrics NONE = new NacosRegistrationMetrics() {
+	};
+
+	/**
+	 * Register the gauges of the registry state.
+	 * @param registry service registry
+	 */
+	default void bind(NacosServiceRegistry registry) {
+	}
+
+	/**
+	 * Record a registration attempt.
+	 * @param success whether the instance was registered
+	 */
+	default void recordAttempt(boolean success) {
+	}
+
+	static NacosRegistrationMetrics create(BeanFactory beanFactory) {
+		if (beanFactory == null || !ClassUtils.isPresent(
+				"io.micrometer.core.instrument.MeterRegistry",
+				NacosRegistrationMetrics.class.getClassLoader())) {
+			return NONE;
+		}
+		return MicrometerNacosRegistrationMetrics.create(beanFactory);
+	}
+
+}
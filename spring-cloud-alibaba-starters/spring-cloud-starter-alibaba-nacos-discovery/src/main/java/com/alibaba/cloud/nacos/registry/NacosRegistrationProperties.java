@@ -0,0 +1,106 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.registry;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Properties of the registration of the instance by {@link NacosServiceRegistry}.
+ */
+@ConfigurationProperties(NacosRegistrationProperties.PREFIX)
+public class NacosRegistrationProperties {
+
+	/**
+	 * Prefix of {@link NacosRegistrationProperties}.
+	 */
+	public static final String PREFIX = "spring.cloud.nacos.discovery.registration";
+
+	/**
+	 * register in the background and retry failures, instead of registering on the
+	 * startup thread. fail-fast does not apply when enabled.
+	 */
+	private boolean async = false;
+
+	/**
+	 * delay before retrying a failed registration, doubled on every failure.
+	 */
+	private Duration initialBackoff = Duration.ofSeconds(1);
+
+	/**
+	 * maximum delay between two registration attempts.
+	 */
+	private Duration maxBackoff = Duration.ofMinutes(1);
+
+	/**
+	 * attempts before giving up a registration, 0 to retry until registered.
+	 */
+	private int maxAttempts = 0;
+
+	public boolean isAsync() {
+		return async;
+	}
+
+	public void setAsync(boolean async) {
+		this.async = async;
+	}
+
+	public Duration getInitialBackoff() {
+		return initialBackoff;
+	}
+
+	public void setInitialBackoff(Duration initialBackoff) {
+		this.initialBackoff = initialBackoff;
+	}
+
+	public Duration getMaxBackoff() {
+		return maxBackoff;
+	}
+
+	public void setMaxBackoff(Duration maxBackoff) {
+		this.maxBackoff = maxBackoff;
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public void setMaxAttempts(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+	}
+
+	/**
+	 * Delay before the next attempt.
+	 * @param failedAttempts consecutive failed attempts, at least 1
+	 * @return delay in milliseconds
+	 */
+	long backoffMillis(int failedAttempts) {
+		long initial = Math.max(1, initialBackoff.toMillis());
+		long max = Math.max(initial, maxBackoff.toMillis());
+		int shift = Math.min(Math.max(failedAttempts - 1, 0), 30);
+		return Math.min(max, initial << shift);
+	}
+
+	@Override
+	public String toString() {
+		return "NacosRegistrationProperties{" + "async=" + async + ", initialBackoff="
+				+ initialBackoff + ", maxBackoff=" + maxBackoff + ", maxAttempts="
+				+ maxAttempts + '}';
+	}
+
+}
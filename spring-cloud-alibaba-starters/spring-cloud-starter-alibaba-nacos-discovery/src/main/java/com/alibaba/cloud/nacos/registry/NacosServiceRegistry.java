@@ -16,8 +16,16 @@
 
 package com.alibaba.cloud.nacos.registry;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.alibaba.cloud.commons.lang.StringUtils;
 import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
@@ -51,10 +59,57 @@ public class NacosServiceRegistry implements ServiceRegistry<Registration> {
 
 	private final NacosServiceManager nacosServiceManager;
 
+	/**
+	 * Time of the first registration, kept when the instance registers again.
+	 */
+	private volatile String registerTimestamp;
+
+	private final NacosRegistrationProperties registrationProperties;
+
+	private final NacosRegistrationMetrics metrics;
+
+	private final AtomicInteger failedAttempts = new AtomicInteger();
+
+	private volatile RegistrationState registrationState = RegistrationState.UNREGISTERED;
+
+	private volatile Exception lastFailure;
+
+	/**
+	 * Service, group and instance last registered, to remove the instance when it is
+	 * registered again under another address.
+	 */
+	private volatile String registeredServiceId;
+
+	private volatile String registeredGroup;
+
+	private volatile Instance registeredInstance;
+
+	/**
+	 * Latest registration waiting for the register thread, guarded by this registry.
+	 */
+	private Registration pendingRegistration;
+
+	private ScheduledExecutorService registerExecutor;
+
+	private ScheduledFuture<?> scheduledRegistration;
+
+	private boolean closed;
+
 	public NacosServiceRegistry(NacosServiceManager nacosServiceManager,
 			NacosDiscoveryProperties nacosDiscoveryProperties) {
+		this(nacosServiceManager, nacosDiscoveryProperties,
+				new NacosRegistrationProperties(), NacosRegistrationMetrics.NONE);
+	}
+
+	public NacosServiceRegistry(NacosServiceManager nacosServiceManager,
+			NacosDiscoveryProperties nacosDiscoveryProperties,
+			NacosRegistrationProperties registrationProperties,
+			NacosRegistrationMetrics metrics) {
 		this.nacosDiscoveryProperties = nacosDiscoveryProperties;
 		this.nacosServiceManager = nacosServiceManager;
+		this.registrationProperties = registrationProperties;
+		this.metrics = metrics;
+		metrics.bind(this);
 	}
 
 	@Override
@@ -65,28 +120,152 @@ public class NacosServiceRegistry implements ServiceRegistry<Registration> {
 			return;
 		}
 
-		NamingService namingService = namingService();
-		String serviceId = registration.getServiceId();
-		String group = nacosDiscoveryProperties.getGroup();
-
-		Instance instance = getNacosInstanceFromRegistration(registration);
+		if (registrationProperties.isAsync()) {
+			submitRegistration(registration);
+			return;
+		}
 
+		registrationState = RegistrationState.REGISTERING;
 		try {
-			namingService.registerInstance(serviceId, group, instance);
-			log.info("nacos registry, {} {} {}:{} register finished", group, serviceId,
-					instance.getIp(), instance.getPort());
+			registerInstance(registration);
 		}
 		catch (Exception e) {
+			registrationState = RegistrationState.FAILED;
 			if (nacosDiscoveryProperties.isFailFast()) {
-				log.error("nacos registry, {} register failed...{},", serviceId,
-						registration.toString(), e);
+				log.error("nacos registry, {} register failed...{},",
+						registration.getServiceId(), registration.toString(), e);
 				rethrowRuntimeException(e);
 			}
 			else {
-				log.warn("Failfast is false. {} register failed...{},", serviceId,
-						registration.toString(), e);
+				log.warn("Failfast is false. {} register failed...{},",
+						registration.getServiceId(), registration.toString(), e);
+			}
+		}
+	}
+
+	/**
+	 * Register the instance again, after its registration information changed. The
+	 * registration is done on the register thread, and registrations requested while
+	 * one is waiting are coalesced into a single one with the latest information.
+	 * @param registration registration
+	 */
+	public void reregister(Registration registration) {
+		if (StringUtils.isEmpty(registration.getServiceId())) {
+			return;
+		}
+		submitRegistration(registration);
+	}
+
+	private void submitRegistration(Registration registration) {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			pendingRegistration = registration;
+			registrationState = RegistrationState.REGISTERING;
+			failedAttempts.set(0);
+			scheduleRegistration(0);
+		}
+	}
+
+	/**
+	 * Schedule an attempt, unless one not started yet is scheduled sooner. Must be
+	 * called while holding the lock of this registry.
+	 */
+	private void scheduleRegistration(long delayMillis) {
+		if (scheduledRegistration != null && !scheduledRegistration.isDone()
+				&& scheduledRegistration.getDelay(TimeUnit.MILLISECONDS) > 0) {
+			if (scheduledRegistration
+					.getDelay(TimeUnit.MILLISECONDS) <= delayMillis) {
+				return;
+			}
+			scheduledRegistration.cancel(false);
+		}
+		if (registerExecutor == null) {
+			registerExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "NacosServiceRegistry");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		scheduledRegistration = registerExecutor.schedule(this::attemptRegistration,
+				delayMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private void attemptRegistration() {
+		Registration registration;
+		synchronized (this) {
+			registration = pendingRegistration;
+			pendingRegistration = null;
+		}
+		if (registration == null) {
+			// coalesced into an attempt that already ran.
+			return;
+		}
+		try {
+			registerInstance(registration);
+		}
+		catch (Exception e) {
+			synchronized (this) {
+				if (closed || pendingRegistration != null
+						|| registrationState != RegistrationState.REGISTERING) {
+					// superseded by a newer registration, or deregistered.
+					return;
+				}
+				int attempts = failedAttempts.get();
+				int maxAttempts = registrationProperties.getMaxAttempts();
+				if (maxAttempts > 0 && attempts >= maxAttempts) {
+					registrationState = RegistrationState.FAILED;
+					log.error("nacos registry, {} register failed after {} attempts...{},",
+							registration.getServiceId(), attempts,
+							registration.toString(), e);
+					return;
+				}
+				long delay = registrationProperties.backoffMillis(attempts);
+				log.warn("nacos registry, {} register failed, retrying in {} ms...{},",
+						registration.getServiceId(), delay, registration.toString(), e);
+				pendingRegistration = registration;
+				scheduleRegistration(delay);
+			}
+		}
+	}
+
+	private void registerInstance(Registration registration) throws NacosException {
+		NamingService namingService = namingService();
+		String serviceId = registration.getServiceId();
+		String group = nacosDiscoveryProperties.getGroup();
+
+		if (registerTimestamp == null) {
+			registerTimestamp = String.valueOf(System.currentTimeMillis());
+		}
+		Instance instance = getNacosInstanceFromRegistration(registration);
+
+		try {
+			Instance previous = registeredInstance;
+			if (previous != null && (!serviceId.equals(registeredServiceId)
+					|| !group.equals(registeredGroup)
+					|| !previous.getIp().equals(instance.getIp())
+					|| previous.getPort() != instance.getPort())) {
+				namingService.deregisterInstance(registeredServiceId, registeredGroup,
+						previous);
 			}
+			namingService.registerInstance(serviceId, group, instance);
+		}
+		catch (NacosException | RuntimeException e) {
+			lastFailure = e;
+			failedAttempts.incrementAndGet();
+			metrics.recordAttempt(false);
+			throw e;
 		}
+		registeredServiceId = serviceId;
+		registeredGroup = group;
+		registeredInstance = instance;
+		lastFailure = null;
+		failedAttempts.set(0);
+		registrationState = RegistrationState.REGISTERED;
+		metrics.recordAttempt(true);
+		log.info("nacos registry, {} {} {}:{} register finished", group, serviceId,
+				instance.getIp(), instance.getPort());
 	}
 
 	@Override
@@ -99,6 +278,36 @@ public class NacosServiceRegistry implements ServiceRegistry<Registration> {
 			return;
 		}
 
+		ScheduledExecutorService executor;
+		synchronized (this) {
+			pendingRegistration = null;
+			registrationState = RegistrationState.UNREGISTERED;
+			if (scheduledRegistration != null) {
+				scheduledRegistration.cancel(false);
+			}
+			executor = closed ? null : registerExecutor;
+		}
+		if (executor == null) {
+			deregisterInstance(registration);
+		}
+		else {
+			// after the attempt in progress, if any.
+			try {
+				executor.submit(() -> deregisterInstance(registration)).get();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			catch (ExecutionException e) {
+				log.error("ERR_NACOS_DEREGISTER, de-register failed...{},",
+						registration.toString(), e.getCause());
+			}
+		}
+
+		log.info("De-registration finished.");
+	}
+
+	private void deregisterInstance(Registration registration) {
 		NamingService namingService = namingService();
 		String serviceId = registration.getServiceId();
 		String group = nacosDiscoveryProperties.getGroup();
@@ -106,17 +315,24 @@ public class NacosServiceRegistry implements ServiceRegistry<Registration> {
 		try {
 			namingService.deregisterInstance(serviceId, group, registration.getHost(),
 					registration.getPort(), nacosDiscoveryProperties.getClusterName());
+			registeredInstance = null;
 		}
 		catch (Exception e) {
 			log.error("ERR_NACOS_DEREGISTER, de-register failed...{},",
 					registration.toString(), e);
 		}
-
-		log.info("De-registration finished.");
+		registrationState = RegistrationState.UNREGISTERED;
 	}
 
 	@Override
 	public void close() {
+		synchronized (this) {
+			closed = true;
+			pendingRegistration = null;
+			if (registerExecutor != null) {
+				registerExecutor.shutdownNow();
+			}
+		}
 		try {
 			nacosServiceManager.nacosServiceShutDown();
 		}
@@ -184,13 +400,66 @@ public class NacosServiceRegistry implements ServiceRegistry<Registration> {
 		instance.setWeight(nacosDiscoveryProperties.getWeight());
 		instance.setClusterName(nacosDiscoveryProperties.getClusterName());
 		instance.setEnabled(nacosDiscoveryProperties.isInstanceEnabled());
-		instance.setMetadata(registration.getMetadata());
+		Map<String, String> metadata = new HashMap<>(registration.getMetadata());
+		if (registerTimestamp != null) {
+			metadata.putIfAbsent(NacosRegistration.REGISTER_TIMESTAMP,
+					registerTimestamp);
+		}
+		instance.setMetadata(metadata);
 		instance.setEphemeral(nacosDiscoveryProperties.isEphemeral());
 		return instance;
 	}
 
+	/**
+	 * @return state of the registration of the instance
+	 */
+	public RegistrationState getRegistrationState() {
+		return registrationState;
+	}
+
+	/**
+	 * @return consecutive failed registration attempts
+	 */
+	public int getFailedAttempts() {
+		return failedAttempts.get();
+	}
+
+	/**
+	 * @return failure of the last registration attempt, null if it succeeded
+	 */
+	public Exception getLastFailure() {
+		return lastFailure;
+	}
+
 	private NamingService namingService() {
 		return nacosServiceManager.getNamingService();
 	}
 
+	/**
+	 * State of the registration of the instance.
+	 */
+	public enum RegistrationState {
+
+		/**
+		 * not registered yet, or deregistered.
+		 */
+		UNREGISTERED,
+
+		/**
+		 * registration in progress, including retries of failed attempts.
+		 */
+		REGISTERING,
+
+		/**
+		 * registered.
+		 */
+		REGISTERED,
+
+		/**
+		 * registration failed and is not retried.
+		 */
+		FAILED
+
+	}
+
 }
@@ -22,10 +22,15 @@ import com.alibaba.cloud.nacos.ConditionalOnNacosDiscoveryEnabled;
 import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
 import com.alibaba.cloud.nacos.NacosServiceManager;
 import com.alibaba.cloud.nacos.discovery.NacosDiscoveryAutoConfiguration;
+import com.alibaba.cloud.nacos.discovery.actuate.health.NacosRegistrationHealthIndicator;
 
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.autoconfigure.health.ConditionalOnEnabledHealthIndicator;
+import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.client.serviceregistry.AutoServiceRegistrationAutoConfiguration;
@@ -40,7 +45,7 @@ import org.springframework.context.annotation.Configuration;
  * @author <a href="mailto:mercyblitz@gmail.com">Mercy</a>
  */
 @Configuration(proxyBeanMethods = false)
-@EnableConfigurationProperties
+@EnableConfigurationProperties(NacosRegistrationProperties.class)
 @ConditionalOnNacosDiscoveryEnabled
 @ConditionalOnProperty(value = "spring.cloud.service-registry.auto-registration.enabled",
 		matchIfMissing = true)
@@ -52,8 +57,11 @@ public class NacosServiceRegistryAutoConfiguration {
 	@Bean
 	public NacosServiceRegistry nacosServiceRegistry(
 			NacosServiceManager nacosServiceManager,
-			NacosDiscoveryProperties nacosDiscoveryProperties) {
-		return new NacosServiceRegistry(nacosServiceManager, nacosDiscoveryProperties);
+			NacosDiscoveryProperties nacosDiscoveryProperties,
+			NacosRegistrationProperties nacosRegistrationProperties,
+			BeanFactory beanFactory) {
+		return new NacosServiceRegistry(nacosServiceManager, nacosDiscoveryProperties,
+				nacosRegistrationProperties, NacosRegistrationMetrics.create(beanFactory));
 	}
 
 	@Bean
@@ -76,4 +84,23 @@ public class NacosServiceRegistryAutoConfiguration {
 				autoServiceRegistrationProperties, registration);
 	}
 
+	/**
+	 * Only with asynchronous registration, a failed synchronous registration fails the
+	 * startup instead and would never be retried.
+	 */
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnClass(HealthIndicator.class)
+	@ConditionalOnProperty(value = NacosRegistrationProperties.PREFIX
+			+ ".async", havingValue = "true")
+	protected static class NacosRegistrationHealthIndicatorConfiguration {
+
+		@Bean
+		@ConditionalOnEnabledHealthIndicator("nacos-registration")
+		public HealthIndicator nacosRegistrationHealthIndicator(
+				NacosServiceRegistry nacosServiceRegistry) {
+			return new NacosRegistrationHealthIndicator(nacosServiceRegistry);
+		}
+
+	}
+
 }
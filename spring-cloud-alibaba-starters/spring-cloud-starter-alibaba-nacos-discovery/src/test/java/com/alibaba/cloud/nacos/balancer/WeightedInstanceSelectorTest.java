@@ -0,0 +1,118 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.balancer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.alibaba.cloud.nacos.registry.NacosRegistration;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+import static com.alibaba.cloud.nacos.test.NacosServiceInstanceBuilder.instance;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+public class WeightedInstanceSelectorTest {
+
+	@Test
+	public void chooseProportionallyToWeight() {
+		List<ServiceInstance> instances = new ArrayList<>();
+		instances.add(instance("10.0.0.1").weight(1).healthy(true).build());
+		instances.add(instance("10.0.0.2").weight(3).healthy(true).build());
+		instances.add(instance("10.0.0.3").weight(0).healthy(true).build());
+		instances.add(instance("10.0.0.4").weight(5).healthy(false).build());
+		WeightedInstanceSelector selector = WeightedInstanceSelector.of(instances);
+		assertThat(selector.size()).isEqualTo(2);
+
+		Map<String, Integer> counts = new HashMap<>();
+		for (int i = 0; i < 40000; i++) {
+			counts.merge(selector.choose().getHost(), 1, Integer::sum);
+		}
+		assertThat(counts).containsOnlyKeys("10.0.0.1", "10.0.0.2");
+		assertThat(counts.get("10.0.0.2") / (double) counts.get("10.0.0.1"))
+				.isBetween(2.6, 3.4);
+	}
+
+	@Test
+	public void chooseAnotherInstance() {
+		List<ServiceInstance> instances = new ArrayList<>();
+		instances.add(instance("10.0.0.1").weight(1).healthy(true).build());
+		instances.add(instance("10.0.0.2").weight(8).healthy(true).build());
+		instances.add(instance("10.0.0.3").weight(1).healthy(true).build());
+		WeightedInstanceSelector selector = WeightedInstanceSelector.of(instances);
+		int[] counts = new int[3];
+		for (int i = 0; i < 20000; i++) {
+			counts[selector.chooseIndexExcept(1)]++;
+		}
+		assertThat(counts[1]).isZero();
+		assertThat(counts[0] / (double) counts[2]).isBetween(0.9, 1.1);
+	}
+
+	@Test
+	public void rampUpWeightOfNewInstances() {
+		WarmUp warmUp = WarmUp.of(Duration.ofMinutes(10), WarmUp.Curve.LINEAR, 10);
+		long now = System.currentTimeMillis();
+		assertThat(warmUp.factor(now, now)).isEqualTo(0.1);
+		assertThat(warmUp.factor(now - Duration.ofMinutes(5).toMillis(), now))
+				.isCloseTo(0.5, offset(0.01));
+		assertThat(WarmUp.of(Duration.ofMinutes(10), WarmUp.Curve.AGGRESSIVE, 10)
+				.factor(now - Duration.ofMinutes(1).toMillis(), now))
+				.isCloseTo(Math.sqrt(0.1), offset(0.01));
+		assertThat(warmUp.factor(0, now)).isEqualTo(1.0);
+
+		List<ServiceInstance> instances = new ArrayList<>();
+		instances.add(instance("10.0.0.1").weight(1).healthy(true).build());
+		instances.add(instance("10.0.0.2").weight(1).healthy(true).build());
+		instances.get(1).getMetadata().put(NacosRegistration.REGISTER_TIMESTAMP,
+				String.valueOf(now));
+		WeightedInstanceSelector selector = WeightedInstanceSelector.of(instances,
+				warmUp);
+		Map<String, Integer> counts = new HashMap<>();
+		for (int i = 0; i < 22000; i++) {
+			counts.merge(selector.choose().getHost(), 1, Integer::sum);
+		}
+		assertThat(counts.get("10.0.0.1") / (double) counts.get("10.0.0.2"))
+				.isBetween(8.0, 12.0);
+	}
+
+	@Test
+	public void reuseTableForSameList() {
+		List<ServiceInstance> instances = new ArrayList<>();
+		instances.add(instance("10.0.0.1").weight(1).healthy(true).build());
+		assertThat(WeightedInstanceSelector.of(instances).isBuiltFrom(instances))
+				.isTrue();
+		assertThat(NacosBalancer.getHostByRandomWeight3(instances))
+				.isSameAs(instances.get(0));
+		assertThat(NacosBalancer.getHostByRandomWeight3(new ArrayList<>()))
+				.isNull();
+	}
+
+	@Test
+	public void failWithoutPositiveWeight() {
+		List<ServiceInstance> instances = new ArrayList<>();
+		instances.add(instance("10.0.0.1").weight(0).healthy(true).build());
+		assertThatThrownBy(() -> WeightedInstanceSelector.of(instances).choose())
+				.isInstanceOf(IllegalStateException.class);
+	}
+
+}
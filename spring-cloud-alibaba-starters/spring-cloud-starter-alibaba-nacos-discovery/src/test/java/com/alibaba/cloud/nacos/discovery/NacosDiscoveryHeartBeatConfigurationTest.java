@@ -69,4 +69,15 @@ public class NacosDiscoveryHeartBeatConfigurationTest {
 				);
 	}
 
+	@Test
+	public void testNacosDiscoveryHeartBeatPublisherReplacedByServicesWatch() {
+		contextRunner
+				.withPropertyValues("spring.cloud.gateway.discovery.locator.enabled=true",
+						"spring.cloud.nacos.discovery.watch.services.enabled=true")
+				.run(context -> {
+					assertThat(context).doesNotHaveBean(NacosDiscoveryHeartBeatPublisher.class);
+					assertThat(context).hasSingleBean(NacosServicesWatch.class);
+				});
+	}
+
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.discovery;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+import static com.alibaba.cloud.nacos.test.NacosServiceInstanceBuilder.instance;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NacosDiscoverySnapshotTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void rehydrateServiceCache() {
+		Path file = directory.resolve("test.snapshot");
+		NacosServiceCache cache = new NacosServiceCache();
+		NacosDiscoverySnapshot snapshot = new NacosDiscoverySnapshot(cache, file,
+				Duration.ofMinutes(1), "public", "DEFAULT_GROUP", Duration.ofDays(1));
+		snapshot.afterPropertiesSet();
+		cache.setInstances("a", List.of(snapshotInstance("a", "10.0.0.1"),
+				snapshotInstance("a", "10.0.0.2")));
+		cache.setInstances("b", List.of(snapshotInstance("b", "10.0.0.3")));
+		snapshot.destroy();
+
+		NacosServiceCache restored = new NacosServiceCache();
+		assertThat(new NacosDiscoverySnapshot(restored, file, Duration.ofMinutes(1),
+				"public", "DEFAULT_GROUP", Duration.ofDays(1)).load()).isEqualTo(2);
+		assertThat(restored.getInstances("a")).isEqualTo(cache.getInstances("a"));
+		assertThat(restored.getInstances("b")).isEqualTo(cache.getInstances("b"));
+		assertThat(restored.getInstances("b").get(0).isSecure()).isTrue();
+	}
+
+	@Test
+	public void ignoreSnapshotOfOtherGroup() throws Exception {
+		Path file = directory.resolve("test.snapshot");
+		write(file, new NacosDiscoverySnapshot.Header("public", "DEFAULT_GROUP",
+				System.currentTimeMillis()));
+
+		NacosServiceCache cache = new NacosServiceCache();
+		assertThat(new NacosDiscoverySnapshot(cache, file, Duration.ofMinutes(1),
+				"public", "OTHER_GROUP", Duration.ZERO).load()).isZero();
+		assertThat(new NacosDiscoverySnapshot(cache, file, Duration.ofMinutes(1), "dev",
+				"DEFAULT_GROUP", Duration.ZERO).load()).isZero();
+		assertThat(cache.getEntries()).isEmpty();
+	}
+
+	@Test
+	public void ignoreSnapshotOlderThanMaxAge() throws Exception {
+		Path file = directory.resolve("test.snapshot");
+		write(file, new NacosDiscoverySnapshot.Header("public", "DEFAULT_GROUP",
+				System.currentTimeMillis() - Duration.ofHours(2).toMillis()));
+
+		NacosServiceCache cache = new NacosServiceCache();
+		assertThat(new NacosDiscoverySnapshot(cache, file, Duration.ofMinutes(1),
+				"public", "DEFAULT_GROUP", Duration.ofHours(1)).load()).isZero();
+		assertThat(new NacosDiscoverySnapshot(cache, file, Duration.ofMinutes(1),
+				"public", "DEFAULT_GROUP", Duration.ofHours(3)).load()).isEqualTo(1);
+	}
+
+	@Test
+	public void ignoreCorruptCounts() throws Exception {
+		Path file = directory.resolve("test.snapshot");
+		try (DataOutputStream out = new DataOutputStream(
+				Files.newOutputStream(file))) {
+			NacosDiscoverySnapshot.write(out, new NacosDiscoverySnapshot.Header(null,
+					null, System.currentTimeMillis()), Map.of());
+		}
+		// claim far more services than the file can hold.
+		byte[] bytes = Files.readAllBytes(file);
+		ByteBuffer.wrap(bytes).putInt(bytes.length - 4, Integer.MAX_VALUE);
+		Files.write(file, bytes);
+
+		NacosServiceCache cache = new NacosServiceCache();
+		assertThat(new NacosDiscoverySnapshot(cache, file, Duration.ofMinutes(1))
+				.load()).isZero();
+		assertThat(cache.getEntries()).isEmpty();
+	}
+
+	@Test
+	public void ignoreMissingFile() {
+		NacosServiceCache cache = new NacosServiceCache();
+		assertThat(new NacosDiscoverySnapshot(cache, directory.resolve("missing"),
+				Duration.ofMinutes(1)).load()).isZero();
+		assertThat(cache.getEntries()).isEmpty();
+	}
+
+	private static void write(Path file, NacosDiscoverySnapshot.Header header)
+			throws IOException {
+		try (DataOutputStream out = new DataOutputStream(
+				Files.newOutputStream(file))) {
+			NacosDiscoverySnapshot.write(out, header,
+					Map.of("a", List.of(snapshotInstance("a", "10.0.0.1"))));
+		}
+	}
+
+	private static ServiceInstance snapshotInstance(String serviceId, String host) {
+		return instance(host).serviceId(serviceId).secure("b".equals(serviceId))
+				.weight(1.0).metadata("zone", null).build();
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.discovery;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+import static com.alibaba.cloud.nacos.test.NacosServiceInstanceBuilder.instance;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NacosServiceCacheTest {
+
+	@Test
+	public void writeOnlyOnChange() {
+		NacosServiceCache cache = new NacosServiceCache();
+		List<String> changes = new ArrayList<>();
+		cache.addListener((serviceId, previous, current) -> changes
+				.add(serviceId + ":" + (current == null ? 0 : current.getVersion())));
+
+		assertThat(cache.setInstances("a", singletonList(instance("10.0.0.1").build())))
+				.isTrue();
+		assertThat(cache.setInstances("a", singletonList(instance("10.0.0.1").build())))
+				.isFalse();
+		assertThat(cache.getEntry("a").getVersion()).isEqualTo(1);
+
+		assertThat(cache.setInstances("a", singletonList(instance("10.0.0.2").build())))
+				.isTrue();
+		assertThat(cache.getEntry("a").getVersion()).isEqualTo(2);
+		assertThat(cache.getInstances("a")).extracting(ServiceInstance::getHost)
+				.containsExactly("10.0.0.2");
+
+		cache.evict("a");
+		assertThat(cache.getInstances("a")).isEmpty();
+		assertThat(changes).containsExactly("a:1", "a:2", "a:0");
+	}
+
+	@Test
+	public void evictLeastRecentlyUsed() throws InterruptedException {
+		NacosServiceCache cache = new NacosServiceCache(2, Duration.ZERO);
+		cache.setInstances("a", singletonList(instance("10.0.0.1").build()));
+		Thread.sleep(5);
+		cache.setInstances("b", singletonList(instance("10.0.0.2").build()));
+		Thread.sleep(5);
+		cache.getInstances("a");
+		cache.setInstances("c", singletonList(instance("10.0.0.3").build()));
+
+		assertThat(cache.getEntries()).containsOnlyKeys("a", "c");
+	}
+
+	@Test
+	public void evictExpired() throws InterruptedException {
+		NacosServiceCache cache = new NacosServiceCache(10, Duration.ofMillis(50));
+		cache.setInstances("a", singletonList(instance("10.0.0.1").build()));
+		Thread.sleep(100);
+		cache.setInstances("b", singletonList(instance("10.0.0.2").build()));
+
+		assertThat(cache.getEntries()).containsOnlyKeys("b");
+	}
+
+	@Test
+	public void evictExpiredOnRead() throws InterruptedException {
+		NacosServiceCache cache = new NacosServiceCache(10, Duration.ofMillis(50));
+		List<String> evicted = new ArrayList<>();
+		cache.addListener((serviceId, previous, current) -> {
+			if (current == null) {
+				evicted.add(serviceId);
+			}
+		});
+		cache.setInstances("a", singletonList(instance("10.0.0.1").build()));
+		cache.setInstances("b", singletonList(instance("10.0.0.2").build()));
+		Thread.sleep(100);
+
+		// no write since, the look up alone evicts the expired services.
+		assertThat(cache.getEntry("a")).isNull();
+		assertThat(evicted).containsExactlyInAnyOrder("a", "b");
+	}
+
+	@Test
+	public void notifyOnceForConcurrentEqualPuts() throws Exception {
+		NacosServiceCache cache = new NacosServiceCache();
+		List<Long> versions = new CopyOnWriteArrayList<>();
+		cache.addListener((serviceId, previous, current) -> versions
+				.add(current.getVersion()));
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			futures.add(executor.submit(() -> {
+				start.await();
+				return cache.setInstances("a",
+						singletonList(instance("10.0.0.1").build()));
+			}));
+		}
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		assertThat(versions).containsExactly(1L);
+		assertThat(cache.getEntry("a").getVersion()).isEqualTo(1);
+	}
+
+}
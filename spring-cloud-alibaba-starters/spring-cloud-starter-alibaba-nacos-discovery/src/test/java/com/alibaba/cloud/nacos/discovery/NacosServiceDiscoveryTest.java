@@ -33,6 +33,7 @@ import org.springframework.cloud.client.ServiceInstance;
 
 import static com.alibaba.cloud.nacos.test.NacosMockTest.serviceInstance;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -124,6 +125,27 @@ public class NacosServiceDiscoveryTest {
 		assertThat(services.contains(serviceName + "3"));
 	}
 
+	@Test
+	public void testReuseUnchangedInstances() {
+		HashMap<String, String> map = new HashMap<>();
+		map.put("test-key", "test-value");
+		List<Instance> instances = new ArrayList<>();
+		instances.add(serviceInstance("reuse-service", true, host, port, map));
+		instances.add(serviceInstance("reuse-service", true, host, port + 1, map));
+
+		List<ServiceInstance> first = NacosServiceDiscovery
+				.hostToServiceInstanceList(instances, "reuse-service");
+		instances.get(1).setWeight(2.0);
+		List<ServiceInstance> second = NacosServiceDiscovery
+				.hostToServiceInstanceList(instances, "reuse-service");
+
+		assertThat(second.get(0)).isSameAs(first.get(0));
+		assertThat(second.get(1)).isNotSameAs(first.get(1));
+		assertThat(second.get(1).getMetadata().get("nacos.weight")).isEqualTo("2.0");
+		assertThatThrownBy(() -> second.get(0).getMetadata().put("key", "value"))
+				.isInstanceOf(UnsupportedOperationException.class);
+	}
+
 	private String getUri(ServiceInstance instance) {
 
 		if (instance.isSecure()) {
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.discovery;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClient;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.mock.env.MockEnvironment;
+
+import static com.alibaba.cloud.nacos.test.NacosServiceInstanceBuilder.instance;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class NacosServicePrefetcherTest {
+
+	@Test
+	public void prefetchConfiguredAndDetectedServices() throws Exception {
+		NacosServiceDiscovery serviceDiscovery = mock(NacosServiceDiscovery.class);
+		ServiceInstance instance = instance("10.0.0.1").build();
+		when(serviceDiscovery.getInstances("configured-service"))
+				.thenReturn(List.of(instance));
+		when(serviceDiscovery.getInstances("detected-service"))
+				.thenReturn(List.of(instance));
+		// blocks past the prefetch timeout until the end of the test.
+		CountDownLatch release = new CountDownLatch(1);
+		when(serviceDiscovery.getInstances("slow-service")).thenAnswer(invocation -> {
+			release.await();
+			return List.of(instance);
+		});
+		NacosServiceCache cache = new NacosServiceCache();
+		NacosServicePrefetcher prefetcher = new NacosServicePrefetcher(
+				serviceDiscovery, cache, List.of("configured-service", "slow-service"),
+				true, Duration.ofMillis(500), 4);
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		beanFactory.registerBeanDefinition("clientConfiguration",
+				new RootBeanDefinition(ClientConfiguration.class));
+		prefetcher.setBeanFactory(beanFactory);
+		prefetcher.setEnvironment(
+				new MockEnvironment().withProperty("client.name", "detected-service"));
+
+		try {
+			// startup gives up on the slow service after the timeout.
+			Thread starter = new Thread(prefetcher::start);
+			starter.start();
+			starter.join(5000);
+			assertThat(starter.isAlive()).isFalse();
+
+			assertThat(prefetcher.getPrefetchedServices()).containsExactlyInAnyOrder(
+					"configured-service", "detected-service");
+			assertThat(cache.getInstances("detected-service"))
+					.containsExactly(instance);
+			assertThat(cache.getInstances("slow-service")).isEmpty();
+		}
+		finally {
+			release.countDown();
+		}
+	}
+
+	@Test
+	public void startBeforeWebServer() {
+		NacosServicePrefetcher prefetcher = new NacosServicePrefetcher(
+				mock(NacosServiceDiscovery.class), new NacosServiceCache(), List.of(),
+				false, Duration.ofMillis(500), 1);
+
+		// WebServerStartStopLifecycle runs in DEFAULT_PHASE - 2048.
+		assertThat(prefetcher.getPhase())
+				.isLessThan(SmartLifecycle.DEFAULT_PHASE - 2048);
+	}
+
+	@LoadBalancerClient(name = "${client.name}")
+	static class ClientConfiguration {
+
+	}
+
+}
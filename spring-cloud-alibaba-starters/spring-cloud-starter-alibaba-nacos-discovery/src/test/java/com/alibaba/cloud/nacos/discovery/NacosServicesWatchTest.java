@@ -0,0 +1,142 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.discovery;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.cloud.nacos.event.NacosInstancesChangedEvent;
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import com.alibaba.nacos.api.naming.pojo.ListView;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class NacosServicesWatchTest {
+
+	@Test
+	public void publishOnlyInstanceChanges() throws Exception {
+		NamingService namingService = mock(NamingService.class);
+		NacosServiceManager serviceManager = mock(NacosServiceManager.class);
+		when(serviceManager.getNamingService()).thenReturn(namingService);
+		NacosDiscoveryProperties properties = new NacosDiscoveryProperties();
+		NacosServiceCache cache = new NacosServiceCache();
+		List<Object> events = new ArrayList<>();
+		NacosServicesWatch watch = new NacosServicesWatch(serviceManager, properties,
+				cache);
+		watch.setApplicationEventPublisher(events::add);
+		watch.start();
+
+		cache.setInstances("a", NacosServiceDiscovery.hostToServiceInstanceList(
+				singletonList(instance("1", "10.0.0.1", 1.0)), "a"));
+
+		ArgumentCaptor<EventListener> listener = ArgumentCaptor
+				.forClass(EventListener.class);
+		verify(namingService, timeout(2000)).subscribe(eq("a"),
+				eq(properties.getGroup()), listener.capture());
+
+		// same instances as the lookup, nothing to publish.
+		listener.getValue().onEvent(
+				new NamingEvent("a", singletonList(instance("1", "10.0.0.1", 1.0))));
+		assertThat(events).isEmpty();
+
+		listener.getValue()
+				.onEvent(new NamingEvent("a", List.of(instance("1", "10.0.0.1", 2.0),
+						instance("2", "10.0.0.2", 1.0))));
+		assertThat(events).hasSize(2);
+		NacosInstancesChangedEvent changed = (NacosInstancesChangedEvent) events.get(0);
+		assertThat(changed.getServiceId()).isEqualTo("a");
+		assertThat(changed.getAdded()).extracting(ServiceInstance::getHost)
+				.containsExactly("10.0.0.2");
+		assertThat(changed.getChanged()).extracting(ServiceInstance::getHost)
+				.containsExactly("10.0.0.1");
+		assertThat(changed.getRemoved()).isEmpty();
+		assertThat(events.get(1)).isInstanceOf(HeartbeatEvent.class);
+		assertThat(cache.getInstances("a")).hasSize(2);
+
+		// an instance leaving or going offline is removed.
+		listener.getValue()
+				.onEvent(new NamingEvent("a", List.of(instance("1", "10.0.0.1", 2.0),
+						instance("2", "10.0.0.2", 0))));
+		assertThat(events).hasSize(4);
+		changed = (NacosInstancesChangedEvent) events.get(2);
+		assertThat(changed.getRemoved()).extracting(ServiceInstance::getHost)
+				.containsExactly("10.0.0.2");
+		assertThat(changed.getAdded()).isEmpty();
+		assertThat(changed.getChanged()).isEmpty();
+
+		cache.evict("a");
+		verify(namingService, timeout(2000)).unsubscribe(eq("a"),
+				eq(properties.getGroup()), any(EventListener.class));
+		watch.stop();
+	}
+
+	@Test
+	public void publishHeartbeatWhenServicesChange() throws Exception {
+		NamingService namingService = mock(NamingService.class);
+		NacosServiceManager serviceManager = mock(NacosServiceManager.class);
+		when(serviceManager.getNamingService()).thenReturn(namingService);
+		NacosDiscoveryProperties properties = new NacosDiscoveryProperties();
+		when(namingService.getServicesOfServer(1, Integer.MAX_VALUE,
+				properties.getGroup())).thenReturn(services("a"), services("a"),
+						services("a", "b"));
+		List<Object> events = new ArrayList<>();
+		NacosServicesWatch watch = new NacosServicesWatch(serviceManager, properties,
+				new NacosServiceCache());
+		watch.setApplicationEventPublisher(events::add);
+
+		watch.pollServices();
+		watch.pollServices();
+		assertThat(events).isEmpty();
+		// a new service is discovered by the heartbeat consumers.
+		watch.pollServices();
+		assertThat(events).singleElement().isInstanceOf(HeartbeatEvent.class);
+	}
+
+	private static ListView<String> services(String... names) {
+		ListView<String> services = new ListView<>();
+		services.setData(List.of(names));
+		services.setCount(names.length);
+		return services;
+	}
+
+	private static Instance instance(String instanceId, String ip, double weight) {
+		Instance instance = new Instance();
+		instance.setInstanceId(instanceId);
+		instance.setIp(ip);
+		instance.setPort(8080);
+		instance.setWeight(weight);
+		return instance;
+	}
+
+}
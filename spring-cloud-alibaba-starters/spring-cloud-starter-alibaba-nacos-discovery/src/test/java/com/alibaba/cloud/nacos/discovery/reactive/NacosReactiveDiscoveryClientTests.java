@@ -16,13 +16,22 @@
 
 package com.alibaba.cloud.nacos.discovery.reactive;
 
+import java.time.Duration;
 import java.util.Arrays;
 
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.cloud.nacos.discovery.NacosServiceCache;
 import com.alibaba.cloud.nacos.discovery.NacosServiceDiscovery;
 import com.alibaba.cloud.nacos.discovery.ServiceCache;
 import com.alibaba.nacos.api.exception.NacosException;
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -33,6 +42,10 @@ import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import static java.util.Collections.singletonList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -142,4 +155,74 @@ class NacosReactiveDiscoveryClientTests {
 						.expectComplete().verify();
 	}
 
+	@Test
+	public void testGetInstancesFromSubscription() throws NacosException {
+		NamingService namingService = mock(NamingService.class);
+		NacosServiceManager nacosServiceManager = mock(NacosServiceManager.class);
+		when(nacosServiceManager.getNamingService()).thenReturn(namingService);
+		NacosDiscoveryProperties properties = new NacosDiscoveryProperties();
+		NacosReactiveDiscoveryClient client = new NacosReactiveDiscoveryClient(
+				serviceDiscovery, nacosServiceManager, properties,
+				new NacosServiceCache());
+		when(serviceDiscovery.getInstances("b"))
+				.thenReturn(singletonList(serviceInstance));
+
+		StepVerifier.create(client.getInstances("b")).expectNext(serviceInstance)
+				.expectComplete().verify();
+		ArgumentCaptor<EventListener> listener = ArgumentCaptor
+				.forClass(EventListener.class);
+		verify(namingService).subscribe(eq("b"), eq(properties.getGroup()),
+				listener.capture());
+
+		// served from memory, without fetching again.
+		StepVerifier.create(client.getInstances("b")).expectNext(serviceInstance)
+				.expectComplete().verify();
+
+		Instance instance = new Instance();
+		instance.setIp("10.0.0.1");
+		instance.setPort(8080);
+		listener.getValue().onEvent(new NamingEvent("b", singletonList(instance)));
+		StepVerifier.create(client.getInstances("b"))
+				.expectNextMatches(pushed -> "10.0.0.1".equals(pushed.getHost()))
+				.expectComplete().verify();
+		verify(serviceDiscovery, times(1)).getInstances("b");
+
+		client.destroy();
+		verify(namingService).unsubscribe("b", properties.getGroup(),
+				listener.getValue());
+	}
+
+	@Test
+	public void unsubscribeServiceEvictedFromCache() throws NacosException {
+		NamingService namingService = mock(NamingService.class);
+		NacosServiceManager nacosServiceManager = mock(NacosServiceManager.class);
+		when(nacosServiceManager.getNamingService()).thenReturn(namingService);
+		NacosDiscoveryProperties properties = new NacosDiscoveryProperties();
+		NacosReactiveDiscoveryClient client = new NacosReactiveDiscoveryClient(
+				serviceDiscovery, nacosServiceManager, properties,
+				new NacosServiceCache(1, Duration.ZERO));
+		when(serviceDiscovery.getInstances("b"))
+				.thenReturn(singletonList(serviceInstance));
+		when(serviceDiscovery.getInstances("c"))
+				.thenReturn(singletonList(serviceInstance));
+
+		StepVerifier.create(client.getInstances("b")).expectNextCount(1)
+				.expectComplete().verify();
+		ArgumentCaptor<EventListener> listener = ArgumentCaptor
+				.forClass(EventListener.class);
+		verify(namingService).subscribe(eq("b"), eq(properties.getGroup()),
+				listener.capture());
+
+		// c pushes b out of the cache, which holds a single service.
+		StepVerifier.create(client.getInstances("c")).expectNextCount(1)
+				.expectComplete().verify();
+		verify(namingService).unsubscribe("b", properties.getGroup(),
+				listener.getValue());
+
+		// looked up again rather than served from a stale copy.
+		StepVerifier.create(client.getInstances("b")).expectNextCount(1)
+				.expectComplete().verify();
+		verify(serviceDiscovery, times(2)).getInstances("b");
+	}
+
 }
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import static com.alibaba.cloud.nacos.test.NacosServiceInstanceBuilder.instance;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NacosConsistentHashLoadBalancerTest {
+
+	private List<ServiceInstance> instances = instances(5);
+
+	private final NacosConsistentHashProperties properties = new NacosConsistentHashProperties();
+
+	private final NacosConsistentHashLoadBalancer loadBalancer;
+
+	public NacosConsistentHashLoadBalancerTest() {
+		properties.setHeader("X-User-Id");
+		properties.setCookie("user");
+		properties.setPathPattern("/users/{userId}/**");
+		properties.setPathVariable("userId");
+		StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+		beanFactory.addBean("supplier", new ServiceInstanceListSupplier() {
+			@Override
+			public String getServiceId() {
+				return "test-service";
+			}
+
+			@Override
+			public Flux<List<ServiceInstance>> get() {
+				return Flux.just(instances);
+			}
+		});
+		NacosLoadBalancer.ipv6 = null;
+		loadBalancer = new NacosConsistentHashLoadBalancer(
+				beanFactory.getBeanProvider(ServiceInstanceListSupplier.class),
+				"test-service", new NacosDiscoveryProperties(), properties);
+	}
+
+	@Test
+	public void extractHashKey() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.add("X-User-Id", "header-key");
+		MultiValueMap<String, String> cookies = new LinkedMultiValueMap<>();
+		cookies.add("user", "cookie-key");
+		assertThat(loadBalancer.getHashKey(request("/orders", headers, cookies)))
+				.isEqualTo("header-key");
+		assertThat(loadBalancer.getHashKey(
+				request("/orders", new HttpHeaders(), cookies)))
+				.isEqualTo("cookie-key");
+		assertThat(loadBalancer.getHashKey(request("/users/42/orders",
+				new HttpHeaders(), new LinkedMultiValueMap<>()))).isEqualTo("42");
+		assertThat(loadBalancer.getHashKey(request("/orders", new HttpHeaders(),
+				new LinkedMultiValueMap<>()))).isNull();
+	}
+
+	@Test
+	public void routeSameKeyToSameInstance() {
+		Map<String, String> owners = new HashMap<>();
+		for (int i = 0; i < 1000; i++) {
+			owners.put("user-" + i, choose("user-" + i));
+		}
+		assertThat(owners.values()).containsOnly("10.0.0.0", "10.0.0.1", "10.0.0.2",
+				"10.0.0.3", "10.0.0.4");
+		assertThat(choose("user-7")).isEqualTo(owners.get("user-7"));
+
+		// removing an instance only moves the keys it owned.
+		instances = new ArrayList<>(instances.subList(0, 4));
+		int moved = 0;
+		for (int i = 0; i < 1000; i++) {
+			String owner = choose("user-" + i);
+			if (!owner.equals(owners.get("user-" + i))) {
+				assertThat(owners.get("user-" + i)).isEqualTo("10.0.0.4");
+				moved++;
+			}
+		}
+		assertThat(moved).isBetween(100, 300);
+	}
+
+	@Test
+	public void boundLoadOfHotInstance() {
+		String owner = choose("hot-key");
+		ServiceInstance hot = instances.stream()
+				.filter(instance -> instance.getHost().equals(owner)).findFirst()
+				.get();
+		for (int i = 0; i < 10; i++) {
+			loadBalancer.onStartRequest(new DefaultRequest<>(),
+					new DefaultResponse(hot));
+		}
+		assertThat(choose("hot-key")).isNotEqualTo(owner);
+	}
+
+	private String choose(String key) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.add("X-User-Id", key);
+		return loadBalancer.choose(request("/orders", headers,
+				new LinkedMultiValueMap<>())).block().getServer().getHost();
+	}
+
+	private static Request<RequestDataContext> request(String path, HttpHeaders headers,
+			MultiValueMap<String, String> cookies) {
+		RequestData requestData = new RequestData(HttpMethod.GET,
+				URI.create("http://test-service" + path), headers, cookies,
+				new HashMap<>());
+		return new DefaultRequest<>(new RequestDataContext(requestData));
+	}
+
+	private static List<ServiceInstance> instances(int count) {
+		List<ServiceInstance> instances = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			instances.add(instance("10.0.0." + i).weight(1.0).healthy(true).build());
+		}
+		return instances;
+	}
+
+}
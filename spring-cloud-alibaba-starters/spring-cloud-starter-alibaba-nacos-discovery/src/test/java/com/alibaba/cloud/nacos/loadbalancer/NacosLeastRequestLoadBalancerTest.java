@@ -0,0 +1,142 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import static com.alibaba.cloud.nacos.test.NacosServiceInstanceBuilder.instance;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NacosLeastRequestLoadBalancerTest {
+
+	private final ServiceInstance fast = instance("10.0.0.1").weight(1).healthy(true)
+			.build();
+
+	private final ServiceInstance slow = instance("10.0.0.2").weight(3).healthy(true)
+			.build();
+
+	private final NacosLeastRequestLoadBalancer loadBalancer = loadBalancer(fast, slow);
+
+	@Test
+	public void honorWeightsWithoutLoad() {
+		Map<String, Integer> counts = chooseMany(4000);
+		assertThat(counts.get("10.0.0.2") / (double) counts.get("10.0.0.1"))
+				.isBetween(2.5, 3.5);
+	}
+
+	@Test
+	public void avoidSlowAndBusyInstances() {
+		complete(fast, TimeUnit.MILLISECONDS.toNanos(5));
+		complete(slow, TimeUnit.MILLISECONDS.toNanos(500));
+		assertThat(loadBalancer.getLoad(slow))
+				.isGreaterThan(loadBalancer.getLoad(fast));
+		assertThat(chooseMany(1000)).containsOnlyKeys("10.0.0.1");
+
+		// requests in flight add to the load.
+		for (int i = 0; i < 200; i++) {
+			loadBalancer.onStartRequest(request(), new DefaultResponse(fast));
+		}
+		assertThat(chooseMany(1000)).containsOnlyKeys("10.0.0.2");
+	}
+
+	@Test
+	public void penalizeInstancesFailingFast() {
+		// the lighter instance refuses connections right away.
+		complete(fast, TimeUnit.MILLISECONDS.toNanos(1), CompletionContext.Status.FAILED,
+				null);
+		complete(slow, TimeUnit.MILLISECONDS.toNanos(50));
+		assertThat(loadBalancer.getLoad(fast))
+				.isGreaterThan(loadBalancer.getLoad(slow));
+		assertThat(chooseMany(1000)).containsOnlyKeys("10.0.0.2");
+
+		// an immediate 503 is a failure as well.
+		NacosLeastRequestLoadBalancer other = loadBalancer(fast, slow);
+		completeOn(other, slow, TimeUnit.MILLISECONDS.toNanos(50),
+				CompletionContext.Status.SUCCESS, null);
+		completeOn(other, fast, TimeUnit.MILLISECONDS.toNanos(1),
+				CompletionContext.Status.SUCCESS, new ResponseData(
+						HttpStatus.SERVICE_UNAVAILABLE, new HttpHeaders(), null, null));
+		assertThat(other.getLoad(fast)).isGreaterThan(other.getLoad(slow));
+	}
+
+	private Map<String, Integer> chooseMany(int times) {
+		Map<String, Integer> counts = new HashMap<>();
+		for (int i = 0; i < times; i++) {
+			Response<ServiceInstance> response = loadBalancer.choose(request()).block();
+			counts.merge(response.getServer().getHost(), 1, Integer::sum);
+		}
+		return counts;
+	}
+
+	private void complete(ServiceInstance instance, long latencyNanos) {
+		complete(instance, latencyNanos, CompletionContext.Status.SUCCESS, null);
+	}
+
+	private void complete(ServiceInstance instance, long latencyNanos,
+			CompletionContext.Status status, ResponseData responseData) {
+		completeOn(loadBalancer, instance, latencyNanos, status, responseData);
+	}
+
+	private static void completeOn(NacosLeastRequestLoadBalancer loadBalancer,
+			ServiceInstance instance, long latencyNanos, CompletionContext.Status status,
+			ResponseData responseData) {
+		Request<Object> request = request();
+		DefaultResponse response = new DefaultResponse(instance);
+		loadBalancer.onStartRequest(request, response);
+		((RequestDataContext) request.getContext())
+				.setRequestStartTime(System.nanoTime() - latencyNanos);
+		loadBalancer.onComplete(
+				new CompletionContext<>(status, request, response, responseData));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Request<Object> request() {
+		return (Request) new DefaultRequest<>(new RequestDataContext());
+	}
+
+	private static NacosLeastRequestLoadBalancer loadBalancer(
+			ServiceInstance... instances) {
+		StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+		beanFactory.addBean("supplier",
+				ServiceInstanceListSuppliers.from("test-service", instances));
+		NacosLoadBalancer.ipv6 = null;
+		return new NacosLeastRequestLoadBalancer(
+				beanFactory.getBeanProvider(ServiceInstanceListSupplier.class),
+				"test-service", new NacosDiscoveryProperties(),
+				TimeUnit.MINUTES.toNanos(10));
+	}
+
+}
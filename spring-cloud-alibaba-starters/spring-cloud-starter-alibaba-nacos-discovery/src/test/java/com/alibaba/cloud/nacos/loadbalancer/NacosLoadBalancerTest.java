@@ -0,0 +1,135 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.cloud.nacos.balancer.NacosBalancer;
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+import static com.alibaba.cloud.nacos.test.NacosServiceInstanceBuilder.instance;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class NacosLoadBalancerTest {
+
+	@Test
+	public void partitionByClusterAndIpType() {
+		List<ServiceInstance> instances = new ArrayList<>();
+		instances.add(instance("10.0.0.1").cluster("A").build());
+		instances.add(instance("10.0.0.2").cluster("B").build());
+		instances.add(instance("10.0.0.3").cluster("A").metadata("IPv6", "fe80::3")
+				.build());
+		instances.add(instance("fe80::4").cluster("A").build());
+
+		NacosInstanceCandidates ipv4Candidates = NacosInstanceCandidates
+				.of(instances, 0, "A", null);
+		assertThat(ipv4Candidates.isCrossCluster()).isFalse();
+		assertThat(ipv4Candidates.getInstances()).extracting(ServiceInstance::getHost)
+				.containsExactly("10.0.0.1", "10.0.0.3");
+
+		NacosInstanceCandidates ipv6Candidates = NacosInstanceCandidates
+				.of(instances, 0, "A", "fe80::1");
+		assertThat(ipv6Candidates.getInstances()).extracting(ServiceInstance::getHost)
+				.containsExactly("10.0.0.3", "fe80::4");
+
+		NacosInstanceCandidates otherCluster = NacosInstanceCandidates.of(instances,
+				0, "C", null);
+		assertThat(otherCluster.isCrossCluster()).isTrue();
+		assertThat(otherCluster.getInstances()).hasSize(3);
+	}
+
+	@Test
+	public void reuseCandidatesUntilInstancesChange() throws Exception {
+		NamingService namingService = mock(NamingService.class);
+		NacosServiceManager nacosServiceManager = mock(NacosServiceManager.class);
+		when(nacosServiceManager.getNamingService()).thenReturn(namingService);
+		NacosDiscoveryProperties properties = new NacosDiscoveryProperties();
+		properties.setIp("10.0.0.100");
+		properties.setClusterName("A");
+		NacosLoadBalancer loadBalancer = new NacosLoadBalancer(
+				new StaticListableBeanFactory()
+						.getBeanProvider(ServiceInstanceListSupplier.class),
+				"test-service", properties, nacosServiceManager);
+		loadBalancer.init();
+		ArgumentCaptor<EventListener> listener = ArgumentCaptor
+				.forClass(EventListener.class);
+		verify(namingService).subscribe(eq("test-service"), eq(properties.getGroup()),
+				listener.capture());
+
+		List<ServiceInstance> instances = Collections
+				.singletonList(instance("10.0.0.1").cluster("A").build());
+		NacosInstanceCandidates candidates = loadBalancer.getCandidates(instances);
+		// an equal list fetched again is served from the cache.
+		assertThat(loadBalancer.getCandidates(
+				Collections.singletonList(instance("10.0.0.1").cluster("A").build())))
+				.isSameAs(candidates);
+		assertThat(loadBalancer.getCandidates(
+				Collections.singletonList(instance("10.0.0.2").cluster("A").build())))
+				.isNotSameAs(candidates);
+
+		candidates = loadBalancer.getCandidates(instances);
+		listener.getValue().onEvent(new NamingEvent("test-service",
+				Collections.emptyList()));
+		assertThat(loadBalancer.getCandidates(instances)).isNotSameAs(candidates);
+
+		loadBalancer.destroy();
+		verify(namingService).unsubscribe(eq("test-service"),
+				eq(properties.getGroup()), any(EventListener.class));
+	}
+
+	@Test
+	public void preferIPv6WithoutChangingCachedInstance() {
+		ServiceInstance cached = instance("10.0.0.3").cluster("A")
+				.metadata("IPv6", "fe80::3").build();
+		cached.getMetadata().put("nacos.weight", "1.0");
+		cached.getMetadata().put("nacos.healthy", "true");
+		List<ServiceInstance> instances = Collections.singletonList(cached);
+		String ipv6 = NacosLoadBalancer.ipv6;
+		NacosLoadBalancer.ipv6 = "fe80::1";
+		try {
+			ServiceInstance first = NacosBalancer.getHostByRandomWeight3(instances);
+			ServiceInstance second = NacosBalancer.getHostByRandomWeight3(instances);
+
+			assertThat(first.getHost()).isEqualTo("fe80::3");
+			assertThat(second.getHost()).isEqualTo("fe80::3");
+			assertThat(second.getInstanceId()).isEqualTo(cached.getInstanceId());
+			// the instance is shared with the caches, it keeps its IPv4 address.
+			assertThat(cached.getHost()).isEqualTo("10.0.0.3");
+		}
+		finally {
+			NacosLoadBalancer.ipv6 = ipv6;
+		}
+	}
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+import static com.alibaba.cloud.nacos.test.NacosServiceInstanceBuilder.instance;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class NacosLocalityTiersTest {
+
+	private final ServiceInstance sameCluster = instance("10.0.0.1").cluster("A")
+			.weight(1.0).healthy(true).metadata("zone", "z1").metadata("region", "r1")
+			.build();
+
+	private final ServiceInstance sameZone = instance("10.0.0.2").cluster("B")
+			.weight(1.0).healthy(true).metadata("zone", "z1").metadata("region", "r1")
+			.build();
+
+	private final ServiceInstance sameZone2 = instance("10.0.0.5").cluster("B")
+			.weight(1.0).healthy(true).metadata("zone", "z1").metadata("region", "r1")
+			.build();
+
+	private final ServiceInstance sameRegion = instance("10.0.0.3").cluster("C")
+			.weight(1.0).healthy(true).metadata("zone", "z2").metadata("region", "r1")
+			.build();
+
+	private final ServiceInstance other = instance("10.0.0.4").cluster("D")
+			.weight(1.0).healthy(true).metadata("zone", "z3").metadata("region", "r2")
+			.build();
+
+	private final List<ServiceInstance> instances = List.of(sameCluster, sameZone,
+			sameZone2, sameRegion, other);
+
+	@Test
+	public void preferSameClusterWhileHealthy() {
+		NacosLocalityTiers tiers = NacosLocalityTiers.of(instances, instances, "A",
+				"z1", "r1", new NacosLocalityProperties(), null);
+
+		assertThat(tiers.size()).isEqualTo(1);
+		assertThat(tiers.getInstances(0)).containsExactly(sameCluster);
+		assertThat(tiers.getShare(0)).isEqualTo(1.0D);
+		for (int i = 0; i < 100; i++) {
+			assertThat(tiers.choose()).isSameAs(sameCluster);
+		}
+	}
+
+	@Test
+	public void spillOverWhenCapacityDrops() {
+		List<ServiceInstance> available = List.of(sameZone, sameRegion, other);
+		NacosLocalityTiers tiers = NacosLocalityTiers.of(instances, available, "A",
+				"z1", "r1", new NacosLocalityProperties(), null);
+
+		// the cluster has no healthy instance, the zone is half healthy.
+		assertThat(tiers.size()).isEqualTo(2);
+		assertThat(tiers.getInstances(0)).containsExactly(sameZone);
+		assertThat(tiers.getShare(0)).isCloseTo(0.5D / 0.7D, within(1e-9));
+		// the region tier does not hold the instances of the zone again.
+		assertThat(tiers.getInstances(1)).containsExactly(sameRegion);
+		assertThat(tiers.getShare(1)).isCloseTo(1 - 0.5D / 0.7D, within(1e-9));
+		assertThat(tiers.isBuiltFrom(instances, available)).isTrue();
+	}
+
+	@Test
+	public void useEveryInstanceWithoutLocality() {
+		NacosLocalityTiers tiers = NacosLocalityTiers.of(instances, List.of(), null,
+				null, null, new NacosLocalityProperties(), null);
+
+		assertThat(tiers.size()).isEqualTo(1);
+		assertThat(tiers.getInstances(0)).isSameAs(instances);
+	}
+
+}
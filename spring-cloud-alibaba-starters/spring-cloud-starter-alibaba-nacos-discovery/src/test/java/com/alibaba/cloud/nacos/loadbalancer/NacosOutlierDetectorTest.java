@@ -0,0 +1,242 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntSupplier;
+
+import com.alibaba.cloud.nacos.endpoint.NacosOutlierEndpoint;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import static com.alibaba.cloud.nacos.test.NacosServiceInstanceBuilder.instance;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NacosOutlierDetectorTest {
+
+	private final List<ServiceInstance> instances = Arrays.asList(
+			instance("10.0.0.1").build(), instance("10.0.0.2").build(),
+			instance("10.0.0.3").build(), instance("10.0.0.4").build());
+
+	@Test
+	public void ejectAfterConsecutiveFailures() {
+		NacosOutlierDetector detector = detector(Duration.ofMinutes(1));
+		assertThat(detector.filter("test-service", instances)).isSameAs(instances);
+
+		for (int i = 0; i < 5; i++) {
+			complete(detector, instances.get(0), CompletionContext.Status.FAILED);
+			complete(detector, instances.get(1), CompletionContext.Status.FAILED);
+		}
+		List<ServiceInstance> available = detector.filter("test-service", instances);
+		// only one of four instances may be ejected.
+		assertThat(available).hasSize(3).doesNotContain(instances.get(0));
+		assertThat(detector.filter("test-service", instances)).isSameAs(available);
+		assertThat(detector.getEjectedInstances().get("test-service"))
+				.extracting(instance -> instance.get("host"))
+				.containsExactly("10.0.0.1");
+	}
+
+	@Test
+	public void ejectOnServerErrorRate() {
+		NacosOutlierDetector detector = detector(Duration.ofMinutes(1));
+		completeWithStatus(detector, instances.get(2), HttpStatus.BAD_GATEWAY);
+		detector.filter("test-service", instances);
+		for (int i = 0; i < 10; i++) {
+			complete(detector, instances.get(2), CompletionContext.Status.SUCCESS);
+			completeWithStatus(detector, instances.get(2),
+					HttpStatus.SERVICE_UNAVAILABLE);
+		}
+		assertThat(detector.filter("test-service", instances))
+				.doesNotContain(instances.get(2));
+	}
+
+	@Test
+	public void returnWithEmptyWindow() throws Exception {
+		// the instance returns in another bucket of the window.
+		NacosOutlierDetector detector = detector(Duration.ofMillis(200),
+				Duration.ofSeconds(1));
+		completeWithStatus(detector, instances.get(2), HttpStatus.BAD_GATEWAY);
+		detector.filter("test-service", instances);
+		for (int i = 0; i < 10; i++) {
+			complete(detector, instances.get(2), CompletionContext.Status.SUCCESS);
+			completeWithStatus(detector, instances.get(2),
+					HttpStatus.SERVICE_UNAVAILABLE);
+		}
+		assertThat(detector.filter("test-service", instances)).hasSize(3);
+		Thread.sleep(300);
+		assertThat(detector.filter("test-service", instances)).hasSize(4);
+
+		// the failures before the ejection do not count any more.
+		completeWithStatus(detector, instances.get(2), HttpStatus.BAD_GATEWAY);
+		assertThat(detector.filter("test-service", instances)).hasSize(4);
+		assertThat(detector.getEjectedInstances()).isEmpty();
+	}
+
+	@Test
+	public void returnAfterEjectionTimeAndBackOff() throws Exception {
+		NacosOutlierDetector detector = detector(Duration.ofMillis(200));
+		complete(detector, instances.get(0), CompletionContext.Status.SUCCESS);
+		detector.filter("test-service", instances);
+		for (int i = 0; i < 5; i++) {
+			complete(detector, instances.get(0), CompletionContext.Status.FAILED);
+		}
+		assertThat(detector.filter("test-service", instances)).hasSize(3);
+		Thread.sleep(300);
+		assertThat(detector.filter("test-service", instances)).hasSize(4);
+
+		for (int i = 0; i < 5; i++) {
+			complete(detector, instances.get(0), CompletionContext.Status.FAILED);
+		}
+		Map<String, Object> ejected = detector.getEjectedInstances().get("test-service")
+				.get(0);
+		assertThat(ejected.get("ejectionCount")).isEqualTo(2);
+		Thread.sleep(300);
+		// the second ejection lasts twice as long.
+		assertThat(detector.filter("test-service", instances)).hasSize(3);
+	}
+
+	@Test
+	public void releaseEjectionOfDepartedInstance() {
+		NacosOutlierDetector detector = detector(Duration.ofMinutes(1));
+		complete(detector, instances.get(0), CompletionContext.Status.SUCCESS);
+		detector.filter("test-service", instances);
+		for (int i = 0; i < 5; i++) {
+			complete(detector, instances.get(0), CompletionContext.Status.FAILED);
+		}
+		assertThat(detector.filter("test-service", instances)).hasSize(3);
+
+		// the ejected instance leaves the service, another one joins.
+		List<ServiceInstance> current = Arrays.asList(instances.get(1),
+				instances.get(2), instances.get(3), instance("10.0.0.5").build());
+		assertThat(detector.filter("test-service", current)).isSameAs(current);
+		assertThat(detector.getEjectedInstances()).isEmpty();
+
+		for (int i = 0; i < 5; i++) {
+			complete(detector, current.get(0), CompletionContext.Status.FAILED);
+		}
+		assertThat(detector.filter("test-service", current)).hasSize(3)
+				.doesNotContain(current.get(0));
+	}
+
+	@Test
+	public void ejectOnceForConcurrentFailures() throws Exception {
+		AtomicReference<IntSupplier> ejected = new AtomicReference<>();
+		NacosOutlierDetectionProperties properties = new NacosOutlierDetectionProperties();
+		properties.setEnabled(true);
+		properties.setBaseEjectionTime(Duration.ofMillis(500));
+		properties.setMaxEjectionPercent(100);
+		NacosOutlierDetector detector = new NacosOutlierDetector(properties,
+				new NacosOutlierMetrics() {
+					@Override
+					public void registerService(String serviceId, IntSupplier gauge) {
+						ejected.set(gauge);
+					}
+				});
+		List<ServiceInstance> fleet = new ArrayList<>();
+		for (int i = 0; i < 16; i++) {
+			fleet.add(instance("10.0.1." + i).build());
+		}
+		complete(detector, fleet.get(0), CompletionContext.Status.SUCCESS);
+		detector.filter("test-service", fleet);
+
+		ExecutorService executor = Executors.newFixedThreadPool(16);
+		for (ServiceInstance failing : fleet.subList(0, 8)) {
+			for (int i = 1; i < properties.getConsecutiveFailures(); i++) {
+				complete(detector, failing, CompletionContext.Status.FAILED);
+			}
+			// every thread reaches the threshold at the same time.
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < 16; i++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					complete(detector, failing, CompletionContext.Status.FAILED);
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		}
+		executor.shutdown();
+		assertThat(ejected.get().getAsInt()).isEqualTo(8);
+		assertThat(detector.filter("test-service", fleet)).hasSize(8);
+
+		Thread.sleep(700);
+		assertThat(detector.filter("test-service", fleet)).hasSize(16);
+		assertThat(ejected.get().getAsInt()).isZero();
+	}
+
+	@Test
+	public void autoConfigureDetectorAndEndpoint() {
+		new ApplicationContextRunner()
+				.withConfiguration(
+						AutoConfigurations.of(LoadBalancerNacosAutoConfiguration.class))
+				.withPropertyValues("spring.cloud.loadbalancer.nacos.enabled=true",
+						"spring.cloud.loadbalancer.nacos.outlier-detection.enabled=true",
+						"management.endpoints.web.exposure.include=nacosoutliers")
+				.run(context -> assertThat(context)
+						.hasSingleBean(NacosOutlierDetector.class)
+						.hasSingleBean(NacosOutlierEndpoint.class));
+	}
+
+	private static NacosOutlierDetector detector(Duration baseEjectionTime) {
+		return detector(baseEjectionTime, Duration.ofSeconds(10));
+	}
+
+	private static NacosOutlierDetector detector(Duration baseEjectionTime,
+			Duration window) {
+		NacosOutlierDetectionProperties properties = new NacosOutlierDetectionProperties();
+		properties.setEnabled(true);
+		properties.setBaseEjectionTime(baseEjectionTime);
+		properties.setWindow(window);
+		return new NacosOutlierDetector(properties, NacosOutlierMetrics.NONE);
+	}
+
+	private static void complete(NacosOutlierDetector detector,
+			ServiceInstance instance, CompletionContext.Status status) {
+		detector.onComplete(new CompletionContext<>(status, new DefaultRequest<>(),
+				new DefaultResponse(instance)));
+	}
+
+	private static void completeWithStatus(NacosOutlierDetector detector,
+			ServiceInstance instance, HttpStatus httpStatus) {
+		detector.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS,
+				new DefaultRequest<>(), new DefaultResponse(instance),
+				new ResponseData(httpStatus, new HttpHeaders(), null, null)));
+	}
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.cloud.nacos.discovery.NacosServiceCache;
+import com.alibaba.nacos.api.exception.NacosException;
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class NacosServiceInstanceListSupplierTest {
+
+	@Test
+	public void serveSnapshotsPushedByNacos() throws Exception {
+		NamingService namingService = mock(NamingService.class);
+		NacosServiceManager nacosServiceManager = mock(NacosServiceManager.class);
+		when(nacosServiceManager.getNamingService()).thenReturn(namingService);
+		NacosDiscoveryProperties properties = new NacosDiscoveryProperties();
+		when(namingService.selectInstances("test-service", properties.getGroup(), true,
+				true)).thenReturn(Collections.singletonList(instance("10.0.0.1", true)));
+
+		NacosServiceInstanceListSupplier supplier = new NacosServiceInstanceListSupplier(
+				nacosServiceManager, properties, "test-service");
+		List<ServiceInstance> first = supplier.get().blockFirst();
+		assertThat(first).extracting(ServiceInstance::getHost)
+				.containsExactly("10.0.0.1");
+		assertThatThrownBy(() -> first.add(first.get(0)))
+				.isInstanceOf(UnsupportedOperationException.class);
+		assertThat(supplier.get().blockFirst()).isSameAs(first);
+
+		ArgumentCaptor<EventListener> listener = ArgumentCaptor
+				.forClass(EventListener.class);
+		verify(namingService).subscribe(eq("test-service"), eq(properties.getGroup()),
+				listener.capture());
+		listener.getValue().onEvent(new NamingEvent("test-service", Arrays.asList(
+				instance("10.0.0.2", true), instance("10.0.0.3", false))));
+		assertThat(supplier.get().blockFirst()).extracting(ServiceInstance::getHost)
+				.containsExactly("10.0.0.2");
+		verify(namingService, times(1)).selectInstances(anyString(), anyString(),
+				eq(true), eq(true));
+
+		supplier.destroy();
+		verify(namingService).unsubscribe(eq("test-service"),
+				eq(properties.getGroup()), any(EventListener.class));
+	}
+
+	@Test
+	public void pushDoesNotKeepServiceCached() throws Exception {
+		NamingService namingService = mock(NamingService.class);
+		NacosServiceManager nacosServiceManager = mock(NacosServiceManager.class);
+		when(nacosServiceManager.getNamingService()).thenReturn(namingService);
+		NacosDiscoveryProperties properties = new NacosDiscoveryProperties();
+		when(namingService.selectInstances("test-service", properties.getGroup(), true,
+				true)).thenReturn(Collections.singletonList(instance("10.0.0.1", true)));
+		NacosServiceCache serviceCache = new NacosServiceCache();
+
+		NacosServiceInstanceListSupplier supplier = new NacosServiceInstanceListSupplier(
+				nacosServiceManager, properties, "test-service", serviceCache);
+		supplier.get().blockFirst();
+		assertThat(serviceCache.getInstances("test-service")).hasSize(1);
+		ArgumentCaptor<EventListener> listener = ArgumentCaptor
+				.forClass(EventListener.class);
+		verify(namingService).subscribe(eq("test-service"), eq(properties.getGroup()),
+				listener.capture());
+
+		// the service expired from the cache, a push does not bring it back.
+		serviceCache.evict("test-service");
+		listener.getValue().onEvent(new NamingEvent("test-service",
+				Collections.singletonList(instance("10.0.0.2", true))));
+		assertThat(serviceCache.getEntry("test-service")).isNull();
+		assertThat(supplier.get().blockFirst()).extracting(ServiceInstance::getHost)
+				.containsExactly("10.0.0.2");
+	}
+
+	@Test
+	public void backOffAfterFailedSubscription() throws Exception {
+		NamingService namingService = mock(NamingService.class);
+		NacosServiceManager nacosServiceManager = mock(NacosServiceManager.class);
+		when(nacosServiceManager.getNamingService()).thenReturn(namingService);
+		NacosDiscoveryProperties properties = new NacosDiscoveryProperties();
+		doThrow(new NacosException(NacosException.SERVER_ERROR, "unavailable"))
+				.when(namingService)
+				.subscribe(eq("test-service"), anyString(), any(EventListener.class));
+
+		NacosServiceInstanceListSupplier supplier = new NacosServiceInstanceListSupplier(
+				nacosServiceManager, properties, "test-service");
+		assertThat(supplier.get().blockFirst()).isEmpty();
+		// the next requests are served without trying again right away.
+		assertThat(supplier.get().blockFirst()).isEmpty();
+		assertThat(supplier.get().blockFirst()).isEmpty();
+		verify(namingService, times(1)).subscribe(eq("test-service"), anyString(),
+				any(EventListener.class));
+	}
+
+	private static Instance instance(String ip, boolean healthy) {
+		Instance instance = new Instance();
+		instance.setInstanceId(ip + "#8080");
+		instance.setIp(ip);
+		instance.setPort(8080);
+		instance.setHealthy(healthy);
+		return instance;
+	}
+
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.registry;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceAutoConfiguration;
+import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.cloud.nacos.discovery.NacosDiscoveryAutoConfiguration;
+import com.alibaba.cloud.nacos.discovery.actuate.health.NacosRegistrationHealthIndicator;
+import com.alibaba.cloud.nacos.util.UtilIPv6AutoConfiguration;
+import com.alibaba.nacos.api.exception.NacosException;
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.serviceregistry.AutoServiceRegistrationConfiguration;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.cloud.commons.util.UtilAutoConfiguration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class NacosServiceRegistryTest {
+
+	@Test
+	public void retryAsyncRegistration() throws Exception {
+		NamingService namingService = mock(NamingService.class);
+		doThrow(new NacosException(NacosException.SERVER_ERROR, "unavailable"))
+				.doThrow(new NacosException(NacosException.SERVER_ERROR, "unavailable"))
+				.doNothing().when(namingService)
+				.registerInstance(eq("app"), any(), any(Instance.class));
+		NacosServiceRegistry registry = registry(namingService, 0);
+		NacosRegistrationHealthIndicator health = new NacosRegistrationHealthIndicator(
+				registry);
+
+		registry.register(registration("10.0.0.1"));
+		assertThat(registry.getRegistrationState())
+				.isNotEqualTo(NacosServiceRegistry.RegistrationState.REGISTERED);
+
+		verify(namingService, timeout(2000).times(3)).registerInstance(eq("app"),
+				any(), any(Instance.class));
+		waitFor(registry, NacosServiceRegistry.RegistrationState.REGISTERED);
+		assertThat(registry.getFailedAttempts()).isZero();
+		assertThat(registry.getLastFailure()).isNull();
+		assertThat(health.health().getStatus()).isEqualTo(Status.UP);
+		registry.close();
+	}
+
+	@Test
+	public void registerHealthIndicatorWithAsyncRegistrationOnly() {
+		ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+				.withConfiguration(AutoConfigurations.of(
+						AutoServiceRegistrationConfiguration.class,
+						UtilAutoConfiguration.class, UtilIPv6AutoConfiguration.class,
+						NacosServiceAutoConfiguration.class,
+						NacosDiscoveryAutoConfiguration.class,
+						NacosServiceRegistryAutoConfiguration.class));
+		contextRunner.run(context -> assertThat(context)
+				.doesNotHaveBean(NacosRegistrationHealthIndicator.class));
+		contextRunner
+				.withPropertyValues("spring.cloud.nacos.discovery.registration.async=true")
+				.run(context -> assertThat(context)
+						.hasSingleBean(NacosRegistrationHealthIndicator.class));
+	}
+
+	@Test
+	public void giveUpAfterMaxAttempts() throws Exception {
+		NamingService namingService = mock(NamingService.class);
+		doThrow(new NacosException(NacosException.SERVER_ERROR, "unavailable"))
+				.when(namingService)
+				.registerInstance(eq("app"), any(), any(Instance.class));
+		NacosServiceRegistry registry = registry(namingService, 3);
+
+		registry.register(registration("10.0.0.1"));
+
+		waitFor(registry, NacosServiceRegistry.RegistrationState.FAILED);
+		verify(namingService, times(3)).registerInstance(eq("app"), any(),
+				any(Instance.class));
+		assertThat(registry.getFailedAttempts()).isEqualTo(3);
+		assertThat(new NacosRegistrationHealthIndicator(registry).health().getStatus())
+				.isEqualTo(Status.DOWN);
+		registry.close();
+	}
+
+	@Test
+	public void coalesceRegistrations() throws Exception {
+		NamingService namingService = mock(NamingService.class);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			started.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return null;
+		}).doNothing().when(namingService).registerInstance(eq("app"), any(),
+				any(Instance.class));
+		NacosServiceRegistry registry = registry(namingService, 0);
+
+		registry.reregister(registration("10.0.0.1"));
+		assertThat(started.await(2, TimeUnit.SECONDS)).isTrue();
+		for (int i = 2; i <= 5; i++) {
+			registry.reregister(registration("10.0.0." + i));
+		}
+		release.countDown();
+
+		verify(namingService, timeout(2000).times(2)).registerInstance(eq("app"),
+				any(), any(Instance.class));
+		waitFor(registry, NacosServiceRegistry.RegistrationState.REGISTERED);
+		Thread.sleep(100);
+		verify(namingService, times(2)).registerInstance(eq("app"), any(),
+				any(Instance.class));
+		// the instance moved, the previous address is removed.
+		verify(namingService).deregisterInstance(eq("app"), any(),
+				any(Instance.class));
+		registry.close();
+	}
+
+	private static NacosServiceRegistry registry(NamingService namingService,
+			int maxAttempts) throws NacosException {
+		NacosServiceManager serviceManager = mock(NacosServiceManager.class);
+		when(serviceManager.getNamingService()).thenReturn(namingService);
+		doNothing().when(serviceManager).nacosServiceShutDown();
+		NacosRegistrationProperties properties = new NacosRegistrationProperties();
+		properties.setAsync(true);
+		properties.setInitialBackoff(Duration.ofMillis(10));
+		properties.setMaxBackoff(Duration.ofMillis(20));
+		properties.setMaxAttempts(maxAttempts);
+		return new NacosServiceRegistry(serviceManager, new NacosDiscoveryProperties(),
+				properties, NacosRegistrationMetrics.NONE);
+	}
+
+	private static Registration registration(String host) {
+		return new RegistrationInstance(host);
+	}
+
+	private static void waitFor(NacosServiceRegistry registry,
+			NacosServiceRegistry.RegistrationState state) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 2000;
+		while (registry.getRegistrationState() != state
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(registry.getRegistrationState()).isEqualTo(state);
+	}
+
+	private static final class RegistrationInstance extends DefaultServiceInstance
+			implements Registration {
+
+		private RegistrationInstance(String host) {
+			super(null, "app", host, 8080, false);
+		}
+
+	}
+
+}
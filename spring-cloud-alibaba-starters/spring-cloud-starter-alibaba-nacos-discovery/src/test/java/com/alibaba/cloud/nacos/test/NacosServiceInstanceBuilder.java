@@ -0,0 +1,79 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.alibaba.cloud.nacos.NacosServiceInstance;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+/**
+ * Builds the {@link NacosServiceInstance} of a test, an instance of "test-service" on
+ * port 8080 with the id {@code host#8080} unless told otherwise.
+ */
+public final class NacosServiceInstanceBuilder {
+
+	private final NacosServiceInstance instance = new NacosServiceInstance();
+
+	private final Map<String, String> metadata = new HashMap<>();
+
+	private NacosServiceInstanceBuilder(String host) {
+		instance.setServiceId("test-service");
+		instance.setInstanceId(host + "#8080");
+		instance.setHost(host);
+		instance.setPort(8080);
+	}
+
+	public static NacosServiceInstanceBuilder instance(String host) {
+		return new NacosServiceInstanceBuilder(host);
+	}
+
+	public NacosServiceInstanceBuilder serviceId(String serviceId) {
+		instance.setServiceId(serviceId);
+		return this;
+	}
+
+	public NacosServiceInstanceBuilder secure(boolean secure) {
+		instance.setSecure(secure);
+		return this;
+	}
+
+	public NacosServiceInstanceBuilder weight(double weight) {
+		return metadata("nacos.weight", String.valueOf(weight));
+	}
+
+	public NacosServiceInstanceBuilder healthy(boolean healthy) {
+		return metadata("nacos.healthy", String.valueOf(healthy));
+	}
+
+	public NacosServiceInstanceBuilder cluster(String cluster) {
+		return metadata("nacos.cluster", cluster);
+	}
+
+	public NacosServiceInstanceBuilder metadata(String key, String value) {
+		metadata.put(key, value);
+		return this;
+	}
+
+	public ServiceInstance build() {
+		instance.setMetadata(new HashMap<>(metadata));
+		return instance;
+	}
+
+}
@@ -95,6 +95,19 @@ public class RocketMQConst extends MessageConst {
 		 */
 		public static final String TRANSACTION_ID = "MQ_TRANSACTION_ID";
 
+		/**
+		 * The per-record headers of a batch message, in the same order as the payload
+		 * list.
+		 */
+		public static final String BATCH_HEADERS = "MQ_BATCH_HEADERS";
+
+		/**
+		 * Outbound only. A {@code CompletableFuture<SendResult>} supplied by the caller,
+		 * completed by the producer when the broker answers or the send fails. It is
+		 * never copied into the RocketMQ message properties.
+		 */
+		public static final String SEND_RESULT_FUTURE = "MQ_SEND_RESULT_FUTURE";
+
 	}
 
 }
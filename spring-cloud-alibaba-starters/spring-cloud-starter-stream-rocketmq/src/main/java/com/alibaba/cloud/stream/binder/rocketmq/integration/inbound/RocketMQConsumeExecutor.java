@@ -0,0 +1,130 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.stream.binder.rocketmq.integration.inbound;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Runs consumption units of a push consumer on virtual threads, one thread per unit.
+ * The number of units in progress is bounded by a semaphore rather than by a pool
+ * size. On a JDK without virtual threads a cached pool of daemon platform threads is
+ * used instead, still bounded by the same semaphore.
+ */
+public class RocketMQConsumeExecutor {
+
+	private final static Logger log = LoggerFactory
+			.getLogger(RocketMQConsumeExecutor.class);
+
+	private final ExecutorService executor;
+
+	private final Semaphore permits;
+
+	public RocketMQConsumeExecutor(String name, int maxConcurrency) {
+		this.executor = newExecutor(name);
+		this.permits = new Semaphore(Math.max(1, maxConcurrency));
+	}
+
+	/**
+	 * Run every unit concurrently and wait for all of them. If the caller is
+	 * interrupted, no further unit is started, the started ones are still waited for
+	 * and the interrupt status is restored, so that no unit runs once this returns.
+	 * @param units consumption units, in delivery order
+	 * @return the number of leading units that completed successfully
+	 */
+	public int invokeAll(List<Runnable> units) {
+		List<Future<?>> futures = new ArrayList<>(units.size());
+		boolean interrupted = false;
+		for (Runnable unit : units) {
+			try {
+				permits.acquire();
+			}
+			catch (InterruptedException e) {
+				interrupted = true;
+				break;
+			}
+			try {
+				futures.add(executor.submit(() -> {
+					try {
+						unit.run();
+					}
+					finally {
+						permits.release();
+					}
+				}));
+			}
+			catch (RuntimeException e) {
+				permits.release();
+				throw e;
+			}
+		}
+		int prefix = futures.size();
+		for (int i = 0; i < futures.size(); i++) {
+			while (true) {
+				try {
+					futures.get(i).get();
+					break;
+				}
+				catch (ExecutionException e) {
+					prefix = Math.min(prefix, i);
+					break;
+				}
+				catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		return prefix;
+	}
+
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	private static ExecutorService newExecutor(String name) {
+		Method method = ReflectionUtils.findMethod(Executors.class,
+				"newVirtualThreadPerTaskExecutor");
+		if (method != null) {
+			return (ExecutorService) ReflectionUtils.invokeMethod(method, null);
+		}
+		log.warn("virtual threads are not available on this JDK, "
+				+ "consuming {} on platform threads", name);
+		AtomicInteger index = new AtomicInteger();
+		return Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable,
+					"RocketMQConsumeExecutor-" + name + "-" + index.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+}
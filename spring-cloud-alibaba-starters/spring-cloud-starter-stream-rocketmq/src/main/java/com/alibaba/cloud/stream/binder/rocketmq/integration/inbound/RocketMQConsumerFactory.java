@@ -48,6 +48,16 @@ public final class RocketMQConsumerFactory {
 	private final static Logger log = LoggerFactory
 			.getLogger(RocketMQConsumerFactory.class);
 
+	/**
+	 * Upper bound of consumeMessageBatchMaxSize accepted by the push consumer.
+	 */
+	private static final int MAX_CONSUME_MESSAGE_BATCH_SIZE = 1024;
+
+	/**
+	 * Upper bound of pullBatchSize accepted by the push consumer.
+	 */
+	private static final int MAX_PULL_BATCH_SIZE = 1024;
+
 	public static DefaultMQPushConsumer initPushConsumer(
 			ExtendedConsumerProperties<RocketMQConsumerProperties> extendedConsumerProperties) {
 		RocketMQConsumerProperties consumerProperties = extendedConsumerProperties
@@ -88,12 +98,84 @@ public final class RocketMQConsumerFactory {
 		consumer.setPersistConsumerOffsetInterval(
 				consumerProperties.getPersistConsumerOffsetInterval());
 		consumer.setPullInterval(consumerProperties.getPush().getPullInterval());
+		if (extendedConsumerProperties.isBatchMode()) {
+			// outside batch mode every record is handled and acknowledged on its own.
+			consumer.setConsumeMessageBatchMaxSize(
+					consumerProperties.getPush().getConsumeMessageBatchMaxSize());
+		}
 		consumer.setConsumeThreadMin(extendedConsumerProperties.getConcurrency());
 		consumer.setConsumeThreadMax(extendedConsumerProperties.getConcurrency());
+		if (isVirtualThreadConsumption(extendedConsumerProperties)) {
+			// a few dispatching threads hand each delivery over to virtual threads and
+			// wait for all of its units, so the deliveries in progress must carry
+			// enough units to keep the concurrency busy. A delivery never holds more
+			// records than one pull, and beyond the batch size limit more dispatching
+			// threads make up for the missing units.
+			int concurrency = Math.max(1, extendedConsumerProperties.getConcurrency());
+			int dispatchThreadNums = Math.max(1,
+					consumerProperties.getPush().getDispatchThreadNums());
+			int unitSize = getConsumeUnitSize(extendedConsumerProperties);
+			int unitsPerDelivery = Math.min(
+					(concurrency + dispatchThreadNums - 1) / dispatchThreadNums,
+					Math.max(1, MAX_CONSUME_MESSAGE_BATCH_SIZE / unitSize));
+			int consumeMessageBatchMaxSize = Math.min(MAX_CONSUME_MESSAGE_BATCH_SIZE,
+					unitSize * unitsPerDelivery);
+			dispatchThreadNums = Math.max(dispatchThreadNums,
+					(concurrency + unitsPerDelivery - 1) / unitsPerDelivery);
+			consumer.setConsumeMessageBatchMaxSize(consumeMessageBatchMaxSize);
+			consumer.setPullBatchSize(Math.min(MAX_PULL_BATCH_SIZE, Math.max(
+					consumerProperties.getPullBatchSize(), consumeMessageBatchMaxSize)));
+			consumer.setConsumeThreadMin(dispatchThreadNums);
+			consumer.setConsumeThreadMax(dispatchThreadNums);
+		}
+		if (isKeyOrderedConsumption(extendedConsumerProperties)) {
+			consumer.setConsumeMessageBatchMaxSize(Math.min(
+					MAX_CONSUME_MESSAGE_BATCH_SIZE,
+					Math.max(consumerProperties.getPush().getConsumeMessageBatchMaxSize(),
+							extendedConsumerProperties.getConcurrency())));
+		}
 		consumer.setUnitName(consumerProperties.getUnitName());
 		return consumer;
 	}
 
+	/**
+	 * Whether the push consumer hands its deliveries over to virtual threads.
+	 * @param extendedConsumerProperties extendedConsumerProperties
+	 * @return true for concurrently listeners with virtual threads enabled
+	 */
+	public static boolean isVirtualThreadConsumption(
+			ExtendedConsumerProperties<RocketMQConsumerProperties> extendedConsumerProperties) {
+		RocketMQConsumerProperties.Push push = extendedConsumerProperties.getExtension()
+				.getPush();
+		return push.getVirtualThreads() && !push.getOrderly();
+	}
+
+	/**
+	 * Whether the orderly push consumer keeps the order per message key only.
+	 * @param extendedConsumerProperties extendedConsumerProperties
+	 * @return true for orderly listeners with key ordering enabled, outside batch mode
+	 */
+	public static boolean isKeyOrderedConsumption(
+			ExtendedConsumerProperties<RocketMQConsumerProperties> extendedConsumerProperties) {
+		RocketMQConsumerProperties.Push push = extendedConsumerProperties.getExtension()
+				.getPush();
+		return push.getOrderly() && push.getKeyOrdered()
+				&& !extendedConsumerProperties.isBatchMode();
+	}
+
+	/**
+	 * Number of records handled together by one invocation of the handler.
+	 * @param extendedConsumerProperties extendedConsumerProperties
+	 * @return the batch size in batch mode, otherwise 1
+	 */
+	public static int getConsumeUnitSize(
+			ExtendedConsumerProperties<RocketMQConsumerProperties> extendedConsumerProperties) {
+		return extendedConsumerProperties.isBatchMode() ? Math.max(1,
+				extendedConsumerProperties.getExtension().getPush()
+						.getConsumeMessageBatchMaxSize())
+				: 1;
+	}
+
 	/**
 	 * todo Compatible with versions less than 4.6 ?
 	 * @param topic consumer topic.
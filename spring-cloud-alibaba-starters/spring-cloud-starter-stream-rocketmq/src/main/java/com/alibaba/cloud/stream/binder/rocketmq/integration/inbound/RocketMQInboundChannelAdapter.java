@@ -16,6 +16,8 @@
 
 package com.alibaba.cloud.stream.binder.rocketmq.integration.inbound;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.function.Supplier;
 
@@ -25,11 +27,15 @@ import com.alibaba.cloud.stream.binder.rocketmq.properties.RocketMQConsumerPrope
 import com.alibaba.cloud.stream.binder.rocketmq.support.RocketMQMessageConverterSupport;
 import com.alibaba.cloud.stream.binder.rocketmq.utils.RocketMQUtils;
 import org.apache.rocketmq.client.consumer.DefaultMQPushConsumer;
+import org.apache.rocketmq.client.consumer.listener.ConsumeConcurrentlyContext;
 import org.apache.rocketmq.client.consumer.listener.ConsumeConcurrentlyStatus;
+import org.apache.rocketmq.client.consumer.listener.ConsumeOrderlyContext;
 import org.apache.rocketmq.client.consumer.listener.ConsumeOrderlyStatus;
 import org.apache.rocketmq.client.consumer.listener.MessageListenerConcurrently;
 import org.apache.rocketmq.client.consumer.listener.MessageListenerOrderly;
+import org.apache.rocketmq.client.impl.consumer.ProcessQueue;
 import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.common.message.MessageQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -62,6 +68,10 @@ public class RocketMQInboundChannelAdapter extends MessageProducerSupport
 
 	private DefaultMQPushConsumer pushConsumer;
 
+	private RocketMQConsumeExecutor consumeExecutor;
+
+	private RocketMQKeyOrderedDispatcher keyOrderedDispatcher;
+
 	private final String topic;
 
 	private final ExtendedConsumerProperties<RocketMQConsumerProperties> extendedConsumerProperties;
@@ -107,7 +117,17 @@ public class RocketMQInboundChannelAdapter extends MessageProducerSupport
 					.initPushConsumer(extendedConsumerProperties);
 			// prepare register consumer message listener,the next step is to be
 			// compatible with a custom MessageListener.
-			if (extendedConsumerProperties.getExtension().getPush().getOrderly()) {
+			if (RocketMQConsumerFactory
+					.isKeyOrderedConsumption(extendedConsumerProperties)) {
+				keyOrderedDispatcher = new RocketMQKeyOrderedDispatcher(topic,
+						extendedConsumerProperties.getConcurrency(),
+						extendedConsumerProperties.getExtension().getPush()
+								.getOrderKeyHeader(),
+						this::isAssigned);
+				pushConsumer.registerMessageListener(
+						(MessageListenerOrderly) this::consumeMessageKeyOrdered);
+			}
+			else if (extendedConsumerProperties.getExtension().getPush().getOrderly()) {
 				pushConsumer.registerMessageListener((MessageListenerOrderly) (msgs,
 						context) -> RocketMQInboundChannelAdapter.this
 								.consumeMessage(msgs, () -> {
@@ -118,6 +138,13 @@ public class RocketMQInboundChannelAdapter extends MessageProducerSupport
 									return ConsumeOrderlyStatus.SUSPEND_CURRENT_QUEUE_A_MOMENT;
 								}, () -> ConsumeOrderlyStatus.SUCCESS));
 			}
+			else if (RocketMQConsumerFactory
+					.isVirtualThreadConsumption(extendedConsumerProperties)) {
+				consumeExecutor = new RocketMQConsumeExecutor(topic,
+						extendedConsumerProperties.getConcurrency());
+				pushConsumer.registerMessageListener(
+						(MessageListenerConcurrently) this::consumeMessageConcurrently);
+			}
 			else {
 				pushConsumer.registerMessageListener((MessageListenerConcurrently) (msgs,
 						context) -> RocketMQInboundChannelAdapter.this
@@ -154,6 +181,9 @@ public class RocketMQInboundChannelAdapter extends MessageProducerSupport
 			throw new MessagingException(
 					"DefaultMQPushConsumer consuming failed, Caused by messageExtList is empty");
 		}
+		if (extendedConsumerProperties.isBatchMode()) {
+			return consumeMessageBatch(messageExtList, failSupplier, sucSupplier);
+		}
 		for (MessageExt messageExt : messageExtList) {
 			try {
 				Message<?> message = RocketMQMessageConverterSupport
@@ -176,6 +206,142 @@ public class RocketMQInboundChannelAdapter extends MessageProducerSupport
 		return sucSupplier.get();
 	}
 
+	/**
+	 * Deliver the whole list as one {@code Message<List<byte[]>>} when the binding is in
+	 * batch mode. The batch is consumed or retried as a unit: if the handler fails, the
+	 * concurrently listener returns every record to the broker for redelivery, and the
+	 * orderly listener suspends the queue and redelivers the same batch in order.
+	 * @param messageExtList rocket mq message list
+	 * @param failSupplier {@link ConsumeConcurrentlyStatus} or
+	 *     {@link ConsumeOrderlyStatus}
+	 * @param sucSupplier {@link ConsumeConcurrentlyStatus} or
+	 *     {@link ConsumeOrderlyStatus}
+	 * @param <R> object
+	 * @return R
+	 */
+	private <R> R consumeMessageBatch(List<MessageExt> messageExtList,
+			Supplier<R> failSupplier, Supplier<R> sucSupplier) {
+		try {
+			Message<?> message = RocketMQMessageConverterSupport
+					.convertMessages2Spring(messageExtList);
+			if (this.retryTemplate != null) {
+				this.retryTemplate.execute(context -> {
+					this.sendMessage(message);
+					return message;
+				}, this.recoveryCallback);
+			}
+			else {
+				this.sendMessage(message);
+			}
+		}
+		catch (Exception e) {
+			log.warn("consume message batch failed. size:{}, first messageExt:{}",
+					messageExtList.size(), messageExtList.get(0), e);
+			return failSupplier.get();
+		}
+		return sucSupplier.get();
+	}
+
+	/**
+	 * Split the delivery into handler units, one record or one batch in batch mode, and
+	 * run them on the consume executor. Only the records after the first failed unit
+	 * are returned to the broker for redelivery.
+	 * @param messageExtList rocket mq message list
+	 * @param context consume context
+	 * @return consume status
+	 */
+	private ConsumeConcurrentlyStatus consumeMessageConcurrently(
+			List<MessageExt> messageExtList, ConsumeConcurrentlyContext context) {
+		if (CollectionUtils.isEmpty(messageExtList)) {
+			throw new MessagingException(
+					"DefaultMQPushConsumer consuming failed, Caused by messageExtList is empty");
+		}
+		int unitSize = RocketMQConsumerFactory
+				.getConsumeUnitSize(extendedConsumerProperties);
+		List<Runnable> units = new ArrayList<>(
+				(messageExtList.size() + unitSize - 1) / unitSize);
+		for (int from = 0; from < messageExtList.size(); from += unitSize) {
+			List<MessageExt> unit = messageExtList.subList(from,
+					Math.min(from + unitSize, messageExtList.size()));
+			units.add(() -> consumeUnit(unit));
+		}
+		int completed = consumeExecutor.invokeAll(units);
+		if (completed == units.size()) {
+			return ConsumeConcurrentlyStatus.CONSUME_SUCCESS;
+		}
+		context.setDelayLevelWhenNextConsume(extendedConsumerProperties.getExtension()
+				.getPush().getDelayLevelWhenNextConsume());
+		if (completed == 0) {
+			return ConsumeConcurrentlyStatus.RECONSUME_LATER;
+		}
+		context.setAckIndex(completed * unitSize - 1);
+		return ConsumeConcurrentlyStatus.CONSUME_SUCCESS;
+	}
+
+	/**
+	 * Consume an orderly delivery with the order kept per message key. The delivery is
+	 * consumed again after suspending the queue if any message failed, skipping the
+	 * messages which already completed.
+	 * @param messageExtList rocket mq message list
+	 * @param context consume context
+	 * @return consume status
+	 */
+	private ConsumeOrderlyStatus consumeMessageKeyOrdered(
+			List<MessageExt> messageExtList, ConsumeOrderlyContext context) {
+		if (CollectionUtils.isEmpty(messageExtList)) {
+			throw new MessagingException(
+					"DefaultMQPushConsumer consuming failed, Caused by messageExtList is empty");
+		}
+		boolean success;
+		try {
+			success = keyOrderedDispatcher.dispatch(context.getMessageQueue(),
+					messageExtList,
+					messageExt -> consumeUnit(Collections.singletonList(messageExt)));
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			success = false;
+		}
+		if (success) {
+			return ConsumeOrderlyStatus.SUCCESS;
+		}
+		context.setSuspendCurrentQueueTimeMillis(extendedConsumerProperties
+				.getExtension().getPush().getSuspendCurrentQueueTimeMillis());
+		return ConsumeOrderlyStatus.SUSPEND_CURRENT_QUEUE_A_MOMENT;
+	}
+
+	/**
+	 * Whether the queue is still assigned to the push consumer, its process queue is
+	 * dropped when it is rebalanced away.
+	 */
+	private boolean isAssigned(MessageQueue messageQueue) {
+		ProcessQueue processQueue = pushConsumer.getDefaultMQPushConsumerImpl()
+				.getRebalanceImpl().getProcessQueueTable().get(messageQueue);
+		return processQueue != null && !processQueue.isDropped();
+	}
+
+	private void consumeUnit(List<MessageExt> unit) {
+		try {
+			Message<?> message = extendedConsumerProperties.isBatchMode()
+					? RocketMQMessageConverterSupport.convertMessages2Spring(unit)
+					: RocketMQMessageConverterSupport.convertMessage2Spring(unit.get(0));
+			if (this.retryTemplate != null) {
+				this.retryTemplate.execute(context -> {
+					this.sendMessage(message);
+					return message;
+				}, this.recoveryCallback);
+			}
+			else {
+				this.sendMessage(message);
+			}
+		}
+		catch (RuntimeException e) {
+			log.warn("consume message failed. size:{}, first messageExt:{}",
+					unit.size(), unit.get(0), e);
+			throw e;
+		}
+	}
+
 	@Override
 	protected void doStart() {
 		if (extendedConsumerProperties.getExtension() == null
@@ -206,6 +372,12 @@ public class RocketMQInboundChannelAdapter extends MessageProducerSupport
 		if (pushConsumer != null) {
 			pushConsumer.shutdown();
 		}
+		if (consumeExecutor != null) {
+			consumeExecutor.shutdown();
+		}
+		if (keyOrderedDispatcher != null) {
+			keyOrderedDispatcher.shutdown();
+		}
 	}
 
 	public void setRetryTemplate(RetryTemplate retryTemplate) {
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.stream.binder.rocketmq.integration.inbound;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.common.message.MessageQueue;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * Dispatches an orderly delivery of one queue to a striped executor, keeping the order
+ * only among messages with the same key. Messages of one key always run on the same
+ * single-threaded lane, so different keys proceed in parallel. Once a message fails,
+ * the later messages of its key are skipped. The offsets which completed are
+ * remembered per queue and skipped when the same delivery, starting at the same offset,
+ * is consumed again, so the queue offset advances only once the whole delivery has
+ * completed. The remembered offsets of a queue are dropped when it is no longer
+ * assigned to the consumer, or when a delivery starting at another offset arrives.
+ */
+public class RocketMQKeyOrderedDispatcher {
+
+	private final ExecutorService[] lanes;
+
+	/**
+	 * Header holding the ordering key, the message keys if empty.
+	 */
+	private final String keyHeader;
+
+	/**
+	 * Whether a queue is still assigned to the consumer.
+	 */
+	private final Predicate<MessageQueue> assigned;
+
+	private final Map<MessageQueue, Delivery> failedDeliveries = new ConcurrentHashMap<>();
+
+	public RocketMQKeyOrderedDispatcher(String name, int laneNums, String keyHeader) {
+		this(name, laneNums, keyHeader, messageQueue -> true);
+	}
+
+	public RocketMQKeyOrderedDispatcher(String name, int laneNums, String keyHeader,
+			Predicate<MessageQueue> assigned) {
+		this.lanes = new ExecutorService[Math.max(1, laneNums)];
+		for (int i = 0; i < lanes.length; i++) {
+			String threadName = "RocketMQKeyOrderedDispatcher-" + name + "-" + i;
+			lanes[i] = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, threadName);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		this.keyHeader = keyHeader;
+		this.assigned = assigned;
+	}
+
+	/**
+	 * Consume a delivery and wait for it.
+	 * @param messageQueue queue of the delivery
+	 * @param messageExtList messages in queue order
+	 * @param handler handler of one message, failing by throwing an exception
+	 * @return true if every message of the delivery has completed
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public boolean dispatch(MessageQueue messageQueue, List<MessageExt> messageExtList,
+			Consumer<MessageExt> handler) throws InterruptedException {
+		if (!failedDeliveries.isEmpty()) {
+			// queues rebalanced away while failing are not consumed again.
+			failedDeliveries.keySet().removeIf(mq -> !assigned.test(mq));
+		}
+		long firstOffset = Long.MAX_VALUE;
+		for (MessageExt messageExt : messageExtList) {
+			firstOffset = Math.min(firstOffset, messageExt.getQueueOffset());
+		}
+		Delivery delivery = failedDeliveries.get(messageQueue);
+		if (delivery == null || delivery.firstOffset != firstOffset) {
+			// not a retry of the failed delivery, e.g. after an offset reset.
+			delivery = new Delivery(firstOffset);
+		}
+		Set<Long> completed = delivery.completedOffsets;
+		Set<String> failedKeys = ConcurrentHashMap.newKeySet();
+		List<Future<?>> futures = new ArrayList<>(messageExtList.size());
+		for (MessageExt messageExt : messageExtList) {
+			long offset = messageExt.getQueueOffset();
+			if (completed.contains(offset)) {
+				continue;
+			}
+			String key = orderKey(messageExt);
+			futures.add(lanes[lane(key)].submit(() -> {
+				if (failedKeys.contains(key)) {
+					return;
+				}
+				try {
+					handler.accept(messageExt);
+					completed.add(offset);
+				}
+				catch (RuntimeException e) {
+					failedKeys.add(key);
+					throw e;
+				}
+			}));
+		}
+		boolean success = true;
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			}
+			catch (ExecutionException e) {
+				success = false;
+			}
+		}
+		if (success && failedKeys.isEmpty()) {
+			failedDeliveries.remove(messageQueue);
+			return true;
+		}
+		failedDeliveries.put(messageQueue, delivery);
+		return false;
+	}
+
+	public void shutdown() {
+		for (ExecutorService lane : lanes) {
+			lane.shutdown();
+		}
+		failedDeliveries.clear();
+	}
+
+	private String orderKey(MessageExt messageExt) {
+		String key = StringUtils.hasLength(keyHeader)
+				? messageExt.getUserProperty(keyHeader)
+				: messageExt.getKeys();
+		return Objects.toString(key, "");
+	}
+
+	private int lane(String key) {
+		return (key.hashCode() & Integer.MAX_VALUE) % lanes.length;
+	}
+
+	/**
+	 * Offsets which completed in a delivery that failed, to be skipped when it is
+	 * consumed again.
+	 */
+	private static final class Delivery {
+
+		private final long firstOffset;
+
+		private final Set<Long> completedOffsets = ConcurrentHashMap.newKeySet();
+
+		private Delivery(long firstOffset) {
+			this.firstOffset = firstOffset;
+		}
+
+	}
+
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.stream.binder.rocketmq.integration.inbound.pull;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.rocketmq.client.consumer.DefaultLitePullConsumer;
+import org.apache.rocketmq.client.exception.MQClientException;
+import org.apache.rocketmq.common.message.MessageQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coalesces the acknowledgements of a {@link RocketMQMessageSource}. Delivered offsets
+ * are tracked per {@link MessageQueue}, and only the offset following the highest
+ * contiguous acknowledged one is committed, either every {@code commitIntervalMillis}
+ * or before the next poll, so the commit cost scales with queues rather than records.
+ */
+public class RocketMQAckAggregator {
+
+	private final static Logger log = LoggerFactory
+			.getLogger(RocketMQAckAggregator.class);
+
+	private final DefaultLitePullConsumer consumer;
+
+	private final long commitIntervalMillis;
+
+	private final Map<MessageQueue, OffsetTracker> trackers = new ConcurrentHashMap<>();
+
+	private ScheduledExecutorService commitExecutor;
+
+	/**
+	 * @param consumer lite pull consumer to commit to
+	 * @param commitIntervalMillis interval between commits, commits on every
+	 * acknowledgement if not positive
+	 */
+	public RocketMQAckAggregator(DefaultLitePullConsumer consumer,
+			long commitIntervalMillis) {
+		this.consumer = consumer;
+		this.commitIntervalMillis = commitIntervalMillis;
+	}
+
+	public void start() {
+		if (commitIntervalMillis <= 0) {
+			return;
+		}
+		this.commitExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable,
+					"RocketMQAckAggregator-" + consumer.getConsumerGroup());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.commitExecutor.scheduleWithFixedDelay(this::commitSafely,
+				commitIntervalMillis, commitIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	public void stop() {
+		if (commitExecutor != null) {
+			commitExecutor.shutdown();
+			commitExecutor = null;
+		}
+		commit();
+	}
+
+	/**
+	 * Register a delivered offset, must be called in poll order.
+	 * @param messageQueue message queue
+	 * @param offset queue offset
+	 */
+	public void track(MessageQueue messageQueue, long offset) {
+		trackers.computeIfAbsent(messageQueue, mq -> new OffsetTracker())
+				.track(offset);
+	}
+
+	public void acknowledge(MessageQueue messageQueue, long offset) {
+		OffsetTracker tracker = trackers.get(messageQueue);
+		if (tracker == null || !tracker.acknowledge(offset)) {
+			return;
+		}
+		if (commitIntervalMillis <= 0) {
+			commit();
+		}
+	}
+
+	/**
+	 * Rewind the queue to the offset, offsets from it on will be delivered again.
+	 * @param messageQueue message queue
+	 * @param offset queue offset
+	 * @throws MQClientException if the consumer cannot seek
+	 */
+	public void requeue(MessageQueue messageQueue, long offset)
+			throws MQClientException {
+		OffsetTracker tracker = trackers.get(messageQueue);
+		if (tracker != null) {
+			tracker.truncate(offset);
+		}
+		consumer.seek(messageQueue, offset);
+	}
+
+	/**
+	 * Forget the queues which are no longer assigned.
+	 * @param messageQueues currently assigned message queues
+	 */
+	public void retain(Collection<MessageQueue> messageQueues) {
+		trackers.keySet().retainAll(messageQueues);
+	}
+
+	/**
+	 * Commit the contiguous acknowledged offsets of all queues that advanced since the
+	 * last commit.
+	 */
+	public synchronized void commit() {
+		Map<MessageQueue, Long> offsets = null;
+		for (Map.Entry<MessageQueue, OffsetTracker> entry : trackers.entrySet()) {
+			long offset = entry.getValue().takeCommitOffset();
+			if (offset >= 0) {
+				if (offsets == null) {
+					offsets = new HashMap<>();
+				}
+				offsets.put(entry.getKey(), offset);
+			}
+		}
+		if (offsets != null) {
+			consumer.commit(offsets, false);
+		}
+	}
+
+	private void commitSafely() {
+		try {
+			commit();
+		}
+		catch (Throwable t) {
+			log.error("RocketMQ offset commit failed.", t);
+		}
+	}
+
+	/**
+	 * Pending offsets of one queue in delivery order, kept in a ring with an acked flag
+	 * per slot.
+	 */
+	static final class OffsetTracker {
+
+		private long[] offsets = new long[16];
+
+		private boolean[] acked = new boolean[16];
+
+		private int head;
+
+		private int size;
+
+		/**
+		 * Next offset to commit, -1 if unchanged since the last commit.
+		 */
+		private long commitOffset = -1;
+
+		synchronized void track(long offset) {
+			if (size > 0 && offsets[slot(size - 1)] >= offset) {
+				truncate(offset);
+			}
+			if (size == offsets.length) {
+				grow();
+			}
+			int slot = slot(size);
+			offsets[slot] = offset;
+			acked[slot] = false;
+			size++;
+		}
+
+		/**
+		 * @return whether the committable offset advanced
+		 */
+		synchronized boolean acknowledge(long offset) {
+			int index = indexOf(offset);
+			if (index < 0) {
+				return false;
+			}
+			acked[slot(index)] = true;
+			boolean advanced = false;
+			while (size > 0 && acked[head]) {
+				commitOffset = offsets[head] + 1;
+				head = (head + 1) % offsets.length;
+				size--;
+				advanced = true;
+			}
+			return advanced;
+		}
+
+		synchronized void truncate(long offset) {
+			while (size > 0 && offsets[slot(size - 1)] >= offset) {
+				size--;
+			}
+		}
+
+		synchronized long takeCommitOffset() {
+			long offset = commitOffset;
+			commitOffset = -1;
+			return offset;
+		}
+
+		private int indexOf(long offset) {
+			int low = 0;
+			int high = size - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				long value = offsets[slot(mid)];
+				if (value < offset) {
+					low = mid + 1;
+				}
+				else if (value > offset) {
+					high = mid - 1;
+				}
+				else {
+					return mid;
+				}
+			}
+			return -1;
+		}
+
+		private int slot(int index) {
+			return (head + index) % offsets.length;
+		}
+
+		private void grow() {
+			long[] newOffsets = new long[offsets.length * 2];
+			boolean[] newAcked = new boolean[acked.length * 2];
+			for (int i = 0; i < size; i++) {
+				newOffsets[i] = offsets[slot(i)];
+				newAcked[i] = acked[slot(i)];
+			}
+			offsets = newOffsets;
+			acked = newAcked;
+			head = 0;
+		}
+
+	}
+
+}
@@ -17,6 +17,7 @@
 package com.alibaba.cloud.stream.binder.rocketmq.integration.inbound.pull;
 
 import java.util.Collections;
+import java.util.function.BiConsumer;
 
 import org.apache.rocketmq.client.consumer.DefaultLitePullConsumer;
 import org.apache.rocketmq.client.exception.MQClientException;
@@ -47,6 +48,10 @@ public class RocketMQAckCallback implements AcknowledgmentCallback {
 
 	private final MessageQueue messageQueue;
 
+	private RocketMQAckAggregator ackAggregator;
+
+	private BiConsumer<MessageQueue, Long> requeueListener;
+
 	public RocketMQAckCallback(DefaultLitePullConsumer consumer,
 			MessageQueue messageQueue, MessageExt messageExt) {
 		this.messageExt = messageExt;
@@ -54,6 +59,28 @@ public class RocketMQAckCallback implements AcknowledgmentCallback {
 		this.messageQueue = messageQueue;
 	}
 
+	/**
+	 * Acknowledge through an aggregator, which commits coalesced offsets instead of
+	 * committing on every acknowledgement.
+	 * @param ackAggregator ack aggregator
+	 * @param messageQueue message queue of the message
+	 * @param messageExt message
+	 */
+	public RocketMQAckCallback(RocketMQAckAggregator ackAggregator,
+			MessageQueue messageQueue, MessageExt messageExt) {
+		this.messageExt = messageExt;
+		this.ackAggregator = ackAggregator;
+		this.messageQueue = messageQueue;
+	}
+
+	/**
+	 * @param requeueListener notified with the message queue and offset after a
+	 * REQUEUE rewound the queue
+	 */
+	public void setRequeueListener(BiConsumer<MessageQueue, Long> requeueListener) {
+		this.requeueListener = requeueListener;
+	}
+
 	@Override
 	public boolean isAcknowledged() {
 		return this.acknowledged;
@@ -75,12 +102,34 @@ public class RocketMQAckCallback implements AcknowledgmentCallback {
 		if (this.acknowledged) {
 			throw new IllegalStateException("Already acknowledged");
 		}
+		if (ackAggregator != null) {
+			try {
+				long offset = messageExt.getQueueOffset();
+				switch (status) {
+				case REJECT, ACCEPT -> ackAggregator.acknowledge(messageQueue, offset);
+				case REQUEUE -> {
+					ackAggregator.requeue(messageQueue, offset);
+					notifyRequeue(offset);
+				}
+				}
+			}
+			catch (MQClientException e) {
+				throw new IllegalStateException(e);
+			}
+			finally {
+				this.acknowledged = true;
+			}
+			return;
+		}
 		synchronized (messageQueue) {
 			try {
 				long offset = messageExt.getQueueOffset();
 				switch (status) {
 				case REJECT, ACCEPT -> consumer.commit(Collections.singleton(messageQueue), false);
-				case REQUEUE -> consumer.seek(messageQueue, offset);
+				case REQUEUE -> {
+					consumer.seek(messageQueue, offset);
+					notifyRequeue(offset);
+				}
 				}
 			}
 			catch (MQClientException e) {
@@ -92,4 +141,10 @@ public class RocketMQAckCallback implements AcknowledgmentCallback {
 		}
 	}
 
+	private void notifyRequeue(long offset) {
+		if (requeueListener != null) {
+			requeueListener.accept(messageQueue, offset);
+		}
+	}
+
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.stream.binder.rocketmq.integration.inbound.pull;
+
+import java.util.List;
+
+import org.springframework.integration.acks.AcknowledgmentCallback;
+import org.springframework.util.Assert;
+
+/**
+ * Acknowledges every message of a batch received from a {@link RocketMQMessageSource}
+ * with the same status.
+ */
+public class RocketMQBatchAckCallback implements AcknowledgmentCallback {
+
+	private final List<RocketMQAckCallback> callbacks;
+
+	private boolean acknowledged;
+
+	private boolean autoAckEnabled = true;
+
+	/**
+	 * @param callbacks callbacks of the messages, in the order they were polled
+	 */
+	public RocketMQBatchAckCallback(List<RocketMQAckCallback> callbacks) {
+		this.callbacks = callbacks;
+	}
+
+	@Override
+	public boolean isAcknowledged() {
+		return this.acknowledged;
+	}
+
+	@Override
+	public void noAutoAck() {
+		this.autoAckEnabled = false;
+	}
+
+	@Override
+	public boolean isAutoAck() {
+		return this.autoAckEnabled;
+	}
+
+	@Override
+	public void acknowledge(Status status) {
+		Assert.notNull(status, "'status' cannot be null");
+		if (this.acknowledged) {
+			throw new IllegalStateException("Already acknowledged");
+		}
+		this.acknowledged = true;
+		if (status == Status.REQUEUE) {
+			// the last seek of a queue wins, so rewind to its lowest offset last.
+			for (int i = callbacks.size() - 1; i >= 0; i--) {
+				callbacks.get(i).acknowledge(status);
+			}
+			return;
+		}
+		for (RocketMQAckCallback callback : callbacks) {
+			callback.acknowledge(status);
+		}
+	}
+
+}
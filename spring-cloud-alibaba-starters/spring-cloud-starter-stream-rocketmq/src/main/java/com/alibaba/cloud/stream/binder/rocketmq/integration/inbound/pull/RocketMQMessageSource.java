@@ -16,11 +16,15 @@
 
 package com.alibaba.cloud.stream.binder.rocketmq.integration.inbound.pull;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import com.alibaba.cloud.stream.binder.rocketmq.integration.inbound.RocketMQConsumerFactory;
 import com.alibaba.cloud.stream.binder.rocketmq.metrics.Instrumentation;
@@ -41,10 +45,9 @@ import org.springframework.cloud.stream.binder.ExtendedConsumerProperties;
 import org.springframework.context.Lifecycle;
 import org.springframework.integration.IntegrationMessageHeaderAccessor;
 import org.springframework.integration.endpoint.AbstractMessageSource;
-import org.springframework.integration.support.MessageBuilder;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.util.CollectionUtils;
-import org.springframework.util.ObjectUtils;
 
 /**
  * @author <a href="mailto:fangjian0423@gmail.com">Jim</a>
@@ -57,7 +60,10 @@ public class RocketMQMessageSource extends AbstractMessageSource<Object>
 
 	private DefaultLitePullConsumer consumer;
 
-	private final Map<String, Collection<MessageQueue>> messageQueuesForTopic = new ConcurrentHashMap<>();
+	/**
+	 * Assigned message queues per topic, indexed by broker name and queue id.
+	 */
+	private final Map<String, MessageQueueIndex> messageQueuesForTopic = new ConcurrentHashMap<>();
 
 	private volatile boolean running;
 
@@ -67,7 +73,18 @@ public class RocketMQMessageSource extends AbstractMessageSource<Object>
 
 	private final ExtendedConsumerProperties<RocketMQConsumerProperties> extendedConsumerProperties;
 
-	private volatile Iterator<MessageExt> messageExtIterator = null;
+	/**
+	 * Records polled but not handed out yet, shared by all polling threads.
+	 */
+	private final Queue<MessageExt> buffer = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Guards polling the consumer when acknowledgements are aggregated, so that
+	 * delivered offsets are tracked in poll order.
+	 */
+	private final Object pollLock = new Object();
+
+	private volatile RocketMQAckAggregator ackAggregator;
 
 	public RocketMQMessageSource(String name,
 			ExtendedConsumerProperties<RocketMQConsumerProperties> extendedConsumerProperties) {
@@ -92,12 +109,21 @@ public class RocketMQMessageSource extends AbstractMessageSource<Object>
 			// this.consumer.setPullBatchSize(1);
 			this.consumer.subscribe(topic, messageSelector);
 			this.consumer.setAutoCommit(false);
+			long ackCommitIntervalMillis = extendedConsumerProperties.getExtension()
+					.getPull().getAckCommitIntervalMillis();
+			if (ackCommitIntervalMillis > 0) {
+				this.ackAggregator = new RocketMQAckAggregator(consumer,
+						ackCommitIntervalMillis);
+			}
 			// register TopicMessageQueueChangeListener for messageQueuesForTopic
 			consumer.registerTopicMessageQueueChangeListener(topic,
-					messageQueuesForTopic::put);
+					this::updateMessageQueues);
 			this.consumer.start();
+			if (this.ackAggregator != null) {
+				this.ackAggregator.start();
+			}
 			// Initialize messageQueuesForTopic immediately
-			messageQueuesForTopic.put(topic, consumer.fetchMessageQueues(topic));
+			updateMessageQueues(topic, consumer.fetchMessageQueues(topic));
 			instrumentation.markStartedSuccessfully();
 		}
 		catch (MQClientException e) {
@@ -110,63 +136,176 @@ public class RocketMQMessageSource extends AbstractMessageSource<Object>
 		this.running = true;
 	}
 
+	void updateMessageQueues(String topic, Collection<MessageQueue> messageQueues) {
+		messageQueuesForTopic.put(topic, new MessageQueueIndex(messageQueues));
+		RocketMQAckAggregator ackAggregator = this.ackAggregator;
+		if (ackAggregator != null && messageQueues != null) {
+			ackAggregator.retain(messageQueues);
+		}
+	}
+
 	private MessageQueue acquireCurrentMessageQueue(String topic, int queueId,
 			String brokerName) {
-		Collection<MessageQueue> messageQueueSet = messageQueuesForTopic.get(topic);
-		if (CollectionUtils.isEmpty(messageQueueSet)) {
-			return null;
-		}
-		for (MessageQueue messageQueue : messageQueueSet) {
-			if (messageQueue.getQueueId() == queueId && ObjectUtils
-					.nullSafeEquals(brokerName, messageQueue.getBrokerName())) {
-				return messageQueue;
-			}
-		}
-		return null;
+		MessageQueueIndex index = messageQueuesForTopic.get(topic);
+		return index == null ? null : index.get(brokerName, queueId);
 	}
 
 	@Override
 	public synchronized void stop() {
 		if (this.isRunning() && null != consumer) {
 			consumer.unsubscribe(topic);
+			if (ackAggregator != null) {
+				ackAggregator.stop();
+			}
 			consumer.shutdown();
+			buffer.clear();
 			this.running = false;
 		}
 	}
 
 	@Override
-	public synchronized boolean isRunning() {
+	public boolean isRunning() {
 		return running;
 	}
 
+	/**
+	 * Receive the next message. In batch mode, the message carries up to
+	 * {@code pullBatchSize} records as a list of payloads and acknowledges all of them
+	 * at once.
+	 */
 	@Override
-	protected synchronized Object doReceive() {
-		if (messageExtIterator == null) {
-			List<MessageExt> messageExtList = consumer.poll();
+	protected Object doReceive() {
+		if (extendedConsumerProperties.isBatchMode()) {
+			return receiveBatchMessage(
+					extendedConsumerProperties.getExtension().getPullBatchSize());
+		}
+		MessageExt messageExt = nextMessageExt();
+		if (null == messageExt) {
+			return null;
+		}
+		return toMessage(messageExt);
+	}
+
+	private Message<List<byte[]>> receiveBatchMessage(int max) {
+		List<MessageExt> messageExts = nextMessageExts(max);
+		if (messageExts.isEmpty()) {
+			return null;
+		}
+		List<RocketMQAckCallback> callbacks = new ArrayList<>(messageExts.size());
+		for (MessageExt messageExt : messageExts) {
+			callbacks.add(ackCallback(messageExt));
+		}
+		return MessageBuilder
+				.fromMessage(
+						RocketMQMessageConverterSupport.convertMessages2Spring(messageExts))
+				.setHeader(IntegrationMessageHeaderAccessor.ACKNOWLEDGMENT_CALLBACK,
+						new RocketMQBatchAckCallback(callbacks))
+				.build();
+	}
+
+	/**
+	 * Receive up to {@code max} messages at once, each with its own acknowledgment
+	 * callback. Polls the consumer at most once, when no record is buffered.
+	 * @param max maximum number of messages
+	 * @return the messages, empty if none is available
+	 */
+	public List<Message<byte[]>> receiveBatch(int max) {
+		List<MessageExt> messageExts = nextMessageExts(max);
+		List<Message<byte[]>> messages = new ArrayList<>(messageExts.size());
+		for (MessageExt messageExt : messageExts) {
+			messages.add(toMessage(messageExt));
+		}
+		return messages;
+	}
+
+	private List<MessageExt> nextMessageExts(int max) {
+		List<MessageExt> messageExts = new ArrayList<>(Math.min(max, 32));
+		MessageExt messageExt = nextMessageExt();
+		while (messageExt != null) {
+			messageExts.add(messageExt);
+			if (messageExts.size() >= max) {
+				break;
+			}
+			messageExt = buffer.poll();
+		}
+		return messageExts;
+	}
+
+	/**
+	 * Take the next buffered record, polling the consumer when the buffer is empty.
+	 * When acknowledgements are aggregated, acknowledged offsets are committed before
+	 * each poll.
+	 */
+	private MessageExt nextMessageExt() {
+		MessageExt messageExt = buffer.poll();
+		if (messageExt != null) {
+			return messageExt;
+		}
+		List<MessageExt> messageExtList;
+		RocketMQAckAggregator ackAggregator = this.ackAggregator;
+		if (ackAggregator == null) {
+			messageExtList = consumer.poll();
 			if (CollectionUtils.isEmpty(messageExtList)) {
 				return null;
 			}
-			messageExtIterator = messageExtList.iterator();
 		}
-		MessageExt messageExt = messageExtIterator.next();
-		if (!messageExtIterator.hasNext()) {
-			messageExtIterator = null;
+		else {
+			synchronized (pollLock) {
+				messageExt = buffer.poll();
+				if (messageExt != null) {
+					return messageExt;
+				}
+				ackAggregator.commit();
+				messageExtList = consumer.poll();
+				if (CollectionUtils.isEmpty(messageExtList)) {
+					return null;
+				}
+				for (MessageExt polled : messageExtList) {
+					MessageQueue messageQueue = acquireCurrentMessageQueue(
+							polled.getTopic(), polled.getQueueId(),
+							polled.getBrokerName());
+					if (messageQueue != null) {
+						ackAggregator.track(messageQueue, polled.getQueueOffset());
+					}
+				}
+			}
 		}
-		if (null == messageExt) {
-			return null;
+		for (int i = 1; i < messageExtList.size(); i++) {
+			buffer.offer(messageExtList.get(i));
 		}
+		return messageExtList.get(0);
+	}
+
+	private Message<byte[]> toMessage(MessageExt messageExt) {
+		return RocketMQMessageConverterSupport.convertMessage2Spring(messageExt,
+				Collections.singletonMap(
+						IntegrationMessageHeaderAccessor.ACKNOWLEDGMENT_CALLBACK,
+						ackCallback(messageExt)));
+	}
+
+	private RocketMQAckCallback ackCallback(MessageExt messageExt) {
 		MessageQueue messageQueue = this.acquireCurrentMessageQueue(messageExt.getTopic(),
 				messageExt.getQueueId(), messageExt.getBrokerName());
 		if (messageQueue == null) {
 			throw new IllegalArgumentException(
 					"The message queue is not in assigned list");
 		}
-		Message message = RocketMQMessageConverterSupport
-				.convertMessage2Spring(messageExt);
-		return MessageBuilder.fromMessage(message)
-				.setHeader(IntegrationMessageHeaderAccessor.ACKNOWLEDGMENT_CALLBACK,
-						new RocketMQAckCallback(this.consumer, messageQueue, messageExt))
-				.build();
+		RocketMQAckAggregator ackAggregator = this.ackAggregator;
+		RocketMQAckCallback ackCallback = ackAggregator != null
+				? new RocketMQAckCallback(ackAggregator, messageQueue, messageExt)
+				: new RocketMQAckCallback(this.consumer, messageQueue, messageExt);
+		ackCallback.setRequeueListener(this::discardBuffered);
+		return ackCallback;
+	}
+
+	/**
+	 * Drop the buffered records of the queue from the offset on, the consumer delivers
+	 * them again after seeking back to the offset.
+	 */
+	void discardBuffered(MessageQueue messageQueue, long offset) {
+		buffer.removeIf(messageExt -> messageExt.getQueueOffset() >= offset
+				&& messageQueue.equals(acquireCurrentMessageQueue(messageExt.getTopic(),
+						messageExt.getQueueId(), messageExt.getBrokerName())));
 	}
 
 	@Override
@@ -174,4 +313,39 @@ public class RocketMQMessageSource extends AbstractMessageSource<Object>
 		return "rocketmq:message-source";
 	}
 
+	/**
+	 * Message queues of a topic by broker name, each broker's queues in an array
+	 * indexed by queue id.
+	 */
+	private static final class MessageQueueIndex {
+
+		private final Map<String, MessageQueue[]> queuesByBroker = new HashMap<>();
+
+		private MessageQueueIndex(Collection<MessageQueue> messageQueues) {
+			if (CollectionUtils.isEmpty(messageQueues)) {
+				return;
+			}
+			Map<String, Integer> maxQueueIds = new HashMap<>();
+			for (MessageQueue messageQueue : messageQueues) {
+				maxQueueIds.merge(messageQueue.getBrokerName(),
+						messageQueue.getQueueId(), Math::max);
+			}
+			maxQueueIds.forEach((brokerName, maxQueueId) -> queuesByBroker
+					.put(brokerName, new MessageQueue[maxQueueId + 1]));
+			for (MessageQueue messageQueue : messageQueues) {
+				queuesByBroker.get(messageQueue.getBrokerName())[messageQueue
+						.getQueueId()] = messageQueue;
+			}
+		}
+
+		private MessageQueue get(String brokerName, int queueId) {
+			MessageQueue[] queues = queuesByBroker.get(brokerName);
+			if (queues == null || queueId < 0 || queueId >= queues.length) {
+				return null;
+			}
+			return queues[queueId];
+		}
+
+	}
+
 }
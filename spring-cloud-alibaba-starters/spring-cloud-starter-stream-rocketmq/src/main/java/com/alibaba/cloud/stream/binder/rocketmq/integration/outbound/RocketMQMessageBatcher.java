@@ -0,0 +1,510 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.stream.binder.rocketmq.integration.outbound;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import com.alibaba.cloud.stream.binder.rocketmq.metrics.RocketMQProducerMetrics;
+import com.alibaba.cloud.stream.binder.rocketmq.properties.RocketMQProducerProperties;
+import org.apache.rocketmq.client.producer.DefaultMQProducer;
+import org.apache.rocketmq.client.producer.MessageQueueSelector;
+import org.apache.rocketmq.client.producer.SendCallback;
+import org.apache.rocketmq.client.producer.SendResult;
+import org.apache.rocketmq.client.producer.SendStatus;
+import org.apache.rocketmq.common.message.MessageQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessagingException;
+
+/**
+ * Collects outgoing messages per message queue and sends them with the RocketMQ batch
+ * API. A batch is flushed when it reaches {@code maxCount} messages or
+ * {@code maxBytes} bytes, or when its oldest message has waited {@code lingerMillis}.
+ * Batches of the same message queue are sent one after the other, in the order they
+ * were filled. With the Async send type, the result is reported for every message of
+ * the batch through the success or failure handler. With the Sync send type, the
+ * result is returned to the caller through the future returned by {@link #add}, and
+ * the caller may {@link #withdraw} its message until its batch is sent.
+ */
+public class RocketMQMessageBatcher {
+
+	private final static Logger log = LoggerFactory
+			.getLogger(RocketMQMessageBatcher.class);
+
+	private final String topic;
+
+	private final DefaultMQProducer producer;
+
+	private final RocketMQProducerProperties.Batch batchProperties;
+
+	private final boolean async;
+
+	private final BiConsumer<Message<?>, SendResult> successHandler;
+
+	private final BiConsumer<Message<?>, Throwable> failureHandler;
+
+	private final RocketMQSendWindow sendWindow;
+
+	private final RocketMQProducerMetrics producerMetrics;
+
+	/**
+	 * Batches bound to a selected message queue.
+	 */
+	private final Map<MessageQueue, Accumulation> accumulations = new ConcurrentHashMap<>();
+
+	/**
+	 * Batch for messages without a selector, the producer picks the queue per batch.
+	 */
+	private final Accumulation anyQueueAccumulation = new Accumulation(null);
+
+	private ScheduledExecutorService lingerExecutor;
+
+	/**
+	 * Set by {@link #stop()}, checked under the lock of an accumulation so that no
+	 * message is added after the final flush.
+	 */
+	private volatile boolean closed;
+
+	public RocketMQMessageBatcher(String topic, DefaultMQProducer producer,
+			RocketMQProducerProperties producerProperties,
+			BiConsumer<Message<?>, SendResult> successHandler,
+			BiConsumer<Message<?>, Throwable> failureHandler) {
+		this(topic, producer, producerProperties, successHandler, failureHandler,
+				new RocketMQSendWindow(0, producerProperties.getSendMsgTimeout()),
+				RocketMQProducerMetrics.NONE);
+	}
+
+	public RocketMQMessageBatcher(String topic, DefaultMQProducer producer,
+			RocketMQProducerProperties producerProperties,
+			BiConsumer<Message<?>, SendResult> successHandler,
+			BiConsumer<Message<?>, Throwable> failureHandler,
+			RocketMQSendWindow sendWindow, RocketMQProducerMetrics producerMetrics) {
+		this.topic = topic;
+		this.producer = producer;
+		this.batchProperties = producerProperties.getBatch();
+		this.async = RocketMQProducerProperties.SendType.Async
+				.equalsName(producerProperties.getSendType());
+		this.successHandler = successHandler;
+		this.failureHandler = failureHandler;
+		this.sendWindow = sendWindow;
+		this.producerMetrics = producerMetrics;
+	}
+
+	public void start() {
+		long lingerMillis = Math.max(1, batchProperties.getLingerMillis());
+		this.lingerExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "RocketMQMessageBatcher-" + topic);
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.lingerExecutor.scheduleWithFixedDelay(this::flushExpired, lingerMillis,
+				lingerMillis, TimeUnit.MILLISECONDS);
+	}
+
+	public void stop() {
+		closed = true;
+		if (lingerExecutor != null) {
+			lingerExecutor.shutdown();
+			try {
+				// let a running flush finish before the final one.
+				if (!lingerExecutor.awaitTermination(
+						batchProperties.getLingerMillis() + producer.getSendMsgTimeout(),
+						TimeUnit.MILLISECONDS)) {
+					log.warn("RocketMQ message batch flush of {} did not finish in time.",
+							topic);
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			lingerExecutor = null;
+		}
+		anyQueueAccumulation.flush();
+		accumulations.values().forEach(Accumulation::flush);
+	}
+
+	/**
+	 * Whether the message can be sent as part of a batch. The RocketMQ batch API does
+	 * not support delay messages, and all messages of a batch must share the same
+	 * waitStoreMsgOK flag.
+	 * @param mqMessage rocketmq message
+	 * @return true if the message can be batched
+	 */
+	public boolean canBatch(org.apache.rocketmq.common.message.Message mqMessage) {
+		return mqMessage.getDelayTimeLevel() <= 0 && mqMessage.isWaitStoreMsgOK();
+	}
+
+	/**
+	 * Add a message to the batch of its message queue.
+	 * @param mqMessage rocketmq message
+	 * @param selector message queue selector, may be null
+	 * @param args argument of the selector
+	 * @param source message to report the result for
+	 * @return with the Sync send type, the result of the batch the message was sent
+	 * with, otherwise null
+	 * @throws Exception if the message queue can not be selected
+	 * @throws IllegalStateException if the batcher is stopped
+	 */
+	public CompletableFuture<SendResult> add(
+			org.apache.rocketmq.common.message.Message mqMessage,
+			MessageQueueSelector selector, Object args, Message<?> source)
+			throws Exception {
+		checkNotClosed();
+		Accumulation accumulation = anyQueueAccumulation;
+		if (selector != null) {
+			mqMessage.setTopic(producer.withNamespace(mqMessage.getTopic()));
+			MessageQueue messageQueue = producer.getDefaultMQProducerImpl()
+					.invokeMessageQueueSelector(mqMessage, selector, args,
+							producer.getSendMsgTimeout());
+			accumulation = accumulations.computeIfAbsent(messageQueue,
+					Accumulation::new);
+		}
+		Entry entry = new Entry(mqMessage, source, async ? null : new EntryResult());
+		accumulation.add(entry);
+		return entry.result;
+	}
+
+	/**
+	 * Withdraw a message of the Sync send type whose batch has not been handed over to
+	 * the producer yet, so that it is never sent. The result is completed
+	 * exceptionally.
+	 * @param result result returned by {@link #add}
+	 * @param cause reason of the withdrawal
+	 * @return false if the message is already being sent, its result is then the one
+	 * of the send
+	 */
+	public boolean withdraw(CompletableFuture<SendResult> result, Throwable cause) {
+		if (result instanceof EntryResult entryResult
+				&& entryResult.claim(EntryResult.WITHDRAWN)) {
+			entryResult.completeExceptionally(cause);
+			return true;
+		}
+		return false;
+	}
+
+	private void checkNotClosed() {
+		if (closed) {
+			throw new IllegalStateException(
+					"RocketMQ message batcher of " + topic + " is stopped.");
+		}
+	}
+
+	private void flushExpired() {
+		try {
+			long deadline = System.currentTimeMillis()
+					- batchProperties.getLingerMillis();
+			anyQueueAccumulation.flushIfOlder(deadline);
+			accumulations.values()
+					.forEach(accumulation -> accumulation.flushIfOlder(deadline));
+		}
+		catch (Throwable t) {
+			log.error("RocketMQ message batch flush failed.", t);
+		}
+	}
+
+	private void send(Accumulation accumulation, List<Entry> batch) {
+		if (batch == null || batch.isEmpty()) {
+			return;
+		}
+		List<Entry> entries = new ArrayList<>(batch.size());
+		List<org.apache.rocketmq.common.message.Message> messages = new ArrayList<>(
+				batch.size());
+		for (Entry entry : batch) {
+			// skip the messages withdrawn by a caller which stopped waiting.
+			if (entry.result == null || entry.result.claim(EntryResult.SENDING)) {
+				entries.add(entry);
+				messages.add(entry.mqMessage);
+			}
+		}
+		if (entries.isEmpty()) {
+			return;
+		}
+		MessageQueue messageQueue = accumulation.messageQueue;
+		try {
+			if (async) {
+				sendAsync(entries, messages, messageQueue);
+			}
+			else {
+				checkSendResult(entries, messageQueue != null
+						? producer.send(messages, messageQueue)
+						: producer.send(messages));
+			}
+		}
+		catch (Exception e) {
+			log.error("RocketMQ message batch hasn't been sent. Caused by "
+					+ e.getMessage(), e);
+			fail(entries, e);
+		}
+	}
+
+	/**
+	 * Send a batch asynchronously within the in-flight window, the batch takes one
+	 * slot of the window and its latency is recorded once.
+	 */
+	private void sendAsync(List<Entry> entries,
+			List<org.apache.rocketmq.common.message.Message> messages,
+			MessageQueue messageQueue) throws Exception {
+		sendWindow.acquire();
+		long start = System.nanoTime();
+		AtomicBoolean finished = new AtomicBoolean();
+		SendCallback sendCallback = new SendCallback() {
+			@Override
+			public void onSuccess(SendResult sendResult) {
+				if (finished.compareAndSet(false, true)) {
+					sendWindow.release();
+					producerMetrics.recordSend(System.nanoTime() - start, true);
+				}
+				checkSendResult(entries, sendResult);
+			}
+
+			@Override
+			public void onException(Throwable e) {
+				if (finished.compareAndSet(false, true)) {
+					sendWindow.release();
+					producerMetrics.recordSend(System.nanoTime() - start, false);
+				}
+				fail(entries, e);
+			}
+		};
+		try {
+			if (messageQueue != null) {
+				producer.send(messages, messageQueue, sendCallback);
+			}
+			else {
+				producer.send(messages, sendCallback);
+			}
+		}
+		catch (Exception e) {
+			if (finished.compareAndSet(false, true)) {
+				sendWindow.release();
+				producerMetrics.recordSend(System.nanoTime() - start, false);
+			}
+			throw e;
+		}
+	}
+
+	private void checkSendResult(List<Entry> entries, SendResult sendResult) {
+		if (log.isDebugEnabled()) {
+			log.debug("the message batch has sent,size={},sendResult={}",
+					entries.size(), sendResult);
+		}
+		if (sendResult == null
+				|| !SendStatus.SEND_OK.equals(sendResult.getSendStatus())) {
+			log.error("message batch send fail.SendStatus is not OK.size={}",
+					entries.size());
+			fail(entries,
+					new MessagingException("message send fail.SendStatus is not OK."));
+			return;
+		}
+		for (Entry entry : entries) {
+			if (entry.result != null) {
+				entry.result.complete(sendResult);
+				continue;
+			}
+			try {
+				successHandler.accept(entry.source, sendResult);
+			}
+			catch (Exception ex) {
+				log.error("RocketMQ message batch success handling failed.", ex);
+			}
+		}
+	}
+
+	private void fail(List<Entry> entries, Throwable e) {
+		for (Entry entry : entries) {
+			if (entry.result != null) {
+				entry.result.completeExceptionally(e);
+				continue;
+			}
+			try {
+				failureHandler.accept(entry.source, e);
+			}
+			catch (Exception ex) {
+				log.error("RocketMQ Message hasn't been sent. Caused by "
+						+ e.getMessage(), ex);
+			}
+		}
+	}
+
+	private static int estimateSize(
+			org.apache.rocketmq.common.message.Message mqMessage) {
+		// body plus the fixed fields of the batch encoding, see MessageDecoder.
+		int size = mqMessage.getBody().length + 20;
+		for (Map.Entry<String, String> property : mqMessage.getProperties()
+				.entrySet()) {
+			size += property.getKey().getBytes(StandardCharsets.UTF_8).length
+					+ property.getValue().getBytes(StandardCharsets.UTF_8).length + 2;
+		}
+		return size;
+	}
+
+	private static final class Entry {
+
+		private final org.apache.rocketmq.common.message.Message mqMessage;
+
+		private final Message<?> source;
+
+		private final int size;
+
+		/**
+		 * Result waited for by the caller with the Sync send type, otherwise null.
+		 */
+		private final EntryResult result;
+
+		private Entry(org.apache.rocketmq.common.message.Message mqMessage,
+				Message<?> source, EntryResult result) {
+			this.mqMessage = mqMessage;
+			this.source = source;
+			this.size = estimateSize(mqMessage);
+			this.result = result;
+		}
+
+	}
+
+	/**
+	 * Result of a message of the Sync send type, claimed either by the send of its
+	 * batch or by a withdrawal of the caller.
+	 */
+	private static final class EntryResult extends CompletableFuture<SendResult> {
+
+		private static final int QUEUED = 0;
+
+		private static final int SENDING = 1;
+
+		private static final int WITHDRAWN = 2;
+
+		private final AtomicInteger state = new AtomicInteger(QUEUED);
+
+		private boolean claim(int target) {
+			return state.compareAndSet(QUEUED, target);
+		}
+
+	}
+
+	private final class Accumulation {
+
+		private final MessageQueue messageQueue;
+
+		/**
+		 * Drained batches waiting to be sent, in the order they were filled.
+		 */
+		private final Queue<List<Entry>> pending = new ConcurrentLinkedQueue<>();
+
+		private final AtomicBoolean sending = new AtomicBoolean();
+
+		private List<Entry> entries = new ArrayList<>();
+
+		private long bytes;
+
+		private long firstTimestamp;
+
+		private Accumulation(MessageQueue messageQueue) {
+			this.messageQueue = messageQueue;
+		}
+
+		/**
+		 * Add an entry, sending the batch when it is full.
+		 * @param entry entry
+		 */
+		private void add(Entry entry) {
+			synchronized (this) {
+				checkNotClosed();
+				if (!entries.isEmpty()
+						&& bytes + entry.size > batchProperties.getMaxBytes()) {
+					drain();
+				}
+				if (entries.isEmpty()) {
+					firstTimestamp = System.currentTimeMillis();
+				}
+				entries.add(entry);
+				bytes += entry.size;
+				if (entries.size() >= batchProperties.getMaxCount()
+						|| bytes >= batchProperties.getMaxBytes()) {
+					drain();
+				}
+			}
+			sendPending();
+		}
+
+		private void flushIfOlder(long deadline) {
+			synchronized (this) {
+				if (entries.isEmpty() || firstTimestamp > deadline) {
+					return;
+				}
+				drain();
+			}
+			sendPending();
+		}
+
+		private void flush() {
+			synchronized (this) {
+				drain();
+			}
+			sendPending();
+		}
+
+		/**
+		 * Queue the current batch for sending, must be called with the lock held so
+		 * that batches are queued in the order they were filled.
+		 */
+		private void drain() {
+			if (entries.isEmpty()) {
+				return;
+			}
+			pending.add(entries);
+			entries = new ArrayList<>(Math.min(entries.size(), 16));
+			bytes = 0;
+		}
+
+		/**
+		 * Send the queued batches outside the lock, so that waiting for the send window
+		 * or the broker does not block the threads adding messages. Only one thread
+		 * sends at a time, a batch is never overtaken by the next one of the same
+		 * message queue.
+		 */
+		private void sendPending() {
+			while (!pending.isEmpty() && sending.compareAndSet(false, true)) {
+				try {
+					List<Entry> batch;
+					while ((batch = pending.poll()) != null) {
+						send(this, batch);
+					}
+				}
+				finally {
+					sending.set(false);
+				}
+			}
+		}
+
+	}
+
+}
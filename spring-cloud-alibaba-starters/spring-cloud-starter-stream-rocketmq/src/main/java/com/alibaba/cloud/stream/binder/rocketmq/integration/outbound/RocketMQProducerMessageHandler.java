@@ -17,11 +17,17 @@
 package com.alibaba.cloud.stream.binder.rocketmq.integration.outbound;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.alibaba.cloud.stream.binder.rocketmq.constant.RocketMQConst;
 import com.alibaba.cloud.stream.binder.rocketmq.custom.RocketMQBeanContainerCache;
 import com.alibaba.cloud.stream.binder.rocketmq.metrics.Instrumentation;
 import com.alibaba.cloud.stream.binder.rocketmq.metrics.InstrumentationManager;
+import com.alibaba.cloud.stream.binder.rocketmq.metrics.RocketMQProducerMetrics;
 import com.alibaba.cloud.stream.binder.rocketmq.properties.RocketMQProducerProperties;
 import com.alibaba.cloud.stream.binder.rocketmq.provisioning.selector.PartitionMessageQueueSelector;
 import com.alibaba.cloud.stream.binder.rocketmq.support.RocketMQMessageConverterSupport;
@@ -74,6 +80,12 @@ public class RocketMQProducerMessageHandler extends AbstractMessageHandler
 
 	private MessageQueueSelector messageQueueSelector;
 
+	private volatile RocketMQMessageBatcher messageBatcher;
+
+	private RocketMQSendWindow sendWindow;
+
+	private RocketMQProducerMetrics producerMetrics = RocketMQProducerMetrics.NONE;
+
 	private final ProducerDestination destination;
 
 	private final ExtendedProducerProperties<RocketMQProducerProperties> extendedProducerProperties;
@@ -104,6 +116,13 @@ public class RocketMQProducerMessageHandler extends AbstractMessageHandler
 				extendedProducerProperties.isPartitioned()
 						? new PartitionMessageQueueSelector()
 						: null);
+		this.sendWindow = new RocketMQSendWindow(mqProducerProperties.getMaxInFlight(),
+				mqProducerProperties.getSendMsgTimeout());
+		if (RocketMQProducerProperties.SendType.Async
+				.equalsName(mqProducerProperties.getSendType())) {
+			this.producerMetrics = RocketMQProducerMetrics.create(getBeanFactory(),
+					destination.getName(), sendWindow::getInFlight);
+		}
 	}
 
 	@Override
@@ -130,6 +149,14 @@ public class RocketMQProducerMessageHandler extends AbstractMessageHandler
 							extendedProducerProperties.getPartitionCount());
 				}
 			}
+			if (!isTrans && mqProducerProperties.getBatch().getEnabled()
+					&& !RocketMQProducerProperties.SendType.OneWay
+							.equalsName(mqProducerProperties.getSendType())) {
+				this.messageBatcher = new RocketMQMessageBatcher(destination.getName(),
+						defaultMQProducer, mqProducerProperties, this::doBatchSuccess,
+						this::doBatchFail, sendWindow, producerMetrics);
+				this.messageBatcher.start();
+			}
 			running = true;
 			instrumentation.markStartedSuccessfully();
 		}
@@ -144,6 +171,10 @@ public class RocketMQProducerMessageHandler extends AbstractMessageHandler
 
 	@Override
 	public void stop() {
+		if (null != messageBatcher) {
+			messageBatcher.stop();
+			messageBatcher = null;
+		}
 		if (running && null != defaultMQProducer) {
 			defaultMQProducer.shutdown();
 		}
@@ -161,7 +192,42 @@ public class RocketMQProducerMessageHandler extends AbstractMessageHandler
 			org.apache.rocketmq.common.message.Message mqMessage = RocketMQMessageConverterSupport
 					.convertMessage2MQ(destination.getName(), message);
 			SendResult sendResult;
-			if (defaultMQProducer instanceof TransactionMQProducer translateMQProducer) {
+			RocketMQMessageBatcher batcher = this.messageBatcher;
+			if (batcher != null && batcher.canBatch(mqMessage)) {
+				if (log.isDebugEnabled()) {
+					log.debug("add message to batch ->{}", mqMessage);
+				}
+				CompletableFuture<SendResult> batchResult = batcher.add(
+						mqMessage, this.messageQueueSelector, message.getHeaders(),
+						message);
+				if (batchResult == null) {
+					// async, reported by the batcher.
+					return;
+				}
+				// sync, the result of the batch is the result of the message.
+				try {
+					try {
+						sendResult = batchResult.get(
+								mqProducerProperties.getBatch().getLingerMillis()
+										+ defaultMQProducer.getSendMsgTimeout(),
+								TimeUnit.MILLISECONDS);
+					}
+					catch (TimeoutException e) {
+						MessagingException timeout = new MessagingException(message,
+								"message batch hasn't been sent in time.", e);
+						if (batcher.withdraw(batchResult, timeout)) {
+							throw timeout;
+						}
+						// already handed over to the producer, which bounds the send
+						// with its own timeout, so its result is the real one.
+						sendResult = batchResult.get();
+					}
+				}
+				catch (ExecutionException e) {
+					throw e.getCause() instanceof Exception cause ? cause : e;
+				}
+			}
+			else if (defaultMQProducer instanceof TransactionMQProducer translateMQProducer) {
 				TransactionListener transactionListener = RocketMQBeanContainerCache
 						.getBean(mqProducerProperties.getTransactionListener(),
 								TransactionListener.class);
@@ -176,12 +242,21 @@ public class RocketMQProducerMessageHandler extends AbstractMessageHandler
 				sendResult = defaultMQProducer.sendMessageInTransaction(mqMessage,
 						message.getHeaders().get(RocketMQConst.USER_TRANSACTIONAL_ARGS));
 			}
+			else if (RocketMQProducerProperties.SendType.Async
+					.equalsName(mqProducerProperties.getSendType())) {
+				if (log.isDebugEnabled()) {
+					log.debug("send async message ->{}", mqMessage);
+				}
+				this.sendAsync(mqMessage, this.messageQueueSelector,
+						message.getHeaders(), message);
+				return;
+			}
 			else {
 				if (log.isDebugEnabled()) {
 					log.debug("send message ->{}", mqMessage);
 				}
 				sendResult = this.send(mqMessage, this.messageQueueSelector,
-						message.getHeaders(), message);
+						message.getHeaders());
 			}
 			if (log.isDebugEnabled()) {
 				log.debug("the message has sent,message={},sendResult={}", mqMessage,
@@ -194,6 +269,9 @@ public class RocketMQProducerMessageHandler extends AbstractMessageHandler
 				this.doFail(message, new MessagingException(
 						"message send fail.SendStatus is not OK."));
 			}
+			else {
+				this.doSuccess(message, sendResult);
+			}
 		}
 		catch (Exception e) {
 			log.error("RocketMQ Message hasn't been sent. Caused by " + e.getMessage(),
@@ -203,11 +281,8 @@ public class RocketMQProducerMessageHandler extends AbstractMessageHandler
 	}
 
 	private SendResult send(org.apache.rocketmq.common.message.Message mqMessage,
-			MessageQueueSelector selector, Object args, Message<?> message)
-			throws RemotingException, MQClientException, InterruptedException,
-			MQBrokerException {
-		SendResult sendResult = new SendResult();
-		sendResult.setSendStatus(SendStatus.SEND_OK);
+			MessageQueueSelector selector, Object args) throws RemotingException,
+			MQClientException, InterruptedException, MQBrokerException {
 		if (RocketMQProducerProperties.SendType.OneWay
 				.equalsName(mqProducerProperties.getSendType())) {
 			if (null != selector) {
@@ -216,6 +291,8 @@ public class RocketMQProducerMessageHandler extends AbstractMessageHandler
 			else {
 				defaultMQProducer.sendOneway(mqMessage);
 			}
+			SendResult sendResult = new SendResult();
+			sendResult.setSendStatus(SendStatus.SEND_OK);
 			return sendResult;
 		}
 		if (RocketMQProducerProperties.SendType.Sync
@@ -225,19 +302,58 @@ public class RocketMQProducerMessageHandler extends AbstractMessageHandler
 			}
 			return defaultMQProducer.send(mqMessage);
 		}
-		if (RocketMQProducerProperties.SendType.Async
-				.equalsName(mqProducerProperties.getSendType())) {
+		throw new MessagingException(
+				"message hasn't been sent,cause by : the SendType must be in this values[OneWay, Async, Sync]");
+	}
+
+	/**
+	 * Send asynchronously within the in-flight window. The window slot is released and
+	 * the send latency is recorded when the broker answers or the send fails.
+	 */
+	private void sendAsync(org.apache.rocketmq.common.message.Message mqMessage,
+			MessageQueueSelector selector, Object args, Message<?> message)
+			throws RemotingException, MQClientException, InterruptedException {
+		sendWindow.acquire();
+		long start = System.nanoTime();
+		AtomicBoolean finished = new AtomicBoolean();
+		SendCallback delegate = this.getSendCallback(message);
+		SendCallback sendCallback = new SendCallback() {
+			@Override
+			public void onSuccess(SendResult sendResult) {
+				if (finished.compareAndSet(false, true)) {
+					sendWindow.release();
+					producerMetrics.recordSend(System.nanoTime() - start, true);
+				}
+				completeSendResultFuture(message, sendResult, null);
+				delegate.onSuccess(sendResult);
+			}
+
+			@Override
+			public void onException(Throwable e) {
+				if (finished.compareAndSet(false, true)) {
+					sendWindow.release();
+					producerMetrics.recordSend(System.nanoTime() - start, false);
+				}
+				completeSendResultFuture(message, null, e);
+				delegate.onException(e);
+			}
+		};
+		try {
 			if (null != selector) {
-				defaultMQProducer.send(mqMessage, selector, args,
-						this.getSendCallback(message));
+				defaultMQProducer.send(mqMessage, selector, args, sendCallback);
 			}
 			else {
-				defaultMQProducer.send(mqMessage, this.getSendCallback(message));
+				defaultMQProducer.send(mqMessage, sendCallback);
 			}
-			return sendResult;
 		}
-		throw new MessagingException(
-				"message hasn't been sent,cause by : the SendType must be in this values[OneWay, Async, Sync]");
+		catch (RemotingException | MQClientException | InterruptedException
+				| RuntimeException e) {
+			if (finished.compareAndSet(false, true)) {
+				sendWindow.release();
+				producerMetrics.recordSend(System.nanoTime() - start, false);
+			}
+			throw e;
+		}
 	}
 
 	/**
@@ -263,7 +379,45 @@ public class RocketMQProducerMessageHandler extends AbstractMessageHandler
 		return sendCallback;
 	}
 
+	private void doSuccess(Message<?> message, SendResult sendResult) {
+		completeSendResultFuture(message, sendResult, null);
+	}
+
+	/**
+	 * Report the result of an async batch for one of its messages the same way as
+	 * for an unbatched async send, through the configured send callback.
+	 */
+	private void doBatchSuccess(Message<?> message, SendResult sendResult) {
+		completeSendResultFuture(message, sendResult, null);
+		getSendCallback(message).onSuccess(sendResult);
+	}
+
+	private void doBatchFail(Message<?> message, Throwable e) {
+		completeSendResultFuture(message, null, e);
+		getSendCallback(message).onException(e);
+	}
+
+	/**
+	 * Complete the {@link RocketMQConst.Headers#SEND_RESULT_FUTURE} supplied by the
+	 * caller, if any.
+	 */
+	@SuppressWarnings("unchecked")
+	private static void completeSendResultFuture(Message<?> message,
+			SendResult sendResult, Throwable e) {
+		Object future = message.getHeaders()
+				.get(RocketMQConst.Headers.SEND_RESULT_FUTURE);
+		if (future instanceof CompletableFuture) {
+			if (e != null) {
+				((CompletableFuture<SendResult>) future).completeExceptionally(e);
+			}
+			else {
+				((CompletableFuture<SendResult>) future).complete(sendResult);
+			}
+		}
+	}
+
 	private void doFail(Message<?> message, Throwable e) {
+		completeSendResultFuture(message, null, e);
 		if (getSendFailureChannel() != null) {
 			getSendFailureChannel().send(getErrorMessageStrategy().buildErrorMessage(e,
 					ErrorMessageUtils.getAttributeAccessor(message, message)));
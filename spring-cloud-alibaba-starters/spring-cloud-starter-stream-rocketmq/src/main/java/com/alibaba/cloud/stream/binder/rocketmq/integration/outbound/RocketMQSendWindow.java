@@ -0,0 +1,65 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.stream.binder.rocketmq.integration.outbound;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.messaging.MessagingException;
+
+/**
+ * Bounds the number of asynchronous sends waiting for a broker response. When the
+ * window is full, the sending thread blocks until a response arrives or the timeout
+ * elapses, so a slow broker turns into backpressure instead of unbounded callback
+ * queues. A non-positive {@code maxInFlight} only tracks the in-flight count.
+ */
+public class RocketMQSendWindow {
+
+	private final Semaphore semaphore;
+
+	private final long timeoutMillis;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	public RocketMQSendWindow(int maxInFlight, long timeoutMillis) {
+		this.semaphore = maxInFlight > 0 ? new Semaphore(maxInFlight) : null;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	public void acquire() throws InterruptedException {
+		if (semaphore != null
+				&& !semaphore.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+			throw new MessagingException(
+					"message hasn't been sent, the in-flight window is full for "
+							+ timeoutMillis + "ms");
+		}
+		inFlight.incrementAndGet();
+	}
+
+	public void release() {
+		inFlight.decrementAndGet();
+		if (semaphore != null) {
+			semaphore.release();
+		}
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+}
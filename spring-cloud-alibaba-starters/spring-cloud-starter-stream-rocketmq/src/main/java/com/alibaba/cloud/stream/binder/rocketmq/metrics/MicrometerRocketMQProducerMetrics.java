@@ -0,0 +1,68 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.stream.binder.rocketmq.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.beans.factory.BeanFactory;
+
+/**
+ * Micrometer based {@link RocketMQProducerMetrics}, publishing the in-flight gauge
+ * {@value #IN_FLIGHT} and the send latency timer {@value #SEND} tagged by topic.
+ */
+final class MicrometerRocketMQProducerMetrics implements RocketMQProducerMetrics {
+
+	static final String IN_FLIGHT = "spring.cloud.stream.rocketmq.producer.in.flight";
+
+	static final String SEND = "spring.cloud.stream.rocketmq.producer.send";
+
+	private final Timer successTimer;
+
+	private final Timer failureTimer;
+
+	private MicrometerRocketMQProducerMetrics(MeterRegistry registry, String topic) {
+		this.successTimer = Timer.builder(SEND).tag("topic", topic)
+				.tag("result", "success").register(registry);
+		this.failureTimer = Timer.builder(SEND).tag("topic", topic)
+				.tag("result", "failure").register(registry);
+	}
+
+	static RocketMQProducerMetrics create(BeanFactory beanFactory, String topic,
+			IntSupplier inFlight) {
+		MeterRegistry registry = beanFactory.getBeanProvider(MeterRegistry.class)
+				.getIfUnique();
+		if (registry == null) {
+			return NONE;
+		}
+		// the supplier is usually a method reference only held by the gauge.
+		Gauge.builder(IN_FLIGHT, inFlight, IntSupplier::getAsInt).tag("topic", topic)
+				.strongReference(true).register(registry);
+		return new MicrometerRocketMQProducerMetrics(registry, topic);
+	}
+
+	@Override
+	public void recordSend(long latencyNanos, boolean success) {
+		(success ? successTimer : failureTimer).record(latencyNanos,
+				TimeUnit.NANOSECONDS);
+	}
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.stream.binder.rocketmq.metrics;
+
+import java.util.function.IntSupplier;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Records producer send metrics. Meters are only published when Micrometer and a
+ * {@code MeterRegistry} bean are available, otherwise recording is a no-op.
+ */
+public interface RocketMQProducerMetrics {
+
+	/**
+	 * Metrics that record nothing.
+	 */
+	RocketMQProducerMetrics NONE = (latencyNanos, success) -> {
+	};
+
+	/**
+	 * Record a finished send.
+	 * @param latencyNanos time between the send call and the broker response
+	 * @param success whether the send succeeded
+	 */
+	void recordSend(long latencyNanos, boolean success);
+
+	static RocketMQProducerMetrics create(BeanFactory beanFactory, String topic,
+			IntSupplier inFlight) {
+		if (beanFactory == null || !ClassUtils.isPresent(
+				"io.micrometer.core.instrument.MeterRegistry",
+				RocketMQProducerMetrics.class.getClassLoader())) {
+			return NONE;
+		}
+		return MicrometerRocketMQProducerMetrics.create(beanFactory, topic, inFlight);
+	}
+
+}
@@ -300,10 +300,42 @@ public class RocketMQConsumerProperties extends RocketMQCommonProperties {
 		private long pullInterval = 0;
 
 		/**
-		 * Batch consumption size.
+		 * Batch consumption size. When the binding is in {@code batch-mode}, each
+		 * delivery to the handler carries at most this many records. Ignored outside
+		 * {@code batch-mode}, where records are delivered one by one.
 		 */
 		private int consumeMessageBatchMaxSize = 1;
 
+		/**
+		 * For concurrently listener. Handle each message, or each batch in
+		 * {@code batch-mode}, on its own virtual thread, with at most
+		 * {@code concurrency} of them in progress. Falls back to platform threads on a
+		 * JDK without virtual threads. Orderly listeners are not affected.
+		 */
+		private boolean virtualThreads = false;
+
+		/**
+		 * Minimum number of consumer threads dispatching deliveries to virtual threads
+		 * when {@link #virtualThreads} is enabled. The pull batch size is raised so that
+		 * these threads can keep {@code concurrency} handlers busy, and more threads are
+		 * used when a delivery cannot hold enough records for that.
+		 */
+		private int dispatchThreadNums = 2;
+
+		/**
+		 * For orderly listener. Keep the order only among messages with the same key
+		 * inside a queue, and handle different keys in parallel on {@code concurrency}
+		 * lanes. The batch max size is raised to at least {@code concurrency}, so a
+		 * delivery carries several keys. Not applied in {@code batch-mode}.
+		 */
+		private boolean keyOrdered = false;
+
+		/**
+		 * User property holding the ordering key when {@link #keyOrdered} is enabled,
+		 * the message keys are used if empty.
+		 */
+		private String orderKeyHeader;
+
 		public boolean getOrderly() {
 			return orderly;
 		}
@@ -368,6 +400,38 @@ public class RocketMQConsumerProperties extends RocketMQCommonProperties {
 			this.consumeMessageBatchMaxSize = consumeMessageBatchMaxSize;
 		}
 
+		public boolean getVirtualThreads() {
+			return virtualThreads;
+		}
+
+		public void setVirtualThreads(boolean virtualThreads) {
+			this.virtualThreads = virtualThreads;
+		}
+
+		public int getDispatchThreadNums() {
+			return dispatchThreadNums;
+		}
+
+		public void setDispatchThreadNums(int dispatchThreadNums) {
+			this.dispatchThreadNums = dispatchThreadNums;
+		}
+
+		public boolean getKeyOrdered() {
+			return keyOrdered;
+		}
+
+		public void setKeyOrdered(boolean keyOrdered) {
+			this.keyOrdered = keyOrdered;
+		}
+
+		public String getOrderKeyHeader() {
+			return orderKeyHeader;
+		}
+
+		public void setOrderKeyHeader(String orderKeyHeader) {
+			this.orderKeyHeader = orderKeyHeader;
+		}
+
 	}
 
 	public static class Pull implements Serializable {
@@ -401,6 +465,14 @@ public class RocketMQConsumerProperties extends RocketMQCommonProperties {
 
 		private long pullThresholdForAll = 1000L;
 
+		/**
+		 * Interval in milliseconds for committing the acknowledged offsets of a pollable
+		 * source. When positive, acknowledgements are coalesced and the offset following
+		 * the contiguous acknowledged ones is committed at this interval and before
+		 * every poll. 0, the default, commits on every acknowledgement.
+		 */
+		private long ackCommitIntervalMillis = 0;
+
 		public long getPollTimeoutMillis() {
 			return pollTimeoutMillis;
 		}
@@ -451,6 +523,14 @@ public class RocketMQConsumerProperties extends RocketMQCommonProperties {
 			this.pullThresholdForAll = pullThresholdForAll;
 		}
 
+		public long getAckCommitIntervalMillis() {
+			return ackCommitIntervalMillis;
+		}
+
+		public void setAckCommitIntervalMillis(long ackCommitIntervalMillis) {
+			this.ackCommitIntervalMillis = ackCommitIntervalMillis;
+		}
+
 	}
 
 }
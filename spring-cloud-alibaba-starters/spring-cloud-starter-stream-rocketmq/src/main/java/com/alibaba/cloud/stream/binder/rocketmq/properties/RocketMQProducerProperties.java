@@ -16,6 +16,8 @@
 
 package com.alibaba.cloud.stream.binder.rocketmq.properties;
 
+import java.io.Serializable;
+
 /**
  * Extended producer properties for RocketMQ binder.
  *
@@ -62,6 +64,13 @@ public class RocketMQProducerProperties extends RocketMQCommonProperties {
 	 */
 	private int maxMessageSize = 1024 * 1024 * 4;
 
+	/**
+	 * Maximum number of asynchronous sends waiting for a broker response. When the
+	 * window is full the sending thread blocks for at most {@link #sendMsgTimeout}
+	 * before the message fails. Non-positive means unbounded.
+	 */
+	private int maxInFlight = 0;
+
 	private String producerType = ProducerType.Normal.name();
 
 	private String sendType = SendType.Sync.name();
@@ -80,6 +89,8 @@ public class RocketMQProducerProperties extends RocketMQCommonProperties {
 
 	private String sendMessageHook;
 
+	private Batch batch = new Batch();
+
 	public int getSendMsgTimeout() {
 		return sendMsgTimeout;
 	}
@@ -128,6 +139,14 @@ public class RocketMQProducerProperties extends RocketMQCommonProperties {
 		this.maxMessageSize = maxMessageSize;
 	}
 
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	public void setMaxInFlight(int maxInFlight) {
+		this.maxInFlight = maxInFlight;
+	}
+
 	public String getProducerType() {
 		return producerType;
 	}
@@ -200,6 +219,14 @@ public class RocketMQProducerProperties extends RocketMQCommonProperties {
 		this.sendMessageHook = sendMessageHook;
 	}
 
+	public Batch getBatch() {
+		return batch;
+	}
+
+	public void setBatch(Batch batch) {
+		this.batch = batch;
+	}
+
 	public enum ProducerType {
 
 		/**
@@ -238,4 +265,67 @@ public class RocketMQProducerProperties extends RocketMQCommonProperties {
 
 	}
 
+	public static class Batch implements Serializable {
+
+		private static final long serialVersionUID = 4520981391634702135L;
+
+		/**
+		 * Whether to collect outgoing messages and send them with the RocketMQ batch
+		 * API. Only applies to normal producers with the Sync or Async send type;
+		 * delay messages are always sent one by one. With the Sync send type, the
+		 * sending thread waits for the batch of its message to be sent. With the Async
+		 * send type, {@code sendCallBack} is called once for every message of a batch.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Maximum number of messages in one batch.
+		 */
+		private int maxCount = 128;
+
+		/**
+		 * Maximum estimated size of one batch in bytes, it should stay below
+		 * {@code maxMessageSize}.
+		 */
+		private int maxBytes = 1024 * 1024;
+
+		/**
+		 * Maximum time in milliseconds a message waits for its batch to fill up.
+		 */
+		private long lingerMillis = 5;
+
+		public boolean getEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getMaxCount() {
+			return maxCount;
+		}
+
+		public void setMaxCount(int maxCount) {
+			this.maxCount = maxCount;
+		}
+
+		public int getMaxBytes() {
+			return maxBytes;
+		}
+
+		public void setMaxBytes(int maxBytes) {
+			this.maxBytes = maxBytes;
+		}
+
+		public long getLingerMillis() {
+			return lingerMillis;
+		}
+
+		public void setLingerMillis(long lingerMillis) {
+			this.lingerMillis = lingerMillis;
+		}
+
+	}
+
 }
@@ -17,6 +17,9 @@
 package com.alibaba.cloud.stream.binder.rocketmq.support;
 
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -30,8 +33,10 @@ import org.apache.rocketmq.common.message.MessageExt;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.support.GenericMessage;
 import org.springframework.messaging.support.MessageBuilder;
-import org.springframework.util.CollectionUtils;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
 import org.springframework.util.MimeTypeUtils;
 import org.springframework.util.ObjectUtils;
 
@@ -43,49 +48,101 @@ public final class RocketMQMessageConverterSupport {
 	private RocketMQMessageConverterSupport() {
 	}
 
+	private static final CompositeMessageConverter DEFAULT_MESSAGE_CONVERTER = new RocketMQMessageConverter()
+			.getMessageConverter();
+
 	private static final CompositeMessageConverter MESSAGE_CONVERTER = RocketMQBeanContainerCache
 			.getBean(RocketMQMessageConverter.DEFAULT_NAME,
-					CompositeMessageConverter.class,
-					new RocketMQMessageConverter().getMessageConverter());
+					CompositeMessageConverter.class, DEFAULT_MESSAGE_CONVERTER);
+
+	/**
+	 * Whether no custom converter is registered, which allows the conversion fast path.
+	 */
+	private static final boolean DEFAULT_CONVERTER = MESSAGE_CONVERTER == DEFAULT_MESSAGE_CONVERTER;
+
+	/**
+	 * The content type the default {@code StringMessageConverter} sets.
+	 */
+	private static final MimeType DEFAULT_TEXT_CONTENT_TYPE = new MimeType("text",
+			"plain", StandardCharsets.UTF_8);
+
+	private static final String ROCKET_TAGS = "ROCKET_" + Headers.TAGS;
+
+	private static final String ROCKET_KEYS = "ROCKET_" + Headers.KEYS;
+
+	private static final String ROCKET_FLAG = "ROCKET_" + Headers.FLAG;
+
+	private static final String ROCKET_DELAY_TIME_LEVEL = "ROCKET_"
+			+ RocketMQConst.PROPERTY_DELAY_TIME_LEVEL;
 
+	/**
+	 * Convert a RocketMQ message into a Spring message whose headers are a lazy view
+	 * over the RocketMQ message, see {@link RocketMQMessageHeaders}.
+	 * @param message rocketmq message
+	 * @return spring message
+	 */
 	public static Message convertMessage2Spring(MessageExt message) {
-		MessageBuilder messageBuilder = MessageBuilder.withPayload(message.getBody())
-				.setHeader(toRocketHeaderKey(Headers.KEYS), message.getKeys())
-				.setHeader(toRocketHeaderKey(Headers.TAGS), message.getTags())
-				.setHeader(toRocketHeaderKey(Headers.TOPIC), message.getTopic())
-				.setHeader(toRocketHeaderKey(Headers.MESSAGE_ID), message.getMsgId())
-				.setHeader(toRocketHeaderKey(Headers.BORN_TIMESTAMP),
-						message.getBornTimestamp())
-				.setHeader(toRocketHeaderKey(Headers.BORN_HOST),
-						message.getBornHostString())
-				.setHeader(toRocketHeaderKey(Headers.FLAG), message.getFlag())
-				.setHeader(toRocketHeaderKey(Headers.QUEUE_ID), message.getQueueId())
-				.setHeader(toRocketHeaderKey(Headers.SYS_FLAG), message.getSysFlag())
-				.setHeader(toRocketHeaderKey(Headers.TRANSACTION_ID),
-						message.getTransactionId());
-		addUserProperties(message.getProperties(), messageBuilder);
-		return messageBuilder.build();
+		return new GenericMessage<>(message.getBody(),
+				new RocketMQMessageHeaders(message));
 	}
 
-	public static String toRocketHeaderKey(String rawKey) {
-		return "ROCKET_" + rawKey;
+	/**
+	 * Convert a RocketMQ message into a Spring message with extra headers, which win
+	 * over the headers of the RocketMQ message.
+	 * @param message rocketmq message
+	 * @param additionalHeaders extra headers
+	 * @return spring message
+	 */
+	public static Message<byte[]> convertMessage2Spring(MessageExt message,
+			Map<String, Object> additionalHeaders) {
+		return new GenericMessage<>(message.getBody(),
+				new RocketMQMessageHeaders(message, additionalHeaders));
 	}
 
-	private static void addUserProperties(Map<String, String> properties,
-			MessageBuilder messageBuilder) {
-		if (!CollectionUtils.isEmpty(properties)) {
-			properties.forEach((key, val) -> {
-				if (!MessageConst.STRING_HASH_SET.contains(key)
-						&& !MessageHeaders.ID.equals(key)
-						&& !MessageHeaders.TIMESTAMP.equals(key)) {
-					messageBuilder.setHeader(key, val);
-				}
-			});
+	/**
+	 * Convert a batch of RocketMQ messages into one Spring message. The payload is the
+	 * list of message bodies, and the per-record headers are carried in the same order
+	 * by the {@link Headers#BATCH_HEADERS} header.
+	 * @param messages rocketmq messages
+	 * @return batch message
+	 */
+	public static Message<List<byte[]>> convertMessages2Spring(
+			List<MessageExt> messages) {
+		List<byte[]> payloads = new ArrayList<>(messages.size());
+		List<Map<String, Object>> batchHeaders = new ArrayList<>(messages.size());
+		for (MessageExt message : messages) {
+			payloads.add(message.getBody());
+			batchHeaders.add(new RocketMQMessageHeaders(message));
 		}
+		return MessageBuilder.withPayload(payloads)
+				.setHeader(toRocketHeaderKey(Headers.TOPIC),
+						messages.get(0).getTopic())
+				.setHeader(toRocketHeaderKey(Headers.BATCH_HEADERS), batchHeaders)
+				.build();
+	}
+
+	public static String toRocketHeaderKey(String rawKey) {
+		return "ROCKET_" + rawKey;
 	}
 
 	public static org.apache.rocketmq.common.message.Message convertMessage2MQ(
 			String destination, Message<?> source) {
+		if (DEFAULT_CONVERTER) {
+			// Fast path, same result as the default converter without copying the
+			// message: byte[] is kept as is, text/plain strings are encoded.
+			Object payload = source.getPayload();
+			if (payload instanceof byte[] bytes) {
+				return getAndWrapMessage(destination, source.getHeaders(), bytes,
+						MimeTypeUtils.APPLICATION_OCTET_STREAM);
+			}
+			if (payload instanceof String text) {
+				Charset charset = getTextPlainCharset(source.getHeaders());
+				if (charset != null) {
+					return getAndWrapMessage(destination, source.getHeaders(),
+							text.getBytes(charset), DEFAULT_TEXT_CONTENT_TYPE);
+				}
+			}
+		}
 		Message<?> message = MESSAGE_CONVERTER.toMessage(source.getPayload(),
 				source.getHeaders());
 		assert message != null;
@@ -95,6 +152,33 @@ public final class RocketMQMessageConverterSupport {
 		return doConvert(destination, message);
 	}
 
+	/**
+	 * Resolve the charset the default {@code StringMessageConverter} would use.
+	 * @param headers message headers
+	 * @return the charset, or null if the content type is not text/plain
+	 */
+	private static Charset getTextPlainCharset(MessageHeaders headers) {
+		Object contentType = headers.get(MessageHeaders.CONTENT_TYPE);
+		if (contentType == null) {
+			return StandardCharsets.UTF_8;
+		}
+		MimeType mimeType;
+		try {
+			mimeType = contentType instanceof MimeType type ? type
+					: MimeTypeUtils.parseMimeType(contentType.toString());
+		}
+		catch (InvalidMimeTypeException e) {
+			return null;
+		}
+		if (!DEFAULT_TEXT_CONTENT_TYPE.getType().equals(mimeType.getType())
+				|| !DEFAULT_TEXT_CONTENT_TYPE.getSubtype()
+						.equals(mimeType.getSubtype())) {
+			return null;
+		}
+		return mimeType.getCharset() != null ? mimeType.getCharset()
+				: StandardCharsets.UTF_8;
+	}
+
 	private static org.apache.rocketmq.common.message.Message doConvert(String topic,
 			Message<?> message) {
 		Charset charset = Charset.defaultCharset();
@@ -122,11 +206,21 @@ public final class RocketMQMessageConverterSupport {
 		catch (Exception e) {
 			throw new RuntimeException("convert to RocketMQ message failed.", e);
 		}
-		return getAndWrapMessage(topic, message.getHeaders(), payloads);
+		return getAndWrapMessage(topic, message.getHeaders(), payloads, null);
 	}
 
+	/**
+	 * Build the RocketMQ message, resolving the well-known headers and copying the user
+	 * properties in a single pass over the headers.
+	 * @param topic topic
+	 * @param headers message headers
+	 * @param payloads message body
+	 * @param defaultContentType content type property to add if the headers have none
+	 * @return rocketmq message
+	 */
 	private static org.apache.rocketmq.common.message.Message getAndWrapMessage(
-			String topic, MessageHeaders headers, byte[] payloads) {
+			String topic, MessageHeaders headers, byte[] payloads,
+			MimeType defaultContentType) {
 		if (topic == null || topic.length() < 1) {
 			return null;
 		}
@@ -136,55 +230,99 @@ public final class RocketMQMessageConverterSupport {
 		org.apache.rocketmq.common.message.Message rocketMsg = new org.apache.rocketmq.common.message.Message(
 				topic, payloads);
 		if (Objects.nonNull(headers) && !headers.isEmpty()) {
-			Object tag = headers.getOrDefault(Headers.TAGS,
-					headers.get(toRocketHeaderKey(Headers.TAGS)));
+			Object tag = null;
+			Object rocketTag = null;
+			Object keys = null;
+			Object rocketKeys = null;
+			Object flagObj = null;
+			Object rocketFlagObj = null;
+			Object delayLevelObj = null;
+			Object rocketDelayLevelObj = null;
+			Object waitStoreMsgOkObj = "true";
+			for (Map.Entry<String, Object> entry : headers.entrySet()) {
+				String key = entry.getKey();
+				Object value = entry.getValue();
+				switch (key) {
+				case Headers.TAGS -> {
+					tag = value;
+				}
+				case ROCKET_TAGS -> {
+					rocketTag = value;
+				}
+				case Headers.KEYS -> {
+					keys = value;
+				}
+				case ROCKET_KEYS -> {
+					rocketKeys = value;
+				}
+				case Headers.FLAG -> {
+					flagObj = value;
+					continue;
+				}
+				case ROCKET_FLAG -> {
+					rocketFlagObj = value;
+				}
+				case RocketMQConst.PROPERTY_DELAY_TIME_LEVEL -> {
+					delayLevelObj = value;
+				}
+				case ROCKET_DELAY_TIME_LEVEL -> {
+					rocketDelayLevelObj = value;
+				}
+				case RocketMQConst.PROPERTY_WAIT_STORE_MSG_OK -> {
+					waitStoreMsgOkObj = value;
+				}
+				case Headers.SEND_RESULT_FUTURE -> {
+					continue;
+				}
+				default -> {
+				}
+				}
+				if (!MessageConst.STRING_HASH_SET.contains(key)) {
+					String val = value instanceof String str ? str : String.valueOf(value);
+					// Remove All blank header(rocketmq not support).
+					if (org.apache.commons.lang3.StringUtils.isNotBlank(val)) {
+						rocketMsg.putUserProperty(key, val);
+					}
+				}
+			}
+			if (defaultContentType != null
+					&& !headers.containsKey(MessageHeaders.CONTENT_TYPE)) {
+				rocketMsg.putUserProperty(MessageHeaders.CONTENT_TYPE,
+						defaultContentType.toString());
+			}
+			tag = tag != null ? tag : rocketTag;
 			if (!ObjectUtils.isEmpty(tag)) {
 				rocketMsg.setTags(String.valueOf(tag));
 			}
-
-			Object keys = headers.getOrDefault(Headers.KEYS,
-					headers.get(toRocketHeaderKey(Headers.KEYS)));
+			keys = keys != null ? keys : rocketKeys;
 			if (!ObjectUtils.isEmpty(keys)) {
 				rocketMsg.setKeys(keys.toString());
 			}
-			Object flagObj = headers.getOrDefault(Headers.FLAG,
-					headers.get(toRocketHeaderKey(Headers.FLAG)));
-			int flag = 0;
-			int delayLevel = 0;
-			try {
-				flagObj = flagObj == null ? 0 : flagObj;
-				Object delayLevelObj = headers.getOrDefault(
-						RocketMQConst.PROPERTY_DELAY_TIME_LEVEL,
-						headers.get(toRocketHeaderKey(
-								RocketMQConst.PROPERTY_DELAY_TIME_LEVEL)));
-				delayLevelObj = delayLevelObj == null ? 0 : delayLevelObj;
-				delayLevel = Integer.parseInt(String.valueOf(delayLevelObj));
-				flag = Integer.parseInt(String.valueOf(flagObj));
-			}
-			catch (Exception ignored) {
-			}
+			int delayLevel = parseInt(
+					delayLevelObj != null ? delayLevelObj : rocketDelayLevelObj);
 			if (delayLevel > 0) {
 				rocketMsg.setDelayTimeLevel(delayLevel);
 			}
-			rocketMsg.setFlag(flag);
-			Object waitStoreMsgOkObj = headers
-					.getOrDefault(RocketMQConst.PROPERTY_WAIT_STORE_MSG_OK, "true");
-			rocketMsg.setWaitStoreMsgOK(
-					Boolean.parseBoolean(String.valueOf(waitStoreMsgOkObj)));
-			headers.entrySet().stream()
-					.filter(entry -> !Objects.equals(entry.getKey(), Headers.FLAG))
-					.forEach(entry -> {
-						if (!MessageConst.STRING_HASH_SET.contains(entry.getKey())) {
-							String val = String.valueOf(entry.getValue());
-							// Remove All blank header(rocketmq not support).
-							if (org.apache.commons.lang3.StringUtils.isNotBlank(val)) {
-								rocketMsg.putUserProperty(entry.getKey(), val);
-							}
-						}
-					});
-
+			rocketMsg.setFlag(parseInt(flagObj != null ? flagObj : rocketFlagObj));
+			rocketMsg.setWaitStoreMsgOK(waitStoreMsgOkObj instanceof Boolean bool ? bool
+					: Boolean.parseBoolean(String.valueOf(waitStoreMsgOkObj)));
 		}
 		return rocketMsg;
 	}
 
+	private static int parseInt(Object value) {
+		if (value == null) {
+			return 0;
+		}
+		if (value instanceof Integer integer) {
+			return integer;
+		}
+		try {
+			return Integer.parseInt(String.valueOf(value));
+		}
+		catch (NumberFormatException ignored) {
+			return 0;
+		}
+	}
+
 }
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.stream.binder.rocketmq.support;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import com.alibaba.cloud.stream.binder.rocketmq.constant.RocketMQConst.Headers;
+import org.apache.rocketmq.common.message.MessageConst;
+import org.apache.rocketmq.common.message.MessageExt;
+
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.util.CollectionUtils;
+
+/**
+ * {@link MessageHeaders} of an inbound RocketMQ message, as a read-only view over the
+ * {@link MessageExt}. A header is resolved from the message when it is read, the full
+ * header map is only built when the headers are iterated or copied.
+ * <p>
+ * The view holds the same headers the eager conversion produced: the system fields
+ * under their {@code ROCKET_} keys, then the user properties, which win over a system
+ * field with the same key.
+ */
+public class RocketMQMessageHeaders extends MessageHeaders {
+
+	private static final long serialVersionUID = -2474521734396312539L;
+
+	private static final String PREFIX = "ROCKET_";
+
+	private final transient MessageExt messageExt;
+
+	private final transient Map<String, Object> additionalHeaders;
+
+	private final long timestamp;
+
+	private transient volatile UUID id;
+
+	private transient volatile Map<String, Object> materialized;
+
+	public RocketMQMessageHeaders(MessageExt messageExt) {
+		this(messageExt, Collections.emptyMap());
+	}
+
+	/**
+	 * Create the view with extra headers, which win over the headers of the message.
+	 * @param messageExt rocketmq message
+	 * @param additionalHeaders extra headers, e.g. an acknowledgment callback
+	 */
+	public RocketMQMessageHeaders(MessageExt messageExt,
+			Map<String, Object> additionalHeaders) {
+		super(null, ID_VALUE_NONE, -1L);
+		this.messageExt = messageExt;
+		this.additionalHeaders = additionalHeaders;
+		this.timestamp = System.currentTimeMillis();
+	}
+
+	public MessageExt getMessageExt() {
+		return messageExt;
+	}
+
+	@Override
+	public UUID getId() {
+		UUID uuid = this.id;
+		if (uuid == null) {
+			synchronized (this) {
+				uuid = this.id;
+				if (uuid == null) {
+					uuid = getIdGenerator().generateId();
+					this.id = uuid;
+				}
+			}
+		}
+		return uuid;
+	}
+
+	@Override
+	public Long getTimestamp() {
+		return timestamp;
+	}
+
+	@Override
+	public Object getReplyChannel() {
+		return get(REPLY_CHANNEL);
+	}
+
+	@Override
+	public Object getErrorChannel() {
+		return get(ERROR_CHANNEL);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T get(Object key, Class<T> type) {
+		Object value = get(key);
+		if (value == null) {
+			return null;
+		}
+		if (!type.isAssignableFrom(value.getClass())) {
+			throw new IllegalArgumentException("Incorrect type specified for header '"
+					+ key + "'. Expected [" + type + "] but actual type is ["
+					+ value.getClass() + "]");
+		}
+		return (T) value;
+	}
+
+	@Override
+	public Object get(Object key) {
+		if (!(key instanceof String name)) {
+			return null;
+		}
+		Object value = additionalHeaders.get(name);
+		if (value != null) {
+			return value;
+		}
+		if (ID.equals(name)) {
+			return getId();
+		}
+		if (TIMESTAMP.equals(name)) {
+			return timestamp;
+		}
+		if (isUserProperty(name)) {
+			value = messageExt.getProperty(name);
+			if (value != null) {
+				return value;
+			}
+		}
+		return name.startsWith(PREFIX) ? getSystemField(name.substring(PREFIX.length()))
+				: null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		return materialize().containsValue(value);
+	}
+
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		return Collections.unmodifiableMap(materialize()).entrySet();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return false;
+	}
+
+	@Override
+	public Set<String> keySet() {
+		return Collections.unmodifiableSet(materialize().keySet());
+	}
+
+	@Override
+	public int size() {
+		return materialize().size();
+	}
+
+	@Override
+	public Collection<Object> values() {
+		return Collections.unmodifiableCollection(materialize().values());
+	}
+
+	@Override
+	protected Map<String, Object> getRawHeaders() {
+		return materialize();
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return (this == other || (other instanceof MessageHeaders that
+				&& materialize().equals(that)));
+	}
+
+	@Override
+	public int hashCode() {
+		return materialize().hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return materialize().toString();
+	}
+
+	private Object writeReplace() {
+		return new MaterializedHeaders(materialize(), getId(), timestamp);
+	}
+
+	private Map<String, Object> materialize() {
+		Map<String, Object> headers = this.materialized;
+		if (headers == null) {
+			headers = buildHeaders();
+			this.materialized = headers;
+		}
+		return headers;
+	}
+
+	private Map<String, Object> buildHeaders() {
+		Map<String, Object> headers = new HashMap<>();
+		putIfNotNull(headers, Headers.KEYS, messageExt.getKeys());
+		putIfNotNull(headers, Headers.TAGS, messageExt.getTags());
+		putIfNotNull(headers, Headers.TOPIC, messageExt.getTopic());
+		putIfNotNull(headers, Headers.MESSAGE_ID, messageExt.getMsgId());
+		putIfNotNull(headers, Headers.BORN_TIMESTAMP,
+				messageExt.getBornTimestamp());
+		putIfNotNull(headers, Headers.BORN_HOST, messageExt.getBornHostString());
+		putIfNotNull(headers, Headers.FLAG, messageExt.getFlag());
+		putIfNotNull(headers, Headers.QUEUE_ID, messageExt.getQueueId());
+		putIfNotNull(headers, Headers.SYS_FLAG, messageExt.getSysFlag());
+		putIfNotNull(headers, Headers.TRANSACTION_ID,
+				messageExt.getTransactionId());
+		Map<String, String> properties = messageExt.getProperties();
+		if (!CollectionUtils.isEmpty(properties)) {
+			properties.forEach((key, val) -> {
+				if (isUserProperty(key) && val != null) {
+					headers.put(key, val);
+				}
+			});
+		}
+		headers.putAll(additionalHeaders);
+		headers.put(ID, getId());
+		headers.put(TIMESTAMP, timestamp);
+		return headers;
+	}
+
+	private Object getSystemField(String rawKey) {
+		return switch (rawKey) {
+		case Headers.KEYS -> messageExt.getKeys();
+		case Headers.TAGS -> messageExt.getTags();
+		case Headers.TOPIC -> messageExt.getTopic();
+		case Headers.MESSAGE_ID -> messageExt.getMsgId();
+		case Headers.BORN_TIMESTAMP -> messageExt.getBornTimestamp();
+		case Headers.BORN_HOST -> messageExt.getBornHostString();
+		case Headers.FLAG -> messageExt.getFlag();
+		case Headers.QUEUE_ID -> messageExt.getQueueId();
+		case Headers.SYS_FLAG -> messageExt.getSysFlag();
+		case Headers.TRANSACTION_ID -> messageExt.getTransactionId();
+		default -> null;
+		};
+	}
+
+	private static void putIfNotNull(Map<String, Object> headers, String rawKey,
+			Object value) {
+		if (value != null) {
+			headers.put(PREFIX + rawKey, value);
+		}
+	}
+
+	private static boolean isUserProperty(String key) {
+		return !MessageConst.STRING_HASH_SET.contains(key) && !ID.equals(key)
+				&& !TIMESTAMP.equals(key);
+	}
+
+	/**
+	 * Plain copy of the headers used for serialization.
+	 */
+	private static final class MaterializedHeaders extends MessageHeaders {
+
+		private static final long serialVersionUID = 8164312905378921470L;
+
+		private MaterializedHeaders(Map<String, Object> headers, UUID id,
+				Long timestamp) {
+			super(headers, id, timestamp);
+		}
+
+	}
+
+}
@@ -16,11 +16,21 @@
 
 package com.alibaba.cloud.stream.binder.rocketmq;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.alibaba.cloud.stream.binder.rocketmq.constant.RocketMQConst.Headers;
 import com.alibaba.cloud.stream.binder.rocketmq.support.RocketMQMessageConverterSupport;
+import com.alibaba.cloud.stream.binder.rocketmq.support.RocketMQMessageHeaders;
 import org.apache.rocketmq.common.message.MessageConst;
+import org.apache.rocketmq.common.message.MessageExt;
 import org.junit.jupiter.api.Test;
 
 import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.support.MessageBuilder;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -44,4 +54,123 @@ public class RocketMQMessageConverterSupportTest {
 		assertThat(testProp).isNull();
 		assertThat(tagProp).isEqualTo("a");
 	}
+
+	@Test
+	public void convertMessage2MQWellKnownHeadersTest() {
+		Message<byte[]> message = MessageBuilder.withPayload("msg".getBytes())
+				.setHeader(RocketMQMessageConverterSupport.toRocketHeaderKey(
+						MessageConst.PROPERTY_TAGS), "b")
+				.setHeader(MessageConst.PROPERTY_KEYS, "key")
+				.setHeader(Headers.FLAG, "3")
+				.setHeader(MessageConst.PROPERTY_DELAY_TIME_LEVEL, 2)
+				.setHeader(MessageConst.PROPERTY_WAIT_STORE_MSG_OK, false)
+				.setHeader("user", "value").build();
+		org.apache.rocketmq.common.message.Message rkmqMsg = RocketMQMessageConverterSupport
+				.convertMessage2MQ("test", message);
+		assertThat(rkmqMsg.getBody()).isEqualTo("msg".getBytes());
+		assertThat(rkmqMsg.getTags()).isEqualTo("b");
+		assertThat(rkmqMsg.getKeys()).isEqualTo("key");
+		assertThat(rkmqMsg.getFlag()).isEqualTo(3);
+		assertThat(rkmqMsg.getDelayTimeLevel()).isEqualTo(2);
+		assertThat(rkmqMsg.isWaitStoreMsgOK()).isFalse();
+		assertThat(rkmqMsg.getProperty("user")).isEqualTo("value");
+		assertThat(rkmqMsg.getProperty(Headers.FLAG)).isNull();
+		assertThat(rkmqMsg.getProperty(MessageHeaders.CONTENT_TYPE))
+				.isEqualTo("application/octet-stream");
+	}
+
+	@Test
+	public void convertMessage2MQTextPayloadTest() {
+		Message<String> message = MessageBuilder.withPayload("\u6d88\u606f")
+				.setHeader(MessageHeaders.CONTENT_TYPE, "text/plain;charset=UTF-16")
+				.build();
+		org.apache.rocketmq.common.message.Message rkmqMsg = RocketMQMessageConverterSupport
+				.convertMessage2MQ("test", message);
+		assertThat(rkmqMsg.getBody())
+				.isEqualTo("\u6d88\u606f".getBytes(StandardCharsets.UTF_16));
+		assertThat(rkmqMsg.getProperty(MessageHeaders.CONTENT_TYPE))
+				.isEqualTo("text/plain;charset=UTF-16");
+
+		rkmqMsg = RocketMQMessageConverterSupport.convertMessage2MQ("test",
+				MessageBuilder.withPayload("msg").build());
+		assertThat(rkmqMsg.getBody()).isEqualTo("msg".getBytes(StandardCharsets.UTF_8));
+		assertThat(rkmqMsg.getProperty(MessageHeaders.CONTENT_TYPE))
+				.isEqualTo("text/plain;charset=UTF-8");
+	}
+
+	@Test
+	public void convertMessage2SpringLazyHeadersTest() {
+		MessageExt messageExt = new MessageExt();
+		messageExt.setTopic("test");
+		messageExt.setBody("a".getBytes());
+		messageExt.setTags("tag1");
+		messageExt.setQueueId(1);
+		messageExt.putUserProperty("key", "value");
+		messageExt.putUserProperty(
+				RocketMQMessageConverterSupport.toRocketHeaderKey(Headers.TOPIC),
+				"origin");
+
+		Message<?> message = RocketMQMessageConverterSupport
+				.convertMessage2Spring(messageExt);
+		MessageHeaders headers = message.getHeaders();
+		assertThat(headers).isInstanceOf(RocketMQMessageHeaders.class);
+		assertThat(headers.get("key")).isEqualTo("value");
+		assertThat(headers.get(
+				RocketMQMessageConverterSupport.toRocketHeaderKey(Headers.TAGS)))
+				.isEqualTo("tag1");
+		assertThat(headers.get(
+				RocketMQMessageConverterSupport.toRocketHeaderKey(Headers.QUEUE_ID),
+				Integer.class)).isEqualTo(1);
+		// user properties win over the system fields
+		assertThat(headers.get(
+				RocketMQMessageConverterSupport.toRocketHeaderKey(Headers.TOPIC)))
+				.isEqualTo("origin");
+		assertThat(headers.get(MessageConst.PROPERTY_TAGS)).isNull();
+		assertThat(headers.getId()).isNotNull().isEqualTo(headers.getId());
+
+		Message<?> copy = MessageBuilder.fromMessage(message).build();
+		assertThat(copy.getHeaders()).containsEntry("key", "value")
+				.containsEntry(RocketMQMessageConverterSupport
+						.toRocketHeaderKey(Headers.TAGS), "tag1")
+				.doesNotContainKey(MessageConst.PROPERTY_TAGS);
+		assertThat(new HashMap<>(headers)).containsEntry(MessageHeaders.ID,
+				headers.getId());
+	}
+
+	@Test
+	public void convertMessages2SpringBatchTest() {
+		MessageExt first = new MessageExt();
+		first.setTopic("test");
+		first.setBody("a".getBytes());
+		first.setTags("tag1");
+		first.setQueueId(1);
+		first.putUserProperty("key", "value1");
+		MessageExt second = new MessageExt();
+		second.setTopic("test");
+		second.setBody("b".getBytes());
+		second.setQueueId(2);
+		second.putUserProperty("key", "value2");
+
+		Message<List<byte[]>> message = RocketMQMessageConverterSupport
+				.convertMessages2Spring(Arrays.asList(first, second));
+		assertThat(message.getPayload()).containsExactly("a".getBytes(),
+				"b".getBytes());
+		assertThat(message.getHeaders().get(
+				RocketMQMessageConverterSupport.toRocketHeaderKey(Headers.TOPIC)))
+				.isEqualTo("test");
+		List<Map<String, Object>> batchHeaders = (List<Map<String, Object>>) message
+				.getHeaders().get(RocketMQMessageConverterSupport
+						.toRocketHeaderKey(Headers.BATCH_HEADERS));
+		assertThat(batchHeaders).hasSize(2);
+		assertThat(batchHeaders.get(0))
+				.containsEntry(RocketMQMessageConverterSupport
+						.toRocketHeaderKey(Headers.TAGS), "tag1")
+				.containsEntry(RocketMQMessageConverterSupport
+						.toRocketHeaderKey(Headers.QUEUE_ID), 1)
+				.containsEntry("key", "value1");
+		assertThat(batchHeaders.get(1))
+				.containsEntry(RocketMQMessageConverterSupport
+						.toRocketHeaderKey(Headers.QUEUE_ID), 2)
+				.containsEntry("key", "value2");
+	}
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.stream.binder.rocketmq.integration.inbound;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RocketMQConsumeExecutorTest {
+
+	@Test
+	public void boundConcurrencyBySemaphore() throws Exception {
+		RocketMQConsumeExecutor executor = new RocketMQConsumeExecutor("test", 3);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		List<Runnable> units = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			units.add(() -> {
+				maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				try {
+					Thread.sleep(5);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				running.decrementAndGet();
+			});
+		}
+		assertThat(executor.invokeAll(units)).isEqualTo(20);
+		assertThat(maxRunning.get()).isBetween(1, 3);
+		executor.shutdown();
+	}
+
+	@Test
+	public void reportCompletedPrefix() throws Exception {
+		RocketMQConsumeExecutor executor = new RocketMQConsumeExecutor("test", 4);
+		List<Runnable> units = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			int index = i;
+			units.add(() -> {
+				if (index == 2 || index == 4) {
+					throw new IllegalStateException("failed " + index);
+				}
+			});
+		}
+		assertThat(executor.invokeAll(units)).isEqualTo(2);
+		executor.shutdown();
+	}
+
+	@Test
+	public void waitForStartedUnitsWhenInterrupted() throws Exception {
+		RocketMQConsumeExecutor executor = new RocketMQConsumeExecutor("test", 1);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger finished = new AtomicInteger();
+		List<Runnable> units = new ArrayList<>();
+		units.add(() -> {
+			started.countDown();
+			try {
+				release.await();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			finished.incrementAndGet();
+		});
+		units.add(finished::incrementAndGet);
+		AtomicInteger completed = new AtomicInteger(-1);
+		AtomicBoolean interrupted = new AtomicBoolean();
+		Thread caller = new Thread(() -> {
+			completed.set(executor.invokeAll(units));
+			interrupted.set(Thread.currentThread().isInterrupted());
+		});
+		caller.start();
+		started.await();
+		// the caller waits for the permit of the second unit.
+		caller.interrupt();
+		Thread.sleep(50);
+		assertThat(caller.isAlive()).isTrue();
+
+		release.countDown();
+		caller.join(1000);
+		assertThat(completed.get()).isEqualTo(1);
+		assertThat(finished.get()).isEqualTo(1);
+		assertThat(interrupted.get()).isTrue();
+		executor.shutdown();
+	}
+
+}
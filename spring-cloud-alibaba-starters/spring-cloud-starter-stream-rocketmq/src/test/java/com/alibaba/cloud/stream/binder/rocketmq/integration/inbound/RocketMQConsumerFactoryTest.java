@@ -0,0 +1,118 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.stream.binder.rocketmq.integration.inbound;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.cloud.stream.binder.rocketmq.properties.RocketMQConsumerProperties;
+import org.apache.rocketmq.client.consumer.DefaultMQPushConsumer;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.stream.binder.ExtendedConsumerProperties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RocketMQConsumerFactoryTest {
+
+	@Test
+	public void runConcurrencyHandlersOnVirtualThreads() throws Exception {
+		ExtendedConsumerProperties<RocketMQConsumerProperties> properties = virtualThreadProperties(
+				64);
+		DefaultMQPushConsumer consumer = RocketMQConsumerFactory
+				.initPushConsumer(properties);
+		assertThat(consumer.getConsumeThreadMax()).isEqualTo(2);
+		assertThat(consumer.getConsumeMessageBatchMaxSize()).isEqualTo(32);
+		assertThat(consumer.getPullBatchSize()).isEqualTo(32);
+
+		// every dispatching thread receives one delivery, no larger than one pull,
+		// and waits for all of its units like the concurrently listener does.
+		int deliverySize = Math.min(consumer.getPullBatchSize(),
+				consumer.getConsumeMessageBatchMaxSize());
+		RocketMQConsumeExecutor executor = new RocketMQConsumeExecutor("test",
+				properties.getConcurrency());
+		CountDownLatch running = new CountDownLatch(properties.getConcurrency());
+		CountDownLatch release = new CountDownLatch(1);
+		List<Thread> dispatchers = new ArrayList<>();
+		for (int i = 0; i < consumer.getConsumeThreadMax(); i++) {
+			List<Runnable> units = new ArrayList<>();
+			for (int j = 0; j < deliverySize; j++) {
+				units.add(() -> {
+					running.countDown();
+					try {
+						release.await();
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				});
+			}
+			Thread dispatcher = new Thread(() -> executor.invokeAll(units));
+			dispatcher.start();
+			dispatchers.add(dispatcher);
+		}
+		assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+		release.countDown();
+		for (Thread dispatcher : dispatchers) {
+			dispatcher.join(1000);
+		}
+		executor.shutdown();
+	}
+
+	@Test
+	public void clampBatchSizeAndAddDispatchThreads() {
+		ExtendedConsumerProperties<RocketMQConsumerProperties> properties = virtualThreadProperties(
+				256);
+		properties.setBatchMode(true);
+		properties.getExtension().getPush().setConsumeMessageBatchMaxSize(32);
+		DefaultMQPushConsumer consumer = RocketMQConsumerFactory
+				.initPushConsumer(properties);
+		assertThat(consumer.getConsumeMessageBatchMaxSize()).isEqualTo(1024);
+		assertThat(consumer.getPullBatchSize()).isEqualTo(1024);
+		// 32 batches of 32 records per delivery, so 8 deliveries in progress.
+		assertThat(consumer.getConsumeThreadMax()).isEqualTo(8);
+	}
+
+	@Test
+	public void clampKeyOrderedBatchSize() {
+		ExtendedConsumerProperties<RocketMQConsumerProperties> properties = new ExtendedConsumerProperties<>(
+				new RocketMQConsumerProperties());
+		properties.getExtension().setGroup("test-group");
+		properties.getExtension().setNameServer("127.0.0.1:9876");
+		properties.getExtension().getPush().setOrderly(true);
+		properties.getExtension().getPush().setKeyOrdered(true);
+		properties.setConcurrency(2048);
+		DefaultMQPushConsumer consumer = RocketMQConsumerFactory
+				.initPushConsumer(properties);
+		assertThat(consumer.getConsumeMessageBatchMaxSize()).isEqualTo(1024);
+	}
+
+	private static ExtendedConsumerProperties<RocketMQConsumerProperties> virtualThreadProperties(
+			int concurrency) {
+		ExtendedConsumerProperties<RocketMQConsumerProperties> properties = new ExtendedConsumerProperties<>(
+				new RocketMQConsumerProperties());
+		properties.getExtension().setGroup("test-group");
+		properties.getExtension().setNameServer("127.0.0.1:9876");
+		properties.getExtension().getPush().setVirtualThreads(true);
+		properties.setConcurrency(concurrency);
+		return properties;
+	}
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.stream.binder.rocketmq.integration.inbound;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.common.message.MessageQueue;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RocketMQKeyOrderedDispatcherTest {
+
+	private final MessageQueue queue = new MessageQueue("topic", "broker", 0);
+
+	@Test
+	public void keepOrderPerKey() throws Exception {
+		RocketMQKeyOrderedDispatcher dispatcher = new RocketMQKeyOrderedDispatcher(
+				"test", 4, null);
+		List<MessageExt> messages = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			messages.add(messageExt(i, "key" + (i % 5)));
+		}
+		List<MessageExt> handled = new CopyOnWriteArrayList<>();
+		assertThat(dispatcher.dispatch(queue, messages, handled::add)).isTrue();
+
+		assertThat(handled).hasSize(40);
+		for (int key = 0; key < 5; key++) {
+			long last = -1;
+			for (MessageExt messageExt : handled) {
+				if (messageExt.getKeys().equals("key" + key)) {
+					assertThat(messageExt.getQueueOffset()).isGreaterThan(last);
+					last = messageExt.getQueueOffset();
+				}
+			}
+		}
+		dispatcher.shutdown();
+	}
+
+	@Test
+	public void skipFailedKeyAndCompletedOffsetsOnRedelivery() throws Exception {
+		RocketMQKeyOrderedDispatcher dispatcher = new RocketMQKeyOrderedDispatcher(
+				"test", 2, null);
+		List<MessageExt> messages = Arrays.asList(messageExt(0, "a"),
+				messageExt(1, "b"), messageExt(2, "a"), messageExt(3, "b"));
+		List<Long> handled = new CopyOnWriteArrayList<>();
+		boolean[] fail = { true };
+
+		assertThat(dispatcher.dispatch(queue, messages, messageExt -> {
+			if (fail[0] && messageExt.getQueueOffset() == 0) {
+				throw new IllegalStateException("failed");
+			}
+			handled.add(messageExt.getQueueOffset());
+		})).isFalse();
+		assertThat(handled).containsExactlyInAnyOrder(1L, 3L);
+
+		fail[0] = false;
+		handled.clear();
+		assertThat(dispatcher.dispatch(queue, messages,
+				messageExt -> handled.add(messageExt.getQueueOffset()))).isTrue();
+		Collections.sort(handled);
+		assertThat(handled).containsExactly(0L, 2L);
+		dispatcher.shutdown();
+	}
+
+	@Test
+	public void forgetCompletedOffsetsOfAnotherDelivery() throws Exception {
+		RocketMQKeyOrderedDispatcher dispatcher = new RocketMQKeyOrderedDispatcher(
+				"test", 2, null);
+		List<MessageExt> messages = Arrays.asList(messageExt(0, "a"),
+				messageExt(1, "b"));
+		assertThat(dispatcher.dispatch(queue, messages, messageExt -> {
+			if (messageExt.getQueueOffset() == 0) {
+				throw new IllegalStateException("failed");
+			}
+		})).isFalse();
+
+		// the offset was reset, the delivery starting at offset 1 is consumed fully.
+		List<Long> handled = new CopyOnWriteArrayList<>();
+		assertThat(dispatcher.dispatch(queue,
+				Arrays.asList(messageExt(1, "b"), messageExt(2, "a")),
+				messageExt -> handled.add(messageExt.getQueueOffset()))).isTrue();
+		Collections.sort(handled);
+		assertThat(handled).containsExactly(1L, 2L);
+		dispatcher.shutdown();
+	}
+
+	@Test
+	public void forgetCompletedOffsetsOfUnassignedQueue() throws Exception {
+		Set<MessageQueue> assigned = ConcurrentHashMap.newKeySet();
+		assigned.add(queue);
+		RocketMQKeyOrderedDispatcher dispatcher = new RocketMQKeyOrderedDispatcher(
+				"test", 2, null, assigned::contains);
+		List<MessageExt> messages = Arrays.asList(messageExt(0, "a"),
+				messageExt(1, "b"));
+		assertThat(dispatcher.dispatch(queue, messages, messageExt -> {
+			if (messageExt.getQueueOffset() == 0) {
+				throw new IllegalStateException("failed");
+			}
+		})).isFalse();
+
+		// the queue is rebalanced away and assigned back later.
+		assigned.remove(queue);
+		MessageQueue other = new MessageQueue("topic", "broker", 1);
+		assertThat(dispatcher.dispatch(other,
+				Collections.singletonList(messageExt(0, "c")), messageExt -> {
+				})).isTrue();
+		assigned.add(queue);
+		List<Long> handled = new CopyOnWriteArrayList<>();
+		assertThat(dispatcher.dispatch(queue, messages,
+				messageExt -> handled.add(messageExt.getQueueOffset()))).isTrue();
+		Collections.sort(handled);
+		assertThat(handled).containsExactly(0L, 1L);
+		dispatcher.shutdown();
+	}
+
+	private static MessageExt messageExt(long offset, String key) {
+		MessageExt messageExt = new MessageExt();
+		messageExt.setTopic("topic");
+		messageExt.setQueueOffset(offset);
+		messageExt.setKeys(key);
+		return messageExt;
+	}
+
+}
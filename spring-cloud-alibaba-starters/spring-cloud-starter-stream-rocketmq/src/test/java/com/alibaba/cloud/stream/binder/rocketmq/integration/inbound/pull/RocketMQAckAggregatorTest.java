@@ -0,0 +1,83 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.stream.binder.rocketmq.integration.inbound.pull;
+
+import java.util.Collections;
+
+import org.apache.rocketmq.client.consumer.DefaultLitePullConsumer;
+import org.apache.rocketmq.common.message.MessageQueue;
+import org.junit.jupiter.api.Test;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class RocketMQAckAggregatorTest {
+
+	private final MessageQueue queue = new MessageQueue("topic", "broker", 0);
+
+	@Test
+	public void commitHighestContiguousOffset() throws Exception {
+		DefaultLitePullConsumer consumer = mock(DefaultLitePullConsumer.class);
+		RocketMQAckAggregator aggregator = new RocketMQAckAggregator(consumer, 1000);
+		for (long offset = 10; offset < 14; offset++) {
+			aggregator.track(queue, offset);
+		}
+
+		aggregator.acknowledge(queue, 11);
+		aggregator.acknowledge(queue, 13);
+		aggregator.commit();
+		verify(consumer, never()).commit(anyMap(), anyBoolean());
+
+		aggregator.acknowledge(queue, 10);
+		aggregator.commit();
+		verify(consumer).commit(Collections.singletonMap(queue, 12L), false);
+
+		aggregator.acknowledge(queue, 12);
+		aggregator.commit();
+		verify(consumer).commit(Collections.singletonMap(queue, 14L), false);
+	}
+
+	@Test
+	public void requeueRewindsPendingOffsets() throws Exception {
+		DefaultLitePullConsumer consumer = mock(DefaultLitePullConsumer.class);
+		RocketMQAckAggregator aggregator = new RocketMQAckAggregator(consumer, 1000);
+		for (long offset = 0; offset < 40; offset++) {
+			aggregator.track(queue, offset);
+		}
+		aggregator.acknowledge(queue, 0);
+		aggregator.requeue(queue, 1);
+		verify(consumer).seek(queue, 1);
+
+		aggregator.track(queue, 1);
+		aggregator.acknowledge(queue, 1);
+		aggregator.commit();
+		verify(consumer).commit(Collections.singletonMap(queue, 2L), false);
+	}
+
+	@Test
+	public void commitOnEveryAcknowledgementWithoutInterval() {
+		DefaultLitePullConsumer consumer = mock(DefaultLitePullConsumer.class);
+		RocketMQAckAggregator aggregator = new RocketMQAckAggregator(consumer, 0);
+		aggregator.track(queue, 5);
+		aggregator.acknowledge(queue, 5);
+		verify(consumer).commit(Collections.singletonMap(queue, 6L), false);
+	}
+
+}
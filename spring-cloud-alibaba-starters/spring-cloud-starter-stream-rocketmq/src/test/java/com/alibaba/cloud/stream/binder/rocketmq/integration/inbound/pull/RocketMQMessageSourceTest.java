@@ -0,0 +1,166 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.stream.binder.rocketmq.integration.inbound.pull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.alibaba.cloud.stream.binder.rocketmq.properties.RocketMQConsumerProperties;
+import org.apache.rocketmq.client.consumer.DefaultLitePullConsumer;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.common.message.MessageQueue;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import org.springframework.cloud.stream.binder.ExtendedConsumerProperties;
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.acks.AcknowledgmentCallback;
+import org.springframework.messaging.Message;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RocketMQMessageSourceTest {
+
+	private static final String TOPIC = "topic";
+
+	@Test
+	public void receiveDrainsOnePollBeforePollingAgain() {
+		DefaultLitePullConsumer consumer = mock(DefaultLitePullConsumer.class);
+		when(consumer.poll()).thenReturn(
+				Arrays.asList(messageExt("a", 0), messageExt("b", 1), messageExt("c", 0)),
+				Collections.emptyList());
+		RocketMQMessageSource source = messageSource(consumer);
+
+		assertThat(source.receive().getPayload()).isEqualTo("a".getBytes());
+		List<Message<byte[]>> batch = source.receiveBatch(10);
+		assertThat(batch).hasSize(2);
+		assertThat(batch.get(0).getPayload()).isEqualTo("b".getBytes());
+		assertThat(batch.get(1).getPayload()).isEqualTo("c".getBytes());
+		assertThat(batch.get(1).getHeaders()
+				.get(IntegrationMessageHeaderAccessor.ACKNOWLEDGMENT_CALLBACK))
+				.isNotNull();
+		verify(consumer, times(1)).poll();
+
+		assertThat(source.receive()).isNull();
+		assertThat(source.receiveBatch(10)).isEmpty();
+	}
+
+	@Test
+	public void receiveBatchHonoursMax() {
+		DefaultLitePullConsumer consumer = mock(DefaultLitePullConsumer.class);
+		when(consumer.poll()).thenReturn(Arrays.asList(messageExt("a", 0),
+				messageExt("b", 0), messageExt("c", 1)));
+		RocketMQMessageSource source = messageSource(consumer);
+
+		assertThat(source.receiveBatch(2)).hasSize(2);
+		assertThat(source.receiveBatch(2)).hasSize(1);
+	}
+
+	@Test
+	public void rejectUnassignedQueue() {
+		DefaultLitePullConsumer consumer = mock(DefaultLitePullConsumer.class);
+		when(consumer.poll()).thenReturn(Collections.singletonList(messageExt("a", 5)));
+		RocketMQMessageSource source = messageSource(consumer);
+
+		assertThatThrownBy(source::receive)
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void requeueDiscardsBufferedRecordsOfQueue() throws Exception {
+		DefaultLitePullConsumer consumer = mock(DefaultLitePullConsumer.class);
+		MessageExt first = messageExt("a", 0);
+		first.setQueueOffset(10);
+		MessageExt second = messageExt("b", 0);
+		second.setQueueOffset(11);
+		MessageExt other = messageExt("c", 1);
+		other.setQueueOffset(11);
+		when(consumer.poll()).thenReturn(Arrays.asList(first, second, other));
+		RocketMQMessageSource source = messageSource(consumer);
+
+		Message<?> message = source.receive();
+		AcknowledgmentCallback callback = (AcknowledgmentCallback) message.getHeaders()
+				.get(IntegrationMessageHeaderAccessor.ACKNOWLEDGMENT_CALLBACK);
+		callback.acknowledge(AcknowledgmentCallback.Status.REQUEUE);
+
+		// b is delivered again after the seek, it must not be handed out twice.
+		verify(consumer).seek(new MessageQueue(TOPIC, "broker", 0), 10);
+		List<Message<byte[]>> batch = source.receiveBatch(10);
+		assertThat(batch).hasSize(1);
+		assertThat(batch.get(0).getPayload()).isEqualTo("c".getBytes());
+	}
+
+	@Test
+	public void receiveListInBatchMode() throws Exception {
+		DefaultLitePullConsumer consumer = mock(DefaultLitePullConsumer.class);
+		MessageExt first = messageExt("a", 0);
+		first.setQueueOffset(10);
+		MessageExt second = messageExt("b", 0);
+		second.setQueueOffset(11);
+		when(consumer.poll()).thenReturn(Arrays.asList(first, second));
+		ExtendedConsumerProperties<RocketMQConsumerProperties> properties = new ExtendedConsumerProperties<>(
+				new RocketMQConsumerProperties());
+		properties.setBatchMode(true);
+		RocketMQMessageSource source = messageSource(consumer, properties);
+
+		Message<?> message = source.receive();
+		assertThat((List<Object>) message.getPayload()).containsExactly("a".getBytes(),
+				"b".getBytes());
+		AcknowledgmentCallback callback = (AcknowledgmentCallback) message.getHeaders()
+				.get(IntegrationMessageHeaderAccessor.ACKNOWLEDGMENT_CALLBACK);
+		callback.acknowledge(AcknowledgmentCallback.Status.REQUEUE);
+
+		// the whole batch is delivered again, from its first offset.
+		InOrder inOrder = inOrder(consumer);
+		inOrder.verify(consumer).seek(new MessageQueue(TOPIC, "broker", 0), 11);
+		inOrder.verify(consumer).seek(new MessageQueue(TOPIC, "broker", 0), 10);
+		assertThat(callback.isAcknowledged()).isTrue();
+	}
+
+	private static RocketMQMessageSource messageSource(
+			DefaultLitePullConsumer consumer) {
+		return messageSource(consumer,
+				new ExtendedConsumerProperties<>(new RocketMQConsumerProperties()));
+	}
+
+	private static RocketMQMessageSource messageSource(DefaultLitePullConsumer consumer,
+			ExtendedConsumerProperties<RocketMQConsumerProperties> properties) {
+		RocketMQMessageSource source = new RocketMQMessageSource(TOPIC, properties);
+		ReflectionTestUtils.setField(source, "consumer", consumer);
+		source.updateMessageQueues(TOPIC, Arrays.asList(
+				new MessageQueue(TOPIC, "broker", 0), new MessageQueue(TOPIC, "broker", 1)));
+		return source;
+	}
+
+	private static MessageExt messageExt(String body, int queueId) {
+		MessageExt messageExt = new MessageExt();
+		messageExt.setTopic(TOPIC);
+		messageExt.setBrokerName("broker");
+		messageExt.setQueueId(queueId);
+		messageExt.setBody(body.getBytes());
+		return messageExt;
+	}
+
+}
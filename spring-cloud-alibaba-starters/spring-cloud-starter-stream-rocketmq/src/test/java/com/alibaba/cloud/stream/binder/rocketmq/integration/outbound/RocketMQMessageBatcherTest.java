@@ -0,0 +1,250 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.stream.binder.rocketmq.integration.outbound;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.alibaba.cloud.stream.binder.rocketmq.metrics.RocketMQProducerMetrics;
+import com.alibaba.cloud.stream.binder.rocketmq.properties.RocketMQProducerProperties;
+import org.apache.rocketmq.client.producer.DefaultMQProducer;
+import org.apache.rocketmq.client.producer.SendCallback;
+import org.apache.rocketmq.client.producer.SendResult;
+import org.apache.rocketmq.client.producer.SendStatus;
+import org.apache.rocketmq.remoting.exception.RemotingException;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RocketMQMessageBatcherTest {
+
+	@Test
+	public void flushWhenMaxCountReached() throws Exception {
+		DefaultMQProducer producer = mock(DefaultMQProducer.class);
+		SendResult sendResult = new SendResult();
+		sendResult.setSendStatus(SendStatus.SEND_OK);
+		when(producer.send(anyCollection())).thenReturn(sendResult);
+		List<Message<?>> failed = new ArrayList<>();
+		RocketMQMessageBatcher batcher = new RocketMQMessageBatcher("test", producer,
+				properties(2), (message, result) -> {
+				}, (message, e) -> failed.add(message));
+
+		batcher.add(mqMessage("a"), null, null, MessageBuilder.withPayload("a").build());
+		batcher.add(mqMessage("b"), null, null, MessageBuilder.withPayload("b").build());
+		batcher.add(mqMessage("c"), null, null, MessageBuilder.withPayload("c").build());
+		batcher.stop();
+
+		ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass(Collection.class);
+		verify(producer, times(2)).send(captor.capture());
+		assertThat(captor.getAllValues().get(0)).hasSize(2);
+		assertThat(captor.getAllValues().get(1)).hasSize(1);
+		assertThat(failed).isEmpty();
+	}
+
+	@Test
+	public void failEveryMessageOfSyncBatch() throws Exception {
+		DefaultMQProducer producer = mock(DefaultMQProducer.class);
+		when(producer.send(anyCollection()))
+				.thenThrow(new RemotingException("broker unavailable"));
+		List<Message<?>> failed = new ArrayList<>();
+		RocketMQMessageBatcher batcher = new RocketMQMessageBatcher("test", producer,
+				properties(2), (message, result) -> {
+				}, (message, e) -> failed.add(message));
+
+		CompletableFuture<SendResult> first = batcher.add(mqMessage("a"), null, null,
+				MessageBuilder.withPayload("a").build());
+		CompletableFuture<SendResult> second = batcher.add(mqMessage("b"), null, null,
+				MessageBuilder.withPayload("b").build());
+
+		// the callers get the failure, it is not swallowed by the failure handler.
+		assertThatThrownBy(first::get).hasCauseInstanceOf(RemotingException.class);
+		assertThatThrownBy(second::get).hasCauseInstanceOf(RemotingException.class);
+		assertThat(failed).isEmpty();
+	}
+
+	@Test
+	public void failEveryMessageOfAsyncBatch() throws Exception {
+		DefaultMQProducer producer = mock(DefaultMQProducer.class);
+		doThrow(new RemotingException("broker unavailable")).when(producer)
+				.send(anyCollection(), any(SendCallback.class));
+		List<Message<?>> failed = new ArrayList<>();
+		RocketMQProducerProperties properties = properties(2);
+		properties.setSendType(RocketMQProducerProperties.SendType.Async.name());
+		RocketMQMessageBatcher batcher = new RocketMQMessageBatcher("test", producer,
+				properties, (message, result) -> {
+				}, (message, e) -> failed.add(message));
+
+		Message<String> first = MessageBuilder.withPayload("a").build();
+		Message<String> second = MessageBuilder.withPayload("b").build();
+		assertThat(batcher.add(mqMessage("a"), null, null, first)).isNull();
+		assertThat(batcher.add(mqMessage("b"), null, null, second)).isNull();
+
+		assertThat(failed).containsExactly(first, second);
+	}
+
+	@Test
+	public void skipWithdrawnMessagesOfSyncBatch() throws Exception {
+		DefaultMQProducer producer = mock(DefaultMQProducer.class);
+		SendResult sendResult = new SendResult();
+		sendResult.setSendStatus(SendStatus.SEND_OK);
+		when(producer.send(anyCollection())).thenReturn(sendResult);
+		RocketMQMessageBatcher batcher = new RocketMQMessageBatcher("test", producer,
+				properties(2), (message, result) -> {
+				}, (message, e) -> {
+				});
+
+		CompletableFuture<SendResult> first = batcher.add(mqMessage("a"), null, null,
+				MessageBuilder.withPayload("a").build());
+		IllegalStateException timeout = new IllegalStateException("timeout");
+		assertThat(batcher.withdraw(first, timeout)).isTrue();
+		assertThatThrownBy(first::get).hasCause(timeout);
+
+		// the batch is full and sent without the withdrawn message.
+		CompletableFuture<SendResult> second = batcher.add(mqMessage("b"), null, null,
+				MessageBuilder.withPayload("b").build());
+		ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass(Collection.class);
+		verify(producer).send(captor.capture());
+		assertThat(captor.getValue()).hasSize(1);
+		org.apache.rocketmq.common.message.Message sent = (org.apache.rocketmq.common.message.Message) captor
+				.getValue().iterator().next();
+		assertThat(sent.getBody()).isEqualTo("b".getBytes());
+
+		// too late to withdraw a sent message, its result is the one of the send.
+		assertThat(batcher.withdraw(second, timeout)).isFalse();
+		assertThat(second.get()).isSameAs(sendResult);
+	}
+
+	@Test
+	public void asyncBatchTakesOneWindowSlot() throws Exception {
+		DefaultMQProducer producer = mock(DefaultMQProducer.class);
+		RocketMQProducerProperties properties = properties(2);
+		properties.setSendType(RocketMQProducerProperties.SendType.Async.name());
+		RocketMQSendWindow sendWindow = new RocketMQSendWindow(1, 100);
+		List<Boolean> sends = new ArrayList<>();
+		RocketMQMessageBatcher batcher = new RocketMQMessageBatcher("test", producer,
+				properties, (message, result) -> {
+				}, (message, e) -> {
+				}, sendWindow, (latencyNanos, success) -> sends.add(success));
+
+		batcher.add(mqMessage("a"), null, null, MessageBuilder.withPayload("a").build());
+		batcher.add(mqMessage("b"), null, null, MessageBuilder.withPayload("b").build());
+		ArgumentCaptor<SendCallback> callback = ArgumentCaptor
+				.forClass(SendCallback.class);
+		verify(producer).send(anyCollection(), callback.capture());
+		assertThat(sendWindow.getInFlight()).isEqualTo(1);
+
+		SendResult sendResult = new SendResult();
+		sendResult.setSendStatus(SendStatus.SEND_OK);
+		callback.getValue().onSuccess(sendResult);
+		assertThat(sendWindow.getInFlight()).isZero();
+		assertThat(sends).containsExactly(true);
+	}
+
+	@Test
+	public void addWhileSenderWaitsForWindow() throws Exception {
+		DefaultMQProducer producer = mock(DefaultMQProducer.class);
+		RocketMQProducerProperties properties = properties(2);
+		properties.setSendType(RocketMQProducerProperties.SendType.Async.name());
+		RocketMQSendWindow sendWindow = new RocketMQSendWindow(1, 5000);
+		RocketMQMessageBatcher batcher = new RocketMQMessageBatcher("test", producer,
+				properties, (message, result) -> {
+				}, (message, e) -> {
+				}, sendWindow, RocketMQProducerMetrics.NONE);
+		batcher.add(mqMessage("a"), null, null, MessageBuilder.withPayload("a").build());
+		batcher.add(mqMessage("b"), null, null, MessageBuilder.withPayload("b").build());
+
+		// the second batch waits for the slot taken by the first one.
+		Thread sender = addInBackground(batcher, "c", "d");
+		while (sender.getState() != Thread.State.TIMED_WAITING) {
+			Thread.sleep(1);
+		}
+
+		Thread adder = addInBackground(batcher, "e");
+		adder.join(1000);
+		assertThat(adder.isAlive()).isFalse();
+
+		ArgumentCaptor<SendCallback> callback = ArgumentCaptor
+				.forClass(SendCallback.class);
+		verify(producer).send(anyCollection(), callback.capture());
+		SendResult sendResult = new SendResult();
+		sendResult.setSendStatus(SendStatus.SEND_OK);
+		callback.getValue().onSuccess(sendResult);
+		sender.join(1000);
+		verify(producer, times(2)).send(anyCollection(), any(SendCallback.class));
+	}
+
+	@Test
+	public void rejectMessagesAfterStop() throws Exception {
+		DefaultMQProducer producer = mock(DefaultMQProducer.class);
+		RocketMQMessageBatcher batcher = new RocketMQMessageBatcher("test", producer,
+				properties(2), (message, result) -> {
+				}, (message, e) -> {
+				});
+
+		batcher.stop();
+
+		// the final flush is over, a late message would never be sent.
+		assertThatThrownBy(() -> batcher.add(mqMessage("a"), null, null,
+				MessageBuilder.withPayload("a").build()))
+				.isInstanceOf(IllegalStateException.class);
+		verify(producer, never()).send(anyCollection());
+	}
+
+	private static Thread addInBackground(RocketMQMessageBatcher batcher,
+			String... bodies) {
+		Thread thread = new Thread(() -> {
+			for (String body : bodies) {
+				try {
+					batcher.add(mqMessage(body), null, null,
+							MessageBuilder.withPayload(body).build());
+				}
+				catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		});
+		thread.start();
+		return thread;
+	}
+
+	private static RocketMQProducerProperties properties(int maxCount) {
+		RocketMQProducerProperties properties = new RocketMQProducerProperties();
+		properties.getBatch().setEnabled(true);
+		properties.getBatch().setMaxCount(maxCount);
+		return properties;
+	}
+
+	private static org.apache.rocketmq.common.message.Message mqMessage(String body) {
+		return new org.apache.rocketmq.common.message.Message("test", body.getBytes());
+	}
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.stream.binder.rocketmq.integration.outbound;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.messaging.MessagingException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RocketMQSendWindowTest {
+
+	@Test
+	public void blockWhenWindowIsFull() throws Exception {
+		RocketMQSendWindow window = new RocketMQSendWindow(2, 10);
+		window.acquire();
+		window.acquire();
+		assertThat(window.getInFlight()).isEqualTo(2);
+		assertThatThrownBy(window::acquire).isInstanceOf(MessagingException.class);
+
+		window.release();
+		window.acquire();
+		assertThat(window.getInFlight()).isEqualTo(2);
+	}
+
+	@Test
+	public void unboundedWindowOnlyCounts() throws Exception {
+		RocketMQSendWindow window = new RocketMQSendWindow(0, 10);
+		for (int i = 0; i < 100; i++) {
+			window.acquire();
+		}
+		assertThat(window.getInFlight()).isEqualTo(100);
+	}
+
+}